@@ -0,0 +1,119 @@
+#!/usr/bin/env bash
+#
+# Startup benchmark for the image variants: builds each image, starts it RUNS times and
+# reports the time from process start to the first consumed Kafka record, taken from the
+# "First record consumed ... ms after process start" log line.
+#
+# Needs the local infrastructure (PostgreSQL + Kafka) from the main Planify repository.
+# Every run joins a fresh consumer group and writes to the analytics_startup_bench schema,
+# so the oldest record on the topics is consumed as soon as partitions are assigned; one
+# probe record is produced up front in case the topics are empty.
+#
+# Usage:   scripts/startup-benchmark.sh [jvm] [fast-startup] [native]
+# Env:     RUNS (3), DB_URL, SPRING_DATASOURCE_USERNAME, SPRING_DATASOURCE_PASSWORD,
+#          KAFKA_BOOTSTRAP_SERVERS, KAFKA_CONTAINER (kafka), DOCKER_NETWORK (host),
+#          TIMEOUT_SECONDS (300), REPORT (target/startup-benchmark.json)
+
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+
+RUNS=${RUNS:-3}
+DB_URL=${DB_URL:-jdbc:postgresql://localhost:5432/planify}
+SPRING_DATASOURCE_USERNAME=${SPRING_DATASOURCE_USERNAME:-planify}
+SPRING_DATASOURCE_PASSWORD=${SPRING_DATASOURCE_PASSWORD:-planify}
+KAFKA_BOOTSTRAP_SERVERS=${KAFKA_BOOTSTRAP_SERVERS:-localhost:9092}
+KAFKA_CONTAINER=${KAFKA_CONTAINER:-kafka}
+DOCKER_NETWORK=${DOCKER_NETWORK:-host}
+TIMEOUT_SECONDS=${TIMEOUT_SECONDS:-300}
+REPORT=${REPORT:-target/startup-benchmark.json}
+
+if [ $# -eq 0 ]; then
+  set -- jvm fast-startup native
+fi
+
+dockerfile() {
+  case "$1" in
+    jvm) echo Dockerfile ;;
+    fast-startup) echo Dockerfile.fast-startup ;;
+    native) echo Dockerfile.native ;;
+    *) echo "Unknown variant: $1" >&2; exit 1 ;;
+  esac
+}
+
+produce_probe() {
+  local payload="{\"eventId\":\"$(cat /proc/sys/kernel/random/uuid)\"}"
+  echo "$payload" | docker exec -i "$KAFKA_CONTAINER" sh -c \
+    'PATH=$PATH:/opt/kafka/bin:/opt/bitnami/kafka/bin; \
+     if command -v kafka-console-producer.sh >/dev/null; then cli=kafka-console-producer.sh; else cli=kafka-console-producer; fi; \
+     $cli --bootstrap-server localhost:9092 --topic event-updated' >/dev/null \
+    || echo "Could not produce a probe record through container '$KAFKA_CONTAINER', relying on existing topic data" >&2
+}
+
+median() {
+  tr ' ' '\n' | sort -n | awk 'NF { values[++n] = $1 } END { if (n == 0) { print "null" } else if (n % 2) { print values[(n + 1) / 2] } else { print (values[n / 2] + values[n / 2 + 1]) / 2 } }'
+}
+
+container=""
+cleanup() {
+  if [ -n "$container" ]; then
+    docker rm -f "$container" >/dev/null 2>&1 || true
+  fi
+}
+trap cleanup EXIT
+
+produce_probe
+mkdir -p "$(dirname "$REPORT")"
+
+variants_json=()
+for variant in "$@"; do
+  image="planify/analytics-service:startup-bench-$variant"
+  echo "==> Building $variant ($(dockerfile "$variant"))"
+  docker build -q -f "$(dockerfile "$variant")" -t "$image" . >/dev/null
+
+  first_record=()
+  started=()
+  runs_json=()
+  for run in $(seq 1 "$RUNS"); do
+    container="analytics-startup-bench-$variant-$run-$$"
+    docker run -d --name "$container" --network "$DOCKER_NETWORK" \
+      -e SERVER_PORT=0 \
+      -e DB_URL="$DB_URL" \
+      -e SPRING_DATASOURCE_USERNAME="$SPRING_DATASOURCE_USERNAME" \
+      -e SPRING_DATASOURCE_PASSWORD="$SPRING_DATASOURCE_PASSWORD" \
+      -e DB_SCHEMA=analytics_startup_bench \
+      -e KAFKA_BOOTSTRAP_SERVERS="$KAFKA_BOOTSTRAP_SERVERS" \
+      -e SPRING_APPLICATION_NAME="$container" \
+      -e LOG_LEVEL_APP=INFO \
+      "$image" >/dev/null
+
+    ms=""
+    for _ in $(seq 1 $((TIMEOUT_SECONDS * 5))); do
+      ms=$(docker logs "$container" 2>&1 | sed -n 's/.*First record consumed \([0-9]*\) ms after process start.*/\1/p' | head -1 || true)
+      [ -n "$ms" ] && break
+      sleep 0.2
+    done
+    start_s=$(docker logs "$container" 2>&1 | sed -n 's/.*Started .* (process running for \([0-9.]*\)).*/\1/p' | head -1 || true)
+    cleanup
+    container=""
+
+    if [ -z "$ms" ]; then
+      echo "    run $run: no record consumed within ${TIMEOUT_SECONDS}s" >&2
+      runs_json+=("{\"run\":$run,\"timeToFirstRecordMs\":null,\"startupSeconds\":${start_s:-null}}")
+      continue
+    fi
+    echo "    run $run: first record after ${ms} ms (context started after ${start_s:-?} s)"
+    first_record+=("$ms")
+    [ -n "$start_s" ] && started+=("$start_s")
+    runs_json+=("{\"run\":$run,\"timeToFirstRecordMs\":$ms,\"startupSeconds\":${start_s:-null}}")
+  done
+
+  median_first=$(echo "${first_record[*]+"${first_record[*]}"}" | median)
+  median_start=$(echo "${started[*]+"${started[*]}"}" | median)
+  image_bytes=$(docker image inspect -f '{{.Size}}' "$image")
+  variants_json+=("{\"variant\":\"$variant\",\"dockerfile\":\"$(dockerfile "$variant")\",\"imageBytes\":$image_bytes,\"medianTimeToFirstRecordMs\":$median_first,\"medianStartupSeconds\":$median_start,\"runs\":[$(IFS=,; echo "${runs_json[*]}")]}")
+done
+
+printf '{"generatedAt":"%s","runsPerVariant":%s,"variants":[%s]}\n' \
+  "$(date -u +%Y-%m-%dT%H:%M:%SZ)" "$RUNS" "$(IFS=,; echo "${variants_json[*]}")" > "$REPORT"
+echo "==> Report written to $REPORT"
@@ -2,10 +2,12 @@ package com.planify.analytics;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 import org.springframework.kafka.annotation.EnableKafka;
 
 @SpringBootApplication
 @EnableKafka
+@ConfigurationPropertiesScan
 public class AnalyticsServiceApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,43 @@
+package com.planify.analytics.actuator;
+
+import com.planify.analytics.event.DeadLetterService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * {@code GET /actuator/deadletters} reports reprocessing progress,
+ * {@code POST /actuator/deadletters} re-drives the dead-letter topic (refused while the database
+ * circuit breaker is open) and {@code DELETE /actuator/deadletters} stops the running pass.
+ */
+@Component
+@Endpoint(id = "deadletters")
+@RequiredArgsConstructor
+public class DeadLetterEndpoint {
+    
+    private final DeadLetterService deadLetterService;
+    
+    @ReadOperation
+    public Map<String, Object> status() {
+        return deadLetterService.getStatus();
+    }
+    
+    @WriteOperation
+    public Map<String, Object> start() {
+        boolean started = deadLetterService.startReprocessing();
+        Map<String, Object> status = deadLetterService.getStatus();
+        status.put("accepted", started);
+        return status;
+    }
+    
+    @DeleteOperation
+    public Map<String, Object> stop() {
+        deadLetterService.stopReprocessing();
+        return deadLetterService.getStatus();
+    }
+}
@@ -0,0 +1,92 @@
+package com.planify.analytics.actuator;
+
+import com.planify.analytics.jfr.FlightRecorderService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * {@code GET /actuator/jfr} reports the continuous flight recording,
+ * {@code POST /actuator/jfr} dumps the last {@code minutes} (default 5) to the dump directory and
+ * {@code GET /actuator/jfr/{minutes}} downloads the last minutes as a .jfr file.
+ */
+@Component
+@Endpoint(id = "jfr")
+@RequiredArgsConstructor
+public class FlightRecordingEndpoint {
+
+    private static final int DEFAULT_MINUTES = 5;
+
+    private final FlightRecorderService flightRecorderService;
+
+    @ReadOperation
+    public Map<String, Object> status() {
+        return flightRecorderService.getStatus();
+    }
+
+    @WriteOperation
+    public Map<String, Object> dump(@Nullable Integer minutes) throws IOException {
+        Path file = flightRecorderService.dump(minutes != null ? minutes : DEFAULT_MINUTES);
+        Map<String, Object> status = flightRecorderService.getStatus();
+        status.put("file", file.toString());
+        status.put("fileSizeBytes", Files.size(file));
+        return status;
+    }
+
+    @ReadOperation(produces = "application/octet-stream")
+    public Resource download(@Selector int minutes) throws IOException {
+        Path file = Files.createTempFile("analytics-", ".jfr");
+        try {
+            flightRecorderService.dump(minutes, file);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        return new TemporaryFileResource(file);
+    }
+
+    /**
+     * Deletes the dumped file once it has been streamed to the client.
+     */
+    private static final class TemporaryFileResource extends FileSystemResource {
+
+        private final Path file;
+
+        private TemporaryFileResource(Path file) {
+            super(file);
+            this.file = file;
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return new FilterInputStream(super.getInputStream()) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        Files.deleteIfExists(file);
+                    }
+                }
+            };
+        }
+
+        @Override
+        public String getFilename() {
+            return "analytics.jfr";
+        }
+    }
+}
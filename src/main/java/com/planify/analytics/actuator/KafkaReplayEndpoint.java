@@ -0,0 +1,44 @@
+package com.planify.analytics.actuator;
+
+import com.planify.analytics.event.KafkaReplayService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * {@code GET /actuator/kafkareplay} reports replay progress,
+ * {@code POST /actuator/kafkareplay} with body {@code {"from": "2025-01-01T00:00:00Z"}} starts a replay and
+ * {@code DELETE /actuator/kafkareplay} stops the running one.
+ */
+@Component
+@Endpoint(id = "kafkareplay")
+@RequiredArgsConstructor
+public class KafkaReplayEndpoint {
+    
+    private final KafkaReplayService kafkaReplayService;
+    
+    @ReadOperation
+    public Map<String, Object> status() {
+        return kafkaReplayService.getStatus();
+    }
+    
+    @WriteOperation
+    public Map<String, Object> start(String from) {
+        boolean started = kafkaReplayService.startReplay(Instant.parse(from));
+        Map<String, Object> status = kafkaReplayService.getStatus();
+        status.put("accepted", started);
+        return status;
+    }
+    
+    @DeleteOperation
+    public Map<String, Object> stop() {
+        kafkaReplayService.stopReplay();
+        return kafkaReplayService.getStatus();
+    }
+}
@@ -0,0 +1,35 @@
+package com.planify.analytics.actuator;
+
+import com.planify.analytics.service.MetricsRebuildService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * {@code GET /actuator/metricsrebuild} reports progress of the current or last rebuild,
+ * {@code POST /actuator/metricsrebuild} starts a new one.
+ */
+@Component
+@Endpoint(id = "metricsrebuild")
+@RequiredArgsConstructor
+public class MetricsRebuildEndpoint {
+    
+    private final MetricsRebuildService metricsRebuildService;
+    
+    @ReadOperation
+    public Map<String, Object> status() {
+        return metricsRebuildService.getStatus();
+    }
+    
+    @WriteOperation
+    public Map<String, Object> start() {
+        boolean started = metricsRebuildService.startRebuild();
+        Map<String, Object> status = metricsRebuildService.getStatus();
+        status.put("accepted", started);
+        return status;
+    }
+}
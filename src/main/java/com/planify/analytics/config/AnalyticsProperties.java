@@ -0,0 +1,266 @@
+package com.planify.analytics.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Service-specific tuning knobs, bound from the {@code analytics.*} section of application.yaml.
+ */
+@Data
+@ConfigurationProperties(prefix = "analytics")
+public class AnalyticsProperties {
+    
+    private Rebuild rebuild = new Rebuild();
+    
+    private Replay replay = new Replay();
+    
+    private Ingest ingest = new Ingest();
+    
+    private Live live = new Live();
+    
+    private RetryTopics retryTopics = new RetryTopics();
+    
+    private DeadLetter deadLetter = new DeadLetter();
+    
+    private Graphql graphql = new Graphql();
+    
+    private Velocity velocity = new Velocity();
+    
+    private Sharding sharding = new Sharding();
+    
+    private MetricsTopic metricsTopic = new MetricsTopic();
+    
+    private Jfr jfr = new Jfr();
+    
+    private Cleanup cleanup = new Cleanup();
+    
+    private OrganizationSummary organizationSummary = new OrganizationSummary();
+    
+    private Archive archive = new Archive();
+    
+    private Audience audience = new Audience();
+    
+    @Data
+    public static class Rebuild {
+        // Number of eventId ranges recomputed in parallel
+        private int partitions = 4;
+        
+        // Events updated after (job start - catchUpMargin) get their descriptive columns copied again while swapping
+        private long catchUpMarginSeconds = 60;
+    }
+    
+    @Data
+    public static class Replay {
+        // Separate consumer group so replays never move the live group's offsets
+        private String groupId = "analytics-service-replay";
+        
+        private int maxPollRecords = 5000;
+        
+        private int fetchMinBytes = 1024 * 1024;
+        
+        private int fetchMaxWaitMs = 500;
+        
+        private int maxPartitionFetchBytes = 8 * 1024 * 1024;
+    }
+    
+    @Data
+    public static class Ingest {
+        // One ring buffer and writer thread per shard; records are sharded by eventId to keep per-event order
+        private int writerThreads = 2;
+        
+        // Capacity of each shard's ring buffer (rounded up to a power of two)
+        private int bufferCapacity = 8192;
+        
+        private int batchSize = 500;
+        
+        // Listener containers are paused above the high and resumed below the low watermark (fraction of total capacity)
+        private double pauseWatermark = 0.75;
+        
+        private double resumeWatermark = 0.25;
+    }
+    
+    @Data
+    public static class Live {
+        // Each subscribed event or organization is pushed at most once per interval
+        private long pushIntervalMillis = 1000;
+    }
+    
+    @Data
+    public static class RetryTopics {
+        // Delay before each retry topic is consumed; fewer entries than retry topics skip the later tiers
+        private List<Long> delaysSeconds = List.of(10L, 60L, 600L);
+        
+        private int partitions = 3;
+        
+        private short replicationFactor = 1;
+    }
+    
+    @Data
+    public static class DeadLetter {
+        // Consumer group that tracks how far the dead-letter topic has been reprocessed
+        private String groupId = "analytics-service-dlt";
+        
+        private int maxPollRecords = 500;
+    }
+    
+    @Data
+    public static class Graphql {
+        // Parsed and validated documents kept by query hash, also the store for persisted queries
+        private int documentCacheSize = 1000;
+        
+        private ResultCache resultCache = new ResultCache();
+    }
+    
+    @Data
+    public static class ResultCache {
+        private boolean enabled = false;
+        
+        private int maxEntries = 10_000;
+        
+        // Upper bound on staleness for writes the service does not see, such as manual database edits
+        private long ttlSeconds = 60;
+    }
+    
+    @Data
+    public static class Velocity {
+        // Width of one time bucket; windows are counted in whole buckets
+        private int bucketSeconds = 30;
+        
+        // Longest window that can be queried, also how much activity is reloaded on startup
+        private int windowMinutes = 60;
+        
+        // Reported with each velocity response; windows only hold what this instance consumed
+        private String instanceId = "local";
+    }
+    
+    @Data
+    public static class Sharding {
+        // Off: a single datasource from spring.datasource
+        private boolean enabled = false;
+        
+        // Points per shard on the consistent hash ring
+        private int virtualNodes = 128;
+        
+        // Remembered eventId -> shard mappings, so records that only carry an eventId skip the lookup
+        private int eventCacheSize = 100_000;
+        
+        private int maximumPoolSize = 10;
+        
+        // Order matters: the first shard is the default, and names must stay stable once data is written
+        private List<Shard> shards = new ArrayList<>();
+    }
+    
+    @Data
+    public static class Shard {
+        private String name;
+        
+        private String url;
+        
+        private String username;
+        
+        private String password;
+        
+        // Shards may share a database and differ only in schema
+        private String schema;
+    }
+    
+    @Data
+    public static class MetricsTopic {
+        // Off: no outbox rows are written and nothing is published
+        private boolean enabled = true;
+        
+        // Changes of an event within one interval are published as a single snapshot
+        private long publishIntervalMillis = 1000;
+        
+        // Outbox rows published per transaction
+        private int batchSize = 500;
+        
+        private long sendTimeoutMillis = 10_000;
+        
+        private int partitions = 3;
+        
+        private short replicationFactor = 1;
+    }
+    
+    @Data
+    public static class Jfr {
+        // Continuous flight recording, dumped on demand through /actuator/jfr
+        private boolean enabled = true;
+        
+        // Predefined JDK settings: "default" is built for always-on use, "profile" samples more and costs more
+        private String settings = "default";
+        
+        // Individual settings on top, keys in brackets, e.g. "[com.planify.analytics.RecordDecoded#threshold]": 1 ms
+        private Map<String, String> settingsOverrides = new HashMap<>();
+        
+        private int maxAgeMinutes = 30;
+        
+        private int maxSizeMb = 256;
+        
+        private String dumpDirectory = System.getProperty("java.io.tmpdir");
+    }
+    
+    @Data
+    public static class Cleanup {
+        // Off: deleted events stay hidden, but their rows are not removed
+        private boolean enabled = true;
+        
+        private long intervalMillis = 1000;
+        
+        // Rows deleted per statement and transaction
+        private int chunkSize = 1000;
+        
+        // Upper bound on chunks per run and shard, and the pause between them, so cleanup never saturates the database
+        private int maxChunksPerRun = 50;
+        
+        private long chunkPauseMillis = 20;
+        
+        // Completed tombstones keep hiding late activity and are swept once more before they are dropped
+        private int tombstoneRetentionHours = 168;
+    }
+    
+    @Data
+    public static class OrganizationSummary {
+        // Off: summaries are only maintained incrementally, drift is never corrected
+        private boolean reconcileEnabled = true;
+        
+        private long reconcileIntervalMinutes = 60;
+        
+        // Organizations locked and recomputed per transaction
+        private int reconcileChunkSize = 200;
+    }
+    
+    @Data
+    public static class Archive {
+        // Off: activity stays in user_activity, segments written earlier are still read
+        private boolean enabled = true;
+        
+        private long intervalMinutes = 10;
+        
+        // Activity of events that took place before this age is moved to segments once it is this old as well
+        private int olderThanDays = 365;
+        
+        // Rows per segment, moved in one transaction
+        private int segmentSize = 10000;
+        
+        // Upper bound on segments written per run and shard
+        private int maxSegmentsPerRun = 20;
+    }
+    
+    @Data
+    public static class Audience {
+        // Upper bound on the sets one query may combine
+        private int maxSets = 50;
+        
+        // Upper bound on the users returned per page
+        private int maxPageSize = 1000;
+        
+        // Events locked and rebuilt per transaction by metrics rebuilds
+        private int rebuildChunkSize = 100;
+    }
+}
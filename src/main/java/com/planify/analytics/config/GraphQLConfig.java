@@ -0,0 +1,31 @@
+package com.planify.analytics.config;
+
+import com.planify.analytics.graphql.DocumentCache;
+import graphql.GraphqlErrorBuilder;
+import org.springframework.boot.autoconfigure.graphql.GraphQlSourceBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.graphql.execution.DataFetcherExceptionResolver;
+import org.springframework.graphql.execution.DataFetcherExceptionResolverAdapter;
+import org.springframework.graphql.execution.ErrorType;
+
+/**
+ * Plugs the {@link DocumentCache} into GraphQL execution. The timing instrumentation and the
+ * result cache interceptor are picked up as beans by the GraphQL auto-configuration.
+ */
+@Configuration
+public class GraphQLConfig {
+    
+    @Bean
+    public GraphQlSourceBuilderCustomizer documentCacheCustomizer(DocumentCache documentCache) {
+        return builder -> builder.configureGraphQl(graphQl -> graphQl.preparsedDocumentProvider(documentCache));
+    }
+    
+    // Invalid arguments, e.g. a malformed audience expression, are the client's error
+    @Bean
+    public DataFetcherExceptionResolver illegalArgumentResolver() {
+        return DataFetcherExceptionResolverAdapter.from((exception, environment) -> exception instanceof IllegalArgumentException
+                ? GraphqlErrorBuilder.newError(environment).errorType(ErrorType.BAD_REQUEST).message(exception.getMessage()).build()
+                : null);
+    }
+}
@@ -0,0 +1,33 @@
+package com.planify.analytics.config;
+
+import com.planify.analytics.event.IngestOffsetTracker;
+import org.springframework.boot.autoconfigure.kafka.ConcurrentKafkaListenerContainerFactoryConfigurer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.listener.ContainerProperties;
+
+/**
+ * Listener container factory of the main topics.
+ */
+@Configuration
+public class KafkaIngestConfig {
+
+    /**
+     * Records are written by the pipeline after the listener returns, so offsets are committed
+     * through manual acknowledgments once {@link IngestOffsetTracker} has seen every record up
+     * to them written.
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> ingestListenerContainerFactory(
+            ConcurrentKafkaListenerContainerFactoryConfigurer configurer,
+            ConsumerFactory<Object, Object> kafkaConsumerFactory,
+            IngestOffsetTracker offsetTracker) {
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        configurer.configure(factory, kafkaConsumerFactory);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        factory.getContainerProperties().setConsumerRebalanceListener(offsetTracker);
+        return factory;
+    }
+}
@@ -0,0 +1,53 @@
+package com.planify.analytics.config;
+
+import com.planify.analytics.event.KafkaTopics;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.springframework.boot.autoconfigure.kafka.ConcurrentKafkaListenerContainerFactoryConfigurer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaAdmin;
+import org.springframework.kafka.listener.ContainerProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Retry and dead-letter topics, and the listener container factory used by the retry listeners.
+ */
+@Configuration
+public class KafkaRetryConfig {
+    
+    @Bean
+    public KafkaAdmin.NewTopics retryTopics(AnalyticsProperties properties) {
+        AnalyticsProperties.RetryTopics retryTopics = properties.getRetryTopics();
+        List<NewTopic> topics = new ArrayList<>();
+        for (String topic : KafkaTopics.RETRY) {
+            topics.add(TopicBuilder.name(topic)
+                    .partitions(retryTopics.getPartitions())
+                    .replicas(retryTopics.getReplicationFactor())
+                    .build());
+        }
+        topics.add(TopicBuilder.name(KafkaTopics.DEAD_LETTER)
+                .partitions(retryTopics.getPartitions())
+                .replicas(retryTopics.getReplicationFactor())
+                .build());
+        return new KafkaAdmin.NewTopics(topics.toArray(NewTopic[]::new));
+    }
+    
+    /**
+     * Manual acknowledgment lets a retry listener nack a record that is not due yet, which
+     * pauses the partition until then without blocking the consumer thread.
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> retryListenerContainerFactory(
+            ConcurrentKafkaListenerContainerFactoryConfigurer configurer,
+            ConsumerFactory<Object, Object> kafkaConsumerFactory) {
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        configurer.configure(factory, kafkaConsumerFactory);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL_IMMEDIATE);
+        return factory;
+    }
+}
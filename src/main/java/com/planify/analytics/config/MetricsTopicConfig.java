@@ -0,0 +1,26 @@
+package com.planify.analytics.config;
+
+import com.planify.analytics.event.KafkaTopics;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.core.KafkaAdmin;
+
+/**
+ * The compacted topic the latest event metrics are published to, see {@code MetricsTopicPublisher}.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "analytics.metrics-topic", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class MetricsTopicConfig {
+    
+    @Bean
+    public KafkaAdmin.NewTopics metricsTopic(AnalyticsProperties properties) {
+        AnalyticsProperties.MetricsTopic metricsTopic = properties.getMetricsTopic();
+        return new KafkaAdmin.NewTopics(TopicBuilder.name(KafkaTopics.EVENT_METRICS)
+                .partitions(metricsTopic.getPartitions())
+                .replicas(metricsTopic.getReplicationFactor())
+                .compact()
+                .build());
+    }
+}
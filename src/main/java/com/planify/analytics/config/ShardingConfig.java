@@ -0,0 +1,88 @@
+package com.planify.analytics.config;
+
+import com.planify.analytics.sharding.ShardRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.flywaydb.core.Flyway;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import javax.sql.DataSource;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * One connection pool per configured shard behind a {@link ShardRoutingDataSource}, used in place
+ * of the single {@code spring.datasource} when {@code analytics.sharding.enabled=true}.
+ * <p>
+ * Flyway migrates every shard with the {@code spring.flyway} settings, and Hibernate leaves
+ * table names unqualified so each shard's connection schema applies.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "analytics.sharding", name = "enabled", havingValue = "true")
+@Slf4j
+public class ShardingConfig {
+
+    @Bean
+    @Primary
+    public ShardRoutingDataSource dataSource(AnalyticsProperties properties) {
+        AnalyticsProperties.Sharding sharding = properties.getSharding();
+        if (sharding.getShards().isEmpty()) {
+            throw new IllegalStateException("analytics.sharding.enabled is set but no analytics.sharding.shards are configured");
+        }
+        Set<String> names = new HashSet<>();
+        Map<Object, Object> targets = new LinkedHashMap<>();
+        for (AnalyticsProperties.Shard shard : sharding.getShards()) {
+            if (!names.add(shard.getName())) {
+                throw new IllegalStateException("Duplicate shard name: " + shard.getName());
+            }
+            targets.put(shard.getName(), createDataSource(shard, sharding.getMaximumPoolSize()));
+        }
+
+        ShardRoutingDataSource dataSource = new ShardRoutingDataSource();
+        dataSource.setTargetDataSources(targets);
+        dataSource.setDefaultTargetDataSource(targets.values().iterator().next());
+        dataSource.setLenientFallback(false);
+        return dataSource;
+    }
+
+    @Bean
+    public FlywayMigrationStrategy shardedMigrationStrategy(ShardRoutingDataSource dataSource, AnalyticsProperties properties) {
+        return flyway -> {
+            for (AnalyticsProperties.Shard shard : properties.getSharding().getShards()) {
+                var configuration = Flyway.configure()
+                        .configuration(flyway.getConfiguration())
+                        .dataSource(dataSource.getShardDataSources().get(shard.getName()));
+                if (shard.getSchema() != null) {
+                    configuration.schemas(shard.getSchema()).defaultSchema(shard.getSchema());
+                }
+                var result = configuration.load().migrate();
+                log.info("Shard {} migrated: {} migrations applied", shard.getName(), result.migrationsExecuted);
+            }
+        };
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer unqualifiedTableNames() {
+        return hibernateProperties -> hibernateProperties.remove("hibernate.default_schema");
+    }
+
+    private static HikariDataSource createDataSource(AnalyticsProperties.Shard shard, int maximumPoolSize) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName("shard-" + shard.getName());
+        dataSource.setJdbcUrl(shard.getUrl());
+        dataSource.setUsername(shard.getUsername());
+        dataSource.setPassword(shard.getPassword());
+        dataSource.setMaximumPoolSize(maximumPoolSize);
+        if (shard.getSchema() != null) {
+            dataSource.setSchema(shard.getSchema());
+        }
+        return dataSource;
+    }
+}
@@ -1,7 +1,13 @@
 package com.planify.analytics.controller;
 
+import com.planify.analytics.model.Audience;
+import com.planify.analytics.model.AudienceExpression;
 import com.planify.analytics.model.EventMetrics;
+import com.planify.analytics.model.EventVelocity;
+import com.planify.analytics.model.FunnelMetrics;
+import com.planify.analytics.model.OrganizationSummary;
 import com.planify.analytics.model.UserActivity;
+import com.planify.analytics.model.UserActivitySummary;
 import com.planify.analytics.service.AnalyticsService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -13,6 +19,7 @@ import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -79,6 +86,40 @@ public class AnalyticsController {
         return ResponseEntity.ok(analyticsService.getUserActivities(userId));
     }
     
+    @GetMapping("/users/{userId}/summary")
+    @Operation(
+        summary = "Get user activity summary",
+        description = "Returns activity counts per type, distinct events and first/last activity of a specific user. Maintained as activity is ingested, so the cost does not grow with the user's history."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successfully retrieved user summary",
+                content = @Content(mediaType = "application/json", schema = @Schema(implementation = UserActivitySummary.class))),
+        @ApiResponse(responseCode = "400", description = "Invalid request body", content = @Content)
+    })
+    public ResponseEntity<UserActivitySummary> getUserSummary(
+            @Parameter(required = true)
+            @PathVariable UUID userId) {
+        log.info("Getting activity summary for user: {}", userId);
+        return ResponseEntity.ok(analyticsService.getUserSummary(userId));
+    }
+    
+    @GetMapping("/organizations/{organizationId}/summary")
+    @Operation(
+        summary = "Get organization summary",
+        description = "Returns event counts per status, invitation, RSVP and check-in totals and conversion rates over all events of a specific organization. Maintained as events and activity are ingested, so the cost does not grow with the number of events."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successfully retrieved organization summary",
+                content = @Content(mediaType = "application/json", schema = @Schema(implementation = OrganizationSummary.class))),
+        @ApiResponse(responseCode = "400", description = "Invalid request body", content = @Content)
+    })
+    public ResponseEntity<OrganizationSummary> getOrganizationSummary(
+            @Parameter(required = true)
+            @PathVariable UUID organizationId) {
+        log.info("Getting summary for organization: {}", organizationId);
+        return ResponseEntity.ok(analyticsService.getOrganizationSummary(organizationId));
+    }
+    
     @GetMapping("/events/{eventId}/activities")
     @Operation(
         summary = "Get event activity logs",
@@ -110,4 +151,82 @@ public class AnalyticsController {
         log.info("Getting active events count");
         return ResponseEntity.ok(analyticsService.getActiveEventsCount());
     }
-}
\ No newline at end of file
+    
+    @GetMapping("/events/{eventId}/velocity")
+    @Operation(
+        summary = "Get event activity velocity",
+        description = "Returns invitations, RSVPs and check-ins of a specific event over a recent sliding window, plus RSVP and check-in rates per hour. Served from memory, the window is capped at the configured maximum."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successfully retrieved event velocity",
+                content = @Content(mediaType = "application/json", schema = @Schema(implementation = EventVelocity.class))),
+        @ApiResponse(responseCode = "400", description = "Invalid request body", content = @Content)
+    })
+    public ResponseEntity<EventVelocity> getEventVelocity(
+            @Parameter(required = true)
+            @PathVariable UUID eventId,
+            @Parameter(description = "Window length in minutes")
+            @RequestParam(defaultValue = "5") int windowMinutes) {
+        log.info("Getting velocity for event: {} over {} minutes", eventId, windowMinutes);
+        return ResponseEntity.ok(analyticsService.getEventVelocity(eventId, windowMinutes));
+    }
+    
+    @GetMapping("/events/{eventId}/funnel")
+    @Operation(
+        summary = "Get event conversion funnel",
+        description = "Returns invite-to-RSVP-to-check-in conversion rates and median time-to-RSVP and time-to-check-in for a specific event."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successfully retrieved event funnel",
+                content = @Content(mediaType = "application/json", schema = @Schema(implementation = FunnelMetrics.class))),
+        @ApiResponse(responseCode = "400", description = "Invalid request body", content = @Content)
+    })
+    public ResponseEntity<FunnelMetrics> getEventFunnel(
+            @Parameter(required = true)
+            @PathVariable UUID eventId) {
+        log.info("Getting funnel for event: {}", eventId);
+        return ResponseEntity.ok(analyticsService.getEventFunnel(eventId));
+    }
+    
+    @GetMapping("/organizations/{organizationId}/funnel")
+    @Operation(
+        summary = "Get organization conversion funnel",
+        description = "Returns invite-to-RSVP-to-check-in conversion rates and median conversion times across all events of the specified organization."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successfully retrieved organization funnel",
+                content = @Content(mediaType = "application/json", schema = @Schema(implementation = FunnelMetrics.class))),
+        @ApiResponse(responseCode = "400", description = "Invalid request body", content = @Content)
+    })
+    public ResponseEntity<FunnelMetrics> getOrganizationFunnel(
+            @Parameter(required = true)
+            @PathVariable UUID organizationId) {
+        log.info("Getting funnel for organization: {}", organizationId);
+        return ResponseEntity.ok(analyticsService.getOrganizationFunnel(organizationId));
+    }
+    
+    @PostMapping("/audiences")
+    @Operation(
+        summary = "Query an audience",
+        description = "Evaluates a set expression over per-event audience sets, the users with at least one invitation, RSVP, check-in or view of an event, combined by UNION, INTERSECT and DIFFERENCE. Returns the number of users and, if first is positive, one page of them. All events of an expression must belong to one organization."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successfully evaluated audience",
+                content = @Content(mediaType = "application/json", schema = @Schema(implementation = Audience.class))),
+        @ApiResponse(responseCode = "400", description = "Invalid request body", content = @Content)
+    })
+    public ResponseEntity<Audience> queryAudience(
+            @RequestBody AudienceExpression expression,
+            @Parameter(description = "Number of users to return, 0 for the count only")
+            @RequestParam(defaultValue = "0") int first,
+            @Parameter(description = "endCursor of the previous page")
+            @RequestParam(required = false) String after) {
+        log.info("Querying audience, first {} after {}", first, after);
+        return ResponseEntity.ok(analyticsService.getAudience(expression, first, after));
+    }
+    
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> handleIllegalArgument(IllegalArgumentException e) {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+    }
+}
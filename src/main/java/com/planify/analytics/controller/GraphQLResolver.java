@@ -1,32 +1,53 @@
 package com.planify.analytics.controller;
 
-import com.planify.analytics.model.EventMetrics;
+import com.planify.analytics.model.Audience;
+import com.planify.analytics.model.AudienceExpression;
+import com.planify.analytics.model.EventMetricsView;
+import com.planify.analytics.model.EventStatusCount;
+import com.planify.analytics.model.EventVelocity;
+import com.planify.analytics.model.FunnelMetrics;
+import com.planify.analytics.model.OrganizationCounters;
+import com.planify.analytics.model.OrganizationSummary;
 import com.planify.analytics.model.SystemMetrics;
-import com.planify.analytics.model.UserActivity;
+import com.planify.analytics.model.UserActivitySummary;
+import com.planify.analytics.model.UserActivityView;
 import com.planify.analytics.service.AnalyticsService;
+import com.planify.analytics.service.LiveMetricsService;
+import graphql.schema.DataFetchingFieldSelectionSet;
+import graphql.schema.SelectedField;
 import lombok.RequiredArgsConstructor;
 import org.springframework.graphql.data.method.annotation.Argument;
 import org.springframework.graphql.data.method.annotation.QueryMapping;
+import org.springframework.graphql.data.method.annotation.SchemaMapping;
+import org.springframework.graphql.data.method.annotation.SubscriptionMapping;
 import org.springframework.stereotype.Controller;
+import reactor.core.publisher.Flux;
 
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
+/**
+ * Event metrics and activity lists are read as projections of the fields the query selects,
+ * into read models instead of entities; see {@link com.planify.analytics.repository.ProjectionRepository}.
+ */
 @Controller
 @RequiredArgsConstructor
 public class GraphQLResolver {
     
     private final AnalyticsService analyticsService;
+    private final LiveMetricsService liveMetricsService;
     
     // Event Metrics Queries
     @QueryMapping
-    public EventMetrics eventMetrics(@Argument String eventId) {
-        return analyticsService.getEventMetrics(UUID.fromString(eventId));
+    public EventMetricsView eventMetrics(@Argument String eventId, DataFetchingFieldSelectionSet selectionSet) {
+        return analyticsService.getEventMetricsView(UUID.fromString(eventId), fields(selectionSet));
     }
     
     @QueryMapping
-    public List<EventMetrics> eventMetricsByOrganization(@Argument String organizationId) {
-        return analyticsService.getEventMetricsByOrganization(UUID.fromString(organizationId));
+    public List<EventMetricsView> eventMetricsByOrganization(@Argument String organizationId, DataFetchingFieldSelectionSet selectionSet) {
+        return analyticsService.getEventMetricsViewsByOrganization(UUID.fromString(organizationId), fields(selectionSet));
     }
     
     @QueryMapping
@@ -34,15 +55,63 @@ public class GraphQLResolver {
         return analyticsService.getActiveEventsCount().intValue();
     }
     
+    @SchemaMapping(typeName = "EventMetrics")
+    public EventVelocity velocity(EventMetricsView eventMetrics, @Argument int windowMinutes) {
+        return analyticsService.getEventVelocity(eventMetrics.getEventId(), windowMinutes);
+    }
+    
+    // Velocity Queries
+    @QueryMapping
+    public EventVelocity eventVelocity(@Argument String eventId, @Argument int windowMinutes) {
+        return analyticsService.getEventVelocity(UUID.fromString(eventId), windowMinutes);
+    }
+    
+    // Funnel Queries
+    @QueryMapping
+    public FunnelMetrics eventFunnel(@Argument String eventId) {
+        return analyticsService.getEventFunnel(UUID.fromString(eventId));
+    }
+    
+    @QueryMapping
+    public FunnelMetrics organizationFunnel(@Argument String organizationId) {
+        return analyticsService.getOrganizationFunnel(UUID.fromString(organizationId));
+    }
+    
+    // Organization Queries
+    @QueryMapping
+    public OrganizationSummary organizationSummary(@Argument String organizationId) {
+        return analyticsService.getOrganizationSummary(UUID.fromString(organizationId));
+    }
+    
+    @SchemaMapping(typeName = "OrganizationSummary")
+    public List<EventStatusCount> eventsByStatus(OrganizationSummary summary) {
+        return summary.getEventsByStatus().entrySet().stream()
+                .map(entry -> new EventStatusCount(entry.getKey(), entry.getValue()))
+                .toList();
+    }
+    
     // User Activity Queries
     @QueryMapping
-    public List<UserActivity> userActivities(@Argument String userId) {
-        return analyticsService.getUserActivities(UUID.fromString(userId));
+    public List<UserActivityView> userActivities(@Argument String userId, DataFetchingFieldSelectionSet selectionSet) {
+        return analyticsService.getUserActivityViews(UUID.fromString(userId), fields(selectionSet));
+    }
+    
+    @QueryMapping
+    public UserActivitySummary userSummary(@Argument String userId) {
+        return analyticsService.getUserSummary(UUID.fromString(userId));
+    }
+    
+    @QueryMapping
+    public List<UserActivityView> eventActivities(@Argument String eventId, DataFetchingFieldSelectionSet selectionSet) {
+        return analyticsService.getEventActivityViews(UUID.fromString(eventId), fields(selectionSet));
     }
     
+    // Audience Queries
     @QueryMapping
-    public List<UserActivity> eventActivities(@Argument String eventId) {
-        return analyticsService.getEventActivities(UUID.fromString(eventId));
+    public Audience audience(@Argument AudienceExpression expression, @Argument int first, @Argument String after,
+                             DataFetchingFieldSelectionSet selectionSet) {
+        // Without userIds in the selection only the cardinality is computed
+        return analyticsService.getAudience(expression, selectionSet.contains("userIds") ? first : 0, after);
     }
     
     // System Metrics Queries
@@ -50,4 +119,21 @@ public class GraphQLResolver {
     public List<SystemMetrics> systemMetrics(@Argument String metricName) {
         return analyticsService.getSystemMetricsByName(metricName);
     }
+    
+    // Subscriptions
+    @SubscriptionMapping("eventMetrics")
+    public Flux<EventMetricsView> eventMetricsUpdates(@Argument String eventId) {
+        return liveMetricsService.eventMetrics(UUID.fromString(eventId)).map(EventMetricsView::from);
+    }
+    
+    @SubscriptionMapping
+    public Flux<OrganizationCounters> organizationCounters(@Argument String organizationId) {
+        return liveMetricsService.organizationCounters(UUID.fromString(organizationId));
+    }
+    
+    private static Set<String> fields(DataFetchingFieldSelectionSet selectionSet) {
+        return selectionSet.getImmediateFields().stream()
+                .map(SelectedField::getName)
+                .collect(Collectors.toSet());
+    }
 }
\ No newline at end of file
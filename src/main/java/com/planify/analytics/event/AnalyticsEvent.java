@@ -0,0 +1,91 @@
+package com.planify.analytics.event;
+
+import com.planify.analytics.model.UserActivity;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * A decoded Kafka record together with its source coordinates.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AnalyticsEvent {
+    
+    private Type type;
+    
+    private UUID eventId;
+    
+    private UUID userId;
+    
+    private UUID organizationId;
+    
+    private String title;
+    
+    private LocalDateTime eventDate;
+    
+    private String status;
+    
+    // Source coordinates
+    private int partition;
+    
+    private long offset;
+    
+    private LocalDateTime timestamp;
+    
+    /**
+     * Combines this event-updated record with a later one of the same event: fields the later
+     * record carries win, the others keep this record's value. Neither record is modified.
+     */
+    public AnalyticsEvent mergeUpdate(AnalyticsEvent later) {
+        return new AnalyticsEvent(type, eventId, userId, organizationId,
+                later.title != null ? later.title : title,
+                later.eventDate != null ? later.eventDate : eventDate,
+                later.status != null ? later.status : status,
+                later.partition, later.offset, later.timestamp);
+    }
+    
+    public enum Type {
+        EVENT_CREATED(KafkaTopics.EVENT_CREATED, null),
+        EVENT_UPDATED(KafkaTopics.EVENT_UPDATED, null),
+        EVENT_DELETED(KafkaTopics.EVENT_DELETED, null),
+        EVENT_PUBLISHED(KafkaTopics.EVENT_PUBLISHED, null),
+        GUEST_INVITED(KafkaTopics.GUEST_INVITED, UserActivity.ActivityType.INVITATION_SENT),
+        RSVP_ACCEPTED(KafkaTopics.RSVP_ACCEPTED, UserActivity.ActivityType.RSVP_ACCEPTED),
+        RSVP_DECLINED(KafkaTopics.RSVP_DECLINED, UserActivity.ActivityType.RSVP_DECLINED),
+        GUEST_CHECKED_IN(KafkaTopics.GUEST_CHECKED_IN, UserActivity.ActivityType.CHECKED_IN);
+        
+        private final String topic;
+        private final UserActivity.ActivityType activityType;
+        
+        Type(String topic, UserActivity.ActivityType activityType) {
+            this.topic = topic;
+            this.activityType = activityType;
+        }
+        
+        public String getTopic() {
+            return topic;
+        }
+        
+        /**
+         * The activity recorded for this type, or null for event lifecycle types.
+         * Each activity type is produced by exactly one topic.
+         */
+        public UserActivity.ActivityType getActivityType() {
+            return activityType;
+        }
+        
+        public static Type fromTopic(String topic) {
+            for (Type type : values()) {
+                if (type.topic.equals(topic)) {
+                    return type;
+                }
+            }
+            throw new IllegalArgumentException("Unknown topic: " + topic);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.planify.analytics.event;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.UUID;
+
+/**
+ * Decodes raw topic payloads into {@link AnalyticsEvent}s.
+ */
+@Component
+public class AnalyticsEventDecoder {
+    
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    
+    public AnalyticsEvent decode(ConsumerRecord<String, String> record) throws IOException {
+        AnalyticsEvent event = decode(AnalyticsEvent.Type.fromTopic(record.topic()), record.value());
+        event.setPartition(record.partition());
+        event.setOffset(record.offset());
+        event.setTimestamp(record.timestamp() >= 0
+                ? LocalDateTime.ofInstant(Instant.ofEpochMilli(record.timestamp()), ZoneId.systemDefault())
+                : LocalDateTime.now());
+        return event;
+    }
+    
+    public AnalyticsEvent decode(AnalyticsEvent.Type type, String message) throws IOException {
+        JsonNode json = objectMapper.readTree(message);
+        
+        AnalyticsEvent event = new AnalyticsEvent();
+        event.setType(type);
+        event.setEventId(UUID.fromString(json.get("eventId").asText()));
+        
+        switch (type) {
+            case EVENT_CREATED -> {
+                event.setOrganizationId(UUID.fromString(json.get("organizationId").asText()));
+                event.setTitle(json.get("title").asText());
+                event.setEventDate(LocalDateTime.parse(json.get("eventDate").asText()));
+                event.setStatus(json.has("status") ? json.get("status").asText() : "DRAFT");
+            }
+            case EVENT_UPDATED -> {
+                // Only changed fields are sent, absent ones stay null
+                event.setTitle(json.hasNonNull("title") ? json.get("title").asText() : null);
+                event.setEventDate(json.hasNonNull("eventDate") ? LocalDateTime.parse(json.get("eventDate").asText()) : null);
+                event.setStatus(json.hasNonNull("status") ? json.get("status").asText() : null);
+            }
+            case GUEST_INVITED, RSVP_ACCEPTED, RSVP_DECLINED, GUEST_CHECKED_IN ->
+                    event.setUserId(UUID.fromString(json.get("userId").asText()));
+            default -> {
+            }
+        }
+        return event;
+    }
+}
@@ -0,0 +1,269 @@
+package com.planify.analytics.event;
+
+import com.planify.analytics.config.AnalyticsProperties;
+import com.planify.analytics.service.AnalyticsService;
+import com.planify.analytics.sharding.ShardRouter;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Re-drives the dead-letter topic once the database is healthy again.
+ * <p>
+ * A run reads the topic from the reprocessing group's committed offsets up to the end offsets
+ * captured at start, applies the records in batches and commits after every poll. Records that
+ * fail again are appended to the dead-letter topic, so they are picked up by the next run
+ * instead of looping within this one; a poll is only committed once they are stored there, and
+ * the run fails otherwise.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DeadLetterService {
+
+    private static final String DATABASE_CIRCUIT_BREAKER = "analyticsDatabase";
+
+    private final KafkaProperties kafkaProperties;
+    private final AnalyticsProperties properties;
+    private final AnalyticsEventDecoder decoder;
+    private final RetryTopicRouter router;
+    private final AnalyticsService analyticsService;
+    private final ShardRouter shardRouter;
+    private final CircuitBreakerRegistry circuitBreakerRegistry;
+
+    private final AtomicReference<ReprocessState> state = new AtomicReference<>(ReprocessState.IDLE);
+    private final AtomicLong recordsProcessed = new AtomicLong();
+    private final AtomicLong recordsApplied = new AtomicLong();
+    private final AtomicLong recordsFailed = new AtomicLong();
+    private final AtomicLong recordsRemaining = new AtomicLong();
+    private volatile LocalDateTime startedAt;
+    private volatile LocalDateTime finishedAt;
+    private volatile String lastError;
+    private volatile boolean stopRequested;
+    private volatile Consumer<String, String> activeConsumer;
+
+    /**
+     * Starts reprocessing the dead-letter topic.
+     *
+     * @return false if a run is already in progress or the database circuit breaker is open
+     */
+    public boolean startReprocessing() {
+        CircuitBreaker.State breakerState = circuitBreakerRegistry.circuitBreaker(DATABASE_CIRCUIT_BREAKER).getState();
+        if (breakerState == CircuitBreaker.State.OPEN || breakerState == CircuitBreaker.State.FORCED_OPEN) {
+            lastError = "Database circuit breaker is " + breakerState;
+            return false;
+        }
+        ReprocessState current = state.get();
+        if (current == ReprocessState.RUNNING || !state.compareAndSet(current, ReprocessState.RUNNING)) {
+            return false;
+        }
+
+        recordsProcessed.set(0);
+        recordsApplied.set(0);
+        recordsFailed.set(0);
+        recordsRemaining.set(0);
+        startedAt = LocalDateTime.now();
+        finishedAt = null;
+        lastError = null;
+        stopRequested = false;
+
+        Thread worker = new Thread(this::runReprocessing, "dead-letter-reprocess");
+        worker.setDaemon(true);
+        worker.start();
+        return true;
+    }
+
+    public void stopReprocessing() {
+        stopRequested = true;
+        Consumer<String, String> consumer = activeConsumer;
+        if (consumer != null) {
+            consumer.wakeup();
+        }
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("state", state.get().name());
+        status.put("recordsProcessed", recordsProcessed.get());
+        status.put("recordsApplied", recordsApplied.get());
+        status.put("recordsFailed", recordsFailed.get());
+        status.put("recordsRemaining", recordsRemaining.get());
+        status.put("startedAt", startedAt);
+        status.put("finishedAt", finishedAt);
+        status.put("error", lastError);
+        return status;
+    }
+
+    private void runReprocessing() {
+        try (Consumer<String, String> consumer = createConsumer()) {
+            activeConsumer = consumer;
+            Map<TopicPartition, Long> endOffsets = seekToCommitted(consumer);
+            log.info("Dead-letter reprocessing started, {} records pending", recordsRemaining.get());
+
+            while (!stopRequested && !endOffsets.isEmpty()) {
+                ConsumerRecords<String, String> records = consumer.poll(Duration.ofSeconds(1));
+                List<AnalyticsEvent> batch = new ArrayList<>(records.count());
+                Map<AnalyticsEvent, Integer> attempts = new IdentityHashMap<>(records.count());
+                List<CompletableFuture<Void>> deadLettered = new ArrayList<>();
+                for (ConsumerRecord<String, String> record : records) {
+                    Long end = endOffsets.get(new TopicPartition(record.topic(), record.partition()));
+                    if (end == null || record.offset() >= end) {
+                        continue;
+                    }
+                    recordsProcessed.incrementAndGet();
+                    try {
+                        AnalyticsEvent event = router.read(record, decoder);
+                        batch.add(event);
+                        attempts.put(event, RetryTopicRouter.attempt(record));
+                    } catch (Exception e) {
+                        recordsFailed.incrementAndGet();
+                        deadLettered.add(router.deadLetter(record, e));
+                    }
+                }
+
+                shardRouter.partition(batch).forEach((shard, events) ->
+                        shardRouter.runOnShard(shard, () -> apply(events, attempts, deadLettered)));
+                awaitDeadLettered(deadLettered);
+                consumer.commitSync();
+
+                endOffsets.entrySet().removeIf(entry -> consumer.position(entry.getKey()) >= entry.getValue());
+                consumer.pause(consumer.assignment().stream().filter(tp -> !endOffsets.containsKey(tp)).toList());
+                recordsRemaining.set(remaining(consumer, endOffsets));
+            }
+
+            finishedAt = LocalDateTime.now();
+            state.set(stopRequested ? ReprocessState.STOPPED : ReprocessState.COMPLETED);
+            log.info("Dead-letter reprocessing {}: {} records processed, {} applied, {} failed again",
+                    state.get().name().toLowerCase(), recordsProcessed.get(), recordsApplied.get(), recordsFailed.get());
+        } catch (WakeupException e) {
+            finishedAt = LocalDateTime.now();
+            state.set(ReprocessState.STOPPED);
+            log.info("Dead-letter reprocessing stopped after {} records", recordsProcessed.get());
+        } catch (Exception e) {
+            lastError = e.getMessage();
+            finishedAt = LocalDateTime.now();
+            state.set(ReprocessState.FAILED);
+            log.error("Dead-letter reprocessing failed: {}", e.getMessage(), e);
+        } finally {
+            activeConsumer = null;
+        }
+    }
+
+    /**
+     * @param deadLettered collects the sends of records that fail again
+     */
+    private void apply(List<AnalyticsEvent> batch, Map<AnalyticsEvent, Integer> attempts, List<CompletableFuture<Void>> deadLettered) {
+        try {
+            analyticsService.applyBatch(batch);
+            recordsApplied.addAndGet(batch.size());
+            return;
+        } catch (Exception e) {
+            log.warn("Dead-letter batch of {} records failed, applying individually: {}", batch.size(), e.getMessage());
+        }
+        for (AnalyticsEvent event : batch) {
+            try {
+                analyticsService.applyBatch(List.of(event));
+                recordsApplied.incrementAndGet();
+            } catch (Exception e) {
+                recordsFailed.incrementAndGet();
+                deadLettered.add(router.deadLetter(event, attempts.get(event) + 1, e));
+            }
+        }
+    }
+
+    /**
+     * Waits until the records that failed again are back in the dead-letter topic. Otherwise the
+     * run fails without committing, so the next run reads them again instead of losing them.
+     */
+    private static void awaitDeadLettered(List<CompletableFuture<Void>> deadLettered) {
+        try {
+            CompletableFuture.allOf(deadLettered.toArray(CompletableFuture[]::new)).join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            throw new IllegalStateException("Failed records could not be written back to the dead-letter topic, "
+                    + "offsets not committed: " + cause.getMessage(), cause);
+        }
+    }
+
+    private Consumer<String, String> createConsumer() {
+        AnalyticsProperties.DeadLetter deadLetter = properties.getDeadLetter();
+        Map<String, Object> config = new HashMap<>(kafkaProperties.buildConsumerProperties());
+        config.put(ConsumerConfig.GROUP_ID_CONFIG, deadLetter.getGroupId());
+        config.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        config.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, deadLetter.getMaxPollRecords());
+        return new DefaultKafkaConsumerFactory<>(config, new StringDeserializer(), new StringDeserializer())
+                .createConsumer();
+    }
+
+    /**
+     * Assigns every dead-letter partition, positions it at the group's committed offset (or the
+     * beginning) and returns the end offsets captured now, which bound the run.
+     */
+    private Map<TopicPartition, Long> seekToCommitted(Consumer<String, String> consumer) {
+        List<TopicPartition> partitions = new ArrayList<>();
+        List<PartitionInfo> infos = consumer.partitionsFor(KafkaTopics.DEAD_LETTER);
+        if (infos != null) {
+            infos.forEach(info -> partitions.add(new TopicPartition(info.topic(), info.partition())));
+        }
+        consumer.assign(partitions);
+
+        Map<TopicPartition, OffsetAndMetadata> committed = consumer.committed(new HashSet<>(partitions));
+        Map<TopicPartition, Long> beginningOffsets = consumer.beginningOffsets(partitions);
+        Map<TopicPartition, Long> endOffsets = new HashMap<>(consumer.endOffsets(partitions));
+        for (TopicPartition partition : partitions) {
+            OffsetAndMetadata offset = committed.get(partition);
+            long start = Math.max(offset != null ? offset.offset() : 0, beginningOffsets.get(partition));
+            if (start >= endOffsets.get(partition)) {
+                endOffsets.remove(partition);
+            } else {
+                consumer.seek(partition, start);
+            }
+        }
+        consumer.pause(partitions.stream().filter(tp -> !endOffsets.containsKey(tp)).toList());
+        recordsRemaining.set(remaining(consumer, endOffsets));
+        return endOffsets;
+    }
+
+    private static long remaining(Consumer<String, String> consumer, Map<TopicPartition, Long> endOffsets) {
+        long remaining = 0;
+        for (Map.Entry<TopicPartition, Long> entry : endOffsets.entrySet()) {
+            remaining += Math.max(0, entry.getValue() - consumer.position(entry.getKey()));
+        }
+        return remaining;
+    }
+
+    public enum ReprocessState {
+        IDLE,
+        RUNNING,
+        COMPLETED,
+        STOPPED,
+        FAILED
+    }
+}
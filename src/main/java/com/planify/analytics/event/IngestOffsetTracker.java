@@ -0,0 +1,139 @@
+package com.planify.analytics.event;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Commits the offsets of the main listeners only up to the records the writers are done with.
+ * <p>
+ * Listener threads {@link #track} each record before handing it to the {@link IngestPipeline};
+ * writers {@link Pending#complete()} it once it is written to the database or sent to a retry
+ * topic. Records of a partition complete out of order, since writers work on different events,
+ * so a record is only acknowledged once every earlier record of its partition is complete as
+ * well. A record that is never completed, e.g. because the process stops during a database
+ * outage, therefore keeps its partition's committed offset in front of it, and it is delivered
+ * again after a restart or rebalance.
+ * <p>
+ * Tracking of revoked partitions is dropped; records of them still in the pipeline are written
+ * but no longer acknowledged, the new owner reads them again.
+ */
+@Component
+@Slf4j
+public class IngestOffsetTracker implements ConsumerAwareRebalanceListener {
+
+    private final Map<TopicPartition, PartitionOffsets> partitions = new ConcurrentHashMap<>();
+
+    /**
+     * Starts tracking a record. Must be called on the listener thread, in offset order.
+     */
+    public Pending track(ConsumerRecord<?, ?> record, Acknowledgment acknowledgment) {
+        PartitionOffsets offsets = partitions.computeIfAbsent(new TopicPartition(record.topic(), record.partition()),
+                partition -> new PartitionOffsets());
+        Pending pending = new Pending(offsets, record.offset(), acknowledgment);
+        offsets.add(pending);
+        return pending;
+    }
+
+    /**
+     * Records still waiting for a writer or for an earlier record of their partition.
+     */
+    public int uncommitted() {
+        return partitions.values().stream().mapToInt(PartitionOffsets::size).sum();
+    }
+
+    @Override
+    public void onPartitionsRevokedBeforeCommit(Consumer<?, ?> consumer, Collection<TopicPartition> revoked) {
+        forget(revoked);
+    }
+
+    @Override
+    public void onPartitionsLost(Consumer<?, ?> consumer, Collection<TopicPartition> lost) {
+        forget(lost);
+    }
+
+    private void forget(Collection<TopicPartition> revoked) {
+        for (TopicPartition partition : revoked) {
+            PartitionOffsets offsets = partitions.remove(partition);
+            if (offsets != null) {
+                int dropped = offsets.revoke();
+                if (dropped > 0) {
+                    log.info("Partition {} revoked with {} records uncommitted, they are read again by its new owner", partition, dropped);
+                }
+            }
+        }
+    }
+
+    /**
+     * A tracked record, completed by the writer that is done with it.
+     */
+    public static final class Pending {
+
+        private final PartitionOffsets offsets;
+        private final long offset;
+        private final Acknowledgment acknowledgment;
+        // Guarded by offsets
+        private boolean complete;
+
+        private Pending(PartitionOffsets offsets, long offset, Acknowledgment acknowledgment) {
+            this.offsets = offsets;
+            this.offset = offset;
+            this.acknowledgment = acknowledgment;
+        }
+
+        public void complete() {
+            offsets.complete(this);
+        }
+    }
+
+    private static final class PartitionOffsets {
+
+        // Guarded by this
+        private final TreeMap<Long, Pending> inFlight = new TreeMap<>();
+        private boolean revoked;
+
+        synchronized void add(Pending pending) {
+            inFlight.put(pending.offset, pending);
+        }
+
+        /**
+         * Marks the record complete and acknowledges the last record of the complete prefix of
+         * the partition; the container commits the offset after it. Acknowledging from a writer
+         * thread only queues the commit for the consumer thread, so it is done under the lock to
+         * keep acknowledgments of a partition in offset order.
+         */
+        synchronized void complete(Pending pending) {
+            pending.complete = true;
+            if (revoked) {
+                return;
+            }
+            Pending last = null;
+            while (!inFlight.isEmpty() && inFlight.firstEntry().getValue().complete) {
+                last = inFlight.pollFirstEntry().getValue();
+            }
+            if (last != null) {
+                last.acknowledgment.acknowledge();
+            }
+        }
+
+        synchronized int revoke() {
+            revoked = true;
+            int dropped = inFlight.size();
+            inFlight.clear();
+            return dropped;
+        }
+
+        synchronized int size() {
+            return inFlight.size();
+        }
+    }
+}
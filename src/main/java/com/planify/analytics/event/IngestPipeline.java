@@ -0,0 +1,414 @@
+package com.planify.analytics.event;
+
+import com.planify.analytics.config.AnalyticsProperties;
+import com.planify.analytics.service.AnalyticsService;
+import com.planify.analytics.sharding.ShardRouter;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Write-behind stage between the Kafka listeners and the database.
+ * <p>
+ * Listener threads only decode and {@link #publish(AnalyticsEvent)}; a small set of writer
+ * threads drain the ring buffers and apply records in batches through
+ * {@link AnalyticsService#applyBatch(List)}. Records are sharded by eventId so each event's
+ * records are applied in order by a single writer. When the buffers fill up past the pause
+ * watermark all listener containers are paused, and resumed once writers catch up.
+ * <p>
+ * The listener containers are also paused while the {@code analyticsDatabase} circuit breaker
+ * is OPEN. Writers then hold their current batch and stop calling the database. Held and
+ * buffered records are not committed, so Kafka keeps them however long the outage lasts; the
+ * buffers only save reading them again. On HALF_OPEN the held batches are the probe calls and
+ * the listeners resume, bounded by the buffer watermark; another failure opens the breaker and
+ * pauses them again.
+ * <p>
+ * A record's offset is only committed once it is written, or handed to the
+ * {@link RetryTopicRouter} after failing on its own, and so is every earlier record of its
+ * partition (see {@link IngestOffsetTracker}). Records still buffered when the process dies or
+ * a partition is revoked are therefore read again from Kafka; re-applying them is idempotent.
+ * On shutdown the listeners are paused and the writers drain the buffers before the listener
+ * containers stop and commit.
+ */
+@Component
+@Slf4j
+public class IngestPipeline implements SmartLifecycle {
+
+    // Started after and stopped before the listener containers (phase Integer.MAX_VALUE - 100), so
+    // the containers still commit the offsets of the records drained on shutdown
+    private static final int PHASE = Integer.MAX_VALUE - 50;
+    private static final long SHUTDOWN_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(25);
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long UNAVAILABLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final String DATABASE_CIRCUIT_BREAKER = "analyticsDatabase";
+
+    private final AnalyticsService analyticsService;
+    private final KafkaListenerEndpointRegistry listenerRegistry;
+    private final RetryTopicRouter retryTopicRouter;
+    private final IngestOffsetTracker offsetTracker;
+    private final ShardRouter shardRouter;
+    private final CircuitBreaker databaseCircuitBreaker;
+    private final AnalyticsProperties.Ingest properties;
+
+    private final List<IngestRingBuffer<Buffered>> shards = new ArrayList<>();
+    private final List<Thread> writers = new ArrayList<>();
+    private final AtomicBoolean bufferFull = new AtomicBoolean();
+    private final AtomicBoolean databaseUnavailable = new AtomicBoolean();
+    private final AtomicBoolean stopping = new AtomicBoolean();
+    private final AtomicBoolean firstRecordSeen = new AtomicBoolean();
+    // Guarded by this
+    private boolean listenersPaused;
+    private final MeterRegistry meterRegistry;
+    private final int totalCapacity;
+    private final int pauseDepth;
+    private final int resumeDepth;
+    private volatile boolean running;
+
+    private final Timer drainLatency;
+    private final Timer endToEndLatency;
+    private final DistributionSummary batchSize;
+    private final Counter failedRecords;
+
+    public IngestPipeline(AnalyticsService analyticsService,
+                          KafkaListenerEndpointRegistry listenerRegistry,
+                          RetryTopicRouter retryTopicRouter,
+                          IngestOffsetTracker offsetTracker,
+                          ShardRouter shardRouter,
+                          CircuitBreakerRegistry circuitBreakerRegistry,
+                          AnalyticsProperties properties,
+                          MeterRegistry meterRegistry) {
+        this.analyticsService = analyticsService;
+        this.listenerRegistry = listenerRegistry;
+        this.retryTopicRouter = retryTopicRouter;
+        this.offsetTracker = offsetTracker;
+        this.shardRouter = shardRouter;
+        this.databaseCircuitBreaker = circuitBreakerRegistry.circuitBreaker(DATABASE_CIRCUIT_BREAKER);
+        this.databaseCircuitBreaker.getEventPublisher().onStateTransition(event ->
+                onDatabaseStateChanged(event.getStateTransition().getToState()));
+        this.properties = properties.getIngest();
+        this.meterRegistry = meterRegistry;
+
+        int writerThreads = Math.max(1, this.properties.getWriterThreads());
+        for (int i = 0; i < writerThreads; i++) {
+            shards.add(new IngestRingBuffer<>(this.properties.getBufferCapacity()));
+        }
+        this.totalCapacity = shards.stream().mapToInt(IngestRingBuffer::capacity).sum();
+        this.pauseDepth = (int) (totalCapacity * this.properties.getPauseWatermark());
+        this.resumeDepth = (int) (totalCapacity * this.properties.getResumeWatermark());
+
+        Gauge.builder("analytics.ingest.queue.depth", this, IngestPipeline::depth)
+                .description("Records buffered between the Kafka listeners and the database writers")
+                .register(meterRegistry);
+        Gauge.builder("analytics.ingest.queue.capacity", this, pipeline -> pipeline.totalCapacity)
+                .register(meterRegistry);
+        Gauge.builder("analytics.ingest.paused", this, pipeline -> pipeline.isListenersPaused() ? 1 : 0)
+                .description("1 while listener containers are paused for backpressure or a database outage")
+                .register(meterRegistry);
+        Gauge.builder("analytics.ingest.database.available", this, pipeline -> pipeline.databaseUnavailable.get() ? 0 : 1)
+                .description("0 while the analyticsDatabase circuit breaker is open")
+                .register(meterRegistry);
+        this.drainLatency = Timer.builder("analytics.ingest.drain.latency")
+                .description("Time to write one drained batch to the database")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.endToEndLatency = Timer.builder("analytics.ingest.end.to.end.latency")
+                .description("Time from the Kafka record timestamp until the record is written to the database")
+                .publishPercentiles(0.5, 0.99)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofMinutes(5))
+                .register(meterRegistry);
+        this.batchSize = DistributionSummary.builder("analytics.ingest.batch.size")
+                .description("Records per database batch")
+                .register(meterRegistry);
+        this.failedRecords = Counter.builder("analytics.ingest.failed")
+                .description("Records sent to the retry topics after failing to apply individually")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Buffers a decoded record for the writers, which complete {@code pending} once they are done
+     * with it. Blocks only if the target shard is completely full, which the pause watermark is
+     * meant to prevent.
+     */
+    public void publish(AnalyticsEvent event, IngestOffsetTracker.Pending pending) {
+        if (!firstRecordSeen.get() && firstRecordSeen.compareAndSet(false, true)) {
+            recordTimeToFirstRecord();
+        }
+        IngestRingBuffer<Buffered> shard = shards.get(Math.floorMod(event.getEventId().hashCode(), shards.size()));
+        Buffered record = new Buffered(event, pending);
+        while (!shard.offer(record)) {
+            pauseListeners();
+            LockSupport.parkNanos(IDLE_PARK_NANOS);
+        }
+        if (depth() >= pauseDepth) {
+            pauseListeners();
+        }
+    }
+
+    public int depth() {
+        int depth = 0;
+        for (IngestRingBuffer<Buffered> shard : shards) {
+            depth += shard.size();
+        }
+        return depth;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        if (stopping.compareAndSet(true, false)) {
+            updateListeners();
+        }
+        onDatabaseStateChanged(databaseCircuitBreaker.getState());
+        for (int i = 0; i < shards.size(); i++) {
+            IngestRingBuffer<Buffered> shard = shards.get(i);
+            Thread writer = new Thread(() -> drainLoop(shard), "ingest-writer-" + i);
+            writer.setDaemon(true);
+            writer.start();
+            writers.add(writer);
+        }
+        log.info("Ingest pipeline started: {} writers, capacity {}", shards.size(), totalCapacity);
+    }
+
+    /**
+     * Pauses the listeners and lets the writers drain the buffers. Records that cannot be written
+     * in time stay uncommitted, so the containers stopping after this do not commit past them.
+     */
+    @Override
+    public void stop() {
+        if (stopping.compareAndSet(false, true)) {
+            updateListeners();
+        }
+        running = false;
+        long deadline = System.nanoTime() + SHUTDOWN_TIMEOUT_NANOS;
+        for (Thread writer : writers) {
+            try {
+                TimeUnit.NANOSECONDS.timedJoin(writer, Math.max(1, deadline - System.nanoTime()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        writers.clear();
+        log.info("Ingest pipeline stopped, {} records uncommitted", offsetTracker.uncommitted());
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    private void drainLoop(IngestRingBuffer<Buffered> shard) {
+        // Records of a batch that could not be written because the database was unavailable
+        List<Buffered> held = List.of();
+        while (running || shard.size() > 0 || !held.isEmpty()) {
+            if (databaseUnavailable.get() || (!held.isEmpty() && !callPermitted())) {
+                if (!running) {
+                    log.warn("Stopping with {} records unwritten while the database is unavailable, "
+                            + "they stay uncommitted and are delivered again", held.size() + shard.size());
+                    return;
+                }
+                LockSupport.parkNanos(UNAVAILABLE_PARK_NANOS);
+                continue;
+            }
+            if (!held.isEmpty()) {
+                held = write(held);
+                continue;
+            }
+            int available = shard.size();
+            if (available == 0) {
+                maybeResumeListeners();
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+                continue;
+            }
+            List<Buffered> batch = new ArrayList<>(Math.min(available, properties.getBatchSize()));
+            shard.drainTo(batch, properties.getBatchSize());
+            held = write(batch);
+            maybeResumeListeners();
+        }
+    }
+
+    /**
+     * Writes a batch as one transaction per database shard.
+     *
+     * @return the records not attempted because the circuit breaker does not permit calls, or
+     *         because their shard could not be looked up
+     */
+    private List<Buffered> write(List<Buffered> batch) {
+        batchSize.record(batch.size());
+        long start = System.nanoTime();
+        Map<AnalyticsEvent, Buffered> records = new IdentityHashMap<>();
+        batch.forEach(record -> records.put(record.event(), record));
+        Map<String, List<AnalyticsEvent>> partitions;
+        try {
+            partitions = shardRouter.partition(batch.stream().map(Buffered::event).toList());
+        } catch (Exception e) {
+            log.warn("Failed to route batch of {} records to shards, holding it: {}", batch.size(), e.getMessage());
+            LockSupport.parkNanos(UNAVAILABLE_PARK_NANOS);
+            return batch;
+        }
+        try {
+            List<Buffered> held = new ArrayList<>();
+            partitions.forEach((shard, events) -> {
+                List<Buffered> shardBatch = events.stream().map(records::get).toList();
+                if (held.isEmpty()) {
+                    held.addAll(shardRouter.onShard(shard, () -> writeShard(shardBatch)));
+                } else {
+                    held.addAll(shardBatch);
+                }
+            });
+            return held;
+        } finally {
+            drainLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Writes the records of one shard, falling back to one record at a time. Records that fail on
+     * their own go to the retry topics, unless the circuit breaker rejected the call. Records are
+     * completed once written or stored in a retry topic.
+     *
+     * @return the records not attempted because the circuit breaker does not permit calls, or
+     *         not completed because the retry topic could not be reached
+     */
+    private List<Buffered> writeShard(List<Buffered> batch) {
+        List<AnalyticsEvent> events = batch.stream().map(Buffered::event).toList();
+        try {
+            analyticsService.applyBatch(events);
+            recordEndToEndLatency(events);
+            batch.forEach(record -> record.pending().complete());
+            return List.of();
+        } catch (CallNotPermittedException e) {
+            return batch;
+        } catch (Exception e) {
+            log.warn("Batch of {} records failed, applying individually: {}", batch.size(), e.getMessage());
+            for (int i = 0; i < batch.size(); i++) {
+                Buffered record = batch.get(i);
+                AnalyticsEvent event = record.event();
+                try {
+                    analyticsService.applyBatch(List.of(event));
+                    recordEndToEndLatency(List.of(event));
+                } catch (CallNotPermittedException recordError) {
+                    return new ArrayList<>(batch.subList(i, batch.size()));
+                } catch (Exception recordError) {
+                    failedRecords.increment();
+                    log.error("Failed to apply {} for event {}, sending to retry. Error: {}",
+                            event.getType(), event.getEventId(), recordError.getMessage());
+                    try {
+                        retryTopicRouter.retry(event, 1, recordError).join();
+                    } catch (Exception sendError) {
+                        log.warn("Holding {} records, the retry topic is unavailable: {}", batch.size() - i, sendError.getMessage());
+                        LockSupport.parkNanos(UNAVAILABLE_PARK_NANOS);
+                        return new ArrayList<>(batch.subList(i, batch.size()));
+                    }
+                }
+                record.pending().complete();
+            }
+            return List.of();
+        }
+    }
+
+    private void recordEndToEndLatency(List<AnalyticsEvent> events) {
+        LocalDateTime now = LocalDateTime.now();
+        for (AnalyticsEvent event : events) {
+            if (event.getTimestamp() != null) {
+                endToEndLatency.record(Duration.between(event.getTimestamp(), now));
+            }
+        }
+    }
+
+    /**
+     * Startup benchmark marker: how long after process start this pod consumed its first record,
+     * which covers context startup and joining the consumer group.
+     */
+    private void recordTimeToFirstRecord() {
+        ProcessHandle.current().info().startInstant().ifPresent(processStart -> {
+            long millis = Duration.between(processStart, Instant.now()).toMillis();
+            TimeGauge.builder("analytics.startup.first.record", () -> millis, TimeUnit.MILLISECONDS)
+                    .description("Time from process start to the first consumed Kafka record")
+                    .register(meterRegistry);
+            log.info("First record consumed {} ms after process start", millis);
+        });
+    }
+
+    private boolean callPermitted() {
+        if (!databaseCircuitBreaker.tryAcquirePermission()) {
+            return false;
+        }
+        // Only probing, the write acquires its own permission
+        databaseCircuitBreaker.releasePermission();
+        return true;
+    }
+
+    private void onDatabaseStateChanged(CircuitBreaker.State state) {
+        boolean unavailable = state == CircuitBreaker.State.OPEN || state == CircuitBreaker.State.FORCED_OPEN;
+        if (databaseUnavailable.getAndSet(unavailable) != unavailable) {
+            if (unavailable) {
+                log.warn("Database circuit breaker {}, pausing Kafka listeners", state);
+            } else {
+                log.info("Database circuit breaker {}, resuming Kafka listeners", state);
+            }
+            updateListeners();
+        }
+    }
+
+    private void pauseListeners() {
+        if (bufferFull.compareAndSet(false, true)) {
+            log.warn("Ingest buffer at {}/{}, pausing Kafka listeners", depth(), totalCapacity);
+            updateListeners();
+        }
+    }
+
+    private void maybeResumeListeners() {
+        if (bufferFull.get() && depth() <= resumeDepth && bufferFull.compareAndSet(true, false)) {
+            log.info("Ingest buffer drained to {}/{}, resuming Kafka listeners", depth(), totalCapacity);
+            updateListeners();
+        }
+    }
+
+    /**
+     * Pauses the listener containers while the buffer is full, the database is unavailable or
+     * the pipeline is stopping, and resumes them once none holds.
+     */
+    private synchronized void updateListeners() {
+        boolean pause = bufferFull.get() || databaseUnavailable.get() || stopping.get();
+        if (pause != listenersPaused) {
+            listenersPaused = pause;
+            listenerRegistry.getListenerContainers().forEach(pause ? MessageListenerContainer::pause : MessageListenerContainer::resume);
+        }
+    }
+
+    private synchronized boolean isListenersPaused() {
+        return listenersPaused;
+    }
+
+    private record Buffered(AnalyticsEvent event, IngestOffsetTracker.Pending pending) {
+    }
+}
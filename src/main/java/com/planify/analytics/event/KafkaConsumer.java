@@ -1,141 +1,102 @@
 package com.planify.analytics.event;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.planify.analytics.service.AnalyticsService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.stereotype.Component;
 
-import java.time.LocalDateTime;
-import java.util.UUID;
-
+/**
+ * Decodes records on the listener threads and hands them to the {@link IngestPipeline};
+ * no database work happens on the Kafka poll thread. Offsets are committed by
+ * {@link IngestOffsetTracker} once the records are written.
+ */
 @Component
 @RequiredArgsConstructor
 @Slf4j
 public class KafkaConsumer {
     
-    private final AnalyticsService analyticsService;
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AnalyticsEventDecoder decoder;
+    private final IngestPipeline ingestPipeline;
+    private final RetryTopicRouter retryTopicRouter;
+    private final IngestOffsetTracker offsetTracker;
     
-    @KafkaListener(topics = "event-created", groupId = "${spring.application.name}")
-    public void consumeEventCreated(String message) {
-        log.info("Consumed event-created: {}", message);
-        
-        try {
-            JsonNode json = objectMapper.readTree(message);
-            UUID eventId = UUID.fromString(json.get("eventId").asText());
-            UUID organizationId = UUID.fromString(json.get("organizationId").asText());
-            String title = json.get("title").asText();
-            String eventDate = json.get("eventDate").asText();
-            String status = json.has("status") ? json.get("status").asText() : "DRAFT";
-            
-            analyticsService.handleEventCreated(eventId, organizationId, title, LocalDateTime.parse(eventDate), status);
-        } catch (Exception e) {
-            log.error("Error processing event-created: {}", e.getMessage(), e);
-        }
+    @KafkaListener(topics = KafkaTopics.EVENT_CREATED, groupId = "${spring.application.name}", containerFactory = "ingestListenerContainerFactory")
+    public void consumeEventCreated(ConsumerRecord<String, String> record, Acknowledgment acknowledgment) {
+        log.info("Consumed event-created: {}", record.value());
+        publish(record, acknowledgment);
     }
     
-    @KafkaListener(topics = "event-updated", groupId = "${spring.application.name}")
-    public void consumeEventUpdated(String message) {
-        log.info("Consumed event-updated: {}", message);
-        
-        try {
-            JsonNode json = objectMapper.readTree(message);
-            UUID eventId = UUID.fromString(json.get("eventId").asText());
-            
-            analyticsService.handleEventUpdated(eventId);
-        } catch (Exception e) {
-            log.error("Error processing event-updated: {}", e.getMessage(), e);
-        }
+    @KafkaListener(topics = KafkaTopics.EVENT_UPDATED, groupId = "${spring.application.name}", containerFactory = "ingestListenerContainerFactory")
+    public void consumeEventUpdated(ConsumerRecord<String, String> record, Acknowledgment acknowledgment) {
+        log.info("Consumed event-updated: {}", record.value());
+        publish(record, acknowledgment);
     }
     
-    @KafkaListener(topics = "event-deleted", groupId = "${spring.application.name}")
-    public void consumeEventDeleted(String message) {
-        log.info("Consumed event-deleted: {}", message);
-        
-        try {
-            JsonNode json = objectMapper.readTree(message);
-            UUID eventId = UUID.fromString(json.get("eventId").asText());
-            
-            analyticsService.handleEventDeleted(eventId);
-        } catch (Exception e) {
-            log.error("Error processing event-deleted: {}", e.getMessage(), e);
-        }
+    @KafkaListener(topics = KafkaTopics.EVENT_DELETED, groupId = "${spring.application.name}", containerFactory = "ingestListenerContainerFactory")
+    public void consumeEventDeleted(ConsumerRecord<String, String> record, Acknowledgment acknowledgment) {
+        log.info("Consumed event-deleted: {}", record.value());
+        publish(record, acknowledgment);
     }
     
-    @KafkaListener(topics = "guest-invited", groupId = "${spring.application.name}")
-    public void consumeGuestInvited(String message) {
-        log.info("Consumed guest-invited: {}", message);
-        
-        try {
-            JsonNode json = objectMapper.readTree(message);
-            UUID eventId = UUID.fromString(json.get("eventId").asText());
-            UUID userId = UUID.fromString(json.get("userId").asText());
-            
-            analyticsService.handleGuestInvited(eventId, userId);
-        } catch (Exception e) {
-            log.error("Error processing guest-invited: {}", e.getMessage(), e);
-        }
+    @KafkaListener(topics = KafkaTopics.GUEST_INVITED, groupId = "${spring.application.name}", containerFactory = "ingestListenerContainerFactory")
+    public void consumeGuestInvited(ConsumerRecord<String, String> record, Acknowledgment acknowledgment) {
+        log.info("Consumed guest-invited: {}", record.value());
+        publish(record, acknowledgment);
     }
     
-    @KafkaListener(topics = "rsvp-accepted", groupId = "${spring.application.name}")
-    public void consumeRsvpAccepted(String message) {
-        log.info("Consumed rsvp-accepted: {}", message);
-        
-        try {
-            JsonNode json = objectMapper.readTree(message);
-            UUID eventId = UUID.fromString(json.get("eventId").asText());
-            UUID userId = UUID.fromString(json.get("userId").asText());
-            
-            analyticsService.handleRsvpAccepted(eventId, userId);
-        } catch (Exception e) {
-            log.error("Error processing rsvp-accepted: {}", e.getMessage(), e);
-        }
+    @KafkaListener(topics = KafkaTopics.RSVP_ACCEPTED, groupId = "${spring.application.name}", containerFactory = "ingestListenerContainerFactory")
+    public void consumeRsvpAccepted(ConsumerRecord<String, String> record, Acknowledgment acknowledgment) {
+        log.info("Consumed rsvp-accepted: {}", record.value());
+        publish(record, acknowledgment);
     }
     
-    @KafkaListener(topics = "rsvp-declined", groupId = "${spring.application.name}")
-    public void consumeRsvpDeclined(String message) {
-        log.info("Consumed rsvp-declined: {}", message);
-        
-        try {
-            JsonNode json = objectMapper.readTree(message);
-            UUID eventId = UUID.fromString(json.get("eventId").asText());
-            UUID userId = UUID.fromString(json.get("userId").asText());
-            
-            analyticsService.handleRsvpDeclined(eventId, userId);
-        } catch (Exception e) {
-            log.error("Error processing rsvp-declined: {}", e.getMessage(), e);
-        }
+    @KafkaListener(topics = KafkaTopics.RSVP_DECLINED, groupId = "${spring.application.name}", containerFactory = "ingestListenerContainerFactory")
+    public void consumeRsvpDeclined(ConsumerRecord<String, String> record, Acknowledgment acknowledgment) {
+        log.info("Consumed rsvp-declined: {}", record.value());
+        publish(record, acknowledgment);
     }
     
-    @KafkaListener(topics = "guest-checked-in", groupId = "${spring.application.name}")
-    public void consumeGuestCheckedIn(String message) {
-        log.info("Consumed guest-checked-in: {}", message);
-        
+    @KafkaListener(topics = KafkaTopics.GUEST_CHECKED_IN, groupId = "${spring.application.name}", containerFactory = "ingestListenerContainerFactory")
+    public void consumeGuestCheckedIn(ConsumerRecord<String, String> record, Acknowledgment acknowledgment) {
+        log.info("Consumed guest-checked-in: {}", record.value());
+        publish(record, acknowledgment);
+    }
+    
+    @KafkaListener(topics = KafkaTopics.EVENT_PUBLISHED, groupId = "${spring.application.name}", containerFactory = "ingestListenerContainerFactory")
+    public void consumeEventPublished(ConsumerRecord<String, String> record, Acknowledgment acknowledgment) {
+        log.info("Consumed event-published: {}", record.value());
+        publish(record, acknowledgment);
+    }
+    
+    private void publish(ConsumerRecord<String, String> record, Acknowledgment acknowledgment) {
+        IngestOffsetTracker.Pending pending = offsetTracker.track(record, acknowledgment);
+        RecordDecodedEvent decoded = new RecordDecodedEvent();
+        decoded.begin();
+        AnalyticsEvent event;
         try {
-            JsonNode json = objectMapper.readTree(message);
-            UUID eventId = UUID.fromString(json.get("eventId").asText());
-            UUID userId = UUID.fromString(json.get("userId").asText());
-            
-            analyticsService.handleGuestCheckedIn(eventId, userId);
+            event = decoder.decode(record);
         } catch (Exception e) {
-            log.error("Error processing guest-checked-in: {}", e.getMessage(), e);
+            commit(decoded, record, false);
+            log.error("Undecodable {} record at offset {}, sending to dead-letter topic: {}", record.topic(), record.offset(), e.getMessage());
+            // Left uncommitted if the dead-letter topic cannot be reached
+            retryTopicRouter.deadLetter(record, e).thenRun(pending::complete);
+            return;
         }
+        commit(decoded, record, true);
+        ingestPipeline.publish(event, pending);
     }
     
-    @KafkaListener(topics = "event-published", groupId = "${spring.application.name}")
-    public void consumeEventPublished(String message) {
-        log.info("Consumed event-published: {}", message);
-        
-        try {
-            JsonNode json = objectMapper.readTree(message);
-            UUID eventId = UUID.fromString(json.get("eventId").asText());
-            
-            analyticsService.handleEventPublished(eventId);
-        } catch (Exception e) {
-            log.error("Error processing event-published: {}", e.getMessage(), e);
+    private static void commit(RecordDecodedEvent decoded, ConsumerRecord<String, String> record, boolean success) {
+        decoded.end();
+        if (decoded.shouldCommit()) {
+            decoded.topic = record.topic();
+            decoded.partition = record.partition();
+            decoded.offset = record.offset();
+            decoded.payloadBytes = record.serializedValueSize();
+            decoded.decoded = success;
+            decoded.commit();
         }
     }
 }
\ No newline at end of file
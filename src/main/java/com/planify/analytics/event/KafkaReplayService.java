@@ -0,0 +1,229 @@
+package com.planify.analytics.event;
+
+import com.planify.analytics.config.AnalyticsProperties;
+import com.planify.analytics.service.ReplayBatchWriter;
+import com.planify.analytics.sharding.ShardRouter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.OffsetAndTimestamp;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Re-ingests the consumed topics from a point in time through a throughput-oriented path:
+ * a dedicated consumer group with large polls, one transaction of idempotent batch writes
+ * per poll and no per-record logging. Runs next to the live listeners; records they have
+ * already ingested are skipped by {@link ReplayBatchWriter}.
+ * <p>
+ * Only activity recorded after the source coordinates were introduced (V3 migration) can be
+ * de-duplicated, so replays should not start before that deployment.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class KafkaReplayService {
+
+    private final KafkaProperties kafkaProperties;
+    private final AnalyticsProperties properties;
+    private final AnalyticsEventDecoder decoder;
+    private final ReplayBatchWriter batchWriter;
+    private final ShardRouter shardRouter;
+
+    private final AtomicReference<ReplayState> state = new AtomicReference<>(ReplayState.IDLE);
+    private final AtomicLong recordsProcessed = new AtomicLong();
+    private final AtomicLong recordsApplied = new AtomicLong();
+    private final AtomicLong recordsFailed = new AtomicLong();
+    private final AtomicLong recordsRemaining = new AtomicLong();
+    private volatile Instant replayFrom;
+    private volatile LocalDateTime startedAt;
+    private volatile LocalDateTime finishedAt;
+    private volatile String lastError;
+    private volatile boolean stopRequested;
+    private volatile Consumer<String, String> activeConsumer;
+
+    /**
+     * Starts replaying all topics from the first offset at or after {@code from}.
+     *
+     * @return false if a replay is already running
+     */
+    public boolean startReplay(Instant from) {
+        ReplayState current = state.get();
+        if (current == ReplayState.RUNNING || !state.compareAndSet(current, ReplayState.RUNNING)) {
+            return false;
+        }
+
+        replayFrom = from;
+        recordsProcessed.set(0);
+        recordsApplied.set(0);
+        recordsFailed.set(0);
+        recordsRemaining.set(0);
+        startedAt = LocalDateTime.now();
+        finishedAt = null;
+        lastError = null;
+        stopRequested = false;
+
+        Thread worker = new Thread(this::runReplay, "kafka-replay");
+        worker.setDaemon(true);
+        worker.start();
+        return true;
+    }
+
+    public void stopReplay() {
+        stopRequested = true;
+        Consumer<String, String> consumer = activeConsumer;
+        if (consumer != null) {
+            consumer.wakeup();
+        }
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("state", state.get().name());
+        status.put("from", replayFrom);
+        status.put("recordsProcessed", recordsProcessed.get());
+        status.put("recordsApplied", recordsApplied.get());
+        status.put("recordsFailed", recordsFailed.get());
+        status.put("recordsRemaining", recordsRemaining.get());
+        status.put("startedAt", startedAt);
+        status.put("finishedAt", finishedAt);
+        status.put("error", lastError);
+        return status;
+    }
+
+    private void runReplay() {
+        try (Consumer<String, String> consumer = createConsumer()) {
+            activeConsumer = consumer;
+            Map<TopicPartition, Long> endOffsets = seekToTimestamp(consumer, replayFrom);
+            Set<UUID> deletedEventIds = new HashSet<>();
+            log.info("Kafka replay started from {} over {} partitions", replayFrom, endOffsets.size());
+
+            while (!stopRequested && !endOffsets.isEmpty()) {
+                ConsumerRecords<String, String> records = consumer.poll(Duration.ofSeconds(1));
+                List<AnalyticsEvent> batch = new ArrayList<>(records.count());
+                for (ConsumerRecord<String, String> record : records) {
+                    TopicPartition partition = new TopicPartition(record.topic(), record.partition());
+                    Long end = endOffsets.get(partition);
+                    if (end == null || record.offset() >= end) {
+                        continue;
+                    }
+                    try {
+                        batch.add(decoder.decode(record));
+                    } catch (Exception e) {
+                        recordsFailed.incrementAndGet();
+                    }
+                }
+
+                if (!batch.isEmpty()) {
+                    shardRouter.partition(batch).forEach((shard, events) -> recordsApplied.addAndGet(
+                            shardRouter.onShard(shard, () -> batchWriter.applyBatch(events, deletedEventIds))));
+                    recordsProcessed.addAndGet(batch.size());
+                }
+                consumer.commitSync();
+
+                endOffsets.entrySet().removeIf(entry -> consumer.position(entry.getKey()) >= entry.getValue());
+                consumer.pause(consumer.assignment().stream().filter(tp -> !endOffsets.containsKey(tp)).toList());
+                recordsRemaining.set(remaining(consumer, endOffsets));
+            }
+
+            finishedAt = LocalDateTime.now();
+            state.set(stopRequested ? ReplayState.STOPPED : ReplayState.COMPLETED);
+            log.info("Kafka replay {}: {} records processed, {} missing records applied",
+                    state.get().name().toLowerCase(), recordsProcessed.get(), recordsApplied.get());
+        } catch (WakeupException e) {
+            finishedAt = LocalDateTime.now();
+            state.set(ReplayState.STOPPED);
+            log.info("Kafka replay stopped after {} records", recordsProcessed.get());
+        } catch (Exception e) {
+            lastError = e.getMessage();
+            finishedAt = LocalDateTime.now();
+            state.set(ReplayState.FAILED);
+            log.error("Kafka replay failed: {}", e.getMessage(), e);
+        } finally {
+            activeConsumer = null;
+        }
+    }
+
+    private Consumer<String, String> createConsumer() {
+        AnalyticsProperties.Replay replay = properties.getReplay();
+        Map<String, Object> config = new HashMap<>(kafkaProperties.buildConsumerProperties());
+        config.put(ConsumerConfig.GROUP_ID_CONFIG, replay.getGroupId());
+        config.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        config.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, replay.getMaxPollRecords());
+        config.put(ConsumerConfig.FETCH_MIN_BYTES_CONFIG, replay.getFetchMinBytes());
+        config.put(ConsumerConfig.FETCH_MAX_WAIT_MS_CONFIG, replay.getFetchMaxWaitMs());
+        config.put(ConsumerConfig.MAX_PARTITION_FETCH_BYTES_CONFIG, replay.getMaxPartitionFetchBytes());
+        return new DefaultKafkaConsumerFactory<>(config, new StringDeserializer(), new StringDeserializer())
+                .createConsumer();
+    }
+
+    /**
+     * Assigns every partition of the consumed topics, seeks to the first offset at or after
+     * {@code from} and returns the end offsets captured now, which bound the replay.
+     */
+    private Map<TopicPartition, Long> seekToTimestamp(Consumer<String, String> consumer, Instant from) {
+        List<TopicPartition> partitions = new ArrayList<>();
+        for (String topic : KafkaTopics.ALL) {
+            List<PartitionInfo> infos = consumer.partitionsFor(topic);
+            if (infos != null) {
+                infos.forEach(info -> partitions.add(new TopicPartition(info.topic(), info.partition())));
+            }
+        }
+        consumer.assign(partitions);
+
+        Map<TopicPartition, Long> timestamps = new HashMap<>();
+        partitions.forEach(partition -> timestamps.put(partition, from.toEpochMilli()));
+        Map<TopicPartition, OffsetAndTimestamp> startOffsets = consumer.offsetsForTimes(timestamps);
+        Map<TopicPartition, Long> endOffsets = new HashMap<>(consumer.endOffsets(partitions));
+
+        for (TopicPartition partition : partitions) {
+            OffsetAndTimestamp start = startOffsets.get(partition);
+            if (start == null) {
+                endOffsets.remove(partition);
+            } else {
+                consumer.seek(partition, start.offset());
+            }
+        }
+        consumer.pause(partitions.stream().filter(tp -> !endOffsets.containsKey(tp)).toList());
+        recordsRemaining.set(remaining(consumer, endOffsets));
+        return endOffsets;
+    }
+
+    private static long remaining(Consumer<String, String> consumer, Map<TopicPartition, Long> endOffsets) {
+        long remaining = 0;
+        for (Map.Entry<TopicPartition, Long> entry : endOffsets.entrySet()) {
+            remaining += Math.max(0, entry.getValue() - consumer.position(entry.getKey()));
+        }
+        return remaining;
+    }
+
+    public enum ReplayState {
+        IDLE,
+        RUNNING,
+        COMPLETED,
+        STOPPED,
+        FAILED
+    }
+}
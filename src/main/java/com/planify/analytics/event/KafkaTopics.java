@@ -0,0 +1,46 @@
+package com.planify.analytics.event;
+
+import java.util.List;
+
+/**
+ * Names of the topics consumed by the analytics service, plus its own retry, dead-letter and
+ * published topics.
+ */
+public final class KafkaTopics {
+    
+    public static final String EVENT_CREATED = "event-created";
+    public static final String EVENT_UPDATED = "event-updated";
+    public static final String EVENT_DELETED = "event-deleted";
+    public static final String EVENT_PUBLISHED = "event-published";
+    public static final String GUEST_INVITED = "guest-invited";
+    public static final String RSVP_ACCEPTED = "rsvp-accepted";
+    public static final String RSVP_DECLINED = "rsvp-declined";
+    public static final String GUEST_CHECKED_IN = "guest-checked-in";
+    
+    public static final List<String> ALL = List.of(
+            EVENT_CREATED,
+            EVENT_UPDATED,
+            EVENT_DELETED,
+            EVENT_PUBLISHED,
+            GUEST_INVITED,
+            RSVP_ACCEPTED,
+            RSVP_DECLINED,
+            GUEST_CHECKED_IN
+    );
+    
+    // Records that failed to apply, retried after increasing delays (analytics.retry.delays-seconds)
+    public static final String RETRY_1 = "analytics-retry-1";
+    public static final String RETRY_2 = "analytics-retry-2";
+    public static final String RETRY_3 = "analytics-retry-3";
+    
+    public static final List<String> RETRY = List.of(RETRY_1, RETRY_2, RETRY_3);
+    
+    // Records that exhausted their retries or could not be decoded
+    public static final String DEAD_LETTER = "analytics-dlt";
+    
+    // Latest EventMetrics per event, keyed by eventId; compacted, deleted events are tombstones
+    public static final String EVENT_METRICS = "analytics-event-metrics";
+    
+    private KafkaTopics() {
+    }
+}
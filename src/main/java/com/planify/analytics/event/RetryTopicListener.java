@@ -0,0 +1,101 @@
+package com.planify.analytics.event;
+
+import com.planify.analytics.service.AnalyticsService;
+import com.planify.analytics.sharding.ShardRouter;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Applies records from the retry topics once they are due.
+ * <p>
+ * Every record of a retry topic has the same delay, so records become due in offset order. A
+ * record that is not due yet is nacked, which pauses only this tier's partition until then;
+ * the main listeners and the other tiers keep running. A record that fails again moves on to
+ * the next tier or to the dead-letter topic, and is only committed once that topic has it. While
+ * the database circuit breaker rejects calls, or when the record cannot be forwarded, it is
+ * nacked and tried again, without counting as an attempt.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RetryTopicListener {
+    
+    private static final Duration DATABASE_UNAVAILABLE_BACKOFF = Duration.ofSeconds(1);
+    private static final Duration SEND_FAILED_BACKOFF = Duration.ofSeconds(1);
+    
+    private final AnalyticsEventDecoder decoder;
+    private final RetryTopicRouter router;
+    private final AnalyticsService analyticsService;
+    private final ShardRouter shardRouter;
+    
+    @KafkaListener(topics = KafkaTopics.RETRY_1, groupId = "${spring.application.name}-retry", containerFactory = "retryListenerContainerFactory")
+    public void consumeRetry1(ConsumerRecord<String, String> record, Acknowledgment acknowledgment) {
+        retry(record, acknowledgment);
+    }
+    
+    @KafkaListener(topics = KafkaTopics.RETRY_2, groupId = "${spring.application.name}-retry", containerFactory = "retryListenerContainerFactory")
+    public void consumeRetry2(ConsumerRecord<String, String> record, Acknowledgment acknowledgment) {
+        retry(record, acknowledgment);
+    }
+    
+    @KafkaListener(topics = KafkaTopics.RETRY_3, groupId = "${spring.application.name}-retry", containerFactory = "retryListenerContainerFactory")
+    public void consumeRetry3(ConsumerRecord<String, String> record, Acknowledgment acknowledgment) {
+        retry(record, acknowledgment);
+    }
+    
+    void retry(ConsumerRecord<String, String> record, Acknowledgment acknowledgment) {
+        Duration wait = Duration.between(Instant.now(), RetryTopicRouter.dueAt(record));
+        if (wait.isPositive()) {
+            acknowledgment.nack(wait);
+            return;
+        }
+        
+        int attempt = RetryTopicRouter.attempt(record);
+        AnalyticsEvent event;
+        try {
+            event = router.read(record, decoder);
+        } catch (Exception e) {
+            log.error("Unreadable record at {}-{}@{}, sending it to the dead-letter topic: {}",
+                    record.topic(), record.partition(), record.offset(), e.getMessage());
+            acknowledgeOnceSent(router.deadLetter(record, e), acknowledgment);
+            return;
+        }
+        try {
+            shardRouter.partition(List.of(event)).forEach((shard, events) ->
+                    shardRouter.runOnShard(shard, () -> analyticsService.applyBatch(events)));
+            log.info("Applied {} for event {} on retry {}", event.getType(), event.getEventId(), attempt);
+        } catch (CallNotPermittedException e) {
+            acknowledgment.nack(DATABASE_UNAVAILABLE_BACKOFF);
+            return;
+        } catch (Exception e) {
+            acknowledgeOnceSent(router.retry(event, attempt + 1, e), acknowledgment);
+            return;
+        }
+        acknowledgment.acknowledge();
+    }
+    
+    /**
+     * Commits the record only once the next topic has it. A failed send nacks the record, so it
+     * is tried again from this tier instead of being committed away.
+     */
+    private void acknowledgeOnceSent(CompletableFuture<Void> sent, Acknowledgment acknowledgment) {
+        try {
+            sent.join();
+        } catch (Exception e) {
+            log.warn("Could not forward retry record, trying it again: {}", e.getMessage());
+            acknowledgment.nack(SEND_FAILED_BACKOFF);
+            return;
+        }
+        acknowledgment.acknowledge();
+    }
+}
@@ -0,0 +1,178 @@
+package com.planify.analytics.event;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.planify.analytics.config.AnalyticsProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.springframework.dao.NonTransientDataAccessException;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Moves records that could not be applied off the main path.
+ * <p>
+ * A failed record is sent to the first retry topic with a due time; the retry listeners apply
+ * it once it is due and forward it to the next tier on another failure, up to the dead-letter
+ * topic. Retry and dead-letter records carry the decoded {@link AnalyticsEvent} as JSON, so the
+ * original source coordinates survive and re-applying stays idempotent. Records that cannot be
+ * decoded go straight to the dead-letter topic with their raw payload.
+ * <p>
+ * Every send returns a future that completes once the record is stored in its topic, so the
+ * caller can keep the source record uncommitted until then.
+ */
+@Component
+@Slf4j
+public class RetryTopicRouter {
+
+    public static final String HEADER_ATTEMPT = "analytics-attempt";
+    public static final String HEADER_DUE_AT = "analytics-due-at";
+    public static final String HEADER_ERROR = "analytics-error";
+    public static final String HEADER_SOURCE_TOPIC = "analytics-source-topic";
+    public static final String HEADER_SOURCE_PARTITION = "analytics-source-partition";
+    public static final String HEADER_SOURCE_OFFSET = "analytics-source-offset";
+    // Present when the payload is the raw source record instead of an encoded AnalyticsEvent
+    public static final String HEADER_RAW = "analytics-raw";
+
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final List<Long> delaysSeconds;
+    private final MeterRegistry meterRegistry;
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    public RetryTopicRouter(KafkaTemplate<String, String> kafkaTemplate,
+                            AnalyticsProperties properties,
+                            MeterRegistry meterRegistry) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.delaysSeconds = properties.getRetryTopics().getDelaysSeconds();
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Sends a record that failed its {@code failedAttempts}-th attempt to the next retry tier,
+     * or to the dead-letter topic once every tier has been tried. Errors that cannot go away on
+     * their own, such as constraint violations, skip the retry tiers.
+     */
+    public CompletableFuture<Void> retry(AnalyticsEvent event, int failedAttempts, Exception error) {
+        int tier = failedAttempts - 1;
+        if (error instanceof NonTransientDataAccessException
+                || tier >= Math.min(delaysSeconds.size(), KafkaTopics.RETRY.size())) {
+            return deadLetter(event, failedAttempts, error);
+        }
+        Instant dueAt = Instant.now().plusSeconds(delaysSeconds.get(tier));
+        return send(KafkaTopics.RETRY.get(tier), event, failedAttempts, dueAt, error);
+    }
+
+    public CompletableFuture<Void> deadLetter(AnalyticsEvent event, int failedAttempts, Exception error) {
+        return send(KafkaTopics.DEAD_LETTER, event, failedAttempts, null, error);
+    }
+
+    /**
+     * Sends a record that cannot be decoded straight to the dead-letter topic with its raw payload.
+     * Also accepts a raw dead-letter record that failed again, keeping its source coordinates.
+     */
+    public CompletableFuture<Void> deadLetter(ConsumerRecord<String, String> record, Exception error) {
+        boolean forwarded = record.headers().lastHeader(HEADER_RAW) != null;
+        String sourceTopic = forwarded ? header(record, HEADER_SOURCE_TOPIC) : record.topic();
+        String sourcePartition = forwarded ? header(record, HEADER_SOURCE_PARTITION) : Integer.toString(record.partition());
+        String sourceOffset = forwarded ? header(record, HEADER_SOURCE_OFFSET) : Long.toString(record.offset());
+
+        ProducerRecord<String, String> deadLetter = new ProducerRecord<>(KafkaTopics.DEAD_LETTER, null,
+                record.timestamp() >= 0 ? record.timestamp() : null, record.key(), record.value());
+        Headers headers = deadLetter.headers();
+        headers.add(HEADER_RAW, new byte[0]);
+        headers.add(HEADER_SOURCE_TOPIC, utf8(sourceTopic));
+        headers.add(HEADER_SOURCE_PARTITION, utf8(sourcePartition));
+        headers.add(HEADER_SOURCE_OFFSET, utf8(sourceOffset));
+        headers.add(HEADER_ATTEMPT, utf8(Integer.toString(attempt(record) + 1)));
+        headers.add(HEADER_ERROR, utf8(message(error)));
+        return publish(deadLetter, sourceTopic);
+    }
+
+    /**
+     * Reads the event carried by a retry or dead-letter record.
+     *
+     * @param decoder used for raw payloads, which are decoded again with their source coordinates
+     */
+    public AnalyticsEvent read(ConsumerRecord<String, String> record, AnalyticsEventDecoder decoder) throws IOException {
+        if (record.headers().lastHeader(HEADER_RAW) != null) {
+            return decoder.decode(new ConsumerRecord<>(header(record, HEADER_SOURCE_TOPIC),
+                    Integer.parseInt(header(record, HEADER_SOURCE_PARTITION)),
+                    Long.parseLong(header(record, HEADER_SOURCE_OFFSET)),
+                    record.timestamp(), record.timestampType(), ConsumerRecord.NULL_SIZE, ConsumerRecord.NULL_SIZE,
+                    record.key(), record.value(), record.headers(), Optional.empty()));
+        }
+        return objectMapper.readValue(record.value(), AnalyticsEvent.class);
+    }
+
+    /**
+     * Number of attempts already made for a retry or dead-letter record, 0 for source records.
+     */
+    public static int attempt(ConsumerRecord<String, String> record) {
+        String attempt = header(record, HEADER_ATTEMPT);
+        return attempt != null ? Integer.parseInt(attempt) : 0;
+    }
+
+    public static Instant dueAt(ConsumerRecord<String, String> record) {
+        String dueAt = header(record, HEADER_DUE_AT);
+        return dueAt != null ? Instant.ofEpochMilli(Long.parseLong(dueAt)) : Instant.EPOCH;
+    }
+
+    private CompletableFuture<Void> send(String topic, AnalyticsEvent event, int attempt, Instant dueAt, Exception error) {
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(event);
+        } catch (IOException e) {
+            // Encoding would fail again on every delivery, so the record counts as handled
+            log.error("Failed to encode {} for event {}, record dropped: {}", event.getType(), event.getEventId(), e.getMessage());
+            return CompletableFuture.completedFuture(null);
+        }
+        ProducerRecord<String, String> record = new ProducerRecord<>(topic, event.getEventId().toString(), payload);
+        Headers headers = record.headers();
+        headers.add(HEADER_SOURCE_TOPIC, utf8(event.getType().getTopic()));
+        headers.add(HEADER_ATTEMPT, utf8(Integer.toString(attempt)));
+        if (dueAt != null) {
+            headers.add(HEADER_DUE_AT, utf8(Long.toString(dueAt.toEpochMilli())));
+        }
+        headers.add(HEADER_ERROR, utf8(message(error)));
+        return publish(record, event.getType().getTopic());
+    }
+
+    private CompletableFuture<Void> publish(ProducerRecord<String, String> record, String sourceTopic) {
+        meterRegistry.counter("analytics.retry.routed", "topic", record.topic()).increment();
+        return kafkaTemplate.send(record).whenComplete((result, sendError) -> {
+            if (sendError != null) {
+                meterRegistry.counter("analytics.retry.lost").increment();
+                log.error("Failed to send {} record to {}: {}", sourceTopic, record.topic(), sendError.getMessage());
+            } else {
+                log.warn("Sent failed {} record to {}", sourceTopic, record.topic());
+            }
+        }).thenAccept(result -> { });
+    }
+
+    private static String header(ConsumerRecord<String, String> record, String name) {
+        Header header = record.headers().lastHeader(name);
+        return header != null ? new String(header.value(), StandardCharsets.UTF_8) : null;
+    }
+
+    private static String message(Exception error) {
+        return error.getMessage() != null ? error.getMessage() : error.getClass().getName();
+    }
+
+    private static byte[] utf8(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,113 @@
+package com.planify.analytics.graphql;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.planify.analytics.config.AnalyticsProperties;
+import graphql.ExecutionInput;
+import graphql.execution.preparsed.PreparsedDocumentEntry;
+import graphql.execution.preparsed.PreparsedDocumentProvider;
+import graphql.execution.preparsed.persisted.PersistedQueryIdInvalid;
+import graphql.execution.preparsed.persisted.PersistedQueryNotFound;
+import graphql.execution.preparsed.persisted.PersistedQuerySupport;
+import graphql.language.Document;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Keeps parsed and validated GraphQL documents by the SHA-256 hash of the query text, so the
+ * same dashboard query is parsed and validated once instead of on every request.
+ * <p>
+ * The cache also serves Apollo-style persisted queries: a client sends only
+ * {@code extensions.persistedQuery.sha256Hash}, and on a {@code PersistedQueryNotFound} error
+ * sends the hash together with the query once to register it. Only documents that validated
+ * without errors are cached.
+ */
+@Component
+public class DocumentCache implements PreparsedDocumentProvider {
+
+    private final Cache<String, PreparsedDocumentEntry> documents;
+
+    public DocumentCache(AnalyticsProperties properties, MeterRegistry meterRegistry) {
+        this.documents = Caffeine.newBuilder()
+                .maximumSize(properties.getGraphql().getDocumentCacheSize())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, documents, "graphql.documents");
+    }
+
+    @Override
+    public CompletableFuture<PreparsedDocumentEntry> getDocumentAsync(ExecutionInput executionInput,
+                                                                      Function<ExecutionInput, PreparsedDocumentEntry> parseAndValidateFunction) {
+        String persistedHash = persistedQueryHash(executionInput.getExtensions());
+        String query = executionInput.getQuery();
+        if (persistedHash != null) {
+            if (isMissing(query)) {
+                PreparsedDocumentEntry entry = documents.getIfPresent(persistedHash);
+                return CompletableFuture.completedFuture(entry != null ? entry : new PreparsedDocumentEntry(new PersistedQueryNotFound(persistedHash)));
+            }
+            if (!persistedHash.equals(sha256(query))) {
+                return CompletableFuture.completedFuture(new PreparsedDocumentEntry(new PersistedQueryIdInvalid(persistedHash)));
+            }
+        }
+
+        String id = persistedHash != null ? persistedHash : sha256(query);
+        PreparsedDocumentEntry entry = documents.getIfPresent(id);
+        if (entry == null) {
+            entry = parseAndValidateFunction.apply(executionInput);
+            if (!entry.hasErrors()) {
+                documents.put(id, entry);
+            }
+        }
+        return CompletableFuture.completedFuture(entry);
+    }
+
+    /**
+     * The parsed and validated document for an id from {@link #documentId(String, Map)}, or null
+     * if it has not been executed successfully yet.
+     */
+    public Document cachedDocument(String documentId) {
+        PreparsedDocumentEntry entry = documentId != null ? documents.getIfPresent(documentId) : null;
+        return entry != null ? entry.getDocument() : null;
+    }
+
+    /**
+     * Cache key of a request's document: the persisted query hash if present, otherwise the
+     * SHA-256 hash of the query text.
+     */
+    public static String documentId(String query, Map<String, Object> extensions) {
+        String persistedHash = persistedQueryHash(extensions);
+        if (persistedHash != null) {
+            return persistedHash;
+        }
+        return isMissing(query) ? null : sha256(query);
+    }
+
+    private static String persistedQueryHash(Map<String, Object> extensions) {
+        if (extensions != null && extensions.get("persistedQuery") instanceof Map<?, ?> persistedQuery
+                && persistedQuery.get("sha256Hash") instanceof String hash) {
+            return hash.toLowerCase();
+        }
+        return null;
+    }
+
+    private static boolean isMissing(String query) {
+        return query == null || query.isBlank() || PersistedQuerySupport.PERSISTED_QUERY_MARKER.equals(query);
+    }
+
+    static String sha256(String query) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(query.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
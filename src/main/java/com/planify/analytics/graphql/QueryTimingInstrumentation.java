@@ -0,0 +1,65 @@
+package com.planify.analytics.graphql;
+
+import graphql.ExecutionResult;
+import graphql.execution.instrumentation.InstrumentationContext;
+import graphql.execution.instrumentation.InstrumentationState;
+import graphql.execution.instrumentation.SimpleInstrumentationContext;
+import graphql.execution.instrumentation.SimplePerformantInstrumentation;
+import graphql.execution.instrumentation.parameters.InstrumentationExecuteOperationParameters;
+import graphql.execution.instrumentation.parameters.InstrumentationExecutionParameters;
+import graphql.execution.instrumentation.parameters.InstrumentationValidationParameters;
+import graphql.language.Document;
+import graphql.validation.ValidationError;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times the parse, validate and execute phases of GraphQL requests separately
+ * ({@code analytics.graphql.phase}). Requests served from the {@link DocumentCache} skip the
+ * parse and validate phases, and results served from the result cache skip all three.
+ */
+@Component
+public class QueryTimingInstrumentation extends SimplePerformantInstrumentation {
+
+    private final Timer parse;
+    private final Timer validate;
+    private final Timer execute;
+
+    public QueryTimingInstrumentation(MeterRegistry meterRegistry) {
+        this.parse = phaseTimer("parse", meterRegistry);
+        this.validate = phaseTimer("validate", meterRegistry);
+        this.execute = phaseTimer("execute", meterRegistry);
+    }
+
+    @Override
+    public InstrumentationContext<Document> beginParse(InstrumentationExecutionParameters parameters, InstrumentationState state) {
+        return timed(parse);
+    }
+
+    @Override
+    public InstrumentationContext<List<ValidationError>> beginValidation(InstrumentationValidationParameters parameters, InstrumentationState state) {
+        return timed(validate);
+    }
+
+    @Override
+    public InstrumentationContext<ExecutionResult> beginExecuteOperation(InstrumentationExecuteOperationParameters parameters, InstrumentationState state) {
+        return timed(execute);
+    }
+
+    private static <T> InstrumentationContext<T> timed(Timer timer) {
+        long start = System.nanoTime();
+        return SimpleInstrumentationContext.whenCompleted((result, error) -> timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+    }
+
+    private static Timer phaseTimer(String phase, MeterRegistry meterRegistry) {
+        return Timer.builder("analytics.graphql.phase")
+                .description("Time spent in one phase of a GraphQL request")
+                .tag("phase", phase)
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+}
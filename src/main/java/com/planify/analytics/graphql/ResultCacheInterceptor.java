@@ -0,0 +1,113 @@
+package com.planify.analytics.graphql;
+
+import com.planify.analytics.service.QueryResultCache;
+import graphql.ExecutionResult;
+import graphql.language.Argument;
+import graphql.language.Document;
+import graphql.language.Field;
+import graphql.language.OperationDefinition;
+import graphql.language.Selection;
+import graphql.language.StringValue;
+import graphql.language.Value;
+import graphql.language.VariableReference;
+import lombok.RequiredArgsConstructor;
+import org.springframework.graphql.server.WebGraphQlInterceptor;
+import org.springframework.graphql.server.WebGraphQlRequest;
+import org.springframework.graphql.server.WebGraphQlResponse;
+import org.springframework.graphql.support.DefaultExecutionGraphQlResponse;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Serves repeated GraphQL queries from the {@link QueryResultCache} when it is enabled.
+ * <p>
+ * Only query operations whose document is already in the {@link DocumentCache} are cached, so a
+ * result is stored from the second execution of a document on. Each root field is tagged with
+ * its {@code ...Id} arguments, or as global if it has none, which decides which writes
+ * invalidate the result. Results with errors are never stored.
+ */
+@Component
+@RequiredArgsConstructor
+public class ResultCacheInterceptor implements WebGraphQlInterceptor {
+
+    private final DocumentCache documentCache;
+    private final QueryResultCache resultCache;
+
+    @Override
+    public Mono<WebGraphQlResponse> intercept(WebGraphQlRequest request, Chain chain) {
+        if (!resultCache.isEnabled()) {
+            return chain.next(request);
+        }
+        String documentId = DocumentCache.documentId(request.getDocument(), request.getExtensions());
+        Document document = documentCache.cachedDocument(documentId);
+        OperationDefinition operation = document != null ? operation(document, request.getOperationName()) : null;
+        if (operation == null || operation.getOperation() != OperationDefinition.Operation.QUERY) {
+            return chain.next(request);
+        }
+
+        QueryResultCache.Key key = new QueryResultCache.Key(documentId, request.getOperationName(), request.getVariables());
+        ExecutionResult cached = resultCache.get(key);
+        if (cached != null) {
+            return Mono.just(new WebGraphQlResponse(new DefaultExecutionGraphQlResponse(request.toExecutionInput(), cached)));
+        }
+        QueryResultCache.Entry entry = resultCache.begin(key, tags(operation, request.getVariables()));
+        return chain.next(request).doOnNext(response -> {
+            if (response.isValid() && response.getErrors().isEmpty()) {
+                resultCache.complete(entry, response.getExecutionResult());
+            }
+        });
+    }
+
+    private static OperationDefinition operation(Document document, String operationName) {
+        List<OperationDefinition> operations = document.getDefinitionsOfType(OperationDefinition.class);
+        if (operationName == null || operationName.isEmpty()) {
+            return operations.size() == 1 ? operations.get(0) : null;
+        }
+        return operations.stream()
+                .filter(operation -> operationName.equals(operation.getName()))
+                .findFirst()
+                .orElse(null);
+    }
+
+    static Set<String> tags(OperationDefinition operation, Map<String, Object> variables) {
+        Set<String> tags = new HashSet<>();
+        for (Selection<?> selection : operation.getSelectionSet().getSelections()) {
+            if (!(selection instanceof Field field)) {
+                // Fragments at the root could select anything
+                tags.add(QueryResultCache.GLOBAL);
+                continue;
+            }
+            if (field.getName().startsWith("__")) {
+                // Introspection, does not depend on data
+                continue;
+            }
+            boolean keyed = false;
+            for (Argument argument : field.getArguments()) {
+                Object value = argument.getName().endsWith("Id") ? value(argument.getValue(), variables) : null;
+                if (value != null) {
+                    tags.add(QueryResultCache.tag(argument.getName(), value));
+                    keyed = true;
+                }
+            }
+            if (!keyed) {
+                tags.add(QueryResultCache.GLOBAL);
+            }
+        }
+        return tags;
+    }
+
+    private static Object value(Value<?> value, Map<String, Object> variables) {
+        if (value instanceof StringValue string) {
+            return string.getValue();
+        }
+        if (value instanceof VariableReference variable) {
+            return variables.get(variable.getName());
+        }
+        return null;
+    }
+}
@@ -0,0 +1,24 @@
+package com.planify.analytics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event for the time a call waited for a bulkhead permit.
+ */
+@Name("com.planify.analytics.BulkheadWait")
+@Label("Bulkhead Wait")
+@Category({"Planify", "Analytics", "Resilience"})
+@Description("Time a call waited for a bulkhead permit, and whether it was rejected")
+@StackTrace(false)
+class BulkheadWaitEvent extends jdk.jfr.Event {
+
+    @Label("Bulkhead")
+    String bulkhead;
+
+    @Label("Rejected")
+    boolean rejected;
+}
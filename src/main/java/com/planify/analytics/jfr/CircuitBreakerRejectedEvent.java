@@ -0,0 +1,25 @@
+package com.planify.analytics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event for a call rejected by an open circuit breaker. The stack trace shows
+ * which caller was turned away.
+ */
+@Name("com.planify.analytics.CircuitBreakerRejected")
+@Label("Circuit Breaker Rejection")
+@Category({"Planify", "Analytics", "Resilience"})
+@Description("Call not permitted by an open or half-open circuit breaker")
+@StackTrace(true)
+class CircuitBreakerRejectedEvent extends jdk.jfr.Event {
+
+    @Label("Circuit Breaker")
+    String circuitBreaker;
+
+    @Label("State")
+    String state;
+}
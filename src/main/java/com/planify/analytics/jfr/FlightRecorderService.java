@@ -0,0 +1,150 @@
+package com.planify.analytics.jfr;
+
+import com.planify.analytics.config.AnalyticsProperties;
+import jdk.jfr.Configuration;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import jdk.management.jfr.FlightRecorderMXBean;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Always-on flight recording, so the last minutes before a slowdown can be pulled from a running
+ * pod without attaching a profiler.
+ * <p>
+ * The recording uses one of the JDK's predefined settings ({@code default} is meant for
+ * continuous use in production) plus the service's own ingest, database and resilience events.
+ * It is kept on disk and bounded by {@code max-age-minutes} and {@code max-size-mb}. A dump
+ * copies the chunks covering the requested last minutes into a standalone .jfr file, leaving the
+ * recording running.
+ */
+@Service
+@Slf4j
+public class FlightRecorderService implements SmartLifecycle {
+
+    static final String RECORDING_NAME = "analytics-continuous";
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final AnalyticsProperties.Jfr properties;
+    private volatile Recording recording;
+    private volatile boolean running;
+
+    public FlightRecorderService(AnalyticsProperties properties) {
+        this.properties = properties.getJfr();
+    }
+
+    public boolean isRecording() {
+        return recording != null;
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        Recording current = recording;
+        status.put("recording", current != null);
+        status.put("settings", properties.getSettings());
+        if (current != null) {
+            status.put("state", current.getState().name());
+            status.put("startedAt", current.getStartTime());
+            status.put("maxAgeMinutes", current.getMaxAge().toMinutes());
+            status.put("maxSizeBytes", current.getMaxSize());
+            status.put("sizeBytes", current.getSize());
+        }
+        status.put("dumpDirectory", properties.getDumpDirectory());
+        return status;
+    }
+
+    /**
+     * Writes the last {@code minutes} of the recording to a new file in the dump directory.
+     */
+    public Path dump(int minutes) throws IOException {
+        Path directory = Path.of(properties.getDumpDirectory());
+        Files.createDirectories(directory);
+        Path target = directory.resolve("analytics-" + LocalDateTime.now().format(FILE_TIMESTAMP) + "-" + minutes + "m.jfr");
+        dump(minutes, target);
+        return target;
+    }
+
+    /**
+     * Writes the last {@code minutes} of the recording to {@code target}. Data is copied in whole
+     * chunks, so the file may start somewhat earlier than requested.
+     */
+    public void dump(int minutes, Path target) throws IOException {
+        Recording current = recording;
+        if (current == null) {
+            throw new IllegalStateException("Flight recording is not running");
+        }
+        Instant since = Instant.now().minus(Duration.ofMinutes(Math.max(1, minutes)));
+        FlightRecorderMXBean flightRecorder = ManagementFactory.getPlatformMXBean(FlightRecorderMXBean.class);
+        // A stopped copy ends the current chunk, so the dump reaches up to now
+        try (Recording snapshot = current.copy(true);
+             OutputStream out = Files.newOutputStream(target)) {
+            long stream = flightRecorder.openStream(snapshot.getId(), Map.of("startTime", since.toString()));
+            try {
+                byte[] block;
+                while ((block = flightRecorder.readStream(stream)) != null) {
+                    out.write(block);
+                }
+            } finally {
+                flightRecorder.closeStream(stream);
+            }
+        }
+        log.info("Dumped last {} minutes of flight recording to {} ({} bytes)", minutes, target, Files.size(target));
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        if (!properties.isEnabled()) {
+            return;
+        }
+        if (!FlightRecorder.isAvailable()) {
+            log.warn("Flight recorder is not available in this runtime, continuous recording disabled");
+            return;
+        }
+        try {
+            Map<String, String> settings = new HashMap<>(Configuration.getConfiguration(properties.getSettings()).getSettings());
+            settings.putAll(properties.getSettingsOverrides());
+            Recording started = new Recording(settings);
+            started.setName(RECORDING_NAME);
+            started.setToDisk(true);
+            started.setMaxAge(Duration.ofMinutes(properties.getMaxAgeMinutes()));
+            started.setMaxSize(properties.getMaxSizeMb() * 1024L * 1024L);
+            started.start();
+            recording = started;
+            log.info("Continuous flight recording started: settings {}, last {} minutes up to {} MB",
+                    properties.getSettings(), properties.getMaxAgeMinutes(), properties.getMaxSizeMb());
+        } catch (IOException | ParseException | RuntimeException e) {
+            log.warn("Failed to start continuous flight recording: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        Recording current = recording;
+        recording = null;
+        if (current != null) {
+            current.close();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+}
@@ -0,0 +1,83 @@
+package com.planify.analytics.jfr;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Emits {@link CircuitBreakerRejectedEvent}s and {@link BulkheadWaitEvent}s for every circuit
+ * breaker and bulkhead in the registries, including ones created later.
+ * <p>
+ * Resilience4j publishes its events synchronously on the calling thread. The bulkhead wait is
+ * started by an aspect ordered just outside the Resilience4j bulkhead aspect and ended when the
+ * bulkhead reports the call as permitted or rejected.
+ */
+@Aspect
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 1)
+public class ResilienceEventRecorder {
+
+    private final ThreadLocal<BulkheadWaitEvent> waiting = new ThreadLocal<>();
+
+    public ResilienceEventRecorder(CircuitBreakerRegistry circuitBreakerRegistry, BulkheadRegistry bulkheadRegistry) {
+        circuitBreakerRegistry.getAllCircuitBreakers().forEach(this::register);
+        circuitBreakerRegistry.getEventPublisher().onEntryAdded(event -> register(event.getAddedEntry()));
+        bulkheadRegistry.getAllBulkheads().forEach(this::register);
+        bulkheadRegistry.getEventPublisher().onEntryAdded(event -> register(event.getAddedEntry()));
+    }
+
+    @Around("@annotation(bulkhead)")
+    public Object recordBulkheadWait(ProceedingJoinPoint joinPoint,
+                                     io.github.resilience4j.bulkhead.annotation.Bulkhead bulkhead) throws Throwable {
+        BulkheadWaitEvent event = new BulkheadWaitEvent();
+        if (!event.isEnabled()) {
+            return joinPoint.proceed();
+        }
+        event.bulkhead = bulkhead.name();
+        event.begin();
+        waiting.set(event);
+        try {
+            return joinPoint.proceed();
+        } finally {
+            waiting.remove();
+        }
+    }
+
+    private void register(CircuitBreaker circuitBreaker) {
+        circuitBreaker.getEventPublisher().onCallNotPermitted(rejection -> {
+            CircuitBreakerRejectedEvent event = new CircuitBreakerRejectedEvent();
+            if (event.shouldCommit()) {
+                event.circuitBreaker = rejection.getCircuitBreakerName();
+                event.state = circuitBreaker.getState().name();
+                event.commit();
+            }
+        });
+    }
+
+    private void register(Bulkhead bulkhead) {
+        bulkhead.getEventPublisher()
+                .onCallPermitted(permitted -> admitted(false))
+                .onCallRejected(rejected -> admitted(true));
+    }
+
+    private void admitted(boolean rejected) {
+        BulkheadWaitEvent event = waiting.get();
+        if (event == null) {
+            return;
+        }
+        // Only the outermost permit of the call is its wait
+        waiting.remove();
+        event.end();
+        if (event.shouldCommit()) {
+            event.rejected = rejected;
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.planify.analytics.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * Maps {@link UserActivity.ActivityType} to its smallint code in user_activity.activity_type.
+ */
+@Converter
+public class ActivityTypeConverter implements AttributeConverter<UserActivity.ActivityType, Short> {
+    
+    @Override
+    public Short convertToDatabaseColumn(UserActivity.ActivityType activityType) {
+        return activityType != null ? activityType.getCode() : null;
+    }
+    
+    @Override
+    public UserActivity.ActivityType convertToEntityAttribute(Short code) {
+        return code != null ? UserActivity.ActivityType.fromCode(code) : null;
+    }
+}
@@ -0,0 +1,26 @@
+package com.planify.analytics.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Result of an {@link AudienceExpression}: its number of users and one page of them.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Audience {
+    
+    private long cardinality;
+    
+    // Users of the requested page, in a stable order; empty when only the cardinality was asked for
+    private List<UUID> userIds = new ArrayList<>();
+    
+    // Passed as "after" to read the next page, null on the last page
+    private String endCursor;
+}
@@ -0,0 +1,58 @@
+package com.planify.analytics.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Set expression over audience sets. A leaf names one set, the users with at least one
+ * activity of {@code activityType} for {@code eventId}; any other node combines its operands
+ * with {@code operation}. For example "invited but never RSVPed" is the difference of the
+ * event's INVITATION_SENT set and its three RSVP sets.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AudienceExpression {
+    
+    private UUID eventId;
+    
+    private UserActivity.ActivityType activityType;
+    
+    private Operation operation;
+    
+    private List<AudienceExpression> operands = new ArrayList<>();
+    
+    @JsonIgnore
+    public boolean isSet() {
+        return operation == null;
+    }
+    
+    public static AudienceExpression set(UUID eventId, UserActivity.ActivityType activityType) {
+        return new AudienceExpression(eventId, activityType, null, new ArrayList<>());
+    }
+    
+    public static AudienceExpression union(AudienceExpression... operands) {
+        return new AudienceExpression(null, null, Operation.UNION, List.of(operands));
+    }
+    
+    public static AudienceExpression intersect(AudienceExpression... operands) {
+        return new AudienceExpression(null, null, Operation.INTERSECT, List.of(operands));
+    }
+    
+    public static AudienceExpression difference(AudienceExpression... operands) {
+        return new AudienceExpression(null, null, Operation.DIFFERENCE, List.of(operands));
+    }
+    
+    public enum Operation {
+        UNION,
+        INTERSECT,
+        // Users of the first operand that are in none of the others
+        DIFFERENCE
+    }
+}
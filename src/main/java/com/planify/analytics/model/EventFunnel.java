@@ -0,0 +1,59 @@
+package com.planify.analytics.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Entity
+@Table(name = "event_funnel")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EventFunnel {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "event_id", nullable = false)
+    private UUID eventId;
+    
+    @Column(name = "organization_id", nullable = false)
+    private UUID organizationId;
+    
+    @Column(name = "user_id", nullable = false)
+    private UUID userId;
+    
+    @Column(name = "stage", nullable = false, length = 50)
+    private String stage;
+    
+    @Column(name = "rsvp_status", length = 50)
+    private String rsvpStatus;
+    
+    // Stage transition timestamps
+    @Column(name = "invited_at")
+    private LocalDateTime invitedAt;
+    
+    @Column(name = "rsvp_at")
+    private LocalDateTime rsvpAt;
+    
+    @Column(name = "checked_in_at")
+    private LocalDateTime checkedInAt;
+    
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+    
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt = LocalDateTime.now();
+    
+    public enum Stage {
+        INVITED,
+        RSVP_ACCEPTED,
+        RSVP_DECLINED,
+        CHECKED_IN
+    }
+}
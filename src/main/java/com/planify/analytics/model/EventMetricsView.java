@@ -0,0 +1,60 @@
+package com.planify.analytics.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Read model behind the GraphQL EventMetrics type. Filled from a projection of only the
+ * requested columns, so fields that were not selected are null.
+ */
+@Data
+@NoArgsConstructor
+public class EventMetricsView {
+    
+    private Long id;
+    
+    private UUID eventId;
+    
+    private UUID organizationId;
+    
+    private String eventTitle;
+    
+    private LocalDateTime eventDate;
+    
+    private String eventStatus;
+    
+    private Integer totalInvites;
+    
+    private Integer rsvpAccepted;
+    
+    private Integer rsvpDeclined;
+    
+    private Integer rsvpMaybe;
+    
+    private Integer checkedIn;
+    
+    private LocalDateTime createdAt;
+    
+    private LocalDateTime updatedAt;
+    
+    public static EventMetricsView from(EventMetrics metrics) {
+        EventMetricsView view = new EventMetricsView();
+        view.setId(metrics.getId());
+        view.setEventId(metrics.getEventId());
+        view.setOrganizationId(metrics.getOrganizationId());
+        view.setEventTitle(metrics.getEventTitle());
+        view.setEventDate(metrics.getEventDate());
+        view.setEventStatus(metrics.getEventStatus());
+        view.setTotalInvites(metrics.getTotalInvites());
+        view.setRsvpAccepted(metrics.getRsvpAccepted());
+        view.setRsvpDeclined(metrics.getRsvpDeclined());
+        view.setRsvpMaybe(metrics.getRsvpMaybe());
+        view.setCheckedIn(metrics.getCheckedIn());
+        view.setCreatedAt(metrics.getCreatedAt());
+        view.setUpdatedAt(metrics.getUpdatedAt());
+        return view;
+    }
+}
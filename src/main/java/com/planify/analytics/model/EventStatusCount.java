@@ -0,0 +1,18 @@
+package com.planify.analytics.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Number of events in one status, an entry of {@link OrganizationSummary#getEventsByStatus()}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EventStatusCount {
+    
+    private String status;
+    
+    private long events;
+}
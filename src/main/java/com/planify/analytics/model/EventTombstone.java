@@ -0,0 +1,41 @@
+package com.planify.analytics.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * A deleted event whose activity and funnel rows are still being removed in the background.
+ * Reads skip every event that has a tombstone.
+ */
+@Entity
+@Table(name = "event_tombstone")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EventTombstone {
+    
+    @Id
+    @Column(name = "event_id", nullable = false)
+    private UUID eventId;
+    
+    @Column(name = "organization_id")
+    private UUID organizationId;
+    
+    @Column(name = "deleted_at", nullable = false, updatable = false)
+    private LocalDateTime deletedAt = LocalDateTime.now();
+    
+    @Column(name = "activities_deleted", nullable = false)
+    private Long activitiesDeleted = 0L;
+    
+    @Column(name = "funnel_deleted", nullable = false)
+    private Long funnelDeleted = 0L;
+    
+    // Set once no rows were left; the tombstone is swept once more and dropped after the retention period
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+}
@@ -0,0 +1,38 @@
+package com.planify.analytics.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+/**
+ * Activity of one event over a recent sliding window, e.g. check-ins in the last 5 minutes.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EventVelocity {
+    
+    private UUID eventId;
+    
+    // Covered time span, a whole number of buckets
+    private long windowSeconds;
+    
+    // Activity counts within the window
+    private long invitations;
+    
+    private long rsvpAccepted;
+    
+    private long rsvpDeclined;
+    
+    private long checkedIn;
+    
+    // Counts within the window scaled to one hour
+    private double rsvpsPerHour;
+    
+    private double checkInsPerHour;
+    
+    // Instance whose windows answered, see analytics.velocity.instance-id
+    private String servedBy;
+}
@@ -0,0 +1,40 @@
+package com.planify.analytics.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FunnelMetrics {
+    
+    private UUID eventId;
+    
+    private UUID organizationId;
+    
+    // Stage counts
+    private Long invited = 0L;
+    
+    private Long rsvpAccepted = 0L;
+    
+    private Long rsvpDeclined = 0L;
+    
+    private Long checkedIn = 0L;
+    
+    // Conversion rates (0.0 - 1.0)
+    private Double rsvpRate = 0.0;
+    
+    private Double acceptanceRate = 0.0;
+    
+    private Double checkInRate = 0.0;
+    
+    private Double showUpRate = 0.0;
+    
+    // Median time between stages, measured from the invitation
+    private Double medianTimeToRsvpSeconds;
+    
+    private Double medianTimeToCheckInSeconds;
+}
@@ -0,0 +1,34 @@
+package com.planify.analytics.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+/**
+ * Event counters summed over all events of one organization.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrganizationCounters {
+    
+    private UUID organizationId;
+    
+    private long events;
+    
+    private long totalInvites;
+    
+    private long rsvpAccepted;
+    
+    private long rsvpDeclined;
+    
+    private long rsvpMaybe;
+    
+    private long checkedIn;
+    
+    public static OrganizationCounters empty(UUID organizationId) {
+        return new OrganizationCounters(organizationId, 0, 0, 0, 0, 0, 0);
+    }
+}
@@ -0,0 +1,57 @@
+package com.planify.analytics.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Totals over all events of one organization, maintained as events and activity are recorded.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrganizationSummary {
+    
+    private UUID organizationId;
+    
+    private long events;
+    
+    // Number of events per event status, statuses without events are left out
+    private Map<String, Long> eventsByStatus = new TreeMap<>();
+    
+    private long totalInvites;
+    
+    private long rsvpAccepted;
+    
+    private long rsvpDeclined;
+    
+    private long rsvpMaybe;
+    
+    private long checkedIn;
+    
+    private LocalDateTime updatedAt;
+    
+    // Conversion rates (0.0 - 1.0), defined as in FunnelMetrics
+    public double getAcceptanceRate() {
+        return ratio(rsvpAccepted, totalInvites);
+    }
+    
+    public double getShowUpRate() {
+        return ratio(checkedIn, rsvpAccepted);
+    }
+    
+    public static OrganizationSummary empty(UUID organizationId) {
+        OrganizationSummary summary = new OrganizationSummary();
+        summary.setOrganizationId(organizationId);
+        return summary;
+    }
+    
+    private static double ratio(long numerator, long denominator) {
+        return denominator == 0 ? 0.0 : (double) numerator / denominator;
+    }
+}
@@ -25,21 +25,57 @@ public class UserActivity {
     @Column(name = "event_id", nullable = false)
     private UUID eventId;
     
-    @Column(name = "activity_type", nullable = false, length = 50)
-    private String activityType;
+    @Convert(converter = ActivityTypeConverter.class)
+    @Column(name = "activity_type", nullable = false)
+    private ActivityType activityType;
     
     @Column(name = "activity_timestamp", nullable = false)
     private LocalDateTime activityTimestamp = LocalDateTime.now();
     
-    @Column(name = "created_at", nullable = false, updatable = false)
-    private LocalDateTime createdAt = LocalDateTime.now();
+    // Kafka source coordinates, null for rows recorded outside a listener
+    @Column(name = "source_partition")
+    private Integer sourcePartition;
     
+    @Column(name = "source_offset")
+    private Long sourceOffset;
+    
+    /**
+     * @deprecated the created_at column was dropped in V4; kept for API compatibility
+     */
+    @Deprecated
+    public LocalDateTime getCreatedAt() {
+        return activityTimestamp;
+    }
+    
+    /**
+     * Stored as a smallint code (see {@link ActivityTypeConverter}). Codes are persisted,
+     * so existing ones must never be changed or reused.
+     */
     public enum ActivityType {
-        RSVP_ACCEPTED,
-        RSVP_DECLINED,
-        RSVP_MAYBE,
-        CHECKED_IN,
-        EVENT_VIEWED,
-        INVITATION_SENT
+        RSVP_ACCEPTED(1),
+        RSVP_DECLINED(2),
+        RSVP_MAYBE(3),
+        CHECKED_IN(4),
+        EVENT_VIEWED(5),
+        INVITATION_SENT(6);
+        
+        private final short code;
+        
+        ActivityType(int code) {
+            this.code = (short) code;
+        }
+        
+        public short getCode() {
+            return code;
+        }
+        
+        public static ActivityType fromCode(short code) {
+            for (ActivityType type : values()) {
+                if (type.code == code) {
+                    return type;
+                }
+            }
+            throw new IllegalArgumentException("Unknown activity type code: " + code);
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,47 @@
+package com.planify.analytics.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Totals of one user's activity across all events, maintained as activity is recorded.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserActivitySummary {
+    
+    private UUID userId;
+    
+    private long totalActivities;
+    
+    // Counts per UserActivity.ActivityType
+    private long invitations;
+    
+    private long rsvpAccepted;
+    
+    private long rsvpDeclined;
+    
+    private long rsvpMaybe;
+    
+    private long checkedIn;
+    
+    private long eventsViewed;
+    
+    // Events with at least one activity of the user
+    private long distinctEvents;
+    
+    private LocalDateTime firstActivityAt;
+    
+    private LocalDateTime lastActivityAt;
+    
+    public static UserActivitySummary empty(UUID userId) {
+        UserActivitySummary summary = new UserActivitySummary();
+        summary.setUserId(userId);
+        return summary;
+    }
+}
@@ -0,0 +1,34 @@
+package com.planify.analytics.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Read model behind the GraphQL UserActivity type. Filled from a projection of only the
+ * requested columns, so fields that were not selected are null.
+ */
+@Data
+@NoArgsConstructor
+public class UserActivityView {
+    
+    private Long id;
+    
+    private UUID userId;
+    
+    private UUID eventId;
+    
+    private UserActivity.ActivityType activityType;
+    
+    private LocalDateTime activityTimestamp;
+    
+    /**
+     * @deprecated same as {@link #getActivityTimestamp()}, see {@link UserActivity#getCreatedAt()}
+     */
+    @Deprecated
+    public LocalDateTime getCreatedAt() {
+        return activityTimestamp;
+    }
+}
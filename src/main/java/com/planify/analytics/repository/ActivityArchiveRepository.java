@@ -0,0 +1,177 @@
+package com.planify.analytics.repository;
+
+import com.planify.analytics.model.UserActivity;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Array;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Cold tier of user_activity: moves old activity into user_activity_segment and reads it back.
+ * Segments are written once and only deleted again, as a whole, when their event is deleted.
+ * Rows keep their user_activity id, so archived activity reads the same as before the move.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ActivityArchiveRepository {
+
+    private static final Comparator<UserActivity> SEGMENT_ORDER =
+            Comparator.comparing(UserActivity::getActivityTimestamp).thenComparing(UserActivity::getId);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Events that took place before {@code before} and still have activity older than that
+     * in user_activity, in id order. Deleted events have no metrics row and are left to the
+     * cleanup worker.
+     */
+    public List<UUID> findArchivableEventIds(LocalDateTime before, int limit) {
+        Timestamp cutoff = Timestamp.valueOf(before);
+        return jdbcTemplate.query("""
+                        SELECT e.event_id FROM event_metrics e
+                        WHERE e.event_date < ?
+                          AND EXISTS (SELECT 1 FROM user_activity ua WHERE ua.event_id = e.event_id AND ua.activity_timestamp < ?)
+                        ORDER BY e.event_id
+                        LIMIT ?
+                        """,
+                (rs, rowNum) -> rs.getObject("event_id", UUID.class),
+                cutoff, cutoff, limit);
+    }
+
+    /**
+     * Moves the event's oldest activity before {@code before}, at most {@code segmentSize} rows,
+     * from user_activity into one new segment. Both statements run in the caller's transaction,
+     * so a row is always in exactly one of the tiers.
+     *
+     * @return number of rows moved and size of the written segment
+     */
+    public SegmentStats archive(UUID eventId, LocalDateTime before, int segmentSize) {
+        List<UserActivity> moved = new ArrayList<>(jdbcTemplate.query("""
+                        DELETE FROM user_activity
+                        WHERE id IN (SELECT id FROM user_activity
+                                     WHERE event_id = ? AND activity_timestamp < ?
+                                     ORDER BY activity_timestamp, id
+                                     LIMIT ?)
+                        RETURNING id, user_id, event_id, activity_type, activity_timestamp
+                        """,
+                (rs, rowNum) -> {
+                    UserActivity activity = new UserActivity();
+                    activity.setId(rs.getLong("id"));
+                    activity.setUserId(rs.getObject("user_id", UUID.class));
+                    activity.setEventId(rs.getObject("event_id", UUID.class));
+                    activity.setActivityType(UserActivity.ActivityType.fromCode(rs.getShort("activity_type")));
+                    activity.setActivityTimestamp(rs.getTimestamp("activity_timestamp").toLocalDateTime());
+                    return activity;
+                },
+                eventId, Timestamp.valueOf(before), segmentSize));
+        if (moved.isEmpty()) {
+            return new SegmentStats(0, 0);
+        }
+        moved.sort(SEGMENT_ORDER);
+
+        UUID[] userIds = ActivitySegmentCodec.userIds(moved);
+        byte[] data = ActivitySegmentCodec.encode(moved, userIds);
+        int[] counts = new int[UserActivity.ActivityType.values().length];
+        moved.forEach(activity -> counts[activity.getActivityType().ordinal()]++);
+        jdbcTemplate.update("""
+                        INSERT INTO user_activity_segment (event_id, user_ids, activities, total_invites, rsvp_accepted,
+                                                           rsvp_declined, rsvp_maybe, checked_in, first_activity_at,
+                                                           last_activity_at, data)
+                        VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+                        """,
+                ps -> {
+                    ps.setObject(1, eventId);
+                    ps.setArray(2, ps.getConnection().createArrayOf("uuid", userIds));
+                    ps.setInt(3, moved.size());
+                    ps.setInt(4, counts[UserActivity.ActivityType.INVITATION_SENT.ordinal()]);
+                    ps.setInt(5, counts[UserActivity.ActivityType.RSVP_ACCEPTED.ordinal()]);
+                    ps.setInt(6, counts[UserActivity.ActivityType.RSVP_DECLINED.ordinal()]);
+                    ps.setInt(7, counts[UserActivity.ActivityType.RSVP_MAYBE.ordinal()]);
+                    ps.setInt(8, counts[UserActivity.ActivityType.CHECKED_IN.ordinal()]);
+                    ps.setTimestamp(9, Timestamp.valueOf(moved.get(0).getActivityTimestamp()));
+                    ps.setTimestamp(10, Timestamp.valueOf(moved.get(moved.size() - 1).getActivityTimestamp()));
+                    ps.setBytes(11, data);
+                });
+        return new SegmentStats(moved.size(), data.length);
+    }
+
+    /**
+     * Archived activity of the user; only segments listing the user in user_ids are decoded.
+     */
+    public List<UserActivity> findByUserId(UUID userId) {
+        List<UserActivity> activities = new ArrayList<>();
+        jdbcTemplate.query("""
+                        SELECT s.event_id, s.user_ids, s.data FROM user_activity_segment s
+                        WHERE s.user_ids @> ARRAY[CAST(? AS uuid)]
+                          AND NOT EXISTS (SELECT 1 FROM event_tombstone t WHERE t.event_id = s.event_id)
+                        ORDER BY s.first_activity_at, s.id
+                        """,
+                rs -> {
+                    decode(rs).stream()
+                            .filter(activity -> activity.getUserId().equals(userId))
+                            .forEach(activities::add);
+                },
+                userId);
+        return activities;
+    }
+
+    public List<UserActivity> findByEventId(UUID eventId) {
+        List<UserActivity> activities = new ArrayList<>();
+        jdbcTemplate.query("""
+                        SELECT s.event_id, s.user_ids, s.data FROM user_activity_segment s
+                        WHERE s.event_id = ?
+                          AND NOT EXISTS (SELECT 1 FROM event_tombstone t WHERE t.event_id = s.event_id)
+                        ORDER BY s.first_activity_at, s.id
+                        """,
+                rs -> {
+                    activities.addAll(decode(rs));
+                },
+                eventId);
+        return activities;
+    }
+
+    public long countActivities() {
+        Long count = jdbcTemplate.queryForObject("SELECT COALESCE(SUM(activities), 0) FROM user_activity_segment", Long.class);
+        return count != null ? count : 0;
+    }
+
+    /**
+     * Deletes one archived segment of a deleted event.
+     *
+     * @return the segment's rows, empty if the event has no segments left
+     */
+    public List<UserActivity> deleteSegment(UUID eventId) {
+        return jdbcTemplate.query("""
+                        DELETE FROM user_activity_segment
+                        WHERE id = (SELECT id FROM user_activity_segment WHERE event_id = ? ORDER BY id LIMIT 1)
+                        RETURNING event_id, user_ids, data
+                        """,
+                rs -> rs.next() ? decode(rs) : List.of(),
+                eventId);
+    }
+
+    private static List<UserActivity> decode(ResultSet rs) throws SQLException {
+        return ActivitySegmentCodec.decode(rs.getObject("event_id", UUID.class), uuids(rs.getArray("user_ids")), rs.getBytes("data"));
+    }
+
+    private static UUID[] uuids(Array array) throws SQLException {
+        return Arrays.stream((Object[]) array.getArray()).map(UUID.class::cast).toArray(UUID[]::new);
+    }
+
+    /**
+     * @param activities rows moved into the segment, 0 if there were none
+     * @param bytes compressed size of the segment's data
+     */
+    public record SegmentStats(int activities, int bytes) {
+    }
+}
@@ -0,0 +1,163 @@
+package com.planify.analytics.repository;
+
+import com.planify.analytics.model.UserActivity;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Columnar encoding of the activity rows of one segment in user_activity_segment.data.
+ * <p>
+ * Layout before compression: a version byte and the row count, then one column after the
+ * other: users as varint indexes into the segment's user_ids, activity type codes as one byte
+ * each, timestamps as zigzag varint deltas in microseconds, ids as zigzag varint deltas. Rows
+ * sorted by timestamp keep the deltas small and each column repetitive, which deflate then
+ * compresses well. Source partition and offset are not kept.
+ */
+final class ActivitySegmentCodec {
+
+    private static final int VERSION = 1;
+
+    private ActivitySegmentCodec() {
+    }
+
+    /**
+     * Distinct users of the rows in a stable order, stored as the segment's user_ids.
+     */
+    static UUID[] userIds(List<UserActivity> activities) {
+        return activities.stream()
+                .map(UserActivity::getUserId)
+                .distinct()
+                .sorted(Comparator.comparing(UUID::toString))
+                .toArray(UUID[]::new);
+    }
+
+    static byte[] encode(List<UserActivity> activities, UUID[] userIds) {
+        Map<UUID, Integer> userIndexes = new HashMap<>();
+        for (int i = 0; i < userIds.length; i++) {
+            userIndexes.put(userIds[i], i);
+        }
+        ByteArrayOutputStream raw = new ByteArrayOutputStream(activities.size() * 8);
+        raw.write(VERSION);
+        writeVarint(raw, activities.size());
+        for (UserActivity activity : activities) {
+            Integer index = userIndexes.get(activity.getUserId());
+            if (index == null) {
+                throw new IllegalArgumentException("User " + activity.getUserId() + " is missing from the segment's user ids");
+            }
+            writeVarint(raw, index);
+        }
+        for (UserActivity activity : activities) {
+            raw.write(activity.getActivityType().getCode());
+        }
+        long previous = 0;
+        for (UserActivity activity : activities) {
+            long micros = toMicros(activity.getActivityTimestamp());
+            writeVarint(raw, zigzag(micros - previous));
+            previous = micros;
+        }
+        previous = 0;
+        for (UserActivity activity : activities) {
+            writeVarint(raw, zigzag(activity.getId() - previous));
+            previous = activity.getId();
+        }
+
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(raw.size() / 2 + 16);
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try (DeflaterOutputStream out = new DeflaterOutputStream(compressed, deflater)) {
+            raw.writeTo(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            deflater.end();
+        }
+        return compressed.toByteArray();
+    }
+
+    static List<UserActivity> decode(UUID eventId, UUID[] userIds, byte[] data) {
+        ByteBuffer in;
+        try (InflaterInputStream inflater = new InflaterInputStream(new ByteArrayInputStream(data))) {
+            in = ByteBuffer.wrap(inflater.readAllBytes());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Corrupt activity segment of event " + eventId, e);
+        }
+        int version = in.get();
+        if (version != VERSION) {
+            throw new IllegalStateException("Unsupported activity segment version " + version + " of event " + eventId);
+        }
+        int count = (int) readVarint(in);
+        List<UserActivity> activities = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            UserActivity activity = new UserActivity();
+            activity.setEventId(eventId);
+            activity.setUserId(userIds[(int) readVarint(in)]);
+            activities.add(activity);
+        }
+        for (UserActivity activity : activities) {
+            activity.setActivityType(UserActivity.ActivityType.fromCode(in.get()));
+        }
+        long previous = 0;
+        for (UserActivity activity : activities) {
+            previous += unzigzag(readVarint(in));
+            activity.setActivityTimestamp(fromMicros(previous));
+        }
+        previous = 0;
+        for (UserActivity activity : activities) {
+            previous += unzigzag(readVarint(in));
+            activity.setId(previous);
+        }
+        return activities;
+    }
+
+    // Timestamps are stored without a zone; UTC is only used to count microseconds
+    private static long toMicros(LocalDateTime value) {
+        return ChronoUnit.MICROS.between(LocalDateTime.ofEpochSecond(0, 0, ZoneOffset.UTC), value);
+    }
+
+    private static LocalDateTime fromMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L), (int) Math.floorMod(micros, 1_000_000L) * 1000, ZoneOffset.UTC);
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarint(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalStateException("Malformed varint in activity segment");
+    }
+}
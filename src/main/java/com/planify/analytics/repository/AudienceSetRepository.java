@@ -0,0 +1,230 @@
+package com.planify.analytics.repository;
+
+import com.planify.analytics.model.UserActivity;
+import lombok.RequiredArgsConstructor;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Reads and writes audience_set and its user dictionary audience_user. Members are stored as
+ * serialized RoaringBitmaps of dictionary indexes. Writers lock sets in (eventId, activityType)
+ * order, so merges from the ingest path and rebuilds cannot deadlock each other.
+ */
+@Repository
+@RequiredArgsConstructor
+public class AudienceSetRepository {
+
+    // PostgreSQL orders UUIDs as unsigned bytes, which is the order of their hex strings
+    private static final Comparator<SetKey> LOCK_ORDER = Comparator.comparing((SetKey key) -> key.eventId().toString())
+            .thenComparing(key -> key.activityType().getCode());
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Dictionary indexes of the users, adding the ones that have none yet. Only missing users
+     * are inserted, so the identity sequence is not used up by users that are already known
+     * and indexes stay dense.
+     */
+    public Map<UUID, Integer> userIndexes(Collection<UUID> userIds) {
+        Map<UUID, Integer> indexes = new HashMap<>();
+        if (userIds.isEmpty()) {
+            return indexes;
+        }
+        UUID[] ids = userIds.stream().distinct().toArray(UUID[]::new);
+        PreparedStatementSetter idsSetter = ps -> ps.setArray(1, ps.getConnection().createArrayOf("uuid", ids));
+        jdbcTemplate.update("""
+                        INSERT INTO audience_user (user_id)
+                        SELECT u.user_id FROM unnest(?) AS u(user_id)
+                        WHERE NOT EXISTS (SELECT 1 FROM audience_user a WHERE a.user_id = u.user_id)
+                        ORDER BY u.user_id
+                        ON CONFLICT (user_id) DO NOTHING
+                        """,
+                idsSetter);
+        jdbcTemplate.query("SELECT user_id, user_index FROM audience_user WHERE user_id = ANY(?)",
+                idsSetter,
+                rs -> {
+                    indexes.put(rs.getObject("user_id", UUID.class), rs.getInt("user_index"));
+                });
+        return indexes;
+    }
+
+    /**
+     * User ids of dictionary indexes; indexes without a user are left out.
+     */
+    public Map<Integer, UUID> findUserIds(int[] userIndexes) {
+        Map<Integer, UUID> userIds = new HashMap<>();
+        if (userIndexes.length == 0) {
+            return userIds;
+        }
+        Integer[] indexes = Arrays.stream(userIndexes).boxed().toArray(Integer[]::new);
+        jdbcTemplate.query("SELECT user_index, user_id FROM audience_user WHERE user_index = ANY(?)",
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("integer", indexes)),
+                rs -> {
+                    userIds.put(rs.getInt("user_index"), rs.getObject("user_id", UUID.class));
+                });
+        return userIds;
+    }
+
+    /**
+     * Members of the given sets, for reading. Sets that do not exist, or belong to a deleted
+     * event, are left out.
+     */
+    public Map<SetKey, RoaringBitmap> findSets(Collection<SetKey> keys) {
+        Map<SetKey, RoaringBitmap> sets = new HashMap<>();
+        if (keys.isEmpty()) {
+            return sets;
+        }
+        jdbcTemplate.query("""
+                        SELECT s.event_id, s.activity_type, s.members FROM audience_set s
+                        WHERE (s.event_id, s.activity_type) IN (SELECT * FROM unnest(?, ?))
+                          AND NOT EXISTS (SELECT 1 FROM event_tombstone t WHERE t.event_id = s.event_id)
+                        """,
+                keysSetter(keys),
+                rs -> {
+                    sets.put(new SetKey(rs.getObject("event_id", UUID.class), UserActivity.ActivityType.fromCode(rs.getShort("activity_type"))),
+                            deserialize(rs.getBytes("members")));
+                });
+        return sets;
+    }
+
+    /**
+     * Creates the sets that do not exist yet, empty, and locks all of them for the rest of the
+     * transaction.
+     *
+     * @return current members of every given set
+     */
+    public Map<SetKey, RoaringBitmap> lock(Collection<SetKey> keys) {
+        Map<SetKey, RoaringBitmap> sets = new HashMap<>();
+        if (keys.isEmpty()) {
+            return sets;
+        }
+        List<SetKey> sorted = keys.stream().distinct().sorted(LOCK_ORDER).toList();
+        byte[] empty = serialize(new RoaringBitmap());
+        jdbcTemplate.batchUpdate("""
+                        INSERT INTO audience_set (event_id, activity_type, members, cardinality)
+                        VALUES (?, ?, ?, 0)
+                        ON CONFLICT (event_id, activity_type) DO NOTHING
+                        """,
+                sorted, sorted.size(), (ps, key) -> {
+                    ps.setObject(1, key.eventId());
+                    ps.setShort(2, key.activityType().getCode());
+                    ps.setBytes(3, empty);
+                });
+        jdbcTemplate.query("""
+                        SELECT event_id, activity_type, members FROM audience_set
+                        WHERE (event_id, activity_type) IN (SELECT * FROM unnest(?, ?))
+                        ORDER BY event_id, activity_type
+                        FOR UPDATE
+                        """,
+                keysSetter(sorted),
+                rs -> {
+                    sets.put(new SetKey(rs.getObject("event_id", UUID.class), UserActivity.ActivityType.fromCode(rs.getShort("activity_type"))),
+                            deserialize(rs.getBytes("members")));
+                });
+        return sets;
+    }
+
+    /**
+     * Overwrites the members of sets locked with {@link #lock(Collection)}.
+     */
+    public void update(Map<SetKey, RoaringBitmap> sets) {
+        if (sets.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<SetKey, RoaringBitmap>> sorted = sets.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey(LOCK_ORDER))
+                .toList();
+        jdbcTemplate.batchUpdate("""
+                        UPDATE audience_set SET members = ?, cardinality = ?, updated_at = CURRENT_TIMESTAMP
+                        WHERE event_id = ? AND activity_type = ?
+                        """,
+                sorted, sorted.size(), (ps, entry) -> {
+                    ps.setBytes(1, serialize(entry.getValue()));
+                    ps.setInt(2, entry.getValue().getCardinality());
+                    ps.setObject(3, entry.getKey().eventId());
+                    ps.setShort(4, entry.getKey().activityType().getCode());
+                });
+    }
+
+    /**
+     * Users with activity of the events in user_activity, per set. Archived activity is read
+     * through {@link ActivityArchiveRepository}.
+     */
+    public Map<SetKey, Set<UUID>> findMembers(Collection<UUID> eventIds) {
+        Map<SetKey, Set<UUID>> members = new HashMap<>();
+        if (eventIds.isEmpty()) {
+            return members;
+        }
+        UUID[] ids = eventIds.toArray(UUID[]::new);
+        jdbcTemplate.query("SELECT DISTINCT event_id, activity_type, user_id FROM user_activity WHERE event_id = ANY(?)",
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("uuid", ids)),
+                rs -> {
+                    SetKey key = new SetKey(rs.getObject("event_id", UUID.class), UserActivity.ActivityType.fromCode(rs.getShort("activity_type")));
+                    members.computeIfAbsent(key, k -> new HashSet<>()).add(rs.getObject("user_id", UUID.class));
+                });
+        return members;
+    }
+
+    /**
+     * Events with metrics after {@code after} in id order, to rebuild their sets in chunks.
+     */
+    public List<UUID> findEventIds(UUID after, int limit) {
+        if (after == null) {
+            return jdbcTemplate.query("SELECT event_id FROM event_metrics ORDER BY event_id LIMIT ?",
+                    (rs, rowNum) -> rs.getObject("event_id", UUID.class), limit);
+        }
+        return jdbcTemplate.query("SELECT event_id FROM event_metrics WHERE event_id > ? ORDER BY event_id LIMIT ?",
+                (rs, rowNum) -> rs.getObject("event_id", UUID.class), after, limit);
+    }
+
+    public int deleteByEventId(UUID eventId) {
+        return jdbcTemplate.update("DELETE FROM audience_set WHERE event_id = ?", eventId);
+    }
+
+    private static PreparedStatementSetter keysSetter(Collection<SetKey> keys) {
+        UUID[] eventIds = keys.stream().map(SetKey::eventId).toArray(UUID[]::new);
+        Short[] activityTypes = keys.stream().map(key -> key.activityType().getCode()).toArray(Short[]::new);
+        return ps -> {
+            ps.setArray(1, ps.getConnection().createArrayOf("uuid", eventIds));
+            ps.setArray(2, ps.getConnection().createArrayOf("smallint", activityTypes));
+        };
+    }
+
+    private static byte[] serialize(RoaringBitmap members) {
+        members.runOptimize();
+        ByteBuffer buffer = ByteBuffer.allocate(members.serializedSizeInBytes());
+        members.serialize(buffer);
+        return buffer.array();
+    }
+
+    private static RoaringBitmap deserialize(byte[] data) {
+        RoaringBitmap members = new RoaringBitmap();
+        try {
+            members.deserialize(ByteBuffer.wrap(data));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Corrupt audience set", e);
+        }
+        return members;
+    }
+
+    /**
+     * One audience set: the users with at least one activity of the type for the event.
+     */
+    public record SetKey(UUID eventId, UserActivity.ActivityType activityType) {
+    }
+}
@@ -0,0 +1,89 @@
+package com.planify.analytics.repository;
+
+import com.planify.analytics.model.EventFunnel;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Repository
+public interface EventFunnelRepository extends JpaRepository<EventFunnel, Long> {
+    
+    @Modifying
+    @Query(value = """
+            INSERT INTO event_funnel (event_id, organization_id, user_id, stage, invited_at, created_at, updated_at)
+            VALUES (:eventId, :organizationId, :userId, 'INVITED', :invitedAt, :invitedAt, :invitedAt)
+            ON CONFLICT (event_id, user_id) DO UPDATE SET
+                invited_at = COALESCE(event_funnel.invited_at, EXCLUDED.invited_at),
+                updated_at = EXCLUDED.updated_at
+            """, nativeQuery = true)
+    void upsertInvited(UUID eventId, UUID organizationId, UUID userId, LocalDateTime invitedAt);
+    
+    @Modifying
+    @Query(value = """
+            INSERT INTO event_funnel (event_id, organization_id, user_id, stage, rsvp_status, rsvp_at, created_at, updated_at)
+            VALUES (:eventId, :organizationId, :userId, :rsvpStatus, :rsvpStatus, :rsvpAt, :rsvpAt, :rsvpAt)
+            ON CONFLICT (event_id, user_id) DO UPDATE SET
+                stage = CASE WHEN event_funnel.stage = 'CHECKED_IN' THEN event_funnel.stage ELSE EXCLUDED.stage END,
+                rsvp_status = EXCLUDED.rsvp_status,
+                rsvp_at = COALESCE(event_funnel.rsvp_at, EXCLUDED.rsvp_at),
+                updated_at = EXCLUDED.updated_at
+            """, nativeQuery = true)
+    void upsertRsvp(UUID eventId, UUID organizationId, UUID userId, String rsvpStatus, LocalDateTime rsvpAt);
+    
+    @Modifying
+    @Query(value = """
+            INSERT INTO event_funnel (event_id, organization_id, user_id, stage, checked_in_at, created_at, updated_at)
+            VALUES (:eventId, :organizationId, :userId, 'CHECKED_IN', :checkedInAt, :checkedInAt, :checkedInAt)
+            ON CONFLICT (event_id, user_id) DO UPDATE SET
+                stage = 'CHECKED_IN',
+                checked_in_at = COALESCE(event_funnel.checked_in_at, EXCLUDED.checked_in_at),
+                updated_at = EXCLUDED.updated_at
+            """, nativeQuery = true)
+    void upsertCheckedIn(UUID eventId, UUID organizationId, UUID userId, LocalDateTime checkedInAt);
+    
+    @Query(value = """
+            SELECT COUNT(*) FILTER (WHERE f.invited_at IS NOT NULL) AS "invited",
+                   COUNT(*) FILTER (WHERE f.rsvp_status = 'RSVP_ACCEPTED') AS "rsvpAccepted",
+                   COUNT(*) FILTER (WHERE f.rsvp_status = 'RSVP_DECLINED') AS "rsvpDeclined",
+                   COUNT(*) FILTER (WHERE f.checked_in_at IS NOT NULL) AS "checkedIn",
+                   percentile_cont(0.5) WITHIN GROUP (ORDER BY EXTRACT(EPOCH FROM (f.rsvp_at - f.invited_at))) AS "medianTimeToRsvpSeconds",
+                   percentile_cont(0.5) WITHIN GROUP (ORDER BY EXTRACT(EPOCH FROM (f.checked_in_at - f.invited_at))) AS "medianTimeToCheckInSeconds"
+            FROM event_funnel f
+            WHERE f.event_id = :eventId
+              AND NOT EXISTS (SELECT 1 FROM event_tombstone t WHERE t.event_id = f.event_id)
+            """, nativeQuery = true)
+    FunnelStats aggregateByEventId(UUID eventId);
+    
+    @Query(value = """
+            SELECT COUNT(*) FILTER (WHERE f.invited_at IS NOT NULL) AS "invited",
+                   COUNT(*) FILTER (WHERE f.rsvp_status = 'RSVP_ACCEPTED') AS "rsvpAccepted",
+                   COUNT(*) FILTER (WHERE f.rsvp_status = 'RSVP_DECLINED') AS "rsvpDeclined",
+                   COUNT(*) FILTER (WHERE f.checked_in_at IS NOT NULL) AS "checkedIn",
+                   percentile_cont(0.5) WITHIN GROUP (ORDER BY EXTRACT(EPOCH FROM (f.rsvp_at - f.invited_at))) AS "medianTimeToRsvpSeconds",
+                   percentile_cont(0.5) WITHIN GROUP (ORDER BY EXTRACT(EPOCH FROM (f.checked_in_at - f.invited_at))) AS "medianTimeToCheckInSeconds"
+            FROM event_funnel f
+            WHERE f.organization_id = :organizationId
+              AND NOT EXISTS (SELECT 1 FROM event_tombstone t WHERE t.event_id = f.event_id)
+            """, nativeQuery = true)
+    FunnelStats aggregateByOrganizationId(UUID organizationId);
+    
+    @Modifying
+    @Query(value = """
+            DELETE FROM event_funnel
+            WHERE id IN (SELECT id FROM event_funnel WHERE event_id = :eventId LIMIT :limit)
+            """, nativeQuery = true)
+    int deleteChunkByEventId(UUID eventId, int limit);
+    
+    interface FunnelStats {
+        Long getInvited();
+        Long getRsvpAccepted();
+        Long getRsvpDeclined();
+        Long getCheckedIn();
+        Double getMedianTimeToRsvpSeconds();
+        Double getMedianTimeToCheckInSeconds();
+    }
+}
@@ -0,0 +1,217 @@
+package com.planify.analytics.repository;
+
+import com.planify.analytics.model.UserActivity;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * Set-based SQL used to rebuild event_metrics counters from user_activity and the per-type
+ * counts of archived activity in user_activity_segment.
+ * Full rebuilds recompute into event_metrics_shadow and only touch the live table in
+ * {@link #swapShadow(LocalDateTime, long)}; {@link #rebuildEvents(Collection)} recounts a
+ * handful of events in place.
+ */
+@Repository
+@RequiredArgsConstructor
+public class EventMetricsRebuildRepository {
+
+    private static final String SHADOW_TABLE = "event_metrics_shadow";
+
+    // activity_type holds UserActivity.ActivityType codes. Both tiers are filtered by the same
+    // condition on event_id, so its parameters are bound twice.
+    private static final String COUNTERS_SELECT = """
+            SELECT c.event_id,
+                   SUM(c.total_invites) AS total_invites,
+                   SUM(c.rsvp_accepted) AS rsvp_accepted,
+                   SUM(c.rsvp_declined) AS rsvp_declined,
+                   SUM(c.rsvp_maybe) AS rsvp_maybe,
+                   SUM(c.checked_in) AS checked_in
+            FROM (SELECT ua.event_id,
+                         COUNT(*) FILTER (WHERE ua.activity_type = %d) AS total_invites,
+                         COUNT(*) FILTER (WHERE ua.activity_type = %d) AS rsvp_accepted,
+                         COUNT(*) FILTER (WHERE ua.activity_type = %d) AS rsvp_declined,
+                         COUNT(*) FILTER (WHERE ua.activity_type = %d) AS rsvp_maybe,
+                         COUNT(*) FILTER (WHERE ua.activity_type = %d) AS checked_in
+                  FROM user_activity ua
+                  WHERE %%1$s
+                  GROUP BY ua.event_id
+                  UNION ALL
+                  SELECT s.event_id, s.total_invites, s.rsvp_accepted, s.rsvp_declined, s.rsvp_maybe, s.checked_in
+                  FROM user_activity_segment s
+                  WHERE %%1$s) c
+            GROUP BY c.event_id
+            """.formatted(
+            UserActivity.ActivityType.INVITATION_SENT.getCode(),
+            UserActivity.ActivityType.RSVP_ACCEPTED.getCode(),
+            UserActivity.ActivityType.RSVP_DECLINED.getCode(),
+            UserActivity.ActivityType.RSVP_MAYBE.getCode(),
+            UserActivity.ActivityType.CHECKED_IN.getCode());
+
+    private static final String APPLY_COUNTERS = """
+            UPDATE %s s SET
+                total_invites = c.total_invites,
+                rsvp_accepted = c.rsvp_accepted,
+                rsvp_declined = c.rsvp_declined,
+                rsvp_maybe = c.rsvp_maybe,
+                checked_in = c.checked_in
+            FROM (%s) c
+            WHERE s.event_id = c.event_id
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Copies the current event rows into a fresh shadow table with all counters reset to zero.
+     * Constraints and indexes are created after the bulk copy so the load is not slowed down by them.
+     */
+    @Transactional
+    public int createShadow() {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS event_metrics_shadow");
+        jdbcTemplate.execute("CREATE TABLE event_metrics_shadow (LIKE event_metrics INCLUDING DEFAULTS)");
+        int copied = jdbcTemplate.update("""
+                INSERT INTO event_metrics_shadow (id, event_id, organization_id, event_title, event_date, event_status,
+                        total_invites, rsvp_accepted, rsvp_declined, rsvp_maybe, checked_in, created_at, updated_at)
+                SELECT id, event_id, organization_id, event_title, event_date, event_status,
+                        0, 0, 0, 0, 0, created_at, updated_at
+                FROM event_metrics
+                """);
+        jdbcTemplate.execute("ALTER TABLE event_metrics_shadow ADD CONSTRAINT event_metrics_shadow_pkey PRIMARY KEY (id)");
+        jdbcTemplate.execute("ALTER TABLE event_metrics_shadow ADD CONSTRAINT event_metrics_shadow_event_id_key UNIQUE (event_id)");
+        jdbcTemplate.execute("CREATE INDEX idx_event_metrics_shadow_event_id ON event_metrics_shadow(event_id)");
+        jdbcTemplate.execute("CREATE INDEX idx_event_metrics_shadow_organization_id ON event_metrics_shadow(organization_id)");
+        jdbcTemplate.execute("CREATE INDEX idx_event_metrics_shadow_status ON event_metrics_shadow(event_status)");
+        jdbcTemplate.execute("CREATE INDEX idx_event_metrics_shadow_date ON event_metrics_shadow(event_date)");
+        return copied;
+    }
+
+    /**
+     * Highest user_activity id once every insert in flight has committed. Rows up to the mark
+     * are visible to the range recounts that follow; rows above it are recounted while
+     * swapping. Ids follow insert order, unlike activity_timestamp, which is the Kafka record
+     * timestamp and can be arbitrarily old for lagging, replayed or retried records.
+     * The SHARE lock waits for open inserts and blocks new ones only until the mark is read.
+     */
+    @Transactional
+    public long activityHighWaterMark() {
+        jdbcTemplate.execute("LOCK TABLE user_activity IN SHARE MODE");
+        Long mark = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM user_activity", Long.class);
+        return mark != null ? mark : 0L;
+    }
+
+    /**
+     * Recomputes the counters of all shadow rows whose eventId falls in [lowerBound, upperBound).
+     * A null bound leaves that side of the range open.
+     */
+    public int rebuildRange(UUID lowerBound, UUID upperBound) {
+        if (lowerBound == null && upperBound == null) {
+            return jdbcTemplate.update(APPLY_COUNTERS.formatted(SHADOW_TABLE, counters("TRUE")));
+        }
+        if (lowerBound == null) {
+            return jdbcTemplate.update(APPLY_COUNTERS.formatted(SHADOW_TABLE, counters("event_id < ?")), upperBound, upperBound);
+        }
+        if (upperBound == null) {
+            return jdbcTemplate.update(APPLY_COUNTERS.formatted(SHADOW_TABLE, counters("event_id >= ?")), lowerBound, lowerBound);
+        }
+        return jdbcTemplate.update(APPLY_COUNTERS.formatted(SHADOW_TABLE, counters("event_id >= ? AND event_id < ?")),
+                lowerBound, upperBound, lowerBound, upperBound);
+    }
+
+    /**
+     * Brings the shadow table up to date with changes made while the rebuild was running and
+     * atomically swaps it in place of event_metrics. The ACCESS EXCLUSIVE lock the renames need
+     * is taken up front, blocking readers and writers for the catch-up and the renames: taking a
+     * weaker lock first and upgrading it would deadlock with a handler that has already read the
+     * table and then waits to write it.
+     */
+    @Transactional
+    public void swapShadow(LocalDateTime changedSince, long activityMark) {
+        Timestamp since = Timestamp.valueOf(changedSince);
+
+        jdbcTemplate.execute("LOCK TABLE event_metrics IN ACCESS EXCLUSIVE MODE");
+
+        // Events created or deleted during the rebuild
+        jdbcTemplate.update("""
+                DELETE FROM event_metrics_shadow s
+                WHERE NOT EXISTS (SELECT 1 FROM event_metrics e WHERE e.event_id = s.event_id)
+                """);
+        jdbcTemplate.update("""
+                INSERT INTO event_metrics_shadow (id, event_id, organization_id, event_title, event_date, event_status,
+                        total_invites, rsvp_accepted, rsvp_declined, rsvp_maybe, checked_in, created_at, updated_at)
+                SELECT e.id, e.event_id, e.organization_id, e.event_title, e.event_date, e.event_status,
+                        0, 0, 0, 0, 0, e.created_at, e.updated_at
+                FROM event_metrics e
+                WHERE NOT EXISTS (SELECT 1 FROM event_metrics_shadow s WHERE s.event_id = e.event_id)
+                """);
+
+        // Descriptive columns changed during the rebuild
+        jdbcTemplate.update("""
+                UPDATE event_metrics_shadow s SET
+                    event_title = e.event_title,
+                    event_date = e.event_date,
+                    event_status = e.event_status,
+                    updated_at = e.updated_at
+                FROM event_metrics e
+                WHERE s.event_id = e.event_id AND e.updated_at >= ?
+                """, since);
+
+        // Counters of events that received activity during the rebuild
+        jdbcTemplate.update(APPLY_COUNTERS.formatted(SHADOW_TABLE,
+                counters("event_id IN (SELECT DISTINCT r.event_id FROM user_activity r WHERE r.id > ?)")), activityMark, activityMark);
+
+        jdbcTemplate.execute("ALTER TABLE event_metrics RENAME TO event_metrics_old");
+        jdbcTemplate.execute("ALTER TABLE event_metrics_shadow RENAME TO event_metrics");
+        jdbcTemplate.execute("ALTER SEQUENCE event_metrics_id_seq OWNED BY event_metrics.id");
+        jdbcTemplate.execute("DROP TABLE event_metrics_old");
+
+        jdbcTemplate.execute("ALTER TABLE event_metrics RENAME CONSTRAINT event_metrics_shadow_pkey TO event_metrics_pkey");
+        jdbcTemplate.execute("ALTER TABLE event_metrics RENAME CONSTRAINT event_metrics_shadow_event_id_key TO event_metrics_event_id_key");
+        jdbcTemplate.execute("ALTER INDEX idx_event_metrics_shadow_event_id RENAME TO idx_event_metrics_event_id");
+        jdbcTemplate.execute("ALTER INDEX idx_event_metrics_shadow_organization_id RENAME TO idx_event_metrics_organization_id");
+        jdbcTemplate.execute("ALTER INDEX idx_event_metrics_shadow_status RENAME TO idx_event_metrics_status");
+        jdbcTemplate.execute("ALTER INDEX idx_event_metrics_shadow_date RENAME TO idx_event_metrics_date");
+    }
+
+    /**
+     * Recounts the given events directly in event_metrics. The rows are locked first, so a
+     * handler transaction that already incremented a row has committed before the recount
+     * reads user_activity, and one that increments later waits and adds to the recounted
+     * value. This relies on handlers incrementing in SQL
+     * ({@link EventMetricsRepository#incrementTotalInvites} and its siblings); a value read
+     * before the lock and written back after it would still replace the recount.
+     */
+    @Transactional
+    public int rebuildEvents(Collection<UUID> eventIds) {
+        if (eventIds.isEmpty()) {
+            return 0;
+        }
+        UUID[] ids = eventIds.toArray(new UUID[0]);
+        jdbcTemplate.query("SELECT id FROM event_metrics WHERE event_id = ANY(?) ORDER BY event_id FOR UPDATE",
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("uuid", ids)),
+                rs -> {
+                });
+        return jdbcTemplate.update(APPLY_COUNTERS.formatted("event_metrics", counters("event_id = ANY(?)")),
+                ps -> {
+                    ps.setArray(1, ps.getConnection().createArrayOf("uuid", ids));
+                    ps.setArray(2, ps.getConnection().createArrayOf("uuid", ids));
+                });
+    }
+
+    /**
+     * Per-event counters of both tiers for the events matching {@code condition}, a predicate
+     * on an unqualified event_id column.
+     */
+    private static String counters(String condition) {
+        return COUNTERS_SELECT.formatted(condition);
+    }
+
+    public void dropShadow() {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS event_metrics_shadow");
+    }
+}
@@ -1,11 +1,14 @@
 package com.planify.analytics.repository;
 
 import com.planify.analytics.model.EventMetrics;
+import com.planify.analytics.model.OrganizationCounters;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -15,10 +18,69 @@ public interface EventMetricsRepository extends JpaRepository<EventMetrics, Long
     
     Optional<EventMetrics> findByEventId(UUID eventId);
     
+    boolean existsByEventId(UUID eventId);
+    
+    List<EventMetrics> findByEventIdIn(Collection<UUID> eventIds);
+    
     List<EventMetrics> findByOrganizationId(UUID organizationId);
     
+    @Query("SELECT e.organizationId FROM EventMetrics e WHERE e.eventId = :eventId")
+    Optional<UUID> findOrganizationIdByEventId(UUID eventId);
+    
+    @Query("SELECT e.eventStatus FROM EventMetrics e WHERE e.eventId = :eventId")
+    Optional<String> findStatusByEventId(UUID eventId);
+    
     List<EventMetrics> findByEventStatus(String status);
     
+    // Flushes first, so a pending update of the row in this transaction cannot fail after the delete
+    @Modifying(flushAutomatically = true)
+    @Query("DELETE FROM EventMetrics e WHERE e.eventId = :eventId")
+    int deleteMetricsByEventId(UUID eventId);
+    
+    /**
+     * Sets the given fields, leaving null ones as they are, in a single statement that matches
+     * no row when nothing would change. Clears the persistence context, so rows loaded earlier
+     * in the transaction are read again instead of being written back with the old values.
+     *
+     * @return 1 if the row changed, 0 if the event is unknown or already had these values
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+            UPDATE EventMetrics e SET
+                e.eventTitle = COALESCE(:title, e.eventTitle),
+                e.eventDate = COALESCE(:eventDate, e.eventDate),
+                e.eventStatus = COALESCE(:status, e.eventStatus),
+                e.updatedAt = :updatedAt
+            WHERE e.eventId = :eventId
+              AND (COALESCE(:title, e.eventTitle) IS DISTINCT FROM e.eventTitle
+                   OR COALESCE(:eventDate, e.eventDate) IS DISTINCT FROM e.eventDate
+                   OR COALESCE(:status, e.eventStatus) IS DISTINCT FROM e.eventStatus)
+            """)
+    int updateChangedFields(UUID eventId, String title, LocalDateTime eventDate, String status, LocalDateTime updatedAt);
+    
+    /**
+     * Counter increments are single statements that add to the stored value, instead of writing
+     * back a value read earlier in the transaction, so a concurrent increment or recount is never
+     * overwritten. Like {@link #updateChangedFields}, they clear the persistence context.
+     *
+     * @return 0 if the event is unknown
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE EventMetrics e SET e.totalInvites = e.totalInvites + 1, e.updatedAt = :updatedAt WHERE e.eventId = :eventId")
+    int incrementTotalInvites(UUID eventId, LocalDateTime updatedAt);
+    
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE EventMetrics e SET e.rsvpAccepted = e.rsvpAccepted + 1, e.updatedAt = :updatedAt WHERE e.eventId = :eventId")
+    int incrementRsvpAccepted(UUID eventId, LocalDateTime updatedAt);
+    
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE EventMetrics e SET e.rsvpDeclined = e.rsvpDeclined + 1, e.updatedAt = :updatedAt WHERE e.eventId = :eventId")
+    int incrementRsvpDeclined(UUID eventId, LocalDateTime updatedAt);
+    
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE EventMetrics e SET e.checkedIn = e.checkedIn + 1, e.updatedAt = :updatedAt WHERE e.eventId = :eventId")
+    int incrementCheckedIn(UUID eventId, LocalDateTime updatedAt);
+
     @Query("SELECT e FROM EventMetrics e WHERE e.eventDate >= :startDate AND e.eventDate <= :endDate")
     List<EventMetrics> findByEventDateBetween(LocalDateTime startDate, LocalDateTime endDate);
     
@@ -27,4 +89,15 @@ public interface EventMetricsRepository extends JpaRepository<EventMetrics, Long
     
     @Query("SELECT COUNT(e) FROM EventMetrics e WHERE e.eventStatus = 'PUBLISHED'")
     Long countActiveEvents();
+    
+    @Query("""
+            SELECT new com.planify.analytics.model.OrganizationCounters(
+                e.organizationId, COUNT(e),
+                COALESCE(SUM(e.totalInvites), 0), COALESCE(SUM(e.rsvpAccepted), 0), COALESCE(SUM(e.rsvpDeclined), 0),
+                COALESCE(SUM(e.rsvpMaybe), 0), COALESCE(SUM(e.checkedIn), 0))
+            FROM EventMetrics e
+            WHERE e.organizationId = :organizationId
+            GROUP BY e.organizationId
+            """)
+    Optional<OrganizationCounters> sumCountersByOrganization(UUID organizationId);
 }
\ No newline at end of file
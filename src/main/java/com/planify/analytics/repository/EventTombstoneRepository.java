@@ -0,0 +1,46 @@
+package com.planify.analytics.repository;
+
+import com.planify.analytics.model.EventTombstone;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface EventTombstoneRepository extends JpaRepository<EventTombstone, UUID> {
+    
+    // Deleting an event twice keeps the first tombstone and its progress
+    @Modifying
+    @Query(value = """
+            INSERT INTO event_tombstone (event_id, organization_id, deleted_at)
+            VALUES (:eventId, :organizationId, :deletedAt)
+            ON CONFLICT (event_id) DO NOTHING
+            """, nativeQuery = true)
+    int insertTombstone(UUID eventId, UUID organizationId, LocalDateTime deletedAt);
+    
+    /**
+     * Tombstones still being cleaned up, and completed ones whose retention has passed.
+     */
+    @Query("SELECT t FROM EventTombstone t WHERE t.completedAt IS NULL OR t.completedAt < :retainedSince ORDER BY t.deletedAt")
+    List<EventTombstone> findDue(LocalDateTime retainedSince, Limit limit);
+    
+    @Query("SELECT COUNT(t) FROM EventTombstone t WHERE t.completedAt IS NULL")
+    long countPending();
+    
+    @Modifying
+    @Query("""
+            UPDATE EventTombstone t
+            SET t.activitiesDeleted = t.activitiesDeleted + :activities, t.funnelDeleted = t.funnelDeleted + :funnel
+            WHERE t.eventId = :eventId
+            """)
+    int addProgress(UUID eventId, long activities, long funnel);
+    
+    @Modifying
+    @Query("UPDATE EventTombstone t SET t.completedAt = :completedAt WHERE t.eventId = :eventId")
+    int markCompleted(UUID eventId, LocalDateTime completedAt);
+}
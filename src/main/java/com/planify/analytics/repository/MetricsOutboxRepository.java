@@ -0,0 +1,78 @@
+package com.planify.analytics.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Transactional outbox of events whose metrics still have to be published to the
+ * analytics-event-metrics topic. A row only names the event; the snapshot is read when it
+ * is published, so any number of changes between two publishes cost one message.
+ */
+@Repository
+@RequiredArgsConstructor
+public class MetricsOutboxRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Marks the given events as changed. Rows are upserted in eventId order so concurrent
+     * writers lock them in the same order. Updating an existing row waits for a publisher
+     * holding it, and inserts a fresh row if the publisher deleted it, so no change is lost.
+     */
+    public void enqueue(Collection<UUID> eventIds) {
+        if (eventIds.isEmpty()) {
+            return;
+        }
+        List<UUID> sorted = eventIds.stream().sorted().toList();
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO event_metrics_outbox (event_id) VALUES (?)
+                ON CONFLICT (event_id) DO UPDATE SET changes = event_metrics_outbox.changes + 1
+                """, sorted, sorted.size(), (ps, eventId) -> ps.setObject(1, eventId));
+    }
+
+    /**
+     * Marks every event as changed, after counters were rewritten in bulk.
+     */
+    public int enqueueAll() {
+        return jdbcTemplate.update("""
+                INSERT INTO event_metrics_outbox (event_id)
+                SELECT event_id FROM event_metrics
+                ON CONFLICT (event_id) DO UPDATE SET changes = event_metrics_outbox.changes + 1
+                """);
+    }
+
+    /**
+     * Locks up to {@code limit} of the oldest pending rows for the current transaction.
+     * Rows locked by another publisher are skipped, so each change is published by one instance.
+     */
+    public List<Pending> lockPending(int limit) {
+        return jdbcTemplate.query("""
+                        SELECT event_id, changes FROM event_metrics_outbox
+                        ORDER BY changed_at
+                        LIMIT ?
+                        FOR UPDATE SKIP LOCKED
+                        """,
+                (rs, rowNum) -> new Pending(rs.getObject("event_id", UUID.class), rs.getLong("changes")),
+                limit);
+    }
+
+    public void delete(Collection<UUID> eventIds) {
+        if (eventIds.isEmpty()) {
+            return;
+        }
+        UUID[] ids = eventIds.toArray(new UUID[0]);
+        jdbcTemplate.update("DELETE FROM event_metrics_outbox WHERE event_id = ANY(?)",
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("uuid", ids)));
+    }
+
+    /**
+     * @param changes number of changes coalesced into the row since it was created
+     */
+    public record Pending(UUID eventId, long changes) {
+    }
+}
@@ -0,0 +1,249 @@
+package com.planify.analytics.repository;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.planify.analytics.model.OrganizationSummary;
+import com.planify.analytics.model.UserActivity;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Writes to organization_summary: deltas from the ingest path and reconciliation against
+ * event_metrics. Like user summaries, rows are only changed by deltas; both deltas and
+ * reconciliation lock rows in organizationId order, so they cannot deadlock each other.
+ */
+@Repository
+@RequiredArgsConstructor
+public class OrganizationSummaryRepository {
+
+    // PostgreSQL orders UUIDs as unsigned bytes, which is the order of their hex strings
+    private static final Comparator<UUID> LOCK_ORDER = Comparator.comparing(UUID::toString);
+
+    private static final TypeReference<TreeMap<String, Long>> EVENTS_BY_STATUS = new TypeReference<>() {
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public Optional<OrganizationSummary> findByOrganizationId(UUID organizationId) {
+        return jdbcTemplate.query("""
+                        SELECT organization_id, events, events_by_status::text AS events_by_status, total_invites,
+                               rsvp_accepted, rsvp_declined, rsvp_maybe, checked_in, updated_at
+                        FROM organization_summary WHERE organization_id = ?
+                        """,
+                (rs, rowNum) -> new OrganizationSummary(
+                        rs.getObject("organization_id", UUID.class),
+                        rs.getLong("events"),
+                        readEventsByStatus(rs.getString("events_by_status")),
+                        rs.getLong("total_invites"),
+                        rs.getLong("rsvp_accepted"),
+                        rs.getLong("rsvp_declined"),
+                        rs.getLong("rsvp_maybe"),
+                        rs.getLong("checked_in"),
+                        rs.getTimestamp("updated_at").toLocalDateTime()),
+                organizationId).stream().findFirst();
+    }
+
+    /**
+     * Adds the deltas to the organizations' summaries, creating missing ones. Status counts are
+     * summed per status and statuses that drop to zero events are removed.
+     */
+    public void add(Collection<Delta> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        List<Delta> sorted = deltas.stream().sorted(Comparator.comparing(Delta::getOrganizationId, LOCK_ORDER)).toList();
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO organization_summary AS s (organization_id, events, events_by_status, total_invites, rsvp_accepted,
+                                                       rsvp_declined, rsvp_maybe, checked_in, updated_at)
+                VALUES (?, ?, COALESCE((SELECT jsonb_object_agg(d.status, d.events)
+                                        FROM unnest(?::text[], ?::bigint[]) AS d(status, events)), '{}'::jsonb),
+                        ?, ?, ?, ?, ?, CURRENT_TIMESTAMP)
+                ON CONFLICT (organization_id) DO UPDATE SET
+                    events = s.events + EXCLUDED.events,
+                    events_by_status = COALESCE((
+                        SELECT jsonb_object_agg(merged.status, merged.events)
+                        FROM (SELECT entries.key AS status, SUM(entries.value::bigint) AS events
+                              FROM (SELECT * FROM jsonb_each_text(s.events_by_status)
+                                    UNION ALL
+                                    SELECT * FROM jsonb_each_text(EXCLUDED.events_by_status)) entries
+                              GROUP BY entries.key) merged
+                        WHERE merged.events <> 0), '{}'::jsonb),
+                    total_invites = s.total_invites + EXCLUDED.total_invites,
+                    rsvp_accepted = s.rsvp_accepted + EXCLUDED.rsvp_accepted,
+                    rsvp_declined = s.rsvp_declined + EXCLUDED.rsvp_declined,
+                    rsvp_maybe = s.rsvp_maybe + EXCLUDED.rsvp_maybe,
+                    checked_in = s.checked_in + EXCLUDED.checked_in,
+                    updated_at = EXCLUDED.updated_at
+                """, sorted, sorted.size(), (ps, delta) -> {
+            String[] statuses = delta.getEventsByStatus().keySet().toArray(new String[0]);
+            Long[] statusEvents = delta.getEventsByStatus().values().toArray(new Long[0]);
+            ps.setObject(1, delta.getOrganizationId());
+            ps.setLong(2, delta.getEvents());
+            ps.setArray(3, ps.getConnection().createArrayOf("text", statuses));
+            ps.setArray(4, ps.getConnection().createArrayOf("bigint", statusEvents));
+            ps.setLong(5, delta.getCount(UserActivity.ActivityType.INVITATION_SENT));
+            ps.setLong(6, delta.getCount(UserActivity.ActivityType.RSVP_ACCEPTED));
+            ps.setLong(7, delta.getCount(UserActivity.ActivityType.RSVP_DECLINED));
+            ps.setLong(8, delta.getCount(UserActivity.ActivityType.RSVP_MAYBE));
+            ps.setLong(9, delta.getCount(UserActivity.ActivityType.CHECKED_IN));
+        });
+    }
+
+    /**
+     * Organizations with a summary or at least one event, in id order, for paging through all
+     * of them.
+     */
+    public List<UUID> findOrganizationIds(UUID after, int limit) {
+        return jdbcTemplate.query("""
+                        SELECT organization_id FROM (
+                            SELECT organization_id FROM organization_summary
+                            UNION
+                            SELECT organization_id FROM event_metrics
+                        ) ids
+                        WHERE CAST(? AS uuid) IS NULL OR organization_id > CAST(? AS uuid)
+                        ORDER BY organization_id
+                        LIMIT ?
+                        """,
+                (rs, rowNum) -> rs.getObject("organization_id", UUID.class),
+                after, after, limit);
+    }
+
+    /**
+     * Recomputes the summaries of the given organizations from event_metrics and overwrites the
+     * ones that differ. The summary rows are locked first, so deltas of transactions that commit
+     * meanwhile are either already counted in event_metrics and the summary, or applied after.
+     *
+     * @return number of summaries that were wrong or missing
+     */
+    public int reconcile(Collection<UUID> organizationIds) {
+        if (organizationIds.isEmpty()) {
+            return 0;
+        }
+        UUID[] ids = organizationIds.stream().sorted(LOCK_ORDER).toArray(UUID[]::new);
+        jdbcTemplate.query("SELECT organization_id FROM organization_summary WHERE organization_id = ANY(?) ORDER BY organization_id FOR UPDATE",
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("uuid", ids)),
+                rs -> {
+                });
+
+        List<UUID> corrected = jdbcTemplate.query("""
+                        WITH per_status AS (
+                            SELECT organization_id, event_status, COUNT(*) AS events,
+                                   SUM(COALESCE(total_invites, 0)) AS total_invites,
+                                   SUM(COALESCE(rsvp_accepted, 0)) AS rsvp_accepted,
+                                   SUM(COALESCE(rsvp_declined, 0)) AS rsvp_declined,
+                                   SUM(COALESCE(rsvp_maybe, 0)) AS rsvp_maybe,
+                                   SUM(COALESCE(checked_in, 0)) AS checked_in
+                            FROM event_metrics
+                            WHERE organization_id = ANY(?)
+                            GROUP BY organization_id, event_status
+                        )
+                        INSERT INTO organization_summary AS s (organization_id, events, events_by_status, total_invites,
+                                                               rsvp_accepted, rsvp_declined, rsvp_maybe, checked_in, updated_at)
+                        SELECT organization_id,
+                               SUM(events),
+                               COALESCE(jsonb_object_agg(event_status, events) FILTER (WHERE event_status IS NOT NULL), '{}'::jsonb),
+                               SUM(total_invites),
+                               SUM(rsvp_accepted),
+                               SUM(rsvp_declined),
+                               SUM(rsvp_maybe),
+                               SUM(checked_in),
+                               CURRENT_TIMESTAMP
+                        FROM per_status
+                        GROUP BY organization_id
+                        ON CONFLICT (organization_id) DO UPDATE SET
+                            events = EXCLUDED.events,
+                            events_by_status = EXCLUDED.events_by_status,
+                            total_invites = EXCLUDED.total_invites,
+                            rsvp_accepted = EXCLUDED.rsvp_accepted,
+                            rsvp_declined = EXCLUDED.rsvp_declined,
+                            rsvp_maybe = EXCLUDED.rsvp_maybe,
+                            checked_in = EXCLUDED.checked_in,
+                            updated_at = EXCLUDED.updated_at
+                        WHERE (s.events, s.events_by_status, s.total_invites, s.rsvp_accepted, s.rsvp_declined, s.rsvp_maybe, s.checked_in)
+                              IS DISTINCT FROM (EXCLUDED.events, EXCLUDED.events_by_status, EXCLUDED.total_invites,
+                                                EXCLUDED.rsvp_accepted, EXCLUDED.rsvp_declined, EXCLUDED.rsvp_maybe, EXCLUDED.checked_in)
+                        RETURNING organization_id
+                        """,
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("uuid", ids)),
+                (rs, rowNum) -> rs.getObject("organization_id", UUID.class));
+
+        // Organizations whose last event is gone; an all-zero summary was already right
+        List<Long> removed = jdbcTemplate.query("""
+                        DELETE FROM organization_summary s
+                        WHERE s.organization_id = ANY(?)
+                          AND NOT EXISTS (SELECT 1 FROM event_metrics e WHERE e.organization_id = s.organization_id)
+                        RETURNING s.events + s.total_invites + s.rsvp_accepted + s.rsvp_declined + s.rsvp_maybe + s.checked_in AS total
+                        """,
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("uuid", ids)),
+                (rs, rowNum) -> rs.getLong("total"));
+        return corrected.size() + (int) removed.stream().filter(total -> total != 0).count();
+    }
+
+    private Map<String, Long> readEventsByStatus(String json) {
+        try {
+            return objectMapper.readValue(json, EVENTS_BY_STATUS);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Malformed events_by_status: " + json, e);
+        }
+    }
+
+    /**
+     * Change of one organization's summary: events, events per status and activity counters.
+     */
+    public static final class Delta {
+
+        private final UUID organizationId;
+        private final long[] counts = new long[UserActivity.ActivityType.values().length];
+        private final Map<String, Long> eventsByStatus = new HashMap<>();
+        private long events;
+
+        public Delta(UUID organizationId) {
+            this.organizationId = organizationId;
+        }
+
+        public void addEvents(long count) {
+            events += count;
+        }
+
+        /**
+         * @param status null for events without a status, which are not counted per status
+         */
+        public void addStatus(String status, long count) {
+            if (status != null) {
+                eventsByStatus.merge(status, count, Long::sum);
+            }
+        }
+
+        public void add(UserActivity.ActivityType type, long count) {
+            counts[type.ordinal()] += count;
+        }
+
+        public UUID getOrganizationId() {
+            return organizationId;
+        }
+
+        public long getEvents() {
+            return events;
+        }
+
+        public Map<String, Long> getEventsByStatus() {
+            return eventsByStatus;
+        }
+
+        public long getCount(UserActivity.ActivityType type) {
+            return counts[type.ordinal()];
+        }
+    }
+}
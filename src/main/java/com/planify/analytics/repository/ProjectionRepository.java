@@ -0,0 +1,136 @@
+package com.planify.analytics.repository;
+
+import com.planify.analytics.model.EventMetricsView;
+import com.planify.analytics.model.UserActivity;
+import com.planify.analytics.model.UserActivityView;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Reads for the GraphQL API that select only the columns of the requested fields and map them
+ * straight into read models, without entities or the persistence context. Field names are
+ * looked up in fixed column maps, so a selection never reaches the SQL text; fields without a
+ * column, like velocity or __typename, are ignored.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ProjectionRepository {
+
+    private static final Map<String, String> EVENT_METRICS_COLUMNS = Map.ofEntries(
+            Map.entry("id", "id"),
+            Map.entry("eventId", "event_id"),
+            Map.entry("organizationId", "organization_id"),
+            Map.entry("eventTitle", "event_title"),
+            Map.entry("eventDate", "event_date"),
+            Map.entry("eventStatus", "event_status"),
+            Map.entry("totalInvites", "total_invites"),
+            Map.entry("rsvpAccepted", "rsvp_accepted"),
+            Map.entry("rsvpDeclined", "rsvp_declined"),
+            Map.entry("rsvpMaybe", "rsvp_maybe"),
+            Map.entry("checkedIn", "checked_in"),
+            Map.entry("createdAt", "created_at"),
+            Map.entry("updatedAt", "updated_at"));
+
+    private static final Map<String, String> USER_ACTIVITY_COLUMNS = Map.of(
+            "id", "id",
+            "userId", "user_id",
+            "eventId", "event_id",
+            "activityType", "activity_type",
+            "activityTimestamp", "activity_timestamp",
+            "createdAt", "activity_timestamp");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public Optional<EventMetricsView> findEventMetricsByEventId(UUID eventId, Collection<String> fields) {
+        return queryEventMetrics("event_id = ?", eventId, fields).stream().findFirst();
+    }
+
+    public List<EventMetricsView> findEventMetricsByOrganizationId(UUID organizationId, Collection<String> fields) {
+        return queryEventMetrics("organization_id = ?", organizationId, fields);
+    }
+
+    public List<UserActivityView> findActivitiesByUserId(UUID userId, Collection<String> fields) {
+        return queryActivities("ua.user_id = ?", userId, fields);
+    }
+
+    public List<UserActivityView> findActivitiesByEventId(UUID eventId, Collection<String> fields) {
+        return queryActivities("ua.event_id = ?", eventId, fields);
+    }
+
+    /**
+     * event_id is always selected, it keys the nested velocity field.
+     */
+    private List<EventMetricsView> queryEventMetrics(String condition, UUID value, Collection<String> fields) {
+        Set<String> columns = columns(EVENT_METRICS_COLUMNS, fields, "event_id");
+        return jdbcTemplate.query("SELECT " + String.join(", ", columns) + " FROM event_metrics WHERE " + condition,
+                (rs, rowNum) -> {
+                    EventMetricsView view = new EventMetricsView();
+                    view.setId(get(rs, columns, "id", Long.class));
+                    view.setEventId(get(rs, columns, "event_id", UUID.class));
+                    view.setOrganizationId(get(rs, columns, "organization_id", UUID.class));
+                    view.setEventTitle(get(rs, columns, "event_title", String.class));
+                    view.setEventDate(get(rs, columns, "event_date", LocalDateTime.class));
+                    view.setEventStatus(get(rs, columns, "event_status", String.class));
+                    view.setTotalInvites(get(rs, columns, "total_invites", Integer.class));
+                    view.setRsvpAccepted(get(rs, columns, "rsvp_accepted", Integer.class));
+                    view.setRsvpDeclined(get(rs, columns, "rsvp_declined", Integer.class));
+                    view.setRsvpMaybe(get(rs, columns, "rsvp_maybe", Integer.class));
+                    view.setCheckedIn(get(rs, columns, "checked_in", Integer.class));
+                    view.setCreatedAt(get(rs, columns, "created_at", LocalDateTime.class));
+                    view.setUpdatedAt(get(rs, columns, "updated_at", LocalDateTime.class));
+                    return view;
+                },
+                value);
+    }
+
+    /**
+     * activity_timestamp is always selected, activity read from several shards is merged by it.
+     * Activity of deleted events is hidden until the cleanup worker has removed it.
+     */
+    private List<UserActivityView> queryActivities(String condition, UUID value, Collection<String> fields) {
+        Set<String> columns = columns(USER_ACTIVITY_COLUMNS, fields, "activity_timestamp");
+        String select = columns.stream().map(column -> "ua." + column).collect(Collectors.joining(", "));
+        return jdbcTemplate.query("SELECT " + select + " FROM user_activity ua WHERE " + condition
+                        + " AND NOT EXISTS (SELECT 1 FROM event_tombstone t WHERE t.event_id = ua.event_id)",
+                (rs, rowNum) -> {
+                    UserActivityView view = new UserActivityView();
+                    view.setId(get(rs, columns, "id", Long.class));
+                    view.setUserId(get(rs, columns, "user_id", UUID.class));
+                    view.setEventId(get(rs, columns, "event_id", UUID.class));
+                    Short activityType = get(rs, columns, "activity_type", Short.class);
+                    view.setActivityType(activityType != null ? UserActivity.ActivityType.fromCode(activityType) : null);
+                    view.setActivityTimestamp(get(rs, columns, "activity_timestamp", LocalDateTime.class));
+                    return view;
+                },
+                value);
+    }
+
+    private static Set<String> columns(Map<String, String> columnsByField, Collection<String> fields, String required) {
+        Set<String> columns = new LinkedHashSet<>();
+        columns.add(required);
+        for (String field : fields) {
+            String column = columnsByField.get(field);
+            if (column != null) {
+                columns.add(column);
+            }
+        }
+        return columns;
+    }
+
+    private static <T> T get(ResultSet rs, Set<String> columns, String column, Class<T> type) throws SQLException {
+        return columns.contains(column) ? rs.getObject(column, type) : null;
+    }
+}
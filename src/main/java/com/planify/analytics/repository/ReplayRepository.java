@@ -0,0 +1,107 @@
+package com.planify.analytics.repository;
+
+import com.planify.analytics.event.AnalyticsEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Idempotent batch writes used by the Kafka replay pipeline. Every statement can be
+ * applied any number of times for the same record without changing the outcome.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ReplayRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void insertEvents(List<AnalyticsEvent> events) {
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO event_metrics (event_id, organization_id, event_title, event_date, event_status)
+                VALUES (?, ?, ?, ?, ?)
+                ON CONFLICT (event_id) DO NOTHING
+                """, events, events.size(), (ps, event) -> {
+            ps.setObject(1, event.getEventId());
+            ps.setObject(2, event.getOrganizationId());
+            ps.setString(3, event.getTitle());
+            ps.setTimestamp(4, Timestamp.valueOf(event.getEventDate()));
+            ps.setString(5, event.getStatus());
+        });
+    }
+
+    public void markPublished(Collection<UUID> eventIds) {
+        if (eventIds.isEmpty()) {
+            return;
+        }
+        UUID[] ids = eventIds.toArray(new UUID[0]);
+        jdbcTemplate.update("""
+                UPDATE event_metrics SET event_status = 'PUBLISHED', updated_at = CURRENT_TIMESTAMP
+                WHERE event_id = ANY(?) AND event_status IS DISTINCT FROM 'PUBLISHED'
+                """, ps -> ps.setArray(1, ps.getConnection().createArrayOf("uuid", ids)));
+    }
+
+    public void deleteEvents(Collection<UUID> eventIds) {
+        if (eventIds.isEmpty()) {
+            return;
+        }
+        UUID[] ids = eventIds.toArray(new UUID[0]);
+        // Activity and funnel rows are left to the cleanup worker, see EventCleanupService
+        jdbcTemplate.update("DELETE FROM event_metrics WHERE event_id = ANY(?)",
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("uuid", ids)));
+    }
+
+    /**
+     * Inserts the activity rows of the given records, skipping records that were already
+     * ingested (by the live listeners or an earlier replay).
+     *
+     * @return the subset of records that were actually inserted
+     */
+    public List<AnalyticsEvent> insertActivities(List<AnalyticsEvent> events) {
+        int[][] results = jdbcTemplate.batchUpdate("""
+                INSERT INTO user_activity (user_id, event_id, activity_type, activity_timestamp, source_partition, source_offset)
+                VALUES (?, ?, ?, ?, ?, ?)
+                ON CONFLICT (activity_type, source_partition, source_offset) WHERE source_offset IS NOT NULL DO NOTHING
+                """, events, events.size(), (ps, event) -> {
+            ps.setObject(1, event.getUserId());
+            ps.setObject(2, event.getEventId());
+            ps.setShort(3, event.getType().getActivityType().getCode());
+            ps.setTimestamp(4, Timestamp.valueOf(event.getTimestamp()));
+            ps.setInt(5, event.getPartition());
+            ps.setLong(6, event.getOffset());
+        });
+
+        List<AnalyticsEvent> inserted = new ArrayList<>();
+        int index = 0;
+        for (int[] batch : results) {
+            for (int count : batch) {
+                if (count > 0) {
+                    inserted.add(events.get(index));
+                }
+                index++;
+            }
+        }
+        return inserted;
+    }
+
+    public Map<UUID, UUID> findOrganizationIds(Collection<UUID> eventIds) {
+        Map<UUID, UUID> organizationIds = new HashMap<>();
+        if (eventIds.isEmpty()) {
+            return organizationIds;
+        }
+        UUID[] ids = eventIds.toArray(new UUID[0]);
+        jdbcTemplate.query("SELECT event_id, organization_id FROM event_metrics WHERE event_id = ANY(?)",
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("uuid", ids)),
+                rs -> {
+                    organizationIds.put(rs.getObject("event_id", UUID.class), rs.getObject("organization_id", UUID.class));
+                });
+        return organizationIds;
+    }
+}
@@ -0,0 +1,38 @@
+package com.planify.analytics.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+/**
+ * Keeps running totals in system_metrics by appending the previous value plus a delta, instead
+ * of recounting the underlying table on every change. Writers of a metric are serialized by a
+ * transaction-scoped advisory lock, so the previous value read after taking it includes every
+ * committed delta and concurrent writers cannot lose each other's.
+ */
+@Repository
+@RequiredArgsConstructor
+public class SystemMetricsCounterRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Appends {@code previous + delta} for the metric and returns it. Without a previous value
+     * the total is {@code seedQuery} instead, which is only run that once and already sees the
+     * changes of the current transaction.
+     */
+    public double add(String metricName, long delta, String seedQuery, LocalDateTime timestamp) {
+        jdbcTemplate.query("SELECT pg_advisory_xact_lock(hashtext(?))", rs -> {
+        }, "system_metrics:" + metricName);
+        Double previous = jdbcTemplate.query(
+                "SELECT metric_value FROM system_metrics WHERE metric_name = ? ORDER BY id DESC LIMIT 1",
+                rs -> rs.next() ? rs.getDouble(1) : null, metricName);
+        double value = previous != null ? previous + delta : jdbcTemplate.queryForObject(seedQuery, Double.class);
+        jdbcTemplate.update("INSERT INTO system_metrics (metric_name, metric_value, metric_timestamp) VALUES (?, ?, ?)",
+                metricName, value, Timestamp.valueOf(timestamp));
+        return value;
+    }
+}
@@ -2,6 +2,7 @@ package com.planify.analytics.repository;
 
 import com.planify.analytics.model.UserActivity;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
@@ -12,18 +13,44 @@ import java.util.UUID;
 @Repository
 public interface UserActivityRepository extends JpaRepository<UserActivity, Long> {
     
+    // Records already inserted by a replay or an earlier delivery are skipped; returns 0 for them
+    @Modifying
+    @Query(value = """
+            INSERT INTO user_activity (user_id, event_id, activity_type, activity_timestamp, source_partition, source_offset)
+            VALUES (:userId, :eventId, :activityType, :activityTimestamp, :sourcePartition, :sourceOffset)
+            ON CONFLICT (activity_type, source_partition, source_offset) WHERE source_offset IS NOT NULL DO NOTHING
+            """, nativeQuery = true)
+    int insertIfAbsent(UUID userId, UUID eventId, short activityType, LocalDateTime activityTimestamp,
+                       Integer sourcePartition, Long sourceOffset);
+    
+    // Activity of deleted events is hidden until the cleanup worker has removed it
+    @Query("SELECT ua FROM UserActivity ua WHERE ua.userId = :userId " +
+            "AND NOT EXISTS (SELECT t FROM EventTombstone t WHERE t.eventId = ua.eventId)")
     List<UserActivity> findByUserId(UUID userId);
     
+    @Query("SELECT ua FROM UserActivity ua WHERE ua.eventId = :eventId " +
+            "AND NOT EXISTS (SELECT t FROM EventTombstone t WHERE t.eventId = ua.eventId)")
     List<UserActivity> findByEventId(UUID eventId);
     
-    List<UserActivity> findByActivityType(String activityType);
+    List<UserActivity> findByActivityType(UserActivity.ActivityType activityType);
     
     @Query("SELECT ua FROM UserActivity ua WHERE ua.userId = :userId AND ua.activityTimestamp >= :startDate")
     List<UserActivity> findRecentActivityByUser(UUID userId, LocalDateTime startDate);
     
     @Query("SELECT ua FROM UserActivity ua WHERE ua.eventId = :eventId AND ua.activityType = :activityType")
-    List<UserActivity> findByEventIdAndActivityType(UUID eventId, String activityType);
+    List<UserActivity> findByEventIdAndActivityType(UUID eventId, UserActivity.ActivityType activityType);
     
     @Query("SELECT COUNT(ua) FROM UserActivity ua WHERE ua.activityTimestamp >= :startDate")
     Long countRecentActivities(LocalDateTime startDate);
-}
\ No newline at end of file
+    
+    @Query("SELECT ua.eventId AS eventId, ua.activityType AS activityType, ua.activityTimestamp AS activityTimestamp " +
+            "FROM UserActivity ua WHERE ua.activityTimestamp >= :since " +
+            "AND NOT EXISTS (SELECT t FROM EventTombstone t WHERE t.eventId = ua.eventId)")
+    List<RecentActivity> findActivitySince(LocalDateTime since);
+    
+    interface RecentActivity {
+        UUID getEventId();
+        UserActivity.ActivityType getActivityType();
+        LocalDateTime getActivityTimestamp();
+    }
+}
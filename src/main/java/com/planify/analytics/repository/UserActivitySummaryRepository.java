@@ -0,0 +1,265 @@
+package com.planify.analytics.repository;
+
+import com.planify.analytics.model.UserActivity;
+import com.planify.analytics.model.UserActivitySummary;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Batched writes to user_activity_summary and user_activity_event. Summaries are only ever
+ * changed by deltas, so concurrent writers for the same user add up instead of overwriting
+ * each other; rows are written in userId order so they are locked in the same order.
+ */
+@Repository
+@RequiredArgsConstructor
+public class UserActivitySummaryRepository {
+
+    private static final Comparator<UserEvent> USER_EVENT_ORDER =
+            Comparator.comparing(UserEvent::userId).thenComparing(UserEvent::eventId);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public Optional<UserActivitySummary> findByUserId(UUID userId) {
+        return jdbcTemplate.query("""
+                        SELECT user_id, total_activities, invitations, rsvp_accepted, rsvp_declined, rsvp_maybe,
+                               checked_in, events_viewed, distinct_events, first_activity_at, last_activity_at
+                        FROM user_activity_summary WHERE user_id = ?
+                        """,
+                (rs, rowNum) -> new UserActivitySummary(
+                        rs.getObject("user_id", UUID.class),
+                        rs.getLong("total_activities"),
+                        rs.getLong("invitations"),
+                        rs.getLong("rsvp_accepted"),
+                        rs.getLong("rsvp_declined"),
+                        rs.getLong("rsvp_maybe"),
+                        rs.getLong("checked_in"),
+                        rs.getLong("events_viewed"),
+                        rs.getLong("distinct_events"),
+                        toLocalDateTime(rs.getTimestamp("first_activity_at")),
+                        toLocalDateTime(rs.getTimestamp("last_activity_at"))),
+                userId).stream().findFirst();
+    }
+
+    /**
+     * Records (user, event) pairs, skipping pairs that are already known.
+     *
+     * @return number of pairs that were new, per user
+     */
+    public Map<UUID, Integer> insertUserEvents(Collection<UserEvent> pairs) {
+        Map<UUID, Integer> inserted = new HashMap<>();
+        if (pairs.isEmpty()) {
+            return inserted;
+        }
+        List<UserEvent> sorted = pairs.stream().sorted(USER_EVENT_ORDER).toList();
+        int[][] results = jdbcTemplate.batchUpdate("""
+                INSERT INTO user_activity_event (user_id, event_id) VALUES (?, ?)
+                ON CONFLICT (user_id, event_id) DO NOTHING
+                """, sorted, sorted.size(), (ps, pair) -> {
+            ps.setObject(1, pair.userId());
+            ps.setObject(2, pair.eventId());
+        });
+        int index = 0;
+        for (int[] batch : results) {
+            for (int count : batch) {
+                if (count > 0) {
+                    inserted.merge(sorted.get(index).userId(), 1, Integer::sum);
+                }
+                index++;
+            }
+        }
+        return inserted;
+    }
+
+    /**
+     * Adds the deltas to the users' summaries, creating missing ones.
+     */
+    public void add(Collection<Delta> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        List<Delta> sorted = deltas.stream().sorted(Comparator.comparing(Delta::getUserId)).toList();
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO user_activity_summary AS s (user_id, total_activities, invitations, rsvp_accepted, rsvp_declined,
+                                                        rsvp_maybe, checked_in, events_viewed, distinct_events,
+                                                        first_activity_at, last_activity_at, updated_at)
+                VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, CURRENT_TIMESTAMP)
+                ON CONFLICT (user_id) DO UPDATE SET
+                    total_activities = s.total_activities + EXCLUDED.total_activities,
+                    invitations = s.invitations + EXCLUDED.invitations,
+                    rsvp_accepted = s.rsvp_accepted + EXCLUDED.rsvp_accepted,
+                    rsvp_declined = s.rsvp_declined + EXCLUDED.rsvp_declined,
+                    rsvp_maybe = s.rsvp_maybe + EXCLUDED.rsvp_maybe,
+                    checked_in = s.checked_in + EXCLUDED.checked_in,
+                    events_viewed = s.events_viewed + EXCLUDED.events_viewed,
+                    distinct_events = s.distinct_events + EXCLUDED.distinct_events,
+                    first_activity_at = LEAST(s.first_activity_at, EXCLUDED.first_activity_at),
+                    last_activity_at = GREATEST(s.last_activity_at, EXCLUDED.last_activity_at),
+                    updated_at = EXCLUDED.updated_at
+                """, sorted, sorted.size(), (ps, delta) -> {
+            ps.setObject(1, delta.getUserId());
+            ps.setLong(2, delta.getTotal());
+            ps.setLong(3, delta.getCount(UserActivity.ActivityType.INVITATION_SENT));
+            ps.setLong(4, delta.getCount(UserActivity.ActivityType.RSVP_ACCEPTED));
+            ps.setLong(5, delta.getCount(UserActivity.ActivityType.RSVP_DECLINED));
+            ps.setLong(6, delta.getCount(UserActivity.ActivityType.RSVP_MAYBE));
+            ps.setLong(7, delta.getCount(UserActivity.ActivityType.CHECKED_IN));
+            ps.setLong(8, delta.getCount(UserActivity.ActivityType.EVENT_VIEWED));
+            ps.setLong(9, delta.getDistinctEvents());
+            ps.setTimestamp(10, toTimestamp(delta.getFirstActivityAt()));
+            ps.setTimestamp(11, toTimestamp(delta.getLastActivityAt()));
+        });
+    }
+
+    /**
+     * Deletes up to {@code limit} activity rows of one event.
+     *
+     * @return the deleted rows counted per user and type, to be subtracted from the summaries
+     */
+    public Collection<Delta> deleteActivityChunk(UUID eventId, int limit) {
+        Map<UUID, Delta> deleted = new HashMap<>();
+        jdbcTemplate.query("""
+                        WITH deleted AS (
+                            DELETE FROM user_activity
+                            WHERE id IN (SELECT id FROM user_activity WHERE event_id = ? LIMIT ?)
+                            RETURNING user_id, activity_type
+                        )
+                        SELECT user_id, activity_type, COUNT(*) AS removed FROM deleted GROUP BY user_id, activity_type
+                        """,
+                rs -> {
+                    UUID userId = rs.getObject("user_id", UUID.class);
+                    deleted.computeIfAbsent(userId, Delta::new)
+                            .add(UserActivity.ActivityType.fromCode(rs.getShort("activity_type")), rs.getLong("removed"), null);
+                },
+                eventId, limit);
+        return deleted.values();
+    }
+
+    /**
+     * Subtracts activity of a deleted event from the users' summaries. Each user's pair with the
+     * event is removed on the first call, which is when their distinct event count goes down.
+     * First and last activity timestamps are left as they are.
+     */
+    public void subtract(UUID eventId, Collection<Delta> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        UUID[] userIds = deltas.stream().map(Delta::getUserId).toArray(UUID[]::new);
+        Set<UUID> leftEvent = new HashSet<>(jdbcTemplate.query(
+                "DELETE FROM user_activity_event WHERE event_id = ? AND user_id = ANY(?) RETURNING user_id",
+                ps -> {
+                    ps.setObject(1, eventId);
+                    ps.setArray(2, ps.getConnection().createArrayOf("uuid", userIds));
+                },
+                (rs, rowNum) -> rs.getObject("user_id", UUID.class)));
+
+        List<Delta> sorted = deltas.stream().sorted(Comparator.comparing(Delta::getUserId)).toList();
+        jdbcTemplate.batchUpdate("""
+                UPDATE user_activity_summary SET
+                    total_activities = GREATEST(total_activities - ?, 0),
+                    invitations = GREATEST(invitations - ?, 0),
+                    rsvp_accepted = GREATEST(rsvp_accepted - ?, 0),
+                    rsvp_declined = GREATEST(rsvp_declined - ?, 0),
+                    rsvp_maybe = GREATEST(rsvp_maybe - ?, 0),
+                    checked_in = GREATEST(checked_in - ?, 0),
+                    events_viewed = GREATEST(events_viewed - ?, 0),
+                    distinct_events = GREATEST(distinct_events - ?, 0),
+                    updated_at = CURRENT_TIMESTAMP
+                WHERE user_id = ?
+                """, sorted, sorted.size(), (ps, delta) -> {
+            ps.setLong(1, delta.getTotal());
+            ps.setLong(2, delta.getCount(UserActivity.ActivityType.INVITATION_SENT));
+            ps.setLong(3, delta.getCount(UserActivity.ActivityType.RSVP_ACCEPTED));
+            ps.setLong(4, delta.getCount(UserActivity.ActivityType.RSVP_DECLINED));
+            ps.setLong(5, delta.getCount(UserActivity.ActivityType.RSVP_MAYBE));
+            ps.setLong(6, delta.getCount(UserActivity.ActivityType.CHECKED_IN));
+            ps.setLong(7, delta.getCount(UserActivity.ActivityType.EVENT_VIEWED));
+            ps.setLong(8, leftEvent.contains(delta.getUserId()) ? 1 : 0);
+            ps.setObject(9, delta.getUserId());
+        });
+    }
+
+    private static Timestamp toTimestamp(LocalDateTime value) {
+        return value != null ? Timestamp.valueOf(value) : null;
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp value) {
+        return value != null ? value.toLocalDateTime() : null;
+    }
+
+    public record UserEvent(UUID userId, UUID eventId) {
+    }
+
+    /**
+     * Change of one user's summary: activity counts per type, newly seen events and the time
+     * span of the added activity.
+     */
+    public static final class Delta {
+
+        private final UUID userId;
+        private final long[] counts = new long[UserActivity.ActivityType.values().length];
+        private long distinctEvents;
+        private LocalDateTime firstActivityAt;
+        private LocalDateTime lastActivityAt;
+
+        public Delta(UUID userId) {
+            this.userId = userId;
+        }
+
+        public void add(UserActivity.ActivityType type, long count, LocalDateTime at) {
+            counts[type.ordinal()] += count;
+            if (at != null) {
+                if (firstActivityAt == null || at.isBefore(firstActivityAt)) {
+                    firstActivityAt = at;
+                }
+                if (lastActivityAt == null || at.isAfter(lastActivityAt)) {
+                    lastActivityAt = at;
+                }
+            }
+        }
+
+        public void setDistinctEvents(long distinctEvents) {
+            this.distinctEvents = distinctEvents;
+        }
+
+        public UUID getUserId() {
+            return userId;
+        }
+
+        public long getCount(UserActivity.ActivityType type) {
+            return counts[type.ordinal()];
+        }
+
+        public long getTotal() {
+            long total = 0;
+            for (long count : counts) {
+                total += count;
+            }
+            return total;
+        }
+
+        public long getDistinctEvents() {
+            return distinctEvents;
+        }
+
+        public LocalDateTime getFirstActivityAt() {
+            return firstActivityAt;
+        }
+
+        public LocalDateTime getLastActivityAt() {
+            return lastActivityAt;
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package com.planify.analytics.service;
+
+import com.planify.analytics.config.AnalyticsProperties;
+import com.planify.analytics.model.UserActivity;
+import com.planify.analytics.model.UserActivityView;
+import com.planify.analytics.repository.ActivityArchiveRepository;
+import com.planify.analytics.repository.ActivityArchiveRepository.SegmentStats;
+import com.planify.analytics.repository.ProjectionRepository;
+import com.planify.analytics.repository.UserActivityRepository;
+import com.planify.analytics.sharding.ShardRouter;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Moves activity of long past events out of user_activity into compressed segments, and reads
+ * activity from both tiers.
+ * <p>
+ * A single worker thread looks for events that took place more than {@code older-than-days} ago
+ * and still have activity that old in user_activity, and moves that activity into segments of
+ * {@code segment-size} rows, one segment per transaction and at most
+ * {@code max-segments-per-run} per shard and run. Nothing runs while the database circuit
+ * breaker is not closed.
+ * <p>
+ * History reads combine both tiers in one repeatable-read transaction, so a segment written
+ * between the two reads can neither hide rows nor return them twice.
+ */
+@Service
+@Slf4j
+public class ActivityArchiveService implements SmartLifecycle {
+
+    private static final String DATABASE_CIRCUIT_BREAKER = "analyticsDatabase";
+    private static final int EVENTS_PER_RUN = 100;
+
+    private final ActivityArchiveRepository archiveRepository;
+    private final UserActivityRepository userActivityRepository;
+    private final ProjectionRepository projectionRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate snapshotTemplate;
+    private final ShardRouter shardRouter;
+    private final CircuitBreaker databaseCircuitBreaker;
+    private final boolean enabled;
+    private final long intervalMinutes;
+    private final int olderThanDays;
+    private final int segmentSize;
+    private final int maxSegmentsPerRun;
+    private final Counter activitiesArchived;
+    private final Counter segmentsWritten;
+    private final Counter segmentBytes;
+    private ScheduledExecutorService worker;
+    private volatile boolean running;
+
+    public ActivityArchiveService(ActivityArchiveRepository archiveRepository,
+                                  UserActivityRepository userActivityRepository,
+                                  ProjectionRepository projectionRepository,
+                                  PlatformTransactionManager transactionManager,
+                                  ShardRouter shardRouter,
+                                  CircuitBreakerRegistry circuitBreakerRegistry,
+                                  AnalyticsProperties properties,
+                                  MeterRegistry meterRegistry) {
+        this.archiveRepository = archiveRepository;
+        this.userActivityRepository = userActivityRepository;
+        this.projectionRepository = projectionRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.snapshotTemplate = new TransactionTemplate(transactionManager);
+        this.snapshotTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.snapshotTemplate.setReadOnly(true);
+        this.shardRouter = shardRouter;
+        this.databaseCircuitBreaker = circuitBreakerRegistry.circuitBreaker(DATABASE_CIRCUIT_BREAKER);
+        AnalyticsProperties.Archive config = properties.getArchive();
+        this.enabled = config.isEnabled();
+        this.intervalMinutes = Math.max(1, config.getIntervalMinutes());
+        this.olderThanDays = Math.max(1, config.getOlderThanDays());
+        this.segmentSize = Math.max(1, config.getSegmentSize());
+        this.maxSegmentsPerRun = Math.max(1, config.getMaxSegmentsPerRun());
+
+        this.activitiesArchived = Counter.builder("analytics.archive.activities")
+                .description("Activity rows moved from user_activity into segments")
+                .register(meterRegistry);
+        this.segmentsWritten = Counter.builder("analytics.archive.segments")
+                .description("Activity segments written")
+                .register(meterRegistry);
+        this.segmentBytes = Counter.builder("analytics.archive.bytes")
+                .description("Compressed size of the written activity segments")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Activity of the user on the current shard, archived rows first.
+     */
+    public List<UserActivity> findByUserId(UUID userId) {
+        return snapshot(() -> concat(archiveRepository.findByUserId(userId), userActivityRepository.findByUserId(userId)));
+    }
+
+    public List<UserActivity> findByEventId(UUID eventId) {
+        return snapshot(() -> concat(archiveRepository.findByEventId(eventId), userActivityRepository.findByEventId(eventId)));
+    }
+
+    /**
+     * Projections of the user's activity. Archived rows are decoded whole, so their views have
+     * every field set.
+     */
+    public List<UserActivityView> findViewsByUserId(UUID userId, Collection<String> fields) {
+        return snapshot(() -> concat(archiveRepository.findByUserId(userId).stream().map(ActivityArchiveService::toView).toList(),
+                projectionRepository.findActivitiesByUserId(userId, fields)));
+    }
+
+    public List<UserActivityView> findViewsByEventId(UUID eventId, Collection<String> fields) {
+        return snapshot(() -> concat(archiveRepository.findByEventId(eventId).stream().map(ActivityArchiveService::toView).toList(),
+                projectionRepository.findActivitiesByEventId(eventId, fields)));
+    }
+
+    public long countArchived() {
+        return archiveRepository.countActivities();
+    }
+
+    /**
+     * One run of the worker over all shards.
+     */
+    void archive() {
+        CircuitBreaker.State breakerState = databaseCircuitBreaker.getState();
+        if (breakerState != CircuitBreaker.State.CLOSED) {
+            log.debug("Skipping archive run, database circuit breaker is {}", breakerState);
+            return;
+        }
+        LocalDateTime before = LocalDateTime.now().minusDays(olderThanDays);
+        for (String shard : shardRouter.shards()) {
+            try {
+                shardRouter.runOnShard(shard, () -> archiveShard(before));
+            } catch (RuntimeException e) {
+                log.warn("Failed to archive activity of shard {}, retrying next run: {}", shard, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Archives the old activity of the current shard's events, in event id order, until the
+     * segment budget of this run is used up.
+     */
+    void archiveShard(LocalDateTime before) {
+        int budget = maxSegmentsPerRun;
+        for (UUID eventId : archiveRepository.findArchivableEventIds(before, EVENTS_PER_RUN)) {
+            SegmentStats stats;
+            do {
+                if (budget <= 0 || !running) {
+                    return;
+                }
+                stats = transactionTemplate.execute(status -> archiveRepository.archive(eventId, before, segmentSize));
+                budget--;
+                if (stats.activities() > 0) {
+                    activitiesArchived.increment(stats.activities());
+                    segmentsWritten.increment();
+                    segmentBytes.increment(stats.bytes());
+                    log.debug("Archived {} activities of event {} into a segment of {} bytes", stats.activities(), eventId, stats.bytes());
+                }
+            } while (stats.activities() == segmentSize);
+        }
+    }
+
+    private <T> List<T> snapshot(Supplier<List<T>> read) {
+        return snapshotTemplate.execute(status -> read.get());
+    }
+
+    private static <T> List<T> concat(List<? extends T> archived, List<? extends T> recent) {
+        if (archived.isEmpty()) {
+            return List.copyOf(recent);
+        }
+        List<T> all = new ArrayList<>(archived.size() + recent.size());
+        all.addAll(archived);
+        all.addAll(recent);
+        return all;
+    }
+
+    private static UserActivityView toView(UserActivity activity) {
+        UserActivityView view = new UserActivityView();
+        view.setId(activity.getId());
+        view.setUserId(activity.getUserId());
+        view.setEventId(activity.getEventId());
+        view.setActivityType(activity.getActivityType());
+        view.setActivityTimestamp(activity.getActivityTimestamp());
+        return view;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        if (enabled) {
+            worker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "activity-archive");
+                thread.setDaemon(true);
+                return thread;
+            });
+            worker.scheduleWithFixedDelay(this::archive, intervalMinutes, intervalMinutes, TimeUnit.MINUTES);
+            log.info("Archiving activity older than {} days every {} minutes, {} rows per segment", olderThanDays, intervalMinutes, segmentSize);
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (worker != null) {
+            worker.shutdown();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+}
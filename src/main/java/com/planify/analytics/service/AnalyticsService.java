@@ -1,11 +1,25 @@
 package com.planify.analytics.service;
 
+import com.planify.analytics.event.AnalyticsEvent;
+import com.planify.analytics.model.Audience;
+import com.planify.analytics.model.AudienceExpression;
+import com.planify.analytics.model.EventFunnel;
 import com.planify.analytics.model.EventMetrics;
+import com.planify.analytics.model.EventMetricsView;
+import com.planify.analytics.model.EventVelocity;
+import com.planify.analytics.model.FunnelMetrics;
+import com.planify.analytics.model.OrganizationSummary;
 import com.planify.analytics.model.SystemMetrics;
 import com.planify.analytics.model.UserActivity;
+import com.planify.analytics.model.UserActivitySummary;
+import com.planify.analytics.model.UserActivityView;
 import com.planify.analytics.repository.EventMetricsRepository;
+import com.planify.analytics.repository.ProjectionRepository;
+import com.planify.analytics.repository.SystemMetricsCounterRepository;
 import com.planify.analytics.repository.SystemMetricsRepository;
 import com.planify.analytics.repository.UserActivityRepository;
+import com.planify.analytics.sharding.ShardContext;
+import com.planify.analytics.sharding.ShardRouter;
 import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
 import io.github.resilience4j.retry.annotation.Retry;
 import io.github.resilience4j.bulkhead.annotation.Bulkhead;
@@ -13,9 +27,15 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @Service
@@ -26,160 +46,465 @@ public class AnalyticsService {
     private final EventMetricsRepository eventMetricsRepository;
     private final UserActivityRepository userActivityRepository;
     private final SystemMetricsRepository systemMetricsRepository;
+    private final SystemMetricsCounterRepository systemMetricsCounterRepository;
+    private final ProjectionRepository projectionRepository;
+    private final FunnelService funnelService;
+    private final LiveMetricsService liveMetricsService;
+    private final QueryResultCache queryResultCache;
+    private final VelocityService velocityService;
+    private final MetricsTopicPublisher metricsTopicPublisher;
+    private final EventCleanupService eventCleanupService;
+    private final UserSummaryService userSummaryService;
+    private final OrganizationSummaryService organizationSummaryService;
+    private final ActivityArchiveService activityArchiveService;
+    private final AudienceService audienceService;
+    private final ShardRouter shardRouter;
     
     // Event Handlers
     @Transactional
     @Retry(name = "analyticsDatabase")
     @Bulkhead(name = "analyticsDatabase")
-    @CircuitBreaker(name = "analyticsDatabase", fallbackMethod = "handleEventCreatedFallback")
+    @CircuitBreaker(name = "analyticsDatabase")
     public void handleEventCreated(UUID eventId, UUID organizationId, String title, LocalDateTime eventDate, String status) {
-        EventMetrics metrics = new EventMetrics();
-        metrics.setEventId(eventId);
-        metrics.setOrganizationId(organizationId);
-        metrics.setEventTitle(title);
-        metrics.setEventDate(eventDate);
-        metrics.setEventStatus(status);
-        
-        eventMetricsRepository.save(metrics);
-        log.info("Created event metrics for event: {}", eventId);
+        recordDatabaseCall("handleEventCreated", 1);
+        if (!createEventMetrics(eventId, organizationId, title, eventDate, status)) {
+            return;
+        }
         
         // Update system metrics
-        updateSystemMetric("TOTAL_EVENTS", (double) eventMetricsRepository.count());
-    }
-    
-    private void handleEventCreatedFallback(UUID eventId, UUID organizationId, String title, LocalDateTime eventDate, String status, Exception ex) {
-        log.error("Failed to record event metrics for event {}. Error: {}", eventId, ex.getMessage());
+        addToTotalEvents(1);
     }
     
     @Transactional
     @Retry(name = "analyticsDatabase")
-    @CircuitBreaker(name = "analyticsDatabase", fallbackMethod = "handleEventUpdatedFallback")
-    public void handleEventUpdated(UUID eventId) {
-        eventMetricsRepository.findByEventId(eventId).ifPresent(metrics -> {
-            metrics.setUpdatedAt(LocalDateTime.now());
-            eventMetricsRepository.save(metrics);
-            log.info("Updated event metrics for event: {}", eventId);
-        });
-    }
-    
-    private void handleEventUpdatedFallback(UUID eventId, Exception ex) {
-        log.error("Failed to update event metrics for event {}. Error: {}", eventId, ex.getMessage());
+    @CircuitBreaker(name = "analyticsDatabase")
+    public void handleEventUpdated(UUID eventId, String title, LocalDateTime eventDate, String status) {
+        recordDatabaseCall("handleEventUpdated", 1);
+        updateEventMetrics(eventId, title, eventDate, status);
     }
     
     @Transactional
     public void handleEventDeleted(UUID eventId) {
-        eventMetricsRepository.findByEventId(eventId).ifPresent(metrics -> {
-            eventMetricsRepository.delete(metrics);
-            log.info("Deleted event metrics for event: {}", eventId);
-        });
+        recordDatabaseCall("handleEventDeleted", 1);
+        if (!deleteEventMetrics(eventId)) {
+            return;
+        }
         
         // Update system metrics
-        updateSystemMetric("TOTAL_EVENTS", (double) eventMetricsRepository.count());
+        addToTotalEvents(-1);
     }
     
     @Transactional
     public void handleEventPublished(UUID eventId) {
-        eventMetricsRepository.findByEventId(eventId).ifPresent(metrics -> {
-            metrics.setEventStatus("PUBLISHED");
-            eventMetricsRepository.save(metrics);
-            log.info("Updated event {} status to PUBLISHED", eventId);
-        });
+        recordDatabaseCall("handleEventPublished", 1);
+        publishEventMetrics(eventId);
     }
     
     @Transactional
     public void handleGuestInvited(UUID eventId, UUID userId) {
-        eventMetricsRepository.findByEventId(eventId).ifPresent(metrics -> {
-            metrics.setTotalInvites(metrics.getTotalInvites() + 1);
-            eventMetricsRepository.save(metrics);
-            log.info("Incremented total invites for event: {}", eventId);
-        });
-        
-        // Record user activity
-        recordUserActivity(userId, eventId, UserActivity.ActivityType.INVITATION_SENT.name());
+        recordDatabaseCall("handleGuestInvited", 1);
+        applyGuestInvited(eventId, userId, LocalDateTime.now(), null, null);
     }
     
     @Transactional
     @Retry(name = "analyticsDatabase")
     @Bulkhead(name = "analyticsDatabase")
-    @CircuitBreaker(name = "analyticsDatabase", fallbackMethod = "handleRsvpAcceptedFallback")
+    @CircuitBreaker(name = "analyticsDatabase")
     public void handleRsvpAccepted(UUID eventId, UUID userId) {
-        eventMetricsRepository.findByEventId(eventId).ifPresent(metrics -> {
-            metrics.setRsvpAccepted(metrics.getRsvpAccepted() + 1);
-            eventMetricsRepository.save(metrics);
-            log.info("Incremented RSVP accepted for event: {}", eventId);
-        });
-        
-        // Record user activity
-        recordUserActivity(userId, eventId, UserActivity.ActivityType.RSVP_ACCEPTED.name());
+        recordDatabaseCall("handleRsvpAccepted", 1);
+        if (!applyRsvpAccepted(eventId, userId, LocalDateTime.now(), null, null)) {
+            return;
+        }
         
         // Update system metrics
-        updateSystemMetric("TOTAL_RSVPS", (double) userActivityRepository.count());
+        updateSystemMetric("TOTAL_RSVPS", (double) (userActivityRepository.count() + activityArchiveService.countArchived()));
     }
     
-    private void handleRsvpAcceptedFallback(UUID eventId, UUID userId, Exception ex) {
-        log.error("Failed to record RSVP accepted for event {}. Error: {}", eventId, ex.getMessage());
+    @Transactional
+    public void handleRsvpDeclined(UUID eventId, UUID userId) {
+        recordDatabaseCall("handleRsvpDeclined", 1);
+        applyRsvpDeclined(eventId, userId, LocalDateTime.now(), null, null);
     }
     
     @Transactional
-    public void handleRsvpDeclined(UUID eventId, UUID userId) {
-        eventMetricsRepository.findByEventId(eventId).ifPresent(metrics -> {
-            metrics.setRsvpDeclined(metrics.getRsvpDeclined() + 1);
-            eventMetricsRepository.save(metrics);
-            log.info("Incremented RSVP declined for event: {}", eventId);
+    public void handleGuestCheckedIn(UUID eventId, UUID userId) {
+        recordDatabaseCall("handleGuestCheckedIn", 1);
+        applyGuestCheckedIn(eventId, userId, LocalDateTime.now(), null, null);
+    }
+    
+    /**
+     * Applies a batch of decoded records from the write-behind pipeline in one transaction.
+     * System metrics are written once per batch instead of once per record.
+     * Updates of the same event are merged and written once, right before the next lifecycle
+     * record of that event or at the end of the batch, so a burst of edits costs one statement.
+     * Exceptions propagate to the caller, which decides how to retry the records.
+     */
+    @Transactional
+    @Retry(name = "analyticsDatabase")
+    @CircuitBreaker(name = "analyticsDatabase")
+    public void applyBatch(List<AnalyticsEvent> events) {
+        recordDatabaseCall("applyBatch", events.size());
+        int eventsDelta = 0;
+        boolean rsvpsChanged = false;
+        Map<UUID, AnalyticsEvent> pendingUpdates = new LinkedHashMap<>();
+        
+        for (AnalyticsEvent event : events) {
+            UUID eventId = event.getEventId();
+            LocalDateTime at = event.getTimestamp() != null ? event.getTimestamp() : LocalDateTime.now();
+            switch (event.getType()) {
+                case EVENT_CREATED -> {
+                    applyPendingUpdate(pendingUpdates.remove(eventId));
+                    if (createEventMetrics(eventId, event.getOrganizationId(), event.getTitle(), event.getEventDate(), event.getStatus())) {
+                        eventsDelta++;
+                    }
+                }
+                case EVENT_UPDATED -> pendingUpdates.merge(eventId, event, AnalyticsEvent::mergeUpdate);
+                case EVENT_DELETED -> {
+                    // The row is gone afterwards, so a pending update has nothing left to change
+                    pendingUpdates.remove(eventId);
+                    if (deleteEventMetrics(eventId)) {
+                        eventsDelta--;
+                    }
+                }
+                case EVENT_PUBLISHED -> {
+                    applyPendingUpdate(pendingUpdates.remove(eventId));
+                    publishEventMetrics(eventId);
+                }
+                case GUEST_INVITED -> applyGuestInvited(eventId, event.getUserId(), at, event.getPartition(), event.getOffset());
+                case RSVP_ACCEPTED -> rsvpsChanged |= applyRsvpAccepted(eventId, event.getUserId(), at, event.getPartition(), event.getOffset());
+                case RSVP_DECLINED -> applyRsvpDeclined(eventId, event.getUserId(), at, event.getPartition(), event.getOffset());
+                case GUEST_CHECKED_IN -> applyGuestCheckedIn(eventId, event.getUserId(), at, event.getPartition(), event.getOffset());
+            }
+        }
+        pendingUpdates.values().forEach(this::applyPendingUpdate);
+        
+        // Update system metrics
+        if (eventsDelta != 0) {
+            addToTotalEvents(eventsDelta);
+        }
+        if (rsvpsChanged) {
+            updateSystemMetric("TOTAL_RSVPS", (double) (userActivityRepository.count() + activityArchiveService.countArchived()));
+        }
+    }
+    
+    /**
+     * @return false if the event exists already, e.g. because its record was delivered again
+     *         after a restart or rebalance
+     */
+    private boolean createEventMetrics(UUID eventId, UUID organizationId, String title, LocalDateTime eventDate, String status) {
+        if (eventMetricsRepository.existsByEventId(eventId)) {
+            log.debug("Event metrics for event {} exist already, skipping create", eventId);
+            return false;
+        }
+        EventMetrics metrics = new EventMetrics();
+        metrics.setEventId(eventId);
+        metrics.setOrganizationId(organizationId);
+        metrics.setEventTitle(title);
+        metrics.setEventDate(eventDate);
+        metrics.setEventStatus(status);
+        
+        eventMetricsRepository.save(metrics);
+        organizationSummaryService.eventCreated(organizationId, status);
+        eventChanged(eventId, organizationId);
+        log.info("Created event metrics for event: {}", eventId);
+        return true;
+    }
+    
+    private void applyPendingUpdate(AnalyticsEvent update) {
+        if (update != null) {
+            updateEventMetrics(update.getEventId(), update.getTitle(), update.getEventDate(), update.getStatus());
+        }
+    }
+    
+    /**
+     * Writes only the fields that were sent, and nothing at all when none of them differs from
+     * the stored values; an unchanged event is not reported as changed either.
+     */
+    private void updateEventMetrics(UUID eventId, String title, LocalDateTime eventDate, String status) {
+        if (title == null && eventDate == null && status == null) {
+            log.debug("Event update without changed fields for event: {}", eventId);
+            return;
+        }
+        // Read only when the status is sent, for the organization summary's per-status counts
+        String previousStatus = status != null ? eventMetricsRepository.findStatusByEventId(eventId).orElse(null) : null;
+        if (eventMetricsRepository.updateChangedFields(eventId, title, eventDate, status, LocalDateTime.now()) == 0) {
+            log.debug("Event update did not change event metrics for event: {}", eventId);
+            return;
+        }
+        eventMetricsRepository.findOrganizationIdByEventId(eventId).ifPresent(organizationId -> {
+            if (status != null) {
+                organizationSummaryService.statusChanged(organizationId, previousStatus, status);
+            }
+            eventChanged(eventId, organizationId);
+        });
+        log.info("Updated event metrics for event: {}", eventId);
+    }
+    
+    /**
+     * Deletes the metrics row and tombstones the event, which hides its activity and funnel rows
+     * right away; {@link EventCleanupService} removes them in the background.
+     *
+     * @return whether a metrics row was deleted
+     */
+    private boolean deleteEventMetrics(UUID eventId) {
+        EventMetrics metrics = eventMetricsRepository.findByEventId(eventId).orElse(null);
+        eventCleanupService.eventDeleted(eventId, metrics != null ? metrics.getOrganizationId() : null);
+        boolean deleted = metrics != null && eventMetricsRepository.deleteMetricsByEventId(eventId) > 0;
+        if (deleted) {
+            organizationSummaryService.eventDeleted(metrics);
+            eventChanged(eventId, metrics.getOrganizationId());
+            log.info("Deleted event metrics for event: {}", eventId);
+        }
+        // Cached activity of the event's users would still list it
+        queryResultCache.invalidateAll();
+        velocityService.eventDeleted(eventId);
+        return deleted;
+    }
+    
+    /**
+     * Sets only the status, so counters incremented or recounted concurrently are not written back.
+     */
+    private void publishEventMetrics(UUID eventId) {
+        String previousStatus = eventMetricsRepository.findStatusByEventId(eventId).orElse(null);
+        if (eventMetricsRepository.updateChangedFields(eventId, null, null, "PUBLISHED", LocalDateTime.now()) == 0) {
+            return;
+        }
+        eventMetricsRepository.findOrganizationIdByEventId(eventId).ifPresent(organizationId -> {
+            organizationSummaryService.statusChanged(organizationId, previousStatus, "PUBLISHED");
+            eventChanged(eventId, organizationId);
+            log.info("Updated event {} status to PUBLISHED", eventId);
         });
+    }
+    
+    private boolean applyGuestInvited(UUID eventId, UUID userId, LocalDateTime at, Integer partition, Long offset) {
+        // Record user activity; counters only follow when the record was not applied before
+        if (!recordUserActivity(userId, eventId, UserActivity.ActivityType.INVITATION_SENT, at, partition, offset)) {
+            return false;
+        }
         
-        // Record user activity
-        recordUserActivity(userId, eventId, UserActivity.ActivityType.RSVP_DECLINED.name());
+        if (eventMetricsRepository.incrementTotalInvites(eventId, LocalDateTime.now()) == 0) {
+            return true;
+        }
+        eventMetricsRepository.findOrganizationIdByEventId(eventId).ifPresent(organizationId -> {
+            organizationSummaryService.activityCounted(organizationId, UserActivity.ActivityType.INVITATION_SENT);
+            eventChanged(eventId, organizationId);
+            log.info("Incremented total invites for event: {}", eventId);
+            
+            funnelService.recordInvited(eventId, organizationId, userId, at);
+        });
+        return true;
     }
     
-    @Transactional
-    public void handleGuestCheckedIn(UUID eventId, UUID userId) {
-        eventMetricsRepository.findByEventId(eventId).ifPresent(metrics -> {
-            metrics.setCheckedIn(metrics.getCheckedIn() + 1);
-            eventMetricsRepository.save(metrics);
-            log.info("Incremented checked-in count for event: {}", eventId);
+    private boolean applyRsvpAccepted(UUID eventId, UUID userId, LocalDateTime at, Integer partition, Long offset) {
+        // Record user activity; counters only follow when the record was not applied before
+        if (!recordUserActivity(userId, eventId, UserActivity.ActivityType.RSVP_ACCEPTED, at, partition, offset)) {
+            return false;
+        }
+        
+        if (eventMetricsRepository.incrementRsvpAccepted(eventId, LocalDateTime.now()) == 0) {
+            return true;
+        }
+        eventMetricsRepository.findOrganizationIdByEventId(eventId).ifPresent(organizationId -> {
+            organizationSummaryService.activityCounted(organizationId, UserActivity.ActivityType.RSVP_ACCEPTED);
+            eventChanged(eventId, organizationId);
+            log.info("Incremented RSVP accepted for event: {}", eventId);
+            
+            funnelService.recordRsvp(eventId, organizationId, userId, EventFunnel.Stage.RSVP_ACCEPTED, at);
         });
+        return true;
+    }
+    
+    private boolean applyRsvpDeclined(UUID eventId, UUID userId, LocalDateTime at, Integer partition, Long offset) {
+        // Record user activity; counters only follow when the record was not applied before
+        if (!recordUserActivity(userId, eventId, UserActivity.ActivityType.RSVP_DECLINED, at, partition, offset)) {
+            return false;
+        }
         
-        // Record user activity
-        recordUserActivity(userId, eventId, UserActivity.ActivityType.CHECKED_IN.name());
+        if (eventMetricsRepository.incrementRsvpDeclined(eventId, LocalDateTime.now()) == 0) {
+            return true;
+        }
+        eventMetricsRepository.findOrganizationIdByEventId(eventId).ifPresent(organizationId -> {
+            organizationSummaryService.activityCounted(organizationId, UserActivity.ActivityType.RSVP_DECLINED);
+            eventChanged(eventId, organizationId);
+            log.info("Incremented RSVP declined for event: {}", eventId);
+            
+            funnelService.recordRsvp(eventId, organizationId, userId, EventFunnel.Stage.RSVP_DECLINED, at);
+        });
+        return true;
+    }
+    
+    private boolean applyGuestCheckedIn(UUID eventId, UUID userId, LocalDateTime at, Integer partition, Long offset) {
+        // Record user activity; counters only follow when the record was not applied before
+        if (!recordUserActivity(userId, eventId, UserActivity.ActivityType.CHECKED_IN, at, partition, offset)) {
+            return false;
+        }
+        
+        if (eventMetricsRepository.incrementCheckedIn(eventId, LocalDateTime.now()) == 0) {
+            return true;
+        }
+        eventMetricsRepository.findOrganizationIdByEventId(eventId).ifPresent(organizationId -> {
+            organizationSummaryService.activityCounted(organizationId, UserActivity.ActivityType.CHECKED_IN);
+            eventChanged(eventId, organizationId);
+            log.info("Incremented checked-in count for event: {}", eventId);
+            
+            funnelService.recordCheckedIn(eventId, organizationId, userId, at);
+        });
+        return true;
     }
     
     // Query Methods for GraphQL
+    // Reads are routed to the shard of their event or organization; only system-wide ones scatter
     public EventMetrics getEventMetrics(UUID eventId) {
-        return eventMetricsRepository.findByEventId(eventId)
+        return shardRouter.onEvent(eventId, () -> eventMetricsRepository.findByEventId(eventId))
                 .orElseThrow(() -> new RuntimeException("Event metrics not found for event: " + eventId));
     }
     
     public List<EventMetrics> getEventMetricsByOrganization(UUID organizationId) {
-        return eventMetricsRepository.findByOrganizationId(organizationId);
+        return shardRouter.onOrganization(organizationId, () -> eventMetricsRepository.findByOrganizationId(organizationId));
     }
     
     public List<UserActivity> getUserActivities(UUID userId) {
-        return userActivityRepository.findByUserId(userId);
+        // A user can be active in organizations on any shard
+        if (!shardRouter.isEnabled()) {
+            return activityArchiveService.findByUserId(userId);
+        }
+        return shardRouter.onAllShards(() -> activityArchiveService.findByUserId(userId)).stream()
+                .flatMap(List::stream)
+                .sorted(Comparator.comparing(UserActivity::getActivityTimestamp))
+                .toList();
+    }
+    
+    public UserActivitySummary getUserSummary(UUID userId) {
+        return userSummaryService.getSummary(userId);
+    }
+    
+    public OrganizationSummary getOrganizationSummary(UUID organizationId) {
+        return organizationSummaryService.getSummary(organizationId);
     }
     
     public List<UserActivity> getEventActivities(UUID eventId) {
-        return userActivityRepository.findByEventId(eventId);
+        return shardRouter.onEvent(eventId, () -> activityArchiveService.findByEventId(eventId));
+    }
+    
+    // Projections for GraphQL, reading only the columns of the selected fields
+    public EventMetricsView getEventMetricsView(UUID eventId, Collection<String> fields) {
+        return shardRouter.onEvent(eventId, () -> projectionRepository.findEventMetricsByEventId(eventId, fields))
+                .orElseThrow(() -> new RuntimeException("Event metrics not found for event: " + eventId));
+    }
+    
+    public List<EventMetricsView> getEventMetricsViewsByOrganization(UUID organizationId, Collection<String> fields) {
+        return shardRouter.onOrganization(organizationId, () -> projectionRepository.findEventMetricsByOrganizationId(organizationId, fields));
+    }
+    
+    public List<UserActivityView> getUserActivityViews(UUID userId, Collection<String> fields) {
+        if (!shardRouter.isEnabled()) {
+            return activityArchiveService.findViewsByUserId(userId, fields);
+        }
+        return shardRouter.onAllShards(() -> activityArchiveService.findViewsByUserId(userId, fields)).stream()
+                .flatMap(List::stream)
+                .sorted(Comparator.comparing(UserActivityView::getActivityTimestamp))
+                .toList();
+    }
+    
+    public List<UserActivityView> getEventActivityViews(UUID eventId, Collection<String> fields) {
+        return shardRouter.onEvent(eventId, () -> activityArchiveService.findViewsByEventId(eventId, fields));
     }
     
     public List<SystemMetrics> getSystemMetricsByName(String metricName) {
-        return systemMetricsRepository.findByMetricName(metricName);
+        // Each shard records the totals of its own organizations
+        if (!shardRouter.isEnabled()) {
+            return systemMetricsRepository.findByMetricName(metricName);
+        }
+        return shardRouter.onAllShards(() -> systemMetricsRepository.findByMetricName(metricName)).stream()
+                .flatMap(List::stream)
+                .sorted(Comparator.comparing(SystemMetrics::getMetricTimestamp))
+                .toList();
     }
     
     public Long getActiveEventsCount() {
-        return eventMetricsRepository.countActiveEvents();
+        return shardRouter.onAllShards(eventMetricsRepository::countActiveEvents).stream()
+                .mapToLong(Long::longValue)
+                .sum();
+    }
+    
+    public FunnelMetrics getEventFunnel(UUID eventId) {
+        return shardRouter.onEvent(eventId, () -> funnelService.getEventFunnel(eventId));
+    }
+    
+    public FunnelMetrics getOrganizationFunnel(UUID organizationId) {
+        return shardRouter.onOrganization(organizationId, () -> funnelService.getOrganizationFunnel(organizationId));
+    }
+    
+    public EventVelocity getEventVelocity(UUID eventId, int windowMinutes) {
+        return velocityService.getVelocity(eventId, windowMinutes);
+    }
+    
+    // Routed to the shard of the expression's events by AudienceService
+    public Audience getAudience(AudienceExpression expression, int first, String after) {
+        return audienceService.query(expression, first, after);
     }
     
     // Helper Methods
-    private void recordUserActivity(UUID userId, UUID eventId, String activityType) {
-        UserActivity activity = new UserActivity();
-        activity.setUserId(userId);
-        activity.setEventId(eventId);
-        activity.setActivityType(activityType);
-        activity.setActivityTimestamp(LocalDateTime.now());
-        
-        userActivityRepository.save(activity);
+    
+    /**
+     * Inserts the activity unless a row of the same Kafka record exists already, e.g. because a
+     * replay or an earlier delivery inserted it, and updates the derived data of inserted rows.
+     *
+     * @return false if the record was applied before
+     */
+    private boolean recordUserActivity(UUID userId, UUID eventId, UserActivity.ActivityType activityType, LocalDateTime at, Integer partition, Long offset) {
+        if (userActivityRepository.insertIfAbsent(userId, eventId, activityType.getCode(), at, partition, offset) == 0) {
+            log.debug("Skipped {} of user {} in event {}: record {}-{} already applied", activityType, userId, eventId, partition, offset);
+            return false;
+        }
+        userSummaryService.activityRecorded(userId, eventId, activityType, at);
+        audienceService.activityRecorded(userId, eventId, activityType);
+        queryResultCache.invalidate(eventId, null, userId);
+        velocityService.record(eventId, activityType, at);
         log.info("Recorded user activity: {} for user: {} in event: {}", activityType, userId, eventId);
+        return true;
+    }
+    
+    private void eventChanged(UUID eventId, UUID organizationId) {
+        liveMetricsService.eventChanged(eventId, organizationId);
+        queryResultCache.invalidate(eventId, organizationId, null);
+        metricsTopicPublisher.eventChanged(eventId);
+    }
+    
+    /**
+     * Records the current handler transaction as a {@link DatabaseCallEvent} once it commits or
+     * rolls back, so the flush and commit are part of the recorded duration.
+     */
+    private void recordDatabaseCall(String operation, int records) {
+        DatabaseCallEvent call = new DatabaseCallEvent();
+        if (!call.isEnabled() || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        call.begin();
+        String shard = shardRouter.isEnabled() ? ShardContext.current() : ShardRouter.DEFAULT_SHARD;
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                call.end();
+                if (call.shouldCommit()) {
+                    call.operation = operation;
+                    call.records = records;
+                    call.shard = shard;
+                    call.succeeded = status == STATUS_COMMITTED;
+                    call.commit();
+                }
+            }
+        });
+    }
+    
+    /**
+     * Adds to the running event total instead of counting event_metrics on every change.
+     */
+    private void addToTotalEvents(int delta) {
+        // The first total is counted from event_metrics, which must include this transaction's rows
+        eventMetricsRepository.flush();
+        double total = systemMetricsCounterRepository.add("TOTAL_EVENTS", delta, "SELECT count(*) FROM event_metrics", LocalDateTime.now());
+        log.info("Updated system metric: TOTAL_EVENTS = {}", total);
     }
     
     private void updateSystemMetric(String metricName, Double value) {
@@ -0,0 +1,306 @@
+package com.planify.analytics.service;
+
+import com.planify.analytics.config.AnalyticsProperties;
+import com.planify.analytics.model.Audience;
+import com.planify.analytics.model.AudienceExpression;
+import com.planify.analytics.model.UserActivity;
+import com.planify.analytics.repository.ActivityArchiveRepository;
+import com.planify.analytics.repository.AudienceSetRepository;
+import com.planify.analytics.repository.AudienceSetRepository.SetKey;
+import com.planify.analytics.sharding.ShardRouter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.FastAggregation;
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Keeps audience_set, the users with at least one activity of each type per event, and answers
+ * set expressions over it, so "invited but never RSVPed" is a few bitmap operations instead of
+ * self-joins over user_activity.
+ * <p>
+ * Recorded activity is collected per transaction and merged just before it commits: users are
+ * mapped to dense audience_user indexes, and each touched set is locked, extended and written
+ * back once, or left alone when all users were members already. Metrics rebuilds recompute the
+ * sets of every event from both activity tiers. Sets of deleted events are hidden at once and
+ * removed by {@link EventCleanupService}.
+ * <p>
+ * Events are sharded by organization and dictionaries are per shard, so an expression can
+ * combine any events of one organization but not events of organizations on different shards.
+ */
+@Service
+@Slf4j
+public class AudienceService {
+
+    private final AudienceSetRepository audienceRepository;
+    private final ActivityArchiveRepository archiveRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ShardRouter shardRouter;
+    private final int maxSets;
+    private final int maxPageSize;
+    private final int rebuildChunkSize;
+    private final Counter setsUpdated;
+    private final Counter setsRebuilt;
+    private final Timer queryDuration;
+
+    public AudienceService(AudienceSetRepository audienceRepository,
+                           ActivityArchiveRepository archiveRepository,
+                           PlatformTransactionManager transactionManager,
+                           ShardRouter shardRouter,
+                           AnalyticsProperties properties,
+                           MeterRegistry meterRegistry) {
+        this.audienceRepository = audienceRepository;
+        this.archiveRepository = archiveRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.shardRouter = shardRouter;
+        AnalyticsProperties.Audience config = properties.getAudience();
+        this.maxSets = Math.max(1, config.getMaxSets());
+        this.maxPageSize = Math.max(1, config.getMaxPageSize());
+        this.rebuildChunkSize = Math.max(1, config.getRebuildChunkSize());
+        this.setsUpdated = Counter.builder("analytics.audience.updated")
+                .description("Audience sets that gained members on ingest")
+                .register(meterRegistry);
+        this.setsRebuilt = Counter.builder("analytics.audience.rebuilt")
+                .description("Audience sets that differed from the recorded activity and were rewritten by a rebuild")
+                .register(meterRegistry);
+        this.queryDuration = Timer.builder("analytics.audience.query.duration")
+                .description("Time to evaluate one audience expression")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+
+    public void activityRecorded(UUID userId, UUID eventId, UserActivity.ActivityType activityType) {
+        SetKey key = new SetKey(eventId, activityType);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            merge(Map.of(key, Set.of(userId)));
+            return;
+        }
+        Pending pending = (Pending) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            Pending created = new Pending();
+            TransactionSynchronizationManager.bindResource(this, created);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    created.write();
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(AudienceService.this);
+                }
+            });
+            pending = created;
+        }
+        pending.members.computeIfAbsent(key, k -> new HashSet<>()).add(userId);
+    }
+
+    /**
+     * Evaluates the expression and returns its cardinality and, if {@code first} is positive,
+     * up to {@code first} of its users after the {@code after} cursor.
+     *
+     * @throws IllegalArgumentException if the expression is malformed, combines too many sets
+     *                                  or events of different shards, or the cursor is invalid
+     */
+    public Audience query(AudienceExpression expression, int first, String after) {
+        List<SetKey> keys = new ArrayList<>();
+        collectSets(expression, keys);
+        if (keys.size() > maxSets) {
+            throw new IllegalArgumentException("Audience expression combines " + keys.size() + " sets, at most " + maxSets + " are allowed");
+        }
+        int limit = Math.min(Math.max(first, 0), maxPageSize);
+        int start = after != null ? cursor(after) + 1 : 0;
+        return queryDuration.record(() -> shardRouter.onShard(shard(keys), () -> {
+            Map<SetKey, RoaringBitmap> sets = audienceRepository.findSets(keys);
+            RoaringBitmap members = evaluate(expression, sets);
+            return limit > 0 ? page(members, start, limit) : new Audience(members.getLongCardinality(), List.of(), null);
+        }));
+    }
+
+    /**
+     * Recomputes the sets of the given events from user_activity and the archived segments, in
+     * the current transaction. The sets are locked before the activity is read, so activity
+     * committed meanwhile is either read here or merged after the rebuild.
+     */
+    public void rebuild(Collection<UUID> eventIds) {
+        List<SetKey> keys = new ArrayList<>();
+        eventIds.forEach(eventId -> {
+            for (UserActivity.ActivityType activityType : UserActivity.ActivityType.values()) {
+                keys.add(new SetKey(eventId, activityType));
+            }
+        });
+        Map<SetKey, RoaringBitmap> current = audienceRepository.lock(keys);
+        Map<SetKey, Set<UUID>> members = audienceRepository.findMembers(eventIds);
+        eventIds.forEach(eventId -> archiveRepository.findByEventId(eventId).forEach(activity ->
+                members.computeIfAbsent(new SetKey(eventId, activity.getActivityType()), k -> new HashSet<>()).add(activity.getUserId())));
+
+        Set<UUID> userIds = new HashSet<>();
+        members.values().forEach(userIds::addAll);
+        Map<UUID, Integer> indexes = audienceRepository.userIndexes(userIds);
+        Map<SetKey, RoaringBitmap> changed = new HashMap<>();
+        for (SetKey key : keys) {
+            RoaringBitmap rebuilt = new RoaringBitmap();
+            members.getOrDefault(key, Set.of()).forEach(userId -> rebuilt.add(indexes.get(userId)));
+            // Stored sets are run-optimized, compare in the same representation
+            rebuilt.runOptimize();
+            if (!rebuilt.equals(current.get(key))) {
+                changed.put(key, rebuilt);
+            }
+        }
+        audienceRepository.update(changed);
+        setsRebuilt.increment(changed.size());
+    }
+
+    /**
+     * Recomputes the sets of all events of the current shard, a chunk of events per transaction.
+     */
+    public void rebuildAll() {
+        UUID after = null;
+        int events = 0;
+        List<UUID> chunk;
+        do {
+            chunk = audienceRepository.findEventIds(after, rebuildChunkSize);
+            if (chunk.isEmpty()) {
+                break;
+            }
+            List<UUID> eventIds = chunk;
+            transactionTemplate.executeWithoutResult(status -> rebuild(eventIds));
+            events += chunk.size();
+            after = chunk.get(chunk.size() - 1);
+        } while (chunk.size() == rebuildChunkSize);
+        log.info("Rebuilt audience sets of {} events", events);
+    }
+
+    private void merge(Map<SetKey, Set<UUID>> added) {
+        // Sets are locked before users are added to the dictionary, in the same order as rebuilds
+        Map<SetKey, RoaringBitmap> current = audienceRepository.lock(added.keySet());
+        Set<UUID> userIds = new HashSet<>();
+        added.values().forEach(userIds::addAll);
+        Map<UUID, Integer> indexes = audienceRepository.userIndexes(userIds);
+        Map<SetKey, RoaringBitmap> changed = new HashMap<>();
+        added.forEach((key, members) -> {
+            RoaringBitmap set = current.get(key);
+            for (UUID userId : members) {
+                if (set.checkedAdd(indexes.get(userId))) {
+                    changed.put(key, set);
+                }
+            }
+        });
+        audienceRepository.update(changed);
+        setsUpdated.increment(changed.size());
+    }
+
+    private void collectSets(AudienceExpression expression, List<SetKey> keys) {
+        if (expression == null) {
+            throw new IllegalArgumentException("Audience expression is missing");
+        }
+        if (expression.isSet()) {
+            if (expression.getEventId() == null || expression.getActivityType() == null) {
+                throw new IllegalArgumentException("An audience set needs an eventId and an activityType");
+            }
+            keys.add(new SetKey(expression.getEventId(), expression.getActivityType()));
+            return;
+        }
+        if (expression.getOperands() == null || expression.getOperands().isEmpty()) {
+            throw new IllegalArgumentException(expression.getOperation() + " needs at least one operand");
+        }
+        for (AudienceExpression operand : expression.getOperands()) {
+            collectSets(operand, keys);
+        }
+    }
+
+    private String shard(List<SetKey> keys) {
+        if (!shardRouter.isEnabled()) {
+            return ShardRouter.DEFAULT_SHARD;
+        }
+        Set<String> shards = new LinkedHashSet<>();
+        keys.forEach(key -> shards.add(shardRouter.shardForEvent(key.eventId())));
+        if (shards.size() > 1) {
+            throw new IllegalArgumentException("Audience expression combines events of different shards " + shards
+                    + ", only events of one organization can be combined");
+        }
+        return shards.iterator().next();
+    }
+
+    private static RoaringBitmap evaluate(AudienceExpression expression, Map<SetKey, RoaringBitmap> sets) {
+        if (expression.isSet()) {
+            return sets.getOrDefault(new SetKey(expression.getEventId(), expression.getActivityType()), new RoaringBitmap());
+        }
+        List<RoaringBitmap> operands = expression.getOperands().stream()
+                .map(operand -> evaluate(operand, sets))
+                .toList();
+        return switch (expression.getOperation()) {
+            case UNION -> FastAggregation.or(operands.iterator());
+            case INTERSECT -> FastAggregation.and(operands.iterator());
+            case DIFFERENCE -> RoaringBitmap.andNot(operands.get(0), FastAggregation.or(operands.subList(1, operands.size()).iterator()));
+        };
+    }
+
+    /**
+     * Users in dictionary index order, starting at index {@code start}. The cursor is the index
+     * of the page's last user.
+     */
+    private Audience page(RoaringBitmap members, int start, int limit) {
+        PeekableIntIterator iterator = members.getIntIterator();
+        iterator.advanceIfNeeded(start);
+        int[] indexes = new int[limit];
+        int count = 0;
+        while (count < limit && iterator.hasNext()) {
+            indexes[count++] = iterator.next();
+        }
+        int[] page = count < limit ? Arrays.copyOf(indexes, count) : indexes;
+        Map<Integer, UUID> userIds = audienceRepository.findUserIds(page);
+        List<UUID> users = new ArrayList<>(count);
+        for (int index : page) {
+            users.add(userIds.get(index));
+        }
+        String endCursor = iterator.hasNext() ? Integer.toString(page[count - 1]) : null;
+        return new Audience(members.getLongCardinality(), users, endCursor);
+    }
+
+    private static int cursor(String after) {
+        try {
+            int index = Integer.parseInt(after);
+            if (index < 0 || index == Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Invalid audience cursor: " + after);
+            }
+            return index;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid audience cursor: " + after);
+        }
+    }
+
+    /**
+     * New members collected by one transaction.
+     */
+    private final class Pending {
+
+        private final Map<SetKey, Set<UUID>> members = new HashMap<>();
+
+        void write() {
+            if (members.isEmpty()) {
+                return;
+            }
+            merge(members);
+            log.debug("Merged new members into {} audience sets", members.size());
+        }
+    }
+}
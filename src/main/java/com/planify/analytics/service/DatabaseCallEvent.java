@@ -0,0 +1,32 @@
+package com.planify.analytics.service;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event for one handler transaction, from the start of the handler until its
+ * transaction has committed or rolled back. Each retry attempt is recorded on its own; waiting
+ * for the circuit breaker or the bulkhead happens before the event starts.
+ */
+@Name("com.planify.analytics.DatabaseCall")
+@Label("Handler Database Call")
+@Category({"Planify", "Analytics", "Database"})
+@Description("Analytics handler applying records to the database")
+@StackTrace(false)
+class DatabaseCallEvent extends jdk.jfr.Event {
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Records")
+    int records;
+
+    @Label("Shard")
+    String shard;
+
+    @Label("Succeeded")
+    boolean succeeded;
+}
@@ -0,0 +1,257 @@
+package com.planify.analytics.service;
+
+import com.planify.analytics.config.AnalyticsProperties;
+import com.planify.analytics.model.EventTombstone;
+import com.planify.analytics.repository.AudienceSetRepository;
+import com.planify.analytics.repository.EventFunnelRepository;
+import com.planify.analytics.repository.EventTombstoneRepository;
+import com.planify.analytics.sharding.ShardRouter;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Removes the user_activity, event_funnel and audience_set rows of deleted events in the
+ * background, and subtracts the removed activity from the users' summaries.
+ * <p>
+ * Deleting an event only writes an event_tombstone row next to the metrics delete, which hides
+ * the event from every read at once. A single worker thread then deletes the event's rows in
+ * chunks of {@code chunk-size}, each in its own short transaction, pausing between chunks and
+ * doing at most {@code max-chunks-per-run} per shard and run, so a large event never holds
+ * locks or produces WAL in one burst. Nothing runs while the database circuit breaker is not
+ * closed. A completed tombstone is kept for the retention period and swept once more before it
+ * is dropped, which also removes activity that arrived after the event was deleted.
+ */
+@Service
+@Slf4j
+public class EventCleanupService implements SmartLifecycle {
+
+    private static final String DATABASE_CIRCUIT_BREAKER = "analyticsDatabase";
+    private static final int TOMBSTONES_PER_RUN = 100;
+
+    private final EventTombstoneRepository tombstoneRepository;
+    private final UserSummaryService userSummaryService;
+    private final EventFunnelRepository eventFunnelRepository;
+    private final AudienceSetRepository audienceSetRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ShardRouter shardRouter;
+    private final CircuitBreaker databaseCircuitBreaker;
+    private final boolean enabled;
+    private final long intervalMillis;
+    private final int chunkSize;
+    private final int maxChunksPerRun;
+    private final long chunkPauseMillis;
+    private final int tombstoneRetentionHours;
+    private final Counter activitiesDeleted;
+    private final Counter funnelDeleted;
+    private final Counter eventsCompleted;
+    private final Timer chunkDuration;
+    private final AtomicLong pending = new AtomicLong();
+    private ScheduledExecutorService worker;
+    private volatile boolean running;
+
+    public EventCleanupService(EventTombstoneRepository tombstoneRepository,
+                               UserSummaryService userSummaryService,
+                               EventFunnelRepository eventFunnelRepository,
+                               AudienceSetRepository audienceSetRepository,
+                               PlatformTransactionManager transactionManager,
+                               ShardRouter shardRouter,
+                               CircuitBreakerRegistry circuitBreakerRegistry,
+                               AnalyticsProperties properties,
+                               MeterRegistry meterRegistry) {
+        this.tombstoneRepository = tombstoneRepository;
+        this.userSummaryService = userSummaryService;
+        this.eventFunnelRepository = eventFunnelRepository;
+        this.audienceSetRepository = audienceSetRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.shardRouter = shardRouter;
+        this.databaseCircuitBreaker = circuitBreakerRegistry.circuitBreaker(DATABASE_CIRCUIT_BREAKER);
+        AnalyticsProperties.Cleanup config = properties.getCleanup();
+        this.enabled = config.isEnabled();
+        this.intervalMillis = Math.max(1, config.getIntervalMillis());
+        this.chunkSize = Math.max(1, config.getChunkSize());
+        this.maxChunksPerRun = Math.max(1, config.getMaxChunksPerRun());
+        this.chunkPauseMillis = config.getChunkPauseMillis();
+        this.tombstoneRetentionHours = config.getTombstoneRetentionHours();
+
+        this.activitiesDeleted = Counter.builder("analytics.cleanup.deleted")
+                .description("Rows of deleted events removed by the cleanup worker")
+                .tag("table", "user_activity")
+                .register(meterRegistry);
+        this.funnelDeleted = Counter.builder("analytics.cleanup.deleted")
+                .description("Rows of deleted events removed by the cleanup worker")
+                .tag("table", "event_funnel")
+                .register(meterRegistry);
+        this.eventsCompleted = Counter.builder("analytics.cleanup.completed")
+                .description("Deleted events whose rows have all been removed")
+                .register(meterRegistry);
+        this.chunkDuration = Timer.builder("analytics.cleanup.chunk.duration")
+                .description("Time to delete one chunk of rows")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        Gauge.builder("analytics.cleanup.pending", pending, AtomicLong::get)
+                .description("Deleted events whose rows are still being removed")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Tombstones the event in the current transaction. Its rows stay in place, hidden from
+     * reads, until the worker has removed them.
+     */
+    public void eventDeleted(UUID eventId, UUID organizationId) {
+        if (tombstoneRepository.insertTombstone(eventId, organizationId, LocalDateTime.now()) > 0) {
+            pending.incrementAndGet();
+        }
+    }
+
+    /**
+     * One run of the worker over all shards.
+     */
+    void cleanup() {
+        CircuitBreaker.State breakerState = databaseCircuitBreaker.getState();
+        if (breakerState != CircuitBreaker.State.CLOSED) {
+            log.debug("Skipping cleanup run, database circuit breaker is {}", breakerState);
+            return;
+        }
+        LocalDateTime retainedSince = LocalDateTime.now().minusHours(tombstoneRetentionHours);
+        long remaining = 0;
+        for (String shard : shardRouter.shards()) {
+            try {
+                shardRouter.runOnShard(shard, () -> cleanupShard(retainedSince));
+                remaining += shardRouter.onShard(shard, tombstoneRepository::countPending);
+            } catch (RuntimeException e) {
+                log.warn("Failed to clean up deleted events of shard {}, retrying next run: {}", shard, e.getMessage());
+            }
+        }
+        pending.set(remaining);
+    }
+
+    /**
+     * Works through the due tombstones of the current shard, oldest first, until the chunk
+     * budget of this run is used up.
+     */
+    void cleanupShard(LocalDateTime retainedSince) {
+        List<EventTombstone> due = tombstoneRepository.findDue(retainedSince, Limit.of(TOMBSTONES_PER_RUN));
+        int budget = maxChunksPerRun;
+        for (EventTombstone tombstone : due) {
+            if (budget <= 0 || !running) {
+                return;
+            }
+            budget -= cleanupEvent(tombstone, budget);
+        }
+    }
+
+    /**
+     * @return number of chunks used
+     */
+    private int cleanupEvent(EventTombstone tombstone, int budget) {
+        UUID eventId = tombstone.getEventId();
+        for (int chunks = 1; chunks <= budget; chunks++) {
+            if (chunks > 1 && !pause()) {
+                return chunks - 1;
+            }
+            if (deleteChunk(eventId)) {
+                finish(tombstone);
+                return chunks;
+            }
+        }
+        return budget;
+    }
+
+    /**
+     * Deletes up to one chunk of the event's rows, activity first, and records the progress on
+     * its tombstone in the same transaction.
+     *
+     * @return true if no rows were left
+     */
+    private boolean deleteChunk(UUID eventId) {
+        return chunkDuration.record(() -> transactionTemplate.execute(status -> {
+            int activities = userSummaryService.deleteEventActivityChunk(eventId, chunkSize);
+            int funnel = activities < chunkSize ? eventFunnelRepository.deleteChunkByEventId(eventId, chunkSize - activities) : 0;
+            if (activities + funnel > 0) {
+                tombstoneRepository.addProgress(eventId, activities, funnel);
+                activitiesDeleted.increment(activities);
+                funnelDeleted.increment(funnel);
+            }
+            return activities + funnel < chunkSize;
+        }));
+    }
+
+    private void finish(EventTombstone tombstone) {
+        UUID eventId = tombstone.getEventId();
+        if (tombstone.getCompletedAt() == null) {
+            transactionTemplate.executeWithoutResult(status -> {
+                audienceSetRepository.deleteByEventId(eventId);
+                tombstoneRepository.markCompleted(eventId, LocalDateTime.now());
+            });
+            eventsCompleted.increment();
+            log.info("Removed rows of deleted event {}", eventId);
+        } else {
+            transactionTemplate.executeWithoutResult(status -> {
+                audienceSetRepository.deleteByEventId(eventId);
+                tombstoneRepository.deleteById(eventId);
+            });
+            log.debug("Dropped tombstone of event {} after its retention period", eventId);
+        }
+    }
+
+    /**
+     * @return false if the worker is stopping
+     */
+    private boolean pause() {
+        if (chunkPauseMillis <= 0) {
+            return running;
+        }
+        try {
+            Thread.sleep(chunkPauseMillis);
+            return running;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        if (enabled) {
+            worker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "event-cleanup");
+                thread.setDaemon(true);
+                return thread;
+            });
+            worker.scheduleWithFixedDelay(this::cleanup, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+            log.info("Cleanup of deleted events started, {} rows per chunk, at most {} chunks per run", chunkSize, maxChunksPerRun);
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (worker != null) {
+            worker.shutdown();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+}
@@ -0,0 +1,92 @@
+package com.planify.analytics.service;
+
+import com.planify.analytics.model.EventFunnel;
+import com.planify.analytics.model.FunnelMetrics;
+import com.planify.analytics.repository.EventFunnelRepository;
+import com.planify.analytics.repository.EventFunnelRepository.FunnelStats;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Maintains the per-user invite -> RSVP -> check-in funnel for each event.
+ * Stage rows are upserted incrementally by the Kafka handlers, so queries only
+ * aggregate the (small) funnel table and never scan raw user activity. Rows of deleted
+ * events are removed by {@link EventCleanupService}.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class FunnelService {
+    
+    private final EventFunnelRepository eventFunnelRepository;
+    
+    // Stage Transitions
+    @Transactional
+    public void recordInvited(UUID eventId, UUID organizationId, UUID userId, LocalDateTime invitedAt) {
+        eventFunnelRepository.upsertInvited(eventId, organizationId, userId, invitedAt);
+        log.debug("Funnel: user {} invited to event {}", userId, eventId);
+    }
+    
+    @Transactional
+    public void recordRsvp(UUID eventId, UUID organizationId, UUID userId, EventFunnel.Stage rsvpStage, LocalDateTime rsvpAt) {
+        eventFunnelRepository.upsertRsvp(eventId, organizationId, userId, rsvpStage.name(), rsvpAt);
+        log.debug("Funnel: user {} moved to {} for event {}", userId, rsvpStage, eventId);
+    }
+    
+    @Transactional
+    public void recordCheckedIn(UUID eventId, UUID organizationId, UUID userId, LocalDateTime checkedInAt) {
+        eventFunnelRepository.upsertCheckedIn(eventId, organizationId, userId, checkedInAt);
+        log.debug("Funnel: user {} checked in to event {}", userId, eventId);
+    }
+    
+    // Query Methods
+    public FunnelMetrics getEventFunnel(UUID eventId) {
+        FunnelMetrics metrics = toFunnelMetrics(eventFunnelRepository.aggregateByEventId(eventId));
+        metrics.setEventId(eventId);
+        return metrics;
+    }
+    
+    public FunnelMetrics getOrganizationFunnel(UUID organizationId) {
+        FunnelMetrics metrics = toFunnelMetrics(eventFunnelRepository.aggregateByOrganizationId(organizationId));
+        metrics.setOrganizationId(organizationId);
+        return metrics;
+    }
+    
+    // Helper Methods
+    private FunnelMetrics toFunnelMetrics(FunnelStats stats) {
+        FunnelMetrics metrics = new FunnelMetrics();
+        if (stats == null) {
+            return metrics;
+        }
+        
+        long invited = valueOrZero(stats.getInvited());
+        long accepted = valueOrZero(stats.getRsvpAccepted());
+        long declined = valueOrZero(stats.getRsvpDeclined());
+        long checkedIn = valueOrZero(stats.getCheckedIn());
+        
+        metrics.setInvited(invited);
+        metrics.setRsvpAccepted(accepted);
+        metrics.setRsvpDeclined(declined);
+        metrics.setCheckedIn(checkedIn);
+        metrics.setRsvpRate(ratio(accepted + declined, invited));
+        metrics.setAcceptanceRate(ratio(accepted, invited));
+        metrics.setCheckInRate(ratio(checkedIn, invited));
+        metrics.setShowUpRate(ratio(checkedIn, accepted));
+        metrics.setMedianTimeToRsvpSeconds(stats.getMedianTimeToRsvpSeconds());
+        metrics.setMedianTimeToCheckInSeconds(stats.getMedianTimeToCheckInSeconds());
+        return metrics;
+    }
+    
+    private static long valueOrZero(Long value) {
+        return value == null ? 0L : value;
+    }
+    
+    private static double ratio(long numerator, long denominator) {
+        return denominator == 0 ? 0.0 : (double) numerator / denominator;
+    }
+}
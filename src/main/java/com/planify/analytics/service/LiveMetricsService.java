@@ -0,0 +1,243 @@
+package com.planify.analytics.service;
+
+import com.planify.analytics.config.AnalyticsProperties;
+import com.planify.analytics.model.EventMetrics;
+import com.planify.analytics.model.OrganizationCounters;
+import com.planify.analytics.repository.EventMetricsRepository;
+import com.planify.analytics.sharding.ShardRouter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Change stream behind the GraphQL subscriptions for live event metrics and organization counters.
+ * <p>
+ * The {@link AnalyticsService} handlers report every changed event through
+ * {@link #eventChanged(UUID, UUID)}; once the transaction commits the event and its organization
+ * are marked dirty. Every push interval a single thread reloads each dirty key that has
+ * subscribers once and emits it to all of them, so a key is pushed at most once per interval no
+ * matter how many records touched it or how many clients watch it. Each subscriber keeps only the
+ * latest value if it cannot keep up, and new subscribers get the last pushed value immediately.
+ */
+@Service
+@Slf4j
+public class LiveMetricsService implements SmartLifecycle {
+
+    private static final Sinks.EmitFailureHandler RETRY_ON_CONTENTION = Sinks.EmitFailureHandler.busyLooping(Duration.ofMillis(100));
+
+    private final Channels<UUID, EventMetrics> eventChannels;
+    private final Channels<UUID, OrganizationCounters> organizationChannels;
+    private final long pushIntervalMillis;
+    private final Counter pushes;
+    private ScheduledExecutorService pusher;
+    private volatile boolean running;
+
+    public LiveMetricsService(EventMetricsRepository eventMetricsRepository,
+                              ShardRouter shardRouter,
+                              AnalyticsProperties properties,
+                              MeterRegistry meterRegistry) {
+        this.eventChannels = new Channels<>(eventId ->
+                shardRouter.onEvent(eventId, () -> eventMetricsRepository.findByEventId(eventId)));
+        this.organizationChannels = new Channels<>(organizationId -> Optional.of(
+                shardRouter.onOrganization(organizationId, () -> eventMetricsRepository.sumCountersByOrganization(organizationId))
+                        .orElseGet(() -> OrganizationCounters.empty(organizationId))));
+        this.pushIntervalMillis = Math.max(1, properties.getLive().getPushIntervalMillis());
+
+        Gauge.builder("analytics.live.subscribers", this, service -> service.eventChannels.subscribers() + service.organizationChannels.subscribers())
+                .description("Active GraphQL subscriptions for live metrics")
+                .register(meterRegistry);
+        this.pushes = Counter.builder("analytics.live.pushes")
+                .description("Values pushed to live metrics subscribers")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Records that the metrics of an event (and with them its organization's counters) changed.
+     * Inside a transaction the change becomes visible to subscribers only after commit.
+     */
+    public void eventChanged(UUID eventId, UUID organizationId) {
+        if (!eventChannels.isWatched(eventId) && !organizationChannels.isWatched(organizationId)) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    markDirty(eventId, organizationId);
+                }
+            });
+        } else {
+            markDirty(eventId, organizationId);
+        }
+    }
+
+    /**
+     * Live {@link EventMetrics} of one event. Completes when the event is deleted.
+     */
+    public Flux<EventMetrics> eventMetrics(UUID eventId) {
+        return eventChannels.subscribe(eventId);
+    }
+
+    public Flux<OrganizationCounters> organizationCounters(UUID organizationId) {
+        return organizationChannels.subscribe(organizationId);
+    }
+
+    /**
+     * Reloads every dirty key that has subscribers and pushes the new value.
+     */
+    void push() {
+        eventChannels.push();
+        organizationChannels.push();
+    }
+
+    private void markDirty(UUID eventId, UUID organizationId) {
+        eventChannels.markDirty(eventId);
+        if (organizationId != null) {
+            organizationChannels.markDirty(organizationId);
+        }
+    }
+
+    @Override
+    public void start() {
+        pusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "live-metrics-push");
+            thread.setDaemon(true);
+            return thread;
+        });
+        pusher.scheduleWithFixedDelay(this::push, pushIntervalMillis, pushIntervalMillis, TimeUnit.MILLISECONDS);
+        running = true;
+        log.info("Live metrics push started, interval {} ms", pushIntervalMillis);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        pusher.shutdownNow();
+        eventChannels.completeAll();
+        organizationChannels.completeAll();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Subscriber channels for one kind of key. A channel exists while it has at least one subscriber.
+     */
+    private class Channels<K, V> {
+
+        private final Map<K, Channel<V>> channels = new ConcurrentHashMap<>();
+        private final Set<K> dirty = ConcurrentHashMap.newKeySet();
+        private final Function<K, Optional<V>> loader;
+
+        Channels(Function<K, Optional<V>> loader) {
+            this.loader = loader;
+        }
+
+        boolean isWatched(K key) {
+            return key != null && channels.containsKey(key);
+        }
+
+        void markDirty(K key) {
+            if (channels.containsKey(key)) {
+                dirty.add(key);
+            }
+        }
+
+        int subscribers() {
+            int subscribers = 0;
+            for (Channel<V> channel : channels.values()) {
+                subscribers += channel.subscribers;
+            }
+            return subscribers;
+        }
+
+        Flux<V> subscribe(K key) {
+            return Flux.defer(() -> {
+                Channel<V> channel = channels.compute(key, (k, current) -> {
+                    if (current == null) {
+                        // First subscriber, load the current value on the next push
+                        current = new Channel<>();
+                        dirty.add(k);
+                    }
+                    current.subscribers++;
+                    return current;
+                });
+                return channel.sink.asFlux()
+                        .onBackpressureLatest()
+                        .doFinally(signal -> release(key, channel));
+            });
+        }
+
+        void push() {
+            for (Iterator<K> keys = dirty.iterator(); keys.hasNext(); ) {
+                K key = keys.next();
+                keys.remove();
+                Channel<V> channel = channels.get(key);
+                if (channel == null) {
+                    continue;
+                }
+                Optional<V> value;
+                try {
+                    value = loader.apply(key);
+                } catch (RuntimeException e) {
+                    // Try again on the next push
+                    dirty.add(key);
+                    log.warn("Failed to load live metrics for {}: {}", key, e.getMessage());
+                    continue;
+                }
+                if (value.isPresent()) {
+                    channel.sink.emitNext(value.get(), RETRY_ON_CONTENTION);
+                    pushes.increment(channel.subscribers);
+                } else {
+                    channels.remove(key, channel);
+                    channel.sink.emitComplete(RETRY_ON_CONTENTION);
+                }
+            }
+        }
+
+        void completeAll() {
+            channels.values().forEach(channel -> channel.sink.emitComplete(RETRY_ON_CONTENTION));
+            channels.clear();
+            dirty.clear();
+        }
+
+        private void release(K key, Channel<V> channel) {
+            channels.computeIfPresent(key, (k, current) -> {
+                if (current != channel || --current.subscribers > 0) {
+                    return current;
+                }
+                return null;
+            });
+        }
+    }
+
+    private static class Channel<V> {
+
+        // Replays the last pushed value to late subscribers
+        private final Sinks.Many<V> sink = Sinks.many().replay().latest();
+
+        // Guarded by the channels map entry
+        private int subscribers;
+    }
+}
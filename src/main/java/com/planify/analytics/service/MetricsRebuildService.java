@@ -0,0 +1,168 @@
+package com.planify.analytics.service;
+
+import com.planify.analytics.config.AnalyticsProperties;
+import com.planify.analytics.repository.EventMetricsRebuildRepository;
+import com.planify.analytics.sharding.ShardRouter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.math.BigInteger;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Admin-triggered rebuild of event_metrics counters from user_activity.
+ * Counters are recomputed into a shadow table in parallel over eventId ranges and
+ * swapped in atomically, so the live table keeps serving reads during the job.
+ * With sharding enabled the shards are rebuilt one after another.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MetricsRebuildService {
+
+    private final EventMetricsRebuildRepository rebuildRepository;
+    private final AnalyticsProperties properties;
+    private final QueryResultCache queryResultCache;
+    private final ShardRouter shardRouter;
+    private final MetricsTopicPublisher metricsTopicPublisher;
+    private final OrganizationSummaryService organizationSummaryService;
+    private final AudienceService audienceService;
+
+    private final AtomicReference<RebuildState> state = new AtomicReference<>(RebuildState.IDLE);
+    private final AtomicInteger partitionsTotal = new AtomicInteger();
+    private final AtomicInteger partitionsCompleted = new AtomicInteger();
+    private final AtomicLong rowsRebuilt = new AtomicLong();
+    private volatile LocalDateTime startedAt;
+    private volatile LocalDateTime finishedAt;
+    private volatile String lastError;
+
+    /**
+     * Starts a rebuild in the background.
+     *
+     * @return false if a rebuild is already running
+     */
+    public boolean startRebuild() {
+        RebuildState current = state.get();
+        if (current == RebuildState.RUNNING || !state.compareAndSet(current, RebuildState.RUNNING)) {
+            return false;
+        }
+
+        int partitions = Math.max(1, properties.getRebuild().getPartitions());
+        partitionsTotal.set(partitions * shardRouter.shards().size());
+        partitionsCompleted.set(0);
+        rowsRebuilt.set(0);
+        startedAt = LocalDateTime.now();
+        finishedAt = null;
+        lastError = null;
+
+        CompletableFuture.runAsync(() -> runRebuild(partitions));
+        return true;
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("state", state.get().name());
+        status.put("partitionsTotal", partitionsTotal.get());
+        status.put("partitionsCompleted", partitionsCompleted.get());
+        status.put("rowsRebuilt", rowsRebuilt.get());
+        status.put("startedAt", startedAt);
+        status.put("finishedAt", finishedAt);
+        status.put("error", lastError);
+        return status;
+    }
+
+    void runRebuild(int partitions) {
+        LocalDateTime jobStart = startedAt;
+        ExecutorService executor = Executors.newFixedThreadPool(partitions);
+        // Shard whose shadow table exists, dropped if the rebuild fails
+        String current = null;
+        try {
+            for (String shard : shardRouter.shards()) {
+                current = shard;
+                rebuildShard(shard, partitions, jobStart, executor);
+                current = null;
+            }
+            finishedAt = LocalDateTime.now();
+            state.set(RebuildState.COMPLETED);
+            log.info("Metrics rebuild completed: {} events recomputed", rowsRebuilt.get());
+        } catch (Exception e) {
+            lastError = e.getMessage();
+            finishedAt = LocalDateTime.now();
+            state.set(RebuildState.FAILED);
+            log.error("Metrics rebuild failed: {}", e.getMessage(), e);
+            try {
+                if (current != null) {
+                    shardRouter.runOnShard(current, rebuildRepository::dropShadow);
+                }
+            } catch (Exception dropError) {
+                log.warn("Failed to drop event_metrics_shadow after failed rebuild: {}", dropError.getMessage());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private void rebuildShard(String shard, int partitions, LocalDateTime jobStart, ExecutorService executor) {
+        int copied = shardRouter.onShard(shard, rebuildRepository::createShadow);
+        long activityMark = shardRouter.onShard(shard, rebuildRepository::activityHighWaterMark);
+        log.info("Metrics rebuild of shard {} started: {} events copied to shadow table, {} partitions", shard, copied, partitions);
+
+        List<CompletableFuture<Void>> tasks = new ArrayList<>();
+        for (UUID[] range : eventIdRanges(partitions)) {
+            tasks.add(CompletableFuture.runAsync(() -> {
+                int updated = shardRouter.onShard(shard, () -> rebuildRepository.rebuildRange(range[0], range[1]));
+                rowsRebuilt.addAndGet(updated);
+                partitionsCompleted.incrementAndGet();
+                log.debug("Metrics rebuild partition [{}, {}) done: {} events", range[0], range[1], updated);
+            }, executor));
+        }
+        CompletableFuture.allOf(tasks.toArray(new CompletableFuture[0])).join();
+
+        shardRouter.runOnShard(shard, () -> rebuildRepository.swapShadow(jobStart.minusSeconds(properties.getRebuild().getCatchUpMarginSeconds()), activityMark));
+        queryResultCache.invalidateAll();
+        shardRouter.runOnShard(shard, metricsTopicPublisher::allEventsChanged);
+        // Counters changed wholesale, so organization summaries are recomputed rather than left to the next reconciliation
+        shardRouter.runOnShard(shard, organizationSummaryService::reconcileAll);
+        // Also indexes activity recorded before audience sets existed
+        shardRouter.runOnShard(shard, audienceService::rebuildAll);
+    }
+
+    /**
+     * Splits the UUID space into equally sized [lower, upper) ranges on the most significant bits.
+     * Event ids are random (v4) UUIDs, so equal ranges hold roughly equal numbers of events, and
+     * each range is served by an index range scan on user_activity.event_id.
+     * PostgreSQL compares UUIDs as unsigned bytes, hence the unsigned arithmetic.
+     */
+    static List<UUID[]> eventIdRanges(int partitions) {
+        List<UUID[]> ranges = new ArrayList<>(partitions);
+        BigInteger space = BigInteger.ONE.shiftLeft(64);
+        UUID lower = null;
+        for (int i = 1; i <= partitions; i++) {
+            UUID upper = i == partitions
+                    ? null
+                    : new UUID(space.multiply(BigInteger.valueOf(i)).divide(BigInteger.valueOf(partitions)).longValue(), 0L);
+            ranges.add(new UUID[]{lower, upper});
+            lower = upper;
+        }
+        return ranges;
+    }
+
+    public enum RebuildState {
+        IDLE,
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+}
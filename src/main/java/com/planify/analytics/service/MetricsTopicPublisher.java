@@ -0,0 +1,238 @@
+package com.planify.analytics.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.planify.analytics.config.AnalyticsProperties;
+import com.planify.analytics.event.KafkaTopics;
+import com.planify.analytics.model.EventMetrics;
+import com.planify.analytics.repository.EventMetricsRepository;
+import com.planify.analytics.repository.MetricsOutboxRepository;
+import com.planify.analytics.sharding.ShardRouter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Publishes the latest {@link EventMetrics} of every changed event to the compacted
+ * {@value KafkaTopics#EVENT_METRICS} topic, so other services can keep a local copy instead of
+ * polling the REST API.
+ * <p>
+ * Writers report changed events through {@link #eventChanged(UUID)}. The events changed by one
+ * transaction are written to event_metrics_outbox just before it commits, so a change is
+ * published if and only if it is committed. Every publish interval a single thread locks a batch
+ * of outbox rows, reads the current snapshot of their events, sends them keyed by eventId and
+ * deletes the rows in the same transaction. An event changed many times between two publishes is
+ * sent once; a deleted event is sent as a tombstone. If a send fails the transaction rolls back
+ * and the rows are published again on the next run, so delivery is at least once.
+ */
+@Service
+@Slf4j
+public class MetricsTopicPublisher implements SmartLifecycle {
+
+    private final MetricsOutboxRepository outboxRepository;
+    private final EventMetricsRepository eventMetricsRepository;
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ShardRouter shardRouter;
+    private final boolean enabled;
+    private final long publishIntervalMillis;
+    private final int batchSize;
+    private final long sendTimeoutMillis;
+    private final Counter published;
+    private final Counter coalesced;
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    private ScheduledExecutorService publisher;
+    private volatile boolean running;
+
+    public MetricsTopicPublisher(MetricsOutboxRepository outboxRepository,
+                                 EventMetricsRepository eventMetricsRepository,
+                                 KafkaTemplate<String, String> kafkaTemplate,
+                                 PlatformTransactionManager transactionManager,
+                                 ShardRouter shardRouter,
+                                 AnalyticsProperties properties,
+                                 MeterRegistry meterRegistry) {
+        this.outboxRepository = outboxRepository;
+        this.eventMetricsRepository = eventMetricsRepository;
+        this.kafkaTemplate = kafkaTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.shardRouter = shardRouter;
+        AnalyticsProperties.MetricsTopic config = properties.getMetricsTopic();
+        this.enabled = config.isEnabled();
+        this.publishIntervalMillis = Math.max(1, config.getPublishIntervalMillis());
+        this.batchSize = Math.max(1, config.getBatchSize());
+        this.sendTimeoutMillis = config.getSendTimeoutMillis();
+
+        this.published = Counter.builder("analytics.metrics-topic.published")
+                .description("Event metrics snapshots and tombstones published")
+                .register(meterRegistry);
+        this.coalesced = Counter.builder("analytics.metrics-topic.changes")
+                .description("Event metrics changes covered by the published snapshots")
+                .register(meterRegistry);
+    }
+
+    public void eventChanged(UUID eventId) {
+        eventsChanged(List.of(eventId));
+    }
+
+    /**
+     * Queues the given events for publishing. Inside a transaction the events are collected and
+     * written to the outbox once, just before commit.
+     */
+    @SuppressWarnings("unchecked")
+    public void eventsChanged(Collection<UUID> eventIds) {
+        if (!enabled || eventIds.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            outboxRepository.enqueue(eventIds);
+            return;
+        }
+        Set<UUID> changed = (Set<UUID>) TransactionSynchronizationManager.getResource(this);
+        if (changed == null) {
+            Set<UUID> pending = new HashSet<>();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    outboxRepository.enqueue(pending);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(MetricsTopicPublisher.this);
+                }
+            });
+            changed = pending;
+        }
+        changed.addAll(eventIds);
+    }
+
+    /**
+     * Queues every event of the current shard, after its counters were rewritten in bulk.
+     */
+    public void allEventsChanged() {
+        if (enabled) {
+            int queued = outboxRepository.enqueueAll();
+            log.info("Queued {} event metrics snapshots for publishing", queued);
+        }
+    }
+
+    /**
+     * Drains the outbox of every shard, one batch per transaction.
+     */
+    void publish() {
+        for (String shard : shardRouter.shards()) {
+            try {
+                int sent;
+                do {
+                    sent = shardRouter.onShard(shard, () -> transactionTemplate.execute(status -> publishBatch()));
+                } while (sent >= batchSize);
+            } catch (RuntimeException e) {
+                log.warn("Failed to publish event metrics of shard {}, retrying next run: {}", shard, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Sends the snapshots of one batch of outbox rows and deletes the rows once every send is
+     * acknowledged. Runs inside a transaction that keeps the rows locked until then.
+     */
+    int publishBatch() {
+        List<MetricsOutboxRepository.Pending> pending = outboxRepository.lockPending(batchSize);
+        if (pending.isEmpty()) {
+            return 0;
+        }
+        List<UUID> eventIds = pending.stream().map(MetricsOutboxRepository.Pending::eventId).toList();
+        Map<UUID, EventMetrics> snapshots = eventMetricsRepository.findByEventIdIn(eventIds).stream()
+                .collect(Collectors.toMap(EventMetrics::getEventId, Function.identity()));
+
+        List<CompletableFuture<?>> sends = new ArrayList<>(eventIds.size());
+        for (UUID eventId : eventIds) {
+            EventMetrics snapshot = snapshots.get(eventId);
+            sends.add(kafkaTemplate.send(KafkaTopics.EVENT_METRICS, eventId.toString(), snapshot != null ? write(snapshot) : null));
+        }
+        kafkaTemplate.flush();
+        await(sends);
+
+        outboxRepository.delete(eventIds);
+        published.increment(eventIds.size());
+        coalesced.increment(pending.stream().mapToLong(MetricsOutboxRepository.Pending::changes).sum());
+        log.debug("Published {} event metrics snapshots", eventIds.size());
+        return eventIds.size();
+    }
+
+    private void await(List<CompletableFuture<?>> sends) {
+        try {
+            CompletableFuture.allOf(sends.toArray(new CompletableFuture[0])).get(sendTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while publishing event metrics", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to publish event metrics: " + e.getCause().getMessage(), e.getCause());
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Timed out publishing event metrics after " + sendTimeoutMillis + " ms", e);
+        }
+    }
+
+    private String write(EventMetrics snapshot) {
+        try {
+            return objectMapper.writeValueAsString(snapshot);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to encode event metrics of event " + snapshot.getEventId(), e);
+        }
+    }
+
+    @Override
+    public void start() {
+        if (enabled) {
+            publisher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "metrics-topic-publish");
+                thread.setDaemon(true);
+                return thread;
+            });
+            publisher.scheduleWithFixedDelay(this::publish, publishIntervalMillis, publishIntervalMillis, TimeUnit.MILLISECONDS);
+            log.info("Event metrics publishing to {} started, interval {} ms", KafkaTopics.EVENT_METRICS, publishIntervalMillis);
+        }
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (publisher != null) {
+            publisher.shutdown();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+}
@@ -0,0 +1,245 @@
+package com.planify.analytics.service;
+
+import com.planify.analytics.config.AnalyticsProperties;
+import com.planify.analytics.model.EventMetrics;
+import com.planify.analytics.model.OrganizationSummary;
+import com.planify.analytics.model.UserActivity;
+import com.planify.analytics.repository.OrganizationSummaryRepository;
+import com.planify.analytics.repository.OrganizationSummaryRepository.Delta;
+import com.planify.analytics.sharding.ShardRouter;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Keeps organization_summary in step with event_metrics, so an organization's overview is one
+ * row read instead of loading and summing all of its events.
+ * <p>
+ * The {@link AnalyticsService} handlers report created and deleted events, status changes and
+ * counted activity; changes of a transaction are collected per organization and written as one
+ * delta upsert each just before it commits. Replays and metrics rebuilds recompute the affected
+ * summaries instead. A background run recomputes every summary from event_metrics once per
+ * {@code reconcile-interval-minutes} and corrects the ones that drifted.
+ */
+@Service
+@Slf4j
+public class OrganizationSummaryService implements SmartLifecycle {
+
+    private static final String DATABASE_CIRCUIT_BREAKER = "analyticsDatabase";
+
+    private final OrganizationSummaryRepository summaryRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ShardRouter shardRouter;
+    private final CircuitBreaker databaseCircuitBreaker;
+    private final boolean reconcileEnabled;
+    private final long reconcileIntervalMinutes;
+    private final int reconcileChunkSize;
+    private final Counter corrected;
+    private ScheduledExecutorService reconciler;
+    private volatile boolean running;
+
+    public OrganizationSummaryService(OrganizationSummaryRepository summaryRepository,
+                                      PlatformTransactionManager transactionManager,
+                                      ShardRouter shardRouter,
+                                      CircuitBreakerRegistry circuitBreakerRegistry,
+                                      AnalyticsProperties properties,
+                                      MeterRegistry meterRegistry) {
+        this.summaryRepository = summaryRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.shardRouter = shardRouter;
+        this.databaseCircuitBreaker = circuitBreakerRegistry.circuitBreaker(DATABASE_CIRCUIT_BREAKER);
+        AnalyticsProperties.OrganizationSummary config = properties.getOrganizationSummary();
+        this.reconcileEnabled = config.isReconcileEnabled();
+        this.reconcileIntervalMinutes = Math.max(1, config.getReconcileIntervalMinutes());
+        this.reconcileChunkSize = Math.max(1, config.getReconcileChunkSize());
+        this.corrected = Counter.builder("analytics.organization-summary.corrected")
+                .description("Organization summaries that differed from event_metrics and were recomputed")
+                .register(meterRegistry);
+    }
+
+    public void eventCreated(UUID organizationId, String status) {
+        change(organizationId, delta -> {
+            delta.addEvents(1);
+            delta.addStatus(status, 1);
+        });
+    }
+
+    public void statusChanged(UUID organizationId, String previousStatus, String status) {
+        if (Objects.equals(previousStatus, status)) {
+            return;
+        }
+        change(organizationId, delta -> {
+            delta.addStatus(previousStatus, -1);
+            delta.addStatus(status, 1);
+        });
+    }
+
+    /**
+     * Subtracts the event and its counters, as they were when it was deleted.
+     */
+    public void eventDeleted(EventMetrics metrics) {
+        change(metrics.getOrganizationId(), delta -> {
+            delta.addEvents(-1);
+            delta.addStatus(metrics.getEventStatus(), -1);
+            delta.add(UserActivity.ActivityType.INVITATION_SENT, -count(metrics.getTotalInvites()));
+            delta.add(UserActivity.ActivityType.RSVP_ACCEPTED, -count(metrics.getRsvpAccepted()));
+            delta.add(UserActivity.ActivityType.RSVP_DECLINED, -count(metrics.getRsvpDeclined()));
+            delta.add(UserActivity.ActivityType.RSVP_MAYBE, -count(metrics.getRsvpMaybe()));
+            delta.add(UserActivity.ActivityType.CHECKED_IN, -count(metrics.getCheckedIn()));
+        });
+    }
+
+    /**
+     * Counts activity that incremented a counter of one of the organization's events.
+     */
+    public void activityCounted(UUID organizationId, UserActivity.ActivityType activityType) {
+        change(organizationId, delta -> delta.add(activityType, 1));
+    }
+
+    public OrganizationSummary getSummary(UUID organizationId) {
+        return shardRouter.onOrganization(organizationId, () -> summaryRepository.findByOrganizationId(organizationId))
+                .orElseGet(() -> OrganizationSummary.empty(organizationId));
+    }
+
+    /**
+     * Recomputes the summaries of the given organizations in the current transaction, for
+     * writers that change event_metrics without reporting each change.
+     */
+    public void reconcile(Collection<UUID> organizationIds) {
+        int count = summaryRepository.reconcile(organizationIds);
+        corrected.increment(count);
+    }
+
+    /**
+     * Recomputes all summaries of the current shard, a chunk of organizations per transaction.
+     */
+    public void reconcileAll() {
+        UUID after = null;
+        int total = 0;
+        List<UUID> chunk;
+        do {
+            chunk = summaryRepository.findOrganizationIds(after, reconcileChunkSize);
+            if (chunk.isEmpty()) {
+                break;
+            }
+            List<UUID> organizationIds = chunk;
+            total += transactionTemplate.execute(status -> summaryRepository.reconcile(organizationIds));
+            after = chunk.get(chunk.size() - 1);
+        } while (chunk.size() == reconcileChunkSize && running);
+        corrected.increment(total);
+        if (total > 0) {
+            log.warn("Corrected {} organization summaries that drifted from event_metrics", total);
+        }
+    }
+
+    /**
+     * One run of the reconciler over all shards.
+     */
+    void reconcileShards() {
+        CircuitBreaker.State breakerState = databaseCircuitBreaker.getState();
+        if (breakerState != CircuitBreaker.State.CLOSED) {
+            log.debug("Skipping organization summary reconciliation, database circuit breaker is {}", breakerState);
+            return;
+        }
+        for (String shard : shardRouter.shards()) {
+            try {
+                shardRouter.runOnShard(shard, this::reconcileAll);
+            } catch (RuntimeException e) {
+                log.warn("Failed to reconcile organization summaries of shard {}, retrying next run: {}", shard, e.getMessage());
+            }
+        }
+    }
+
+    private void change(UUID organizationId, Consumer<Delta> change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            Delta delta = new Delta(organizationId);
+            change.accept(delta);
+            summaryRepository.add(List.of(delta));
+            return;
+        }
+        Pending pending = (Pending) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            Pending created = new Pending();
+            TransactionSynchronizationManager.bindResource(this, created);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    created.write();
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(OrganizationSummaryService.this);
+                }
+            });
+            pending = created;
+        }
+        change.accept(pending.deltas.computeIfAbsent(organizationId, Delta::new));
+    }
+
+    private static long count(Integer value) {
+        return value != null ? value : 0;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        if (reconcileEnabled) {
+            reconciler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "organization-summary-reconciler");
+                thread.setDaemon(true);
+                return thread;
+            });
+            reconciler.scheduleWithFixedDelay(this::reconcileShards, reconcileIntervalMinutes, reconcileIntervalMinutes, TimeUnit.MINUTES);
+            log.info("Organization summary reconciliation every {} minutes", reconcileIntervalMinutes);
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (reconciler != null) {
+            reconciler.shutdown();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Summary changes collected by one transaction.
+     */
+    private final class Pending {
+
+        private final Map<UUID, Delta> deltas = new HashMap<>();
+
+        void write() {
+            if (deltas.isEmpty()) {
+                return;
+            }
+            summaryRepository.add(List.copyOf(deltas.values()));
+            log.debug("Updated summaries of {} organizations", deltas.size());
+        }
+    }
+}
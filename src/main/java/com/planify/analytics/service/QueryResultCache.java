@@ -0,0 +1,225 @@
+package com.planify.analytics.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.planify.analytics.config.AnalyticsProperties;
+import graphql.ExecutionResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Results of GraphQL queries keyed on document hash, operation name and variables.
+ * <p>
+ * Each entry is tagged with what it was read for: {@code eventId:<id>},
+ * {@code organizationId:<id>} or {@code userId:<id>} for root fields that take such an
+ * argument, and {@link #GLOBAL} for root fields that read across everything, such as
+ * {@code activeEventsCount}. The Kafka write path reports every changed event, organization and
+ * user through {@link #invalidate(UUID, UUID, UUID)}; after the transaction commits the matching
+ * entries and all global entries are dropped.
+ * <p>
+ * An entry is registered before its query executes and only filled if nothing invalidated it
+ * in the meantime, so a result read before a commit is never stored after it. Entries also
+ * expire after the configured TTL.
+ */
+@Service
+public class QueryResultCache {
+
+    public static final String GLOBAL = "*";
+    private static final String ALL = "";
+
+    private final boolean enabled;
+    private final Cache<Key, Entry> results;
+    // Entries by tag; guarded by itself, together with registering entries in results
+    private final Map<String, Set<Entry>> entriesByTag = new HashMap<>();
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter invalidated;
+
+    public QueryResultCache(AnalyticsProperties properties, MeterRegistry meterRegistry) {
+        AnalyticsProperties.ResultCache config = properties.getGraphql().getResultCache();
+        this.enabled = config.isEnabled();
+        this.results = Caffeine.newBuilder()
+                .maximumSize(config.getMaxEntries())
+                .expireAfterWrite(Duration.ofSeconds(config.getTtlSeconds()))
+                .executor(Runnable::run)
+                .removalListener((Key key, Entry entry, RemovalCause cause) -> unindex(entry))
+                .build();
+
+        Gauge.builder("analytics.graphql.results.size", results, Cache::estimatedSize)
+                .description("GraphQL query results held in the result cache")
+                .register(meterRegistry);
+        this.hits = Counter.builder("analytics.graphql.results")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("analytics.graphql.results")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        this.invalidated = Counter.builder("analytics.graphql.results.invalidated")
+                .description("Cached GraphQL results dropped because the data they read changed")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public static String tag(String argument, Object value) {
+        return argument + ":" + value.toString().toLowerCase();
+    }
+
+    /**
+     * The cached result for a key, or null if there is none yet.
+     */
+    public ExecutionResult get(Key key) {
+        Entry entry = results.getIfPresent(key);
+        ExecutionResult result = entry != null ? entry.result : null;
+        (result != null ? hits : misses).increment();
+        return result;
+    }
+
+    /**
+     * Registers a query that is about to execute. Its result is stored by
+     * {@link #complete(Entry, ExecutionResult)} unless a matching write commits first.
+     */
+    public Entry begin(Key key, Set<String> tags) {
+        Entry entry = new Entry(key, Set.copyOf(tags));
+        synchronized (entriesByTag) {
+            for (String tag : entry.tags) {
+                entriesByTag.computeIfAbsent(tag, t -> new HashSet<>()).add(entry);
+            }
+            results.put(key, entry);
+        }
+        return entry;
+    }
+
+    public void complete(Entry entry, ExecutionResult result) {
+        if (!entry.invalidated) {
+            entry.result = result;
+        }
+    }
+
+    /**
+     * Records that data of an event, organization and/or user changed; null ids are skipped.
+     * Inside a transaction the entries are dropped once it commits.
+     */
+    public void invalidate(UUID eventId, UUID organizationId, UUID userId) {
+        if (!enabled) {
+            return;
+        }
+        List<String> tags = new ArrayList<>(4);
+        tags.add(GLOBAL);
+        if (eventId != null) {
+            tags.add(tag("eventId", eventId));
+        }
+        if (organizationId != null) {
+            tags.add(tag("organizationId", organizationId));
+        }
+        if (userId != null) {
+            tags.add(tag("userId", userId));
+        }
+        invalidateAfterCommit(tags);
+    }
+
+    /**
+     * Drops every cached result, for writes that cannot name what they changed.
+     */
+    public void invalidateAll() {
+        if (enabled) {
+            invalidateAfterCommit(List.of(ALL));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void invalidateAfterCommit(List<String> tags) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidateNow(tags);
+            return;
+        }
+        // One synchronization per transaction, collecting the tags of all its writes
+        Set<String> pending = (Set<String>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            Set<String> collected = new HashSet<>();
+            TransactionSynchronizationManager.bindResource(this, collected);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(QueryResultCache.this);
+                    if (status == STATUS_COMMITTED) {
+                        invalidateNow(collected);
+                    }
+                }
+            });
+            pending = collected;
+        }
+        pending.addAll(tags);
+    }
+
+    void invalidateNow(Iterable<String> tags) {
+        synchronized (entriesByTag) {
+            for (String tag : tags) {
+                if (ALL.equals(tag)) {
+                    invalidated.increment(results.estimatedSize());
+                    results.asMap().values().forEach(entry -> entry.invalidated = true);
+                    results.invalidateAll();
+                    entriesByTag.clear();
+                    return;
+                }
+                Set<Entry> entries = entriesByTag.remove(tag);
+                if (entries == null) {
+                    continue;
+                }
+                for (Entry entry : entries) {
+                    entry.invalidated = true;
+                    if (results.asMap().remove(entry.key, entry)) {
+                        invalidated.increment();
+                    }
+                }
+            }
+        }
+    }
+
+    private void unindex(Entry entry) {
+        if (entry == null) {
+            return;
+        }
+        synchronized (entriesByTag) {
+            entry.invalidated = true;
+            for (String tag : entry.tags) {
+                Set<Entry> entries = entriesByTag.get(tag);
+                if (entries != null && entries.remove(entry) && entries.isEmpty()) {
+                    entriesByTag.remove(tag);
+                }
+            }
+        }
+    }
+
+    public record Key(String documentId, String operationName, Map<String, Object> variables) {
+    }
+
+    public static final class Entry {
+
+        private final Key key;
+        private final Set<String> tags;
+        private volatile ExecutionResult result;
+        private volatile boolean invalidated;
+
+        private Entry(Key key, Set<String> tags) {
+            this.key = key;
+            this.tags = tags;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.planify.analytics.service;
+
+import com.planify.analytics.event.AnalyticsEvent;
+import com.planify.analytics.model.EventFunnel;
+import com.planify.analytics.repository.EventMetricsRebuildRepository;
+import com.planify.analytics.repository.ReplayRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Applies one poll worth of replayed records in a single transaction.
+ * <p>
+ * Activity rows are inserted idempotently on their Kafka source coordinates, and counters
+ * of the affected events are recounted from user_activity instead of incremented, so
+ * replaying a record that the live listeners already ingested has no effect. Live handlers
+ * running alongside increment the recounted rows in SQL after the recount's row locks, so
+ * their increments are not lost either.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ReplayBatchWriter {
+
+    private final ReplayRepository replayRepository;
+    private final EventMetricsRebuildRepository rebuildRepository;
+    private final FunnelService funnelService;
+    private final QueryResultCache queryResultCache;
+    private final VelocityService velocityService;
+    private final MetricsTopicPublisher metricsTopicPublisher;
+    private final EventCleanupService eventCleanupService;
+    private final UserSummaryService userSummaryService;
+    private final OrganizationSummaryService organizationSummaryService;
+    private final AudienceService audienceService;
+
+    /**
+     * @param deletedEventIds events deleted anywhere in the replay so far; updated with the
+     *                        deletes found in this batch and used to drop late creates/activity
+     * @return number of activity rows that were missing and have been inserted
+     */
+    @Transactional
+    public int applyBatch(List<AnalyticsEvent> events, Set<UUID> deletedEventIds) {
+        List<AnalyticsEvent> created = new ArrayList<>();
+        List<AnalyticsEvent> activities = new ArrayList<>();
+        Set<UUID> published = new LinkedHashSet<>();
+        Set<UUID> deleted = new LinkedHashSet<>();
+
+        for (AnalyticsEvent event : events) {
+            switch (event.getType()) {
+                case EVENT_CREATED -> created.add(event);
+                case EVENT_PUBLISHED -> published.add(event.getEventId());
+                case EVENT_DELETED -> deleted.add(event.getEventId());
+                case GUEST_INVITED, RSVP_ACCEPTED, RSVP_DECLINED, GUEST_CHECKED_IN -> activities.add(event);
+                default -> {
+                    // event-updated is not replayed: an old edit would overwrite newer values,
+                    // and recounting cannot tell which edit is the latest
+                }
+            }
+        }
+        deletedEventIds.addAll(deleted);
+        created.removeIf(event -> deletedEventIds.contains(event.getEventId()));
+        activities.removeIf(event -> deletedEventIds.contains(event.getEventId()));
+        published.removeAll(deletedEventIds);
+
+        if (!created.isEmpty()) {
+            replayRepository.insertEvents(created);
+        }
+        replayRepository.markPublished(published);
+        // Summaries of these organizations are recomputed once the batch is written
+        Set<UUID> changedOrganizationIds = new HashSet<>();
+        created.forEach(event -> changedOrganizationIds.add(event.getOrganizationId()));
+        if (!published.isEmpty()) {
+            changedOrganizationIds.addAll(replayRepository.findOrganizationIds(published).values());
+        }
+        if (!deleted.isEmpty()) {
+            Map<UUID, UUID> deletedOrganizationIds = replayRepository.findOrganizationIds(deleted);
+            deleted.forEach(eventId -> eventCleanupService.eventDeleted(eventId, deletedOrganizationIds.get(eventId)));
+            changedOrganizationIds.addAll(deletedOrganizationIds.values());
+        }
+        replayRepository.deleteEvents(deleted);
+        if (!created.isEmpty() || !published.isEmpty() || !deleted.isEmpty()) {
+            queryResultCache.invalidateAll();
+        }
+        Set<UUID> changed = new LinkedHashSet<>(published);
+        created.forEach(event -> changed.add(event.getEventId()));
+        changed.addAll(deleted);
+        metricsTopicPublisher.eventsChanged(changed);
+
+        List<AnalyticsEvent> inserted = activities.isEmpty() ? List.of() : replayRepository.insertActivities(activities);
+        if (inserted.isEmpty()) {
+            organizationSummaryService.reconcile(changedOrganizationIds);
+            return 0;
+        }
+
+        queryResultCache.invalidateAll();
+        Set<UUID> touched = new LinkedHashSet<>();
+        inserted.forEach(event -> touched.add(event.getEventId()));
+        rebuildRepository.rebuildEvents(touched);
+        metricsTopicPublisher.eventsChanged(touched);
+
+        Map<UUID, UUID> organizationIds = replayRepository.findOrganizationIds(touched);
+        changedOrganizationIds.addAll(organizationIds.values());
+        organizationSummaryService.reconcile(changedOrganizationIds);
+        for (AnalyticsEvent event : inserted) {
+            velocityService.record(event.getEventId(), event.getType().getActivityType(), event.getTimestamp());
+            userSummaryService.activityRecorded(event.getUserId(), event.getEventId(), event.getType().getActivityType(), event.getTimestamp());
+            audienceService.activityRecorded(event.getUserId(), event.getEventId(), event.getType().getActivityType());
+            UUID organizationId = organizationIds.get(event.getEventId());
+            if (organizationId != null) {
+                applyFunnel(event, organizationId);
+            }
+        }
+
+        log.debug("Replay batch: {} records, {} missing activities inserted for {} events",
+                events.size(), inserted.size(), touched.size());
+        return inserted.size();
+    }
+
+    private void applyFunnel(AnalyticsEvent event, UUID organizationId) {
+        switch (event.getType()) {
+            case GUEST_INVITED -> funnelService.recordInvited(event.getEventId(), organizationId, event.getUserId(), event.getTimestamp());
+            case RSVP_ACCEPTED -> funnelService.recordRsvp(event.getEventId(), organizationId, event.getUserId(),
+                    EventFunnel.Stage.RSVP_ACCEPTED, event.getTimestamp());
+            case RSVP_DECLINED -> funnelService.recordRsvp(event.getEventId(), organizationId, event.getUserId(),
+                    EventFunnel.Stage.RSVP_DECLINED, event.getTimestamp());
+            case GUEST_CHECKED_IN -> funnelService.recordCheckedIn(event.getEventId(), organizationId, event.getUserId(), event.getTimestamp());
+            default -> {
+            }
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.planify.analytics.service;
+
+import com.planify.analytics.model.UserActivity;
+import com.planify.analytics.model.UserActivitySummary;
+import com.planify.analytics.repository.ActivityArchiveRepository;
+import com.planify.analytics.repository.UserActivitySummaryRepository;
+import com.planify.analytics.repository.UserActivitySummaryRepository.Delta;
+import com.planify.analytics.repository.UserActivitySummaryRepository.UserEvent;
+import com.planify.analytics.sharding.ShardRouter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Keeps user_activity_summary in step with user_activity, so a user's totals are one row read
+ * instead of their whole history.
+ * <p>
+ * Activity recorded in a transaction is collected per user and written once just before it
+ * commits: first the user's new (user, event) pairs, whose count is the increase of distinct
+ * events, then one delta upsert per user. A batch of 500 records for 50 users costs two
+ * batched statements instead of 500 row updates. Activity removed by the cleanup of deleted
+ * events is subtracted again.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class UserSummaryService {
+
+    private final UserActivitySummaryRepository summaryRepository;
+    private final ActivityArchiveRepository archiveRepository;
+    private final ShardRouter shardRouter;
+
+    public void activityRecorded(UUID userId, UUID eventId, UserActivity.ActivityType activityType, LocalDateTime at) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            Pending pending = new Pending();
+            pending.add(userId, eventId, activityType, at);
+            pending.write();
+            return;
+        }
+        Pending pending = (Pending) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            Pending created = new Pending();
+            TransactionSynchronizationManager.bindResource(this, created);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    created.write();
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(UserSummaryService.this);
+                }
+            });
+            pending = created;
+        }
+        pending.add(userId, eventId, activityType, at);
+    }
+
+    /**
+     * Deletes up to {@code limit} activity rows of a deleted event and subtracts them from the
+     * users' summaries in the same transaction. Once user_activity has no rows of the event
+     * left, archived segments are deleted whole, so the last chunk can exceed the limit by up
+     * to one segment.
+     *
+     * @return number of rows deleted
+     */
+    public int deleteEventActivityChunk(UUID eventId, int limit) {
+        Collection<Delta> deleted = summaryRepository.deleteActivityChunk(eventId, limit);
+        summaryRepository.subtract(eventId, deleted);
+        int removed = (int) deleted.stream().mapToLong(Delta::getTotal).sum();
+        while (removed < limit) {
+            List<UserActivity> segment = archiveRepository.deleteSegment(eventId);
+            if (segment.isEmpty()) {
+                break;
+            }
+            Map<UUID, Delta> archived = new HashMap<>();
+            segment.forEach(activity -> archived.computeIfAbsent(activity.getUserId(), Delta::new).add(activity.getActivityType(), 1, null));
+            summaryRepository.subtract(eventId, archived.values());
+            removed += segment.size();
+        }
+        return removed;
+    }
+
+    public UserActivitySummary getSummary(UUID userId) {
+        // A user can be active in organizations on any shard
+        if (!shardRouter.isEnabled()) {
+            return summaryRepository.findByUserId(userId).orElseGet(() -> UserActivitySummary.empty(userId));
+        }
+        UserActivitySummary total = UserActivitySummary.empty(userId);
+        shardRouter.onAllShards(() -> summaryRepository.findByUserId(userId)).forEach(shard -> shard.ifPresent(summary -> merge(total, summary)));
+        return total;
+    }
+
+    private static void merge(UserActivitySummary total, UserActivitySummary summary) {
+        total.setTotalActivities(total.getTotalActivities() + summary.getTotalActivities());
+        total.setInvitations(total.getInvitations() + summary.getInvitations());
+        total.setRsvpAccepted(total.getRsvpAccepted() + summary.getRsvpAccepted());
+        total.setRsvpDeclined(total.getRsvpDeclined() + summary.getRsvpDeclined());
+        total.setRsvpMaybe(total.getRsvpMaybe() + summary.getRsvpMaybe());
+        total.setCheckedIn(total.getCheckedIn() + summary.getCheckedIn());
+        total.setEventsViewed(total.getEventsViewed() + summary.getEventsViewed());
+        // Events live on exactly one shard, so per-shard distinct counts add up
+        total.setDistinctEvents(total.getDistinctEvents() + summary.getDistinctEvents());
+        if (total.getFirstActivityAt() == null
+                || (summary.getFirstActivityAt() != null && summary.getFirstActivityAt().isBefore(total.getFirstActivityAt()))) {
+            total.setFirstActivityAt(summary.getFirstActivityAt());
+        }
+        if (total.getLastActivityAt() == null
+                || (summary.getLastActivityAt() != null && summary.getLastActivityAt().isAfter(total.getLastActivityAt()))) {
+            total.setLastActivityAt(summary.getLastActivityAt());
+        }
+    }
+
+    /**
+     * Activity collected by one transaction.
+     */
+    private final class Pending {
+
+        private final Map<UUID, Delta> deltas = new HashMap<>();
+        private final Set<UserEvent> pairs = new HashSet<>();
+
+        void add(UUID userId, UUID eventId, UserActivity.ActivityType activityType, LocalDateTime at) {
+            deltas.computeIfAbsent(userId, Delta::new).add(activityType, 1, at);
+            pairs.add(new UserEvent(userId, eventId));
+        }
+
+        void write() {
+            if (deltas.isEmpty()) {
+                return;
+            }
+            Map<UUID, Integer> newEvents = summaryRepository.insertUserEvents(pairs);
+            newEvents.forEach((userId, count) -> deltas.get(userId).setDistinctEvents(count));
+            List<Delta> changed = List.copyOf(deltas.values());
+            summaryRepository.add(changed);
+            log.debug("Updated activity summaries of {} users", changed.size());
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package com.planify.analytics.service;
+
+import com.planify.analytics.config.AnalyticsProperties;
+import com.planify.analytics.model.EventVelocity;
+import com.planify.analytics.model.UserActivity;
+import com.planify.analytics.repository.UserActivityRepository;
+import com.planify.analytics.sharding.ShardRouter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sliding-window activity counts per event, so "check-ins in the last 5 minutes" is answered
+ * from memory instead of range-scanning user_activity.
+ * <p>
+ * Each event with recent activity holds a ring of {@code window-minutes / bucket-seconds} time
+ * buckets with one counter per activity type. The {@link AnalyticsService} handlers and replays
+ * report each recorded activity, counted once the transaction commits. Activity older than the
+ * window is ignored, and events without activity in the window are evicted, so memory is bounded
+ * by the number of recently active events. On startup, before the listener containers start, the
+ * windows are reloaded from the last {@code window-minutes} of user_activity.
+ * <p>
+ * Live records only reach the windows of the instance that consumes them, so the counts are
+ * only complete while a single instance consumes the activity topics. With several replicas
+ * each answers from its own partitions; responses name the instance that served them.
+ */
+@Service
+@Slf4j
+public class VelocityService implements SmartLifecycle {
+
+    // Loaded before the ingest pipeline and listener containers start, so no record is counted twice
+    private static final int PHASE = Integer.MAX_VALUE - 300;
+    private static final int TYPES = UserActivity.ActivityType.values().length;
+
+    private final UserActivityRepository userActivityRepository;
+    private final ShardRouter shardRouter;
+    private final Clock clock;
+    private final String instanceId;
+    private final long bucketSeconds;
+    private final int buckets;
+    private final Map<UUID, Window> windows = new ConcurrentHashMap<>();
+    private ScheduledExecutorService evictor;
+    private volatile boolean running;
+
+    @Autowired
+    public VelocityService(UserActivityRepository userActivityRepository,
+                           ShardRouter shardRouter,
+                           AnalyticsProperties properties,
+                           MeterRegistry meterRegistry) {
+        this(userActivityRepository, shardRouter, properties, meterRegistry, Clock.systemDefaultZone());
+    }
+
+    VelocityService(UserActivityRepository userActivityRepository,
+                    ShardRouter shardRouter,
+                    AnalyticsProperties properties,
+                    MeterRegistry meterRegistry,
+                    Clock clock) {
+        this.userActivityRepository = userActivityRepository;
+        this.shardRouter = shardRouter;
+        this.clock = clock;
+        AnalyticsProperties.Velocity config = properties.getVelocity();
+        this.instanceId = config.getInstanceId();
+        this.bucketSeconds = Math.max(1, config.getBucketSeconds());
+        this.buckets = (int) Math.max(1, config.getWindowMinutes() * 60L / bucketSeconds);
+
+        Gauge.builder("analytics.velocity.events", windows, Map::size)
+                .description("Events with activity inside the velocity window")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Counts one activity of an event. Inside a transaction it is counted only after commit.
+     */
+    public void record(UUID eventId, UserActivity.ActivityType activityType, LocalDateTime at) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    add(eventId, activityType, at);
+                }
+            });
+        } else {
+            add(eventId, activityType, at);
+        }
+    }
+
+    /**
+     * Drops the window of a deleted event once the transaction commits.
+     */
+    public void eventDeleted(UUID eventId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    windows.remove(eventId);
+                }
+            });
+        } else {
+            windows.remove(eventId);
+        }
+    }
+
+    /**
+     * Activity of an event over the last {@code windowMinutes}, rounded up to whole buckets and
+     * capped at the configured window. The newest bucket is still filling, so the window ends now.
+     */
+    public EventVelocity getVelocity(UUID eventId, int windowMinutes) {
+        int span = (int) Math.min(buckets, Math.max(1, (windowMinutes * 60L + bucketSeconds - 1) / bucketSeconds));
+        long now = currentBucket();
+        Window window = windows.get(eventId);
+        long[] counts = window != null ? window.sum(now - span + 1, now) : new long[TYPES];
+
+        long windowSeconds = span * bucketSeconds;
+        long accepted = counts[UserActivity.ActivityType.RSVP_ACCEPTED.ordinal()];
+        long declined = counts[UserActivity.ActivityType.RSVP_DECLINED.ordinal()];
+        long checkedIn = counts[UserActivity.ActivityType.CHECKED_IN.ordinal()];
+        return new EventVelocity(
+                eventId,
+                windowSeconds,
+                counts[UserActivity.ActivityType.INVITATION_SENT.ordinal()],
+                accepted,
+                declined,
+                checkedIn,
+                perHour(accepted + declined, windowSeconds),
+                perHour(checkedIn, windowSeconds),
+                instanceId);
+    }
+
+    /**
+     * Reloads the windows from recent user_activity. Failing to load leaves them empty, they
+     * fill up again from live records.
+     */
+    void load() {
+        LocalDateTime since = LocalDateTime.now(clock).minusSeconds(buckets * bucketSeconds);
+        try {
+            List<UserActivityRepository.RecentActivity> recent = shardRouter.onAllShards(() -> userActivityRepository.findActivitySince(since))
+                    .stream()
+                    .flatMap(List::stream)
+                    .toList();
+            recent.forEach(activity -> add(activity.getEventId(), activity.getActivityType(), activity.getActivityTimestamp()));
+            log.info("Velocity windows loaded: {} activities for {} events since {}", recent.size(), windows.size(), since);
+        } catch (RuntimeException e) {
+            log.warn("Failed to load velocity windows, starting empty: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Removes events whose newest activity has slid out of the window.
+     */
+    void evict() {
+        long oldest = currentBucket() - buckets + 1;
+        windows.keySet().forEach(eventId ->
+                windows.computeIfPresent(eventId, (id, window) -> window.newest() < oldest ? null : window));
+    }
+
+    private void add(UUID eventId, UserActivity.ActivityType activityType, LocalDateTime at) {
+        if (eventId == null || activityType == null || at == null) {
+            return;
+        }
+        long now = currentBucket();
+        // Clamp records from clocks running ahead into the current bucket
+        long bucket = Math.min(now, at.atZone(clock.getZone()).toEpochSecond() / bucketSeconds);
+        if (bucket <= now - buckets) {
+            return;
+        }
+        windows.compute(eventId, (id, window) -> {
+            if (window == null) {
+                window = new Window(buckets);
+            }
+            window.add(bucket, activityType.ordinal());
+            return window;
+        });
+    }
+
+    private long currentBucket() {
+        return clock.instant().getEpochSecond() / bucketSeconds;
+    }
+
+    private static double perHour(long count, long windowSeconds) {
+        return count * 3600.0 / windowSeconds;
+    }
+
+    @Override
+    public void start() {
+        load();
+        evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "velocity-evict");
+            thread.setDaemon(true);
+            return thread;
+        });
+        evictor.scheduleWithFixedDelay(this::evict, 1, 1, TimeUnit.MINUTES);
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        evictor.shutdownNow();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    /**
+     * Ring of time buckets of one event, each holding one counter per activity type. A slot is
+     * reset when a newer bucket reuses it.
+     */
+    private static class Window {
+
+        private final long[] bucketIds;
+        // Counter of bucket slot s and activity type t at s * TYPES + t
+        private final int[] counts;
+        private long newest = Long.MIN_VALUE;
+
+        Window(int buckets) {
+            this.bucketIds = new long[buckets];
+            this.counts = new int[buckets * TYPES];
+            Arrays.fill(bucketIds, Long.MIN_VALUE);
+        }
+
+        synchronized void add(long bucket, int type) {
+            int slot = (int) Math.floorMod(bucket, (long) bucketIds.length);
+            if (bucketIds[slot] != bucket) {
+                if (bucketIds[slot] > bucket) {
+                    // Slot already taken by a newer bucket, this one has slid out of the window
+                    return;
+                }
+                bucketIds[slot] = bucket;
+                Arrays.fill(counts, slot * TYPES, (slot + 1) * TYPES, 0);
+            }
+            counts[slot * TYPES + type]++;
+            newest = Math.max(newest, bucket);
+        }
+
+        synchronized long[] sum(long fromBucket, long toBucket) {
+            long[] sums = new long[TYPES];
+            for (int slot = 0; slot < bucketIds.length; slot++) {
+                if (bucketIds[slot] >= fromBucket && bucketIds[slot] <= toBucket) {
+                    for (int type = 0; type < TYPES; type++) {
+                        sums[type] += counts[slot * TYPES + type];
+                    }
+                }
+            }
+            return sums;
+        }
+
+        synchronized long newest() {
+            return newest;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.planify.analytics.sharding;
+
+import java.util.function.Supplier;
+
+/**
+ * Shard the current thread reads from and writes to, consulted by {@link ShardRoutingDataSource}
+ * whenever a connection is obtained. Without a shard the first configured shard is used.
+ * <p>
+ * A transaction keeps the connection it started with, so the shard has to be set before the
+ * transaction begins; {@link ShardRouter} does that around every sharded call.
+ */
+public final class ShardContext {
+
+    private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+
+    private ShardContext() {
+    }
+
+    public static String current() {
+        return CURRENT.get();
+    }
+
+    static <T> T call(String shard, Supplier<T> action) {
+        String previous = CURRENT.get();
+        CURRENT.set(shard);
+        try {
+            return action.get();
+        } finally {
+            if (previous != null) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.planify.analytics.sharding;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.planify.analytics.config.AnalyticsProperties;
+import com.planify.analytics.event.AnalyticsEvent;
+import com.planify.analytics.repository.EventMetricsRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * Routes reads and writes of event_metrics, user_activity and event_funnel to the shard that owns
+ * their organization, picked by consistent hashing on {@code organizationId}.
+ * <p>
+ * Most records only carry an {@code eventId}. The shard of an event is remembered when its
+ * event-created record is routed; events not seen since startup are looked up on each shard
+ * once and then cached. Activity of events unknown to every shard goes to the first shard,
+ * where the handlers find no metrics to update.
+ * <p>
+ * With {@code analytics.sharding.enabled=false} there is a single shard and every call runs
+ * directly on the one datasource.
+ */
+@Component
+@Slf4j
+public class ShardRouter {
+
+    public static final String DEFAULT_SHARD = "default";
+
+    private final EventMetricsRepository eventMetricsRepository;
+    private final boolean enabled;
+    private final List<String> shards;
+    private final ConsistentHashRing ring;
+    private final Cache<UUID, String> eventShards;
+    private final ExecutorService scatter;
+
+    public ShardRouter(AnalyticsProperties properties, EventMetricsRepository eventMetricsRepository) {
+        AnalyticsProperties.Sharding config = properties.getSharding();
+        this.eventMetricsRepository = eventMetricsRepository;
+        this.enabled = config.isEnabled();
+        this.shards = enabled
+                ? config.getShards().stream().map(AnalyticsProperties.Shard::getName).toList()
+                : List.of(DEFAULT_SHARD);
+        this.ring = new ConsistentHashRing(shards, config.getVirtualNodes());
+        this.eventShards = Caffeine.newBuilder()
+                .maximumSize(config.getEventCacheSize())
+                .build();
+        this.scatter = enabled && shards.size() > 1
+                ? Executors.newFixedThreadPool(shards.size(), runnable -> {
+                    Thread thread = new Thread(runnable, "shard-scatter");
+                    thread.setDaemon(true);
+                    return thread;
+                })
+                : null;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public List<String> shards() {
+        return shards;
+    }
+
+    public String shardForOrganization(UUID organizationId) {
+        return ring.shardFor(organizationId.toString());
+    }
+
+    /**
+     * Shard holding an event, or the first shard if no shard knows the event.
+     */
+    public String shardForEvent(UUID eventId) {
+        if (!enabled) {
+            return DEFAULT_SHARD;
+        }
+        String shard = eventShards.getIfPresent(eventId);
+        if (shard != null) {
+            return shard;
+        }
+        for (String candidate : shards) {
+            Optional<UUID> organizationId = onShard(candidate, () -> eventMetricsRepository.findOrganizationIdByEventId(eventId));
+            if (organizationId.isPresent()) {
+                eventShards.put(eventId, candidate);
+                return candidate;
+            }
+        }
+        log.debug("Event {} is unknown to every shard, using {}", eventId, shards.get(0));
+        return shards.get(0);
+    }
+
+    public <T> T onShard(String shard, Supplier<T> action) {
+        return enabled ? ShardContext.call(shard, action) : action.get();
+    }
+
+    public void runOnShard(String shard, Runnable action) {
+        onShard(shard, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    public <T> T onOrganization(UUID organizationId, Supplier<T> action) {
+        return enabled ? onShard(shardForOrganization(organizationId), action) : action.get();
+    }
+
+    public <T> T onEvent(UUID eventId, Supplier<T> action) {
+        return enabled ? onShard(shardForEvent(eventId), action) : action.get();
+    }
+
+    /**
+     * Runs a query on every shard in parallel and returns the results in shard order. Meant for
+     * system-wide queries only; everything scoped to an organization or event uses one shard.
+     */
+    public <T> List<T> onAllShards(Supplier<T> action) {
+        if (scatter == null) {
+            List<T> results = new ArrayList<>(shards.size());
+            shards.forEach(shard -> results.add(onShard(shard, action)));
+            return results;
+        }
+        List<CompletableFuture<T>> futures = shards.stream()
+                .map(shard -> CompletableFuture.supplyAsync(() -> onShard(shard, action), scatter))
+                .toList();
+        return futures.stream().map(CompletableFuture::join).toList();
+    }
+
+    /**
+     * Splits decoded records by the shard they are written to, keeping their order within each
+     * shard. Event-created records register their event with the organization's shard.
+     */
+    public Map<String, List<AnalyticsEvent>> partition(List<AnalyticsEvent> events) {
+        if (!enabled) {
+            return events.isEmpty() ? Map.of() : Map.of(DEFAULT_SHARD, events);
+        }
+        Map<String, List<AnalyticsEvent>> partitions = new LinkedHashMap<>();
+        for (AnalyticsEvent event : events) {
+            String shard;
+            if (event.getType() == AnalyticsEvent.Type.EVENT_CREATED && event.getOrganizationId() != null) {
+                shard = shardForOrganization(event.getOrganizationId());
+                eventShards.put(event.getEventId(), shard);
+            } else {
+                shard = shardForEvent(event.getEventId());
+            }
+            partitions.computeIfAbsent(shard, s -> new ArrayList<>()).add(event);
+        }
+        return partitions;
+    }
+}
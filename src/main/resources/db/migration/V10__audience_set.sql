@@ -0,0 +1,22 @@
+-- Audience Sets
+-- Per event and activity type, the users with at least one activity of that type, so questions
+-- like "invited but never RSVPed" are set operations instead of self-joins over user_activity.
+-- audience_user maps user ids to dense integer indexes; members is a serialized RoaringBitmap of
+-- those indexes. Sets only grow as activity is ingested and are dropped with their event.
+-- Existing activity is indexed by the next metrics rebuild.
+CREATE TABLE audience_user (
+    user_index INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    user_id UUID NOT NULL UNIQUE
+);
+
+CREATE TABLE audience_set (
+    event_id UUID NOT NULL,
+    activity_type SMALLINT NOT NULL,
+    members BYTEA NOT NULL,
+    cardinality INTEGER NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (event_id, activity_type)
+);
+
+-- members is already compressed, TOAST should store it out of line without compressing it again
+ALTER TABLE audience_set ALTER COLUMN members SET STORAGE EXTERNAL;
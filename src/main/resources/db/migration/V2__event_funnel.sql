@@ -0,0 +1,22 @@
+-- Event Funnel Table
+-- One row per (event, user) tracking the invite -> RSVP -> check-in progression.
+CREATE TABLE event_funnel (
+    id BIGSERIAL PRIMARY KEY,
+    event_id UUID NOT NULL,
+    organization_id UUID NOT NULL,
+    user_id UUID NOT NULL,
+    stage VARCHAR(50) NOT NULL,
+    rsvp_status VARCHAR(50),
+    
+    -- Stage transition timestamps
+    invited_at TIMESTAMP,
+    rsvp_at TIMESTAMP,
+    checked_in_at TIMESTAMP,
+    
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    
+    CONSTRAINT uq_event_funnel_event_user UNIQUE (event_id, user_id)
+);
+
+CREATE INDEX idx_event_funnel_organization_id ON event_funnel(organization_id);
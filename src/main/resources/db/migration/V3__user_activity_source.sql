@@ -0,0 +1,8 @@
+-- Kafka source coordinates of each activity row.
+-- Every activity type is produced by exactly one topic, so (activity_type, partition, offset)
+-- identifies the originating record and lets replays insert idempotently.
+ALTER TABLE user_activity ADD COLUMN source_partition INTEGER;
+ALTER TABLE user_activity ADD COLUMN source_offset BIGINT;
+
+CREATE UNIQUE INDEX uq_user_activity_source ON user_activity(activity_type, source_partition, source_offset)
+    WHERE source_offset IS NOT NULL;
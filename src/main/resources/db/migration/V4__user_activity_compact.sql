@@ -0,0 +1,46 @@
+-- Compact user_activity layout.
+-- * activity_type becomes a SMALLINT code (UserActivity.ActivityType) instead of VARCHAR(50)
+-- * created_at is dropped, activity_timestamp already records when the activity happened
+-- * columns are ordered widest first so rows carry no alignment padding
+-- The table is rewritten by copy so the new column order takes effect; indexes are built
+-- after the copy.
+CREATE TABLE user_activity_compact (
+    id BIGINT NOT NULL,
+    user_id UUID NOT NULL,
+    event_id UUID NOT NULL,
+    activity_timestamp TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    source_offset BIGINT,
+    source_partition INTEGER,
+    activity_type SMALLINT NOT NULL
+);
+
+INSERT INTO user_activity_compact (id, user_id, event_id, activity_timestamp, source_offset, source_partition, activity_type)
+SELECT id, user_id, event_id, activity_timestamp, source_offset, source_partition,
+       CASE activity_type
+           WHEN 'RSVP_ACCEPTED' THEN 1
+           WHEN 'RSVP_DECLINED' THEN 2
+           WHEN 'RSVP_MAYBE' THEN 3
+           WHEN 'CHECKED_IN' THEN 4
+           WHEN 'EVENT_VIEWED' THEN 5
+           WHEN 'INVITATION_SENT' THEN 6
+       END
+FROM user_activity;
+
+ALTER SEQUENCE user_activity_id_seq OWNED BY NONE;
+DROP TABLE user_activity;
+ALTER TABLE user_activity_compact RENAME TO user_activity;
+ALTER TABLE user_activity ALTER COLUMN id SET DEFAULT nextval('user_activity_id_seq');
+ALTER SEQUENCE user_activity_id_seq OWNED BY user_activity.id;
+ALTER TABLE user_activity ADD CONSTRAINT user_activity_pkey PRIMARY KEY (id);
+
+-- Per-event lookups and counter rebuilds (event_id, optionally activity_type)
+CREATE INDEX idx_user_activity_event_type ON user_activity(event_id, activity_type);
+-- Per-user history, optionally bounded by time
+CREATE INDEX idx_user_activity_user_timestamp ON user_activity(user_id, activity_timestamp);
+-- Time-range counts; rows are appended roughly in time order so a BRIN index is enough
+CREATE INDEX idx_user_activity_timestamp_brin ON user_activity USING BRIN (activity_timestamp);
+-- Idempotent replays, see V3
+CREATE UNIQUE INDEX uq_user_activity_source ON user_activity(activity_type, source_partition, source_offset)
+    WHERE source_offset IS NOT NULL;
+
+ANALYZE user_activity;
@@ -0,0 +1,11 @@
+-- Event Metrics Outbox
+-- One row per event whose metrics changed since they were last published to the
+-- analytics-event-metrics topic. Written in the same transaction as the change; repeated
+-- changes of an event before the next publish collapse into its single row.
+CREATE TABLE event_metrics_outbox (
+    event_id UUID PRIMARY KEY,
+    changes BIGINT NOT NULL DEFAULT 1,
+    changed_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX idx_event_metrics_outbox_changed_at ON event_metrics_outbox(changed_at);
@@ -0,0 +1,15 @@
+-- Event Tombstones
+-- One row per deleted event. Written in the transaction that deletes the event's metrics, so
+-- queries hide its activity and funnel rows right away; the rows themselves are removed in
+-- small chunks by a background worker. A completed tombstone is kept for the retention period
+-- and swept once more before it is dropped, catching activity that arrived late.
+CREATE TABLE event_tombstone (
+    event_id UUID PRIMARY KEY,
+    organization_id UUID,
+    deleted_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    activities_deleted BIGINT NOT NULL DEFAULT 0,
+    funnel_deleted BIGINT NOT NULL DEFAULT 0,
+    completed_at TIMESTAMP
+);
+
+CREATE INDEX idx_event_tombstone_completed_at ON event_tombstone(completed_at);
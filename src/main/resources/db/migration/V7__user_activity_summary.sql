@@ -0,0 +1,48 @@
+-- User Activity Summary
+-- Per-user counters maintained incrementally by the ingest path, so a user's totals are read
+-- as one row instead of aggregating their whole activity history. Counters are per
+-- UserActivity.ActivityType; distinct_events counts the rows of user_activity_event, which
+-- records every (user, event) pair once.
+CREATE TABLE user_activity_summary (
+    user_id UUID PRIMARY KEY,
+    total_activities BIGINT NOT NULL DEFAULT 0,
+    invitations BIGINT NOT NULL DEFAULT 0,
+    rsvp_accepted BIGINT NOT NULL DEFAULT 0,
+    rsvp_declined BIGINT NOT NULL DEFAULT 0,
+    rsvp_maybe BIGINT NOT NULL DEFAULT 0,
+    checked_in BIGINT NOT NULL DEFAULT 0,
+    events_viewed BIGINT NOT NULL DEFAULT 0,
+    distinct_events BIGINT NOT NULL DEFAULT 0,
+    first_activity_at TIMESTAMP,
+    last_activity_at TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE user_activity_event (
+    user_id UUID NOT NULL,
+    event_id UUID NOT NULL,
+    PRIMARY KEY (user_id, event_id)
+);
+
+CREATE INDEX idx_user_activity_event_event_id ON user_activity_event(event_id);
+
+-- Backfill from existing activity
+INSERT INTO user_activity_event (user_id, event_id)
+SELECT DISTINCT user_id, event_id FROM user_activity;
+
+INSERT INTO user_activity_summary (user_id, total_activities, invitations, rsvp_accepted, rsvp_declined,
+                                   rsvp_maybe, checked_in, events_viewed, distinct_events,
+                                   first_activity_at, last_activity_at)
+SELECT ua.user_id,
+       COUNT(*),
+       COUNT(*) FILTER (WHERE ua.activity_type = 6),
+       COUNT(*) FILTER (WHERE ua.activity_type = 1),
+       COUNT(*) FILTER (WHERE ua.activity_type = 2),
+       COUNT(*) FILTER (WHERE ua.activity_type = 3),
+       COUNT(*) FILTER (WHERE ua.activity_type = 4),
+       COUNT(*) FILTER (WHERE ua.activity_type = 5),
+       COUNT(DISTINCT ua.event_id),
+       MIN(ua.activity_timestamp),
+       MAX(ua.activity_timestamp)
+FROM user_activity ua
+GROUP BY ua.user_id;
@@ -0,0 +1,40 @@
+-- Organization Summary
+-- Per-organization totals over its events, maintained incrementally by the same handlers that
+-- write event_metrics and periodically reconciled against it, so the organization overview is
+-- one row read. events_by_status maps each event_status to its number of events; statuses
+-- without events are left out.
+CREATE TABLE organization_summary (
+    organization_id UUID PRIMARY KEY,
+    events BIGINT NOT NULL DEFAULT 0,
+    events_by_status JSONB NOT NULL DEFAULT '{}'::jsonb,
+    total_invites BIGINT NOT NULL DEFAULT 0,
+    rsvp_accepted BIGINT NOT NULL DEFAULT 0,
+    rsvp_declined BIGINT NOT NULL DEFAULT 0,
+    rsvp_maybe BIGINT NOT NULL DEFAULT 0,
+    checked_in BIGINT NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Backfill from existing events
+WITH per_status AS (
+    SELECT organization_id, event_status, COUNT(*) AS events,
+           SUM(COALESCE(total_invites, 0)) AS total_invites,
+           SUM(COALESCE(rsvp_accepted, 0)) AS rsvp_accepted,
+           SUM(COALESCE(rsvp_declined, 0)) AS rsvp_declined,
+           SUM(COALESCE(rsvp_maybe, 0)) AS rsvp_maybe,
+           SUM(COALESCE(checked_in, 0)) AS checked_in
+    FROM event_metrics
+    GROUP BY organization_id, event_status
+)
+INSERT INTO organization_summary (organization_id, events, events_by_status, total_invites, rsvp_accepted,
+                                  rsvp_declined, rsvp_maybe, checked_in)
+SELECT organization_id,
+       SUM(events),
+       COALESCE(jsonb_object_agg(event_status, events) FILTER (WHERE event_status IS NOT NULL), '{}'::jsonb),
+       SUM(total_invites),
+       SUM(rsvp_accepted),
+       SUM(rsvp_declined),
+       SUM(rsvp_maybe),
+       SUM(checked_in)
+FROM per_status
+GROUP BY organization_id;
@@ -0,0 +1,29 @@
+-- User Activity Segments
+-- Cold tier of user_activity. Activity of events that are long over is moved out of
+-- user_activity into immutable segments of up to analytics.archive.segment-size rows of one
+-- event, so it no longer takes up buffer cache and per-row index entries. Rows are stored
+-- column by column in data (see ActivitySegmentCodec): users as indexes into user_ids, activity
+-- type codes, timestamp and id deltas, the whole block deflate-compressed.
+-- user_ids doubles as the per-segment user index; the counters let metrics rebuilds recount
+-- events without decoding segments.
+CREATE TABLE user_activity_segment (
+    id BIGSERIAL PRIMARY KEY,
+    event_id UUID NOT NULL,
+    user_ids UUID[] NOT NULL,
+    activities INTEGER NOT NULL,
+    total_invites INTEGER NOT NULL DEFAULT 0,
+    rsvp_accepted INTEGER NOT NULL DEFAULT 0,
+    rsvp_declined INTEGER NOT NULL DEFAULT 0,
+    rsvp_maybe INTEGER NOT NULL DEFAULT 0,
+    checked_in INTEGER NOT NULL DEFAULT 0,
+    first_activity_at TIMESTAMP NOT NULL,
+    last_activity_at TIMESTAMP NOT NULL,
+    data BYTEA NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+-- data is already compressed, TOAST should store it out of line without compressing it again
+ALTER TABLE user_activity_segment ALTER COLUMN data SET STORAGE EXTERNAL;
+
+CREATE INDEX idx_user_activity_segment_event_id ON user_activity_segment(event_id);
+CREATE INDEX idx_user_activity_segment_user_ids ON user_activity_segment USING GIN (user_ids);
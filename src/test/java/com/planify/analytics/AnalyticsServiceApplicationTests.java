@@ -1,13 +1,26 @@
 package com.planify.analytics;
 
 import com.planify.analytics.event.KafkaConsumer;
+import com.planify.analytics.event.RetryTopicListener;
+import com.planify.analytics.repository.ActivityArchiveRepository;
+import com.planify.analytics.repository.AudienceSetRepository;
+import com.planify.analytics.repository.EventFunnelRepository;
+import com.planify.analytics.repository.EventMetricsRebuildRepository;
 import com.planify.analytics.repository.EventMetricsRepository;
+import com.planify.analytics.repository.EventTombstoneRepository;
+import com.planify.analytics.repository.MetricsOutboxRepository;
+import com.planify.analytics.repository.OrganizationSummaryRepository;
+import com.planify.analytics.repository.ProjectionRepository;
+import com.planify.analytics.repository.SystemMetricsCounterRepository;
 import com.planify.analytics.repository.UserActivityRepository;
+import com.planify.analytics.repository.ReplayRepository;
 import com.planify.analytics.repository.SystemMetricsRepository;
+import com.planify.analytics.repository.UserActivitySummaryRepository;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.PlatformTransactionManager;
 
 @SpringBootTest
 @ActiveProfiles("test")
@@ -22,9 +35,48 @@ class AnalyticsServiceApplicationTests {
     @MockitoBean
     SystemMetricsRepository systemMetricsRepository;
 
+    @MockitoBean
+    EventFunnelRepository eventFunnelRepository;
+
+    @MockitoBean
+    EventMetricsRebuildRepository eventMetricsRebuildRepository;
+
+    @MockitoBean
+    ReplayRepository replayRepository;
+
+    @MockitoBean
+    MetricsOutboxRepository metricsOutboxRepository;
+
+    @MockitoBean
+    PlatformTransactionManager transactionManager;
+
+    @MockitoBean
+    EventTombstoneRepository eventTombstoneRepository;
+
+    @MockitoBean
+    SystemMetricsCounterRepository systemMetricsCounterRepository;
+
+    @MockitoBean
+    UserActivitySummaryRepository userActivitySummaryRepository;
+
+    @MockitoBean
+    ProjectionRepository projectionRepository;
+
+    @MockitoBean
+    OrganizationSummaryRepository organizationSummaryRepository;
+
+    @MockitoBean
+    ActivityArchiveRepository activityArchiveRepository;
+
+    @MockitoBean
+    AudienceSetRepository audienceSetRepository;
+
     @MockitoBean
     KafkaConsumer kafkaConsumer;
 
+    @MockitoBean
+    RetryTopicListener retryTopicListener;
+
     @Test
     void contextLoads() {
     }
@@ -0,0 +1,75 @@
+package com.planify.analytics.config;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.planify.analytics.model.EventMetrics;
+import com.planify.analytics.model.UserActivity;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+
+class BinaryFormatConfigTest {
+
+    private final BinaryFormatConfig config = new BinaryFormatConfig();
+
+    @Test
+    void smile_shouldWriteUuidsAsBinaryAndTimestampsAsEpochMillis() throws Exception {
+        // Given
+        ObjectMapper smile = config.smileHttpMessageConverter(new Jackson2ObjectMapperBuilder()).getObjectMapper();
+        UUID userId = UUID.randomUUID();
+        LocalDateTime timestamp = LocalDateTime.of(2025, 11, 3, 18, 30, 15, 123_000_000);
+        UserActivity activity = new UserActivity(1L, userId, UUID.randomUUID(), UserActivity.ActivityType.CHECKED_IN, timestamp, 0, 42L);
+
+        // When
+        JsonNode node = smile.readTree(smile.writeValueAsBytes(activity));
+
+        // Then
+        assertThat(node.get("userId").isBinary()).isTrue();
+        ByteBuffer uuid = ByteBuffer.wrap(node.get("userId").binaryValue());
+        assertThat(new UUID(uuid.getLong(), uuid.getLong())).isEqualTo(userId);
+        assertThat(node.get("activityTimestamp").isIntegralNumber()).isTrue();
+        assertThat(node.get("activityTimestamp").longValue()).isEqualTo(timestamp.toInstant(ZoneOffset.UTC).toEpochMilli());
+    }
+
+    @Test
+    void cbor_shouldRoundTripEventMetrics() throws Exception {
+        // Given
+        ObjectMapper cbor = config.cborHttpMessageConverter(new Jackson2ObjectMapperBuilder()).getObjectMapper();
+        EventMetrics metrics = new EventMetrics();
+        metrics.setId(7L);
+        metrics.setEventId(UUID.randomUUID());
+        metrics.setOrganizationId(UUID.randomUUID());
+        metrics.setEventTitle("Launch party");
+        metrics.setEventDate(LocalDateTime.now().plusDays(3).truncatedTo(ChronoUnit.MILLIS));
+        metrics.setEventStatus("PUBLISHED");
+        metrics.setRsvpAccepted(12);
+        metrics.setCreatedAt(LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS));
+        metrics.setUpdatedAt(metrics.getCreatedAt());
+
+        // When
+        EventMetrics decoded = cbor.readValue(cbor.writeValueAsBytes(metrics), EventMetrics.class);
+
+        // Then
+        assertThat(decoded).isEqualTo(metrics);
+    }
+
+    @Test
+    void deserializer_shouldAcceptIsoTimestamps() throws Exception {
+        // Given
+        ObjectMapper smile = config.smileHttpMessageConverter(new Jackson2ObjectMapperBuilder()).getObjectMapper();
+        byte[] encoded = smile.writeValueAsBytes(smile.createObjectNode().put("activityTimestamp", "2025-11-03T18:30:15"));
+
+        // When
+        UserActivity decoded = smile.readValue(encoded, UserActivity.class);
+
+        // Then
+        assertThat(decoded.getActivityTimestamp()).isEqualTo(LocalDateTime.of(2025, 11, 3, 18, 30, 15));
+    }
+}
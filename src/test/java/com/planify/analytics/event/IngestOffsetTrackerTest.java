@@ -0,0 +1,79 @@
+package com.planify.analytics.event;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class IngestOffsetTrackerTest {
+
+    private final IngestOffsetTracker tracker = new IngestOffsetTracker();
+
+    @Test
+    void complete_shouldAcknowledgeOnlyUpToLowestIncompleteOffset() {
+        // Given
+        Acknowledgment first = mock(Acknowledgment.class);
+        Acknowledgment second = mock(Acknowledgment.class);
+        Acknowledgment third = mock(Acknowledgment.class);
+        IngestOffsetTracker.Pending pending10 = tracker.track(record(0, 10L), first);
+        IngestOffsetTracker.Pending pending11 = tracker.track(record(0, 11L), second);
+        IngestOffsetTracker.Pending pending12 = tracker.track(record(0, 12L), third);
+
+        // When
+        pending11.complete();
+        pending12.complete();
+
+        // Then
+        verifyNoInteractions(first, second, third);
+        assertThat(tracker.uncommitted()).isEqualTo(3);
+
+        // When
+        pending10.complete();
+
+        // Then
+        verify(third).acknowledge();
+        verifyNoInteractions(first, second);
+        assertThat(tracker.uncommitted()).isZero();
+    }
+
+    @Test
+    void complete_shouldTrackPartitionsIndependently() {
+        // Given
+        Acknowledgment blocked = mock(Acknowledgment.class);
+        Acknowledgment other = mock(Acknowledgment.class);
+        tracker.track(record(0, 5L), blocked);
+        IngestOffsetTracker.Pending otherPartition = tracker.track(record(1, 5L), other);
+
+        // When
+        otherPartition.complete();
+
+        // Then
+        verify(other).acknowledge();
+        verifyNoInteractions(blocked);
+        assertThat(tracker.uncommitted()).isEqualTo(1);
+    }
+
+    @Test
+    void complete_shouldNotAcknowledgeRecordsOfRevokedPartition() {
+        // Given
+        Acknowledgment acknowledgment = mock(Acknowledgment.class);
+        IngestOffsetTracker.Pending pending = tracker.track(record(0, 7L), acknowledgment);
+
+        // When
+        tracker.onPartitionsRevokedBeforeCommit(null, List.of(new TopicPartition(KafkaTopics.RSVP_ACCEPTED, 0)));
+        pending.complete();
+
+        // Then
+        verifyNoInteractions(acknowledgment);
+        assertThat(tracker.uncommitted()).isZero();
+    }
+
+    private static ConsumerRecord<String, String> record(int partition, long offset) {
+        return new ConsumerRecord<>(KafkaTopics.RSVP_ACCEPTED, partition, offset, null, "{}");
+    }
+}
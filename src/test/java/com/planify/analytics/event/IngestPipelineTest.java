@@ -0,0 +1,193 @@
+package com.planify.analytics.event;
+
+import com.planify.analytics.config.AnalyticsProperties;
+import com.planify.analytics.service.AnalyticsService;
+import com.planify.analytics.sharding.ShardRouter;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IngestPipelineTest {
+
+    @Mock
+    private AnalyticsService analyticsService;
+
+    @Mock
+    private KafkaListenerEndpointRegistry listenerRegistry;
+
+    @Mock
+    private RetryTopicRouter retryTopicRouter;
+
+    @Mock
+    private MessageListenerContainer container;
+
+    @Mock
+    private Acknowledgment acknowledgment;
+
+    private IngestOffsetTracker offsetTracker;
+    private CircuitBreaker circuitBreaker;
+    private SimpleMeterRegistry meterRegistry;
+    private IngestPipeline pipeline;
+
+    @BeforeEach
+    void setUp() {
+        CircuitBreakerRegistry circuitBreakerRegistry = CircuitBreakerRegistry.ofDefaults();
+        circuitBreaker = circuitBreakerRegistry.circuitBreaker("analyticsDatabase");
+        meterRegistry = new SimpleMeterRegistry();
+        lenient().when(listenerRegistry.getListenerContainers()).thenReturn(List.of(container));
+
+        AnalyticsProperties properties = new AnalyticsProperties();
+        properties.getIngest().setWriterThreads(1);
+        offsetTracker = new IngestOffsetTracker();
+        pipeline = new IngestPipeline(analyticsService, listenerRegistry, retryTopicRouter, offsetTracker,
+                new ShardRouter(properties, null), circuitBreakerRegistry, properties, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        circuitBreaker.reset();
+        pipeline.stop();
+    }
+
+    @Test
+    void circuitBreakerTransitions_shouldPauseListenersWhileOpen() {
+        // When
+        circuitBreaker.transitionToOpenState();
+
+        // Then
+        verify(container).pause();
+        assertThat(meterRegistry.get("analytics.ingest.paused").gauge().value()).isEqualTo(1);
+        assertThat(meterRegistry.get("analytics.ingest.database.available").gauge().value()).isZero();
+
+        // When
+        circuitBreaker.transitionToHalfOpenState();
+
+        // Then
+        verify(container).resume();
+        assertThat(meterRegistry.get("analytics.ingest.paused").gauge().value()).isZero();
+    }
+
+    @Test
+    void writer_shouldHoldRejectedBatchUntilCircuitBreakerCloses() {
+        // Given
+        AnalyticsEvent event = event(0L);
+        doAnswer(invocation -> {
+            if (!circuitBreaker.tryAcquirePermission()) {
+                throw CallNotPermittedException.createCallNotPermittedException(circuitBreaker);
+            }
+            circuitBreaker.onSuccess(0, TimeUnit.NANOSECONDS);
+            return null;
+        }).when(analyticsService).applyBatch(any());
+        pipeline.start();
+
+        // When
+        circuitBreaker.transitionToForcedOpenState();
+        pipeline.publish(event, track(event));
+
+        // Then
+        verify(analyticsService, after(300).never()).applyBatch(any());
+        verifyNoInteractions(acknowledgment);
+
+        // When
+        circuitBreaker.transitionToClosedState();
+
+        // Then
+        verify(analyticsService, timeout(2000)).applyBatch(List.of(event));
+        verify(retryTopicRouter, never()).retry(any(), anyInt(), any());
+        verify(acknowledgment, timeout(2000)).acknowledge();
+        assertThat(pipeline.depth()).isZero();
+    }
+
+    @Test
+    void writer_shouldAcknowledgeFailedRecordOnlyOnceRetryTopicHasIt() {
+        // Given
+        AnalyticsEvent event = event(0L);
+        RuntimeException failure = new RuntimeException("constraint violated");
+        CompletableFuture<Void> sent = new CompletableFuture<>();
+        doThrow(failure).when(analyticsService).applyBatch(any());
+        when(retryTopicRouter.retry(event, 1, failure)).thenReturn(sent);
+        pipeline.start();
+
+        // When
+        pipeline.publish(event, track(event));
+
+        // Then
+        verify(retryTopicRouter, timeout(2000)).retry(event, 1, failure);
+        verify(acknowledgment, after(300).never()).acknowledge();
+
+        // When
+        sent.complete(null);
+
+        // Then
+        verify(acknowledgment, timeout(2000)).acknowledge();
+        assertThat(offsetTracker.uncommitted()).isZero();
+    }
+
+    @Test
+    void stop_shouldPauseListenersAndDrainBufferedRecords() {
+        // Given
+        AnalyticsEvent event = event(0L);
+        pipeline.start();
+        pipeline.publish(event, track(event));
+
+        // When
+        pipeline.stop();
+
+        // Then
+        verify(container).pause();
+        verify(analyticsService).applyBatch(List.of(event));
+        verify(acknowledgment).acknowledge();
+        assertThat(offsetTracker.uncommitted()).isZero();
+    }
+
+    @Test
+    void stop_shouldLeaveRecordsUncommittedWhileCircuitBreakerOpen() {
+        // Given
+        AnalyticsEvent event = event(0L);
+        pipeline.start();
+        circuitBreaker.transitionToForcedOpenState();
+        pipeline.publish(event, track(event));
+
+        // When
+        pipeline.stop();
+
+        // Then
+        verify(analyticsService, never()).applyBatch(any());
+        verifyNoInteractions(acknowledgment);
+        assertThat(offsetTracker.uncommitted()).isEqualTo(1);
+    }
+
+    private AnalyticsEvent event(long offset) {
+        AnalyticsEvent event = new AnalyticsEvent();
+        event.setType(AnalyticsEvent.Type.GUEST_INVITED);
+        event.setEventId(UUID.randomUUID());
+        event.setOffset(offset);
+        return event;
+    }
+
+    private IngestOffsetTracker.Pending track(AnalyticsEvent event) {
+        return offsetTracker.track(new ConsumerRecord<>(event.getType().getTopic(), event.getPartition(), event.getOffset(), null, "{}"),
+                acknowledgment);
+    }
+}
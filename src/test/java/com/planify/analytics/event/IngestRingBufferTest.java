@@ -0,0 +1,93 @@
+package com.planify.analytics.event;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+
+class IngestRingBufferTest {
+    
+    @Test
+    void constructor_shouldRoundCapacityUpToPowerOfTwo() {
+        assertThat(new IngestRingBuffer<Integer>(1000).capacity()).isEqualTo(1024);
+        assertThat(new IngestRingBuffer<Integer>(1024).capacity()).isEqualTo(1024);
+    }
+    
+    @Test
+    void offer_shouldRejectWhenFull() {
+        // Given
+        IngestRingBuffer<Integer> buffer = new IngestRingBuffer<>(4);
+        for (int i = 0; i < 4; i++) {
+            assertThat(buffer.offer(i)).isTrue();
+        }
+        
+        // When
+        boolean accepted = buffer.offer(4);
+        
+        // Then
+        assertThat(accepted).isFalse();
+        assertThat(buffer.size()).isEqualTo(4);
+    }
+    
+    @Test
+    void drainTo_shouldReturnElementsInOrderAcrossWrapAround() {
+        // Given
+        IngestRingBuffer<Integer> buffer = new IngestRingBuffer<>(4);
+        buffer.offer(1);
+        buffer.offer(2);
+        buffer.poll();
+        buffer.offer(3);
+        buffer.offer(4);
+        buffer.offer(5);
+        
+        // When
+        List<Integer> drained = new ArrayList<>();
+        int count = buffer.drainTo(drained, 10);
+        
+        // Then
+        assertThat(count).isEqualTo(4);
+        assertThat(drained).containsExactly(2, 3, 4, 5);
+        assertThat(buffer.poll()).isNull();
+    }
+    
+    @Test
+    void offer_shouldNotLoseElementsWithConcurrentProducers() throws Exception {
+        // Given
+        IngestRingBuffer<Integer> buffer = new IngestRingBuffer<>(64);
+        Set<Integer> consumed = ConcurrentHashMap.newKeySet();
+        int producers = 4;
+        int perProducer = 10_000;
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        
+        // When
+        for (int p = 0; p < producers; p++) {
+            int base = p * perProducer;
+            executor.submit(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    while (!buffer.offer(base + i)) {
+                        Thread.onSpinWait();
+                    }
+                }
+            });
+        }
+        while (consumed.size() < producers * perProducer) {
+            Integer element = buffer.poll();
+            if (element != null) {
+                consumed.add(element);
+            }
+        }
+        executor.shutdown();
+        
+        // Then
+        assertThat(executor.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(consumed).hasSize(producers * perProducer);
+        assertThat(buffer.size()).isZero();
+    }
+}
@@ -1,6 +1,18 @@
 package com.planify.analytics.event;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.planify.analytics.repository.ActivityArchiveRepository;
+import com.planify.analytics.repository.AudienceSetRepository;
+import com.planify.analytics.repository.EventFunnelRepository;
+import com.planify.analytics.repository.EventMetricsRebuildRepository;
+import com.planify.analytics.repository.EventMetricsRepository;
+import com.planify.analytics.repository.EventTombstoneRepository;
+import com.planify.analytics.repository.MetricsOutboxRepository;
+import com.planify.analytics.repository.OrganizationSummaryRepository;
+import com.planify.analytics.repository.ProjectionRepository;
+import com.planify.analytics.repository.ReplayRepository;
+import com.planify.analytics.repository.SystemMetricsCounterRepository;
+import com.planify.analytics.repository.UserActivityRepository;
+import com.planify.analytics.repository.UserActivitySummaryRepository;
 import com.planify.analytics.service.AnalyticsService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -8,15 +20,19 @@ import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
 import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
 import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.kafka.test.context.EmbeddedKafka;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 
 import java.time.LocalDateTime;
 import java.util.UUID;
 
-import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.verify;
 
@@ -50,7 +66,49 @@ class KafkaConsumerIntegrationTest {
     @MockitoBean
     private AnalyticsService analyticsService;
     
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    @MockitoBean
+    private EventFunnelRepository eventFunnelRepository;
+    
+    @MockitoBean
+    private EventMetricsRebuildRepository eventMetricsRebuildRepository;
+    
+    @MockitoBean
+    private EventMetricsRepository eventMetricsRepository;
+    
+    @MockitoBean
+    private ReplayRepository replayRepository;
+    
+    @MockitoBean
+    private UserActivityRepository userActivityRepository;
+    
+    @MockitoBean
+    private MetricsOutboxRepository metricsOutboxRepository;
+    
+    @MockitoBean
+    private PlatformTransactionManager transactionManager;
+    
+    @MockitoBean
+    private EventTombstoneRepository eventTombstoneRepository;
+    
+    @MockitoBean
+    private SystemMetricsCounterRepository systemMetricsCounterRepository;
+    
+    @MockitoBean
+    private UserActivitySummaryRepository userActivitySummaryRepository;
+    
+    @MockitoBean
+    private ProjectionRepository projectionRepository;
+    
+    @MockitoBean
+    private OrganizationSummaryRepository organizationSummaryRepository;
+    
+    @MockitoBean
+    private ActivityArchiveRepository activityArchiveRepository;
+    
+    @MockitoBean
+    private AudienceSetRepository audienceSetRepository;
+    
+    private final Acknowledgment acknowledgment = mock(Acknowledgment.class);
     
     @Test
     void consumeEventCreated_shouldCallAnalyticsService() throws Exception {
@@ -61,30 +119,36 @@ class KafkaConsumerIntegrationTest {
             "{\"eventId\":\"%s\",\"organizationId\":\"%s\",\"title\":\"Test Event\",\"eventDate\":\"2026-01-15T10:00:00\",\"status\":\"DRAFT\"}",
             eventId, organizationId
         );
-
-        kafkaConsumer.consumeEventCreated(message);
+        
+        // When
+        kafkaConsumer.consumeEventCreated(record(KafkaTopics.EVENT_CREATED, message), acknowledgment);
         
         // Then
-        verify(analyticsService, timeout(3000)).handleEventCreated(
-            eq(eventId),
-            eq(organizationId),
-            eq("Test Event"),
-            any(LocalDateTime.class),
-            eq("DRAFT")
-        );
+        verify(analyticsService, timeout(3000)).applyBatch(argThat(events -> events.stream().anyMatch(event ->
+            event.getType() == AnalyticsEvent.Type.EVENT_CREATED
+                && event.getEventId().equals(eventId)
+                && event.getOrganizationId().equals(organizationId)
+                && event.getTitle().equals("Test Event")
+                && event.getEventDate().equals(LocalDateTime.parse("2026-01-15T10:00:00"))
+                && event.getStatus().equals("DRAFT"))));
     }
     
     @Test
     void consumeEventUpdated_shouldCallAnalyticsService() throws Exception {
         // Given
         UUID eventId = UUID.randomUUID();
-        String message = String.format("{\"eventId\":\"%s\"}", eventId);
+        String message = String.format("{\"eventId\":\"%s\",\"title\":\"Renamed Event\"}", eventId);
         
         // When
-        kafkaConsumer.consumeEventUpdated(message);
+        kafkaConsumer.consumeEventUpdated(record(KafkaTopics.EVENT_UPDATED, message), acknowledgment);
         
         // Then
-        verify(analyticsService, timeout(3000)).handleEventUpdated(eq(eventId));
+        verify(analyticsService, timeout(3000)).applyBatch(argThat(events -> events.stream().anyMatch(event ->
+            event.getType() == AnalyticsEvent.Type.EVENT_UPDATED
+                && event.getEventId().equals(eventId)
+                && "Renamed Event".equals(event.getTitle())
+                && event.getEventDate() == null
+                && event.getStatus() == null)));
     }
     
     @Test
@@ -94,10 +158,12 @@ class KafkaConsumerIntegrationTest {
         String message = String.format("{\"eventId\":\"%s\"}", eventId);
         
         // When
-        kafkaConsumer.consumeEventDeleted(message);
+        kafkaConsumer.consumeEventDeleted(record(KafkaTopics.EVENT_DELETED, message), acknowledgment);
         
         // Then
-        verify(analyticsService, timeout(3000)).handleEventDeleted(eq(eventId));
+        verify(analyticsService, timeout(3000)).applyBatch(argThat(events -> events.stream().anyMatch(event ->
+            event.getType() == AnalyticsEvent.Type.EVENT_DELETED
+                && event.getEventId().equals(eventId))));
     }
     
     @Test
@@ -108,10 +174,13 @@ class KafkaConsumerIntegrationTest {
         String message = String.format("{\"eventId\":\"%s\",\"userId\":\"%s\"}", eventId, userId);
         
         // When
-        kafkaConsumer.consumeGuestInvited(message);
+        kafkaConsumer.consumeGuestInvited(record(KafkaTopics.GUEST_INVITED, message), acknowledgment);
         
         // Then
-        verify(analyticsService, timeout(3000)).handleGuestInvited(eq(eventId), eq(userId));
+        verify(analyticsService, timeout(3000)).applyBatch(argThat(events -> events.stream().anyMatch(event ->
+            event.getType() == AnalyticsEvent.Type.GUEST_INVITED
+                && event.getEventId().equals(eventId)
+                && event.getUserId().equals(userId))));
     }
     
     @Test
@@ -122,10 +191,13 @@ class KafkaConsumerIntegrationTest {
         String message = String.format("{\"eventId\":\"%s\",\"userId\":\"%s\"}", eventId, userId);
         
         // When
-        kafkaConsumer.consumeRsvpAccepted(message);
+        kafkaConsumer.consumeRsvpAccepted(record(KafkaTopics.RSVP_ACCEPTED, message), acknowledgment);
         
         // Then
-        verify(analyticsService, timeout(3000)).handleRsvpAccepted(eq(eventId), eq(userId));
+        verify(analyticsService, timeout(3000)).applyBatch(argThat(events -> events.stream().anyMatch(event ->
+            event.getType() == AnalyticsEvent.Type.RSVP_ACCEPTED
+                && event.getEventId().equals(eventId)
+                && event.getUserId().equals(userId))));
     }
     
     @Test
@@ -136,10 +208,13 @@ class KafkaConsumerIntegrationTest {
         String message = String.format("{\"eventId\":\"%s\",\"userId\":\"%s\"}", eventId, userId);
         
         // When
-        kafkaConsumer.consumeRsvpDeclined(message);
+        kafkaConsumer.consumeRsvpDeclined(record(KafkaTopics.RSVP_DECLINED, message), acknowledgment);
         
         // Then
-        verify(analyticsService, timeout(3000)).handleRsvpDeclined(eq(eventId), eq(userId));
+        verify(analyticsService, timeout(3000)).applyBatch(argThat(events -> events.stream().anyMatch(event ->
+            event.getType() == AnalyticsEvent.Type.RSVP_DECLINED
+                && event.getEventId().equals(eventId)
+                && event.getUserId().equals(userId))));
     }
     
     @Test
@@ -150,9 +225,16 @@ class KafkaConsumerIntegrationTest {
         String message = String.format("{\"eventId\":\"%s\",\"userId\":\"%s\"}", eventId, userId);
         
         // When
-        kafkaConsumer.consumeGuestCheckedIn(message);
+        kafkaConsumer.consumeGuestCheckedIn(record(KafkaTopics.GUEST_CHECKED_IN, message), acknowledgment);
         
         // Then
-        verify(analyticsService, timeout(3000)).handleGuestCheckedIn(eq(eventId), eq(userId));
+        verify(analyticsService, timeout(3000)).applyBatch(argThat(events -> events.stream().anyMatch(event ->
+            event.getType() == AnalyticsEvent.Type.GUEST_CHECKED_IN
+                && event.getEventId().equals(eventId)
+                && event.getUserId().equals(userId))));
+    }
+    
+    private static ConsumerRecord<String, String> record(String topic, String message) {
+        return new ConsumerRecord<>(topic, 0, 0L, null, message);
     }
 }
@@ -0,0 +1,160 @@
+package com.planify.analytics.event;
+
+import com.planify.analytics.config.AnalyticsProperties;
+import com.planify.analytics.service.AnalyticsService;
+import com.planify.analytics.sharding.ShardRouter;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RetryTopicListenerTest {
+    
+    @Mock
+    private AnalyticsEventDecoder decoder;
+    
+    @Mock
+    private RetryTopicRouter router;
+    
+    @Mock
+    private AnalyticsService analyticsService;
+    
+    @Mock
+    private Acknowledgment acknowledgment;
+    
+    private RetryTopicListener listener;
+    private AnalyticsEvent event;
+    
+    @BeforeEach
+    void setUp() {
+        listener = new RetryTopicListener(decoder, router, analyticsService, new ShardRouter(new AnalyticsProperties(), null));
+        event = new AnalyticsEvent();
+        event.setType(AnalyticsEvent.Type.GUEST_INVITED);
+        event.setEventId(UUID.randomUUID());
+    }
+    
+    @Test
+    void retry_shouldNackRecordThatIsNotDueYet() {
+        // Given
+        ConsumerRecord<String, String> record = retryRecord(Instant.now().plusSeconds(30), 1);
+        
+        // When
+        listener.retry(record, acknowledgment);
+        
+        // Then
+        verify(acknowledgment).nack(argThat((Duration wait) -> wait.compareTo(Duration.ofSeconds(25)) > 0));
+        verify(acknowledgment, never()).acknowledge();
+        verifyNoInteractions(analyticsService);
+    }
+    
+    @Test
+    void retry_shouldApplyDueRecord() throws Exception {
+        // Given
+        ConsumerRecord<String, String> record = retryRecord(Instant.now().minusSeconds(1), 1);
+        when(router.read(record, decoder)).thenReturn(event);
+        
+        // When
+        listener.retry(record, acknowledgment);
+        
+        // Then
+        verify(analyticsService).applyBatch(List.of(event));
+        verify(router, never()).retry(any(), anyInt(), any());
+        verify(acknowledgment).acknowledge();
+    }
+    
+    @Test
+    void retry_shouldForwardToNextTierWhenApplyFailsAgain() throws Exception {
+        // Given
+        ConsumerRecord<String, String> record = retryRecord(Instant.now().minusSeconds(1), 2);
+        RuntimeException failure = new RuntimeException("Database unavailable");
+        when(router.read(record, decoder)).thenReturn(event);
+        doThrow(failure).when(analyticsService).applyBatch(List.of(event));
+        when(router.retry(event, 3, failure)).thenReturn(CompletableFuture.completedFuture(null));
+        
+        // When
+        listener.retry(record, acknowledgment);
+        
+        // Then
+        verify(router).retry(eq(event), eq(3), eq(failure));
+        verify(acknowledgment).acknowledge();
+    }
+    
+    @Test
+    void retry_shouldNackRecordThatCannotBeForwarded() throws Exception {
+        // Given
+        ConsumerRecord<String, String> record = retryRecord(Instant.now().minusSeconds(1), 2);
+        RuntimeException failure = new RuntimeException("Database unavailable");
+        when(router.read(record, decoder)).thenReturn(event);
+        doThrow(failure).when(analyticsService).applyBatch(List.of(event));
+        when(router.retry(event, 3, failure)).thenReturn(CompletableFuture.failedFuture(new RuntimeException("Broker unavailable")));
+        
+        // When
+        listener.retry(record, acknowledgment);
+        
+        // Then
+        verify(acknowledgment).nack(any(Duration.class));
+        verify(acknowledgment, never()).acknowledge();
+    }
+    
+    @Test
+    void retry_shouldDeadLetterUnreadableRecordBeforeAcknowledging() throws Exception {
+        // Given
+        ConsumerRecord<String, String> record = retryRecord(Instant.now().minusSeconds(1), 1);
+        IOException failure = new IOException("Unexpected token");
+        when(router.read(record, decoder)).thenThrow(failure);
+        when(router.deadLetter(record, failure)).thenReturn(CompletableFuture.completedFuture(null));
+        
+        // When
+        listener.retry(record, acknowledgment);
+        
+        // Then
+        InOrder inOrder = inOrder(router, acknowledgment);
+        inOrder.verify(router).deadLetter(record, failure);
+        inOrder.verify(acknowledgment).acknowledge();
+        verifyNoInteractions(analyticsService);
+    }
+    
+    @Test
+    void retry_shouldNackWithoutCountingAttemptWhenCircuitBreakerIsOpen() throws Exception {
+        // Given
+        ConsumerRecord<String, String> record = retryRecord(Instant.now().minusSeconds(1), 1);
+        when(router.read(record, decoder)).thenReturn(event);
+        doThrow(CallNotPermittedException.createCallNotPermittedException(CircuitBreaker.ofDefaults("analyticsDatabase")))
+                .when(analyticsService).applyBatch(List.of(event));
+        
+        // When
+        listener.retry(record, acknowledgment);
+        
+        // Then
+        verify(acknowledgment).nack(any(Duration.class));
+        verify(acknowledgment, never()).acknowledge();
+        verify(router, never()).retry(any(), anyInt(), any());
+    }
+    
+    private static ConsumerRecord<String, String> retryRecord(Instant dueAt, int attempt) {
+        ConsumerRecord<String, String> record = new ConsumerRecord<>(KafkaTopics.RETRY_1, 0, 0L, "key", "{}");
+        record.headers().add(RetryTopicRouter.HEADER_DUE_AT, Long.toString(dueAt.toEpochMilli()).getBytes(StandardCharsets.UTF_8));
+        record.headers().add(RetryTopicRouter.HEADER_ATTEMPT, Integer.toString(attempt).getBytes(StandardCharsets.UTF_8));
+        return record;
+    }
+}
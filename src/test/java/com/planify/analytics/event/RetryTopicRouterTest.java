@@ -0,0 +1,149 @@
+package com.planify.analytics.event;
+
+import com.planify.analytics.config.AnalyticsProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.record.TimestampType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RetryTopicRouterTest {
+
+    @Mock
+    private KafkaTemplate<String, String> kafkaTemplate;
+
+    private RetryTopicRouter router;
+    private AnalyticsEvent event;
+
+    @BeforeEach
+    void setUp() {
+        AnalyticsProperties properties = new AnalyticsProperties();
+        properties.getRetryTopics().setDelaysSeconds(List.of(10L, 60L, 600L));
+        router = new RetryTopicRouter(kafkaTemplate, properties, new SimpleMeterRegistry());
+
+        event = new AnalyticsEvent();
+        event.setType(AnalyticsEvent.Type.RSVP_ACCEPTED);
+        event.setEventId(UUID.randomUUID());
+        event.setUserId(UUID.randomUUID());
+        event.setPartition(2);
+        event.setOffset(41L);
+        event.setTimestamp(LocalDateTime.of(2025, 3, 1, 12, 0));
+
+        CompletableFuture<SendResult<String, String>> sent = CompletableFuture.completedFuture(null);
+        lenient().when(kafkaTemplate.send(any(ProducerRecord.class))).thenReturn(sent);
+    }
+
+    @Test
+    void retry_shouldMoveThroughTiersAndEndInDeadLetterTopic() {
+        // When
+        router.retry(event, 1, new RuntimeException("db down"));
+        router.retry(event, 2, new RuntimeException("db down"));
+        router.retry(event, 3, new RuntimeException("db down"));
+        router.retry(event, 4, new RuntimeException("db down"));
+
+        // Then
+        List<ProducerRecord<String, String>> sent = captureSent(4);
+        assertThat(sent).extracting(ProducerRecord::topic)
+                .containsExactly(KafkaTopics.RETRY_1, KafkaTopics.RETRY_2, KafkaTopics.RETRY_3, KafkaTopics.DEAD_LETTER);
+        assertThat(sent).allSatisfy(record -> assertThat(record.key()).isEqualTo(event.getEventId().toString()));
+        assertThat(header(sent.get(3), RetryTopicRouter.HEADER_DUE_AT)).isNull();
+    }
+
+    @Test
+    void retry_shouldSetDueTimeFromTierDelay() {
+        // When
+        Instant before = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        router.retry(event, 2, new RuntimeException("db down"));
+
+        // Then
+        ProducerRecord<String, String> sent = captureSent(1).get(0);
+        Instant dueAt = Instant.ofEpochMilli(Long.parseLong(header(sent, RetryTopicRouter.HEADER_DUE_AT)));
+        assertThat(dueAt).isBetween(before.plusSeconds(60), Instant.now().plusSeconds(60));
+        assertThat(header(sent, RetryTopicRouter.HEADER_ATTEMPT)).isEqualTo("2");
+        assertThat(header(sent, RetryTopicRouter.HEADER_ERROR)).isEqualTo("db down");
+    }
+
+    @Test
+    void retry_shouldSendNonTransientFailuresStraightToDeadLetterTopic() {
+        // When
+        router.retry(event, 1, new DataIntegrityViolationException("value too long"));
+
+        // Then
+        assertThat(captureSent(1).get(0).topic()).isEqualTo(KafkaTopics.DEAD_LETTER);
+    }
+
+    @Test
+    void read_shouldRestoreEventWithSourceCoordinates() throws Exception {
+        // Given
+        router.retry(event, 1, new RuntimeException("db down"));
+        ConsumerRecord<String, String> consumed = asConsumed(captureSent(1).get(0));
+
+        // When
+        AnalyticsEvent read = router.read(consumed, new AnalyticsEventDecoder());
+
+        // Then
+        assertThat(read).isEqualTo(event);
+        assertThat(RetryTopicRouter.attempt(consumed)).isEqualTo(1);
+    }
+
+    @Test
+    void deadLetter_shouldKeepRawPayloadAndSourceCoordinates() throws Exception {
+        // Given
+        UUID eventId = UUID.randomUUID();
+        ConsumerRecord<String, String> source = new ConsumerRecord<>(KafkaTopics.EVENT_UPDATED, 4, 99L,
+                eventId.toString(), "{\"eventId\":\"" + eventId + "\"}");
+
+        // When
+        router.deadLetter(source, new IllegalStateException("decoder bug"));
+        ConsumerRecord<String, String> consumed = asConsumed(captureSent(1).get(0));
+        AnalyticsEvent read = router.read(consumed, new AnalyticsEventDecoder());
+
+        // Then
+        assertThat(consumed.topic()).isEqualTo(KafkaTopics.DEAD_LETTER);
+        assertThat(consumed.value()).isEqualTo(source.value());
+        assertThat(read.getType()).isEqualTo(AnalyticsEvent.Type.EVENT_UPDATED);
+        assertThat(read.getEventId()).isEqualTo(eventId);
+        assertThat(read.getPartition()).isEqualTo(4);
+        assertThat(read.getOffset()).isEqualTo(99L);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<ProducerRecord<String, String>> captureSent(int count) {
+        ArgumentCaptor<ProducerRecord<String, String>> captor = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(kafkaTemplate, times(count)).send(captor.capture());
+        return captor.getAllValues();
+    }
+
+    private static ConsumerRecord<String, String> asConsumed(ProducerRecord<String, String> sent) {
+        return new ConsumerRecord<>(sent.topic(), 0, 0L, sent.timestamp() != null ? sent.timestamp() : 0L,
+                TimestampType.CREATE_TIME, ConsumerRecord.NULL_SIZE, ConsumerRecord.NULL_SIZE,
+                sent.key(), sent.value(), sent.headers(), Optional.empty());
+    }
+
+    private static String header(ProducerRecord<String, String> record, String name) {
+        Header header = record.headers().lastHeader(name);
+        return header != null ? new String(header.value()) : null;
+    }
+}
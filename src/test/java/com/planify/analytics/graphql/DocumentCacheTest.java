@@ -0,0 +1,82 @@
+package com.planify.analytics.graphql;
+
+import com.planify.analytics.config.AnalyticsProperties;
+import graphql.ExecutionInput;
+import graphql.execution.preparsed.PreparsedDocumentEntry;
+import graphql.execution.preparsed.persisted.PersistedQueryNotFound;
+import graphql.execution.preparsed.persisted.PersistedQuerySupport;
+import graphql.parser.Parser;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.*;
+
+class DocumentCacheTest {
+    
+    private static final String QUERY = "query { activeEventsCount }";
+    
+    private DocumentCache documentCache;
+    private AtomicInteger parsed;
+    private Function<ExecutionInput, PreparsedDocumentEntry> parseAndValidate;
+    
+    @BeforeEach
+    void setUp() {
+        documentCache = new DocumentCache(new AnalyticsProperties(), new SimpleMeterRegistry());
+        parsed = new AtomicInteger();
+        parseAndValidate = input -> {
+            parsed.incrementAndGet();
+            return new PreparsedDocumentEntry(Parser.parse(input.getQuery()));
+        };
+    }
+    
+    @Test
+    void getDocument_shouldParseSameQueryOnce() {
+        // When
+        PreparsedDocumentEntry first = documentCache.getDocumentAsync(input(QUERY, Map.of()), parseAndValidate).join();
+        PreparsedDocumentEntry second = documentCache.getDocumentAsync(input(QUERY, Map.of()), parseAndValidate).join();
+        
+        // Then
+        assertThat(parsed).hasValue(1);
+        assertThat(second).isSameAs(first);
+        assertThat(documentCache.cachedDocument(DocumentCache.documentId(QUERY, Map.of()))).isSameAs(first.getDocument());
+    }
+    
+    @Test
+    void getDocument_shouldServeRegisteredPersistedQueryByHash() {
+        // Given
+        String hash = DocumentCache.sha256(QUERY);
+        Map<String, Object> extensions = Map.of("persistedQuery", Map.of("version", 1, "sha256Hash", hash));
+        
+        // When
+        PreparsedDocumentEntry unknown = documentCache.getDocumentAsync(input(PersistedQuerySupport.PERSISTED_QUERY_MARKER, extensions), parseAndValidate).join();
+        documentCache.getDocumentAsync(input(QUERY, extensions), parseAndValidate).join();
+        PreparsedDocumentEntry known = documentCache.getDocumentAsync(input(PersistedQuerySupport.PERSISTED_QUERY_MARKER, extensions), parseAndValidate).join();
+        
+        // Then
+        assertThat(unknown.getErrors()).singleElement().isInstanceOf(PersistedQueryNotFound.class);
+        assertThat(known.hasErrors()).isFalse();
+        assertThat(parsed).hasValue(1);
+    }
+    
+    @Test
+    void getDocument_shouldRejectQueryNotMatchingHash() {
+        // Given
+        Map<String, Object> extensions = Map.of("persistedQuery", Map.of("version", 1, "sha256Hash", DocumentCache.sha256("query { other }")));
+        
+        // When
+        PreparsedDocumentEntry entry = documentCache.getDocumentAsync(input(QUERY, extensions), parseAndValidate).join();
+        
+        // Then
+        assertThat(entry.hasErrors()).isTrue();
+        assertThat(parsed).hasValue(0);
+    }
+    
+    private static ExecutionInput input(String query, Map<String, Object> extensions) {
+        return ExecutionInput.newExecutionInput().query(query).extensions(extensions).build();
+    }
+}
@@ -0,0 +1,88 @@
+package com.planify.analytics.jfr;
+
+import com.planify.analytics.config.AnalyticsProperties;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+class FlightRecorderServiceTest {
+    
+    @TempDir
+    private Path directory;
+    
+    private AnalyticsProperties properties;
+    private FlightRecorderService flightRecorderService;
+    
+    @BeforeEach
+    void setUp() {
+        properties = new AnalyticsProperties();
+        properties.getJfr().setDumpDirectory(directory.toString());
+        flightRecorderService = new FlightRecorderService(properties);
+    }
+    
+    @AfterEach
+    void tearDown() {
+        flightRecorderService.stop();
+    }
+    
+    @Test
+    void dump_shouldContainCircuitBreakerRejections() throws Exception {
+        // Given
+        flightRecorderService.start();
+        CircuitBreakerRegistry circuitBreakerRegistry = CircuitBreakerRegistry.ofDefaults();
+        new ResilienceEventRecorder(circuitBreakerRegistry, BulkheadRegistry.ofDefaults());
+        CircuitBreaker circuitBreaker = circuitBreakerRegistry.circuitBreaker("analyticsDatabase");
+        circuitBreaker.transitionToOpenState();
+        
+        // When
+        assertThat(circuitBreaker.tryAcquirePermission()).isFalse();
+        Path file = flightRecorderService.dump(1);
+        
+        // Then
+        assertThat(file).startsWith(directory).isRegularFile();
+        List<RecordedEvent> rejections = RecordingFile.readAllEvents(file).stream()
+                .filter(event -> event.getEventType().getName().equals("com.planify.analytics.CircuitBreakerRejected"))
+                .toList();
+        assertThat(rejections).hasSize(1);
+        assertThat(rejections.get(0).getString("circuitBreaker")).isEqualTo("analyticsDatabase");
+        assertThat(rejections.get(0).getString("state")).isEqualTo("OPEN");
+    }
+    
+    @Test
+    void getStatus_shouldReportRunningRecording() {
+        // When
+        flightRecorderService.start();
+        
+        // Then
+        assertThat(flightRecorderService.isRecording()).isTrue();
+        assertThat(flightRecorderService.getStatus())
+                .containsEntry("recording", true)
+                .containsEntry("state", "RUNNING")
+                .containsEntry("settings", "default")
+                .containsEntry("maxAgeMinutes", 30L);
+    }
+    
+    @Test
+    void dump_shouldFailWhenDisabled() {
+        // Given
+        properties.getJfr().setEnabled(false);
+        flightRecorderService.start();
+        
+        // When / Then
+        assertThat(flightRecorderService.isRecording()).isFalse();
+        assertThatThrownBy(() -> flightRecorderService.dump(5))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("not running");
+    }
+}
@@ -0,0 +1,329 @@
+package com.planify.analytics.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.planify.analytics.config.AnalyticsProperties;
+import com.planify.analytics.event.KafkaTopics;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.CountAtBucket;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.admin.OffsetSpec;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Sustained-ingest load test: embedded Kafka broker, the real listener and write-behind
+ * pipeline, and a local PostgreSQL (see application-loadtest.yaml).
+ * <p>
+ * Runs a series of stages with increasing target rates and writes a JSON report with the
+ * sustained throughput, consumer lag, database time and end-to-end latency of each stage.
+ * A stage is marked saturated when more than one second of traffic is still unconsumed or
+ * buffered at its end; the first saturated stage is reported as the breaking point.
+ * <p>
+ * Excluded from the default build, run with {@code mvn -Pload-test test}. Tunables are
+ * system properties: {@code loadtest.rates}, {@code loadtest.stage-seconds},
+ * {@code loadtest.events}, {@code loadtest.organizations}, {@code loadtest.skew},
+ * {@code loadtest.seed}, {@code loadtest.drain-timeout-seconds} and {@code loadtest.report}.
+ */
+@Tag("load")
+@SpringBootTest
+@AutoConfigureObservability(tracing = false)
+@ActiveProfiles("loadtest")
+@EmbeddedKafka(
+    partitions = 6,
+    topics = {
+        KafkaTopics.EVENT_CREATED,
+        KafkaTopics.EVENT_UPDATED,
+        KafkaTopics.EVENT_DELETED,
+        KafkaTopics.EVENT_PUBLISHED,
+        KafkaTopics.GUEST_INVITED,
+        KafkaTopics.RSVP_ACCEPTED,
+        KafkaTopics.RSVP_DECLINED,
+        KafkaTopics.GUEST_CHECKED_IN
+    }
+)
+@Slf4j
+class IngestLoadTest {
+
+    private static final int PARTITIONS = 6;
+
+    @Autowired
+    private EmbeddedKafkaBroker embeddedKafka;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private AnalyticsProperties analyticsProperties;
+
+    // Listener group, see KafkaConsumer
+    @Value("${spring.application.name}")
+    private String groupId;
+
+    private KafkaTemplate<String, String> kafkaTemplate;
+    private AdminClient adminClient;
+    private ScheduledExecutorService lagSampler;
+    private final AtomicLong maxLag = new AtomicLong();
+
+    @BeforeEach
+    void setUp() {
+        // Every table Flyway created in the load test schema, so later migrations are covered too
+        List<String> tables = jdbcTemplate.queryForList(
+                "SELECT quote_ident(table_name) FROM information_schema.tables "
+                        + "WHERE table_schema = current_schema() AND table_type = 'BASE TABLE' "
+                        + "AND table_name <> 'flyway_schema_history'", String.class);
+        jdbcTemplate.execute("TRUNCATE " + String.join(", ", tables) + " RESTART IDENTITY CASCADE");
+
+        Map<String, Object> producerProps = KafkaTestUtils.producerProps(embeddedKafka);
+        producerProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        producerProps.put(ProducerConfig.LINGER_MS_CONFIG, 5);
+        kafkaTemplate = new KafkaTemplate<>(new DefaultKafkaProducerFactory<>(producerProps));
+        adminClient = AdminClient.create(Map.of(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, embeddedKafka.getBrokersAsString()));
+
+        lagSampler = Executors.newSingleThreadScheduledExecutor();
+        lagSampler.scheduleAtFixedRate(() -> maxLag.accumulateAndGet(consumerLag(), Math::max), 0, 250, TimeUnit.MILLISECONDS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        lagSampler.shutdownNow();
+        adminClient.close();
+        kafkaTemplate.destroy();
+    }
+
+    @Test
+    void sustainedIngest() throws Exception {
+        List<Integer> rates = Arrays.stream(System.getProperty("loadtest.rates", "500,1000,2000,4000").split(","))
+                .map(String::trim)
+                .map(Integer::parseInt)
+                .toList();
+        Duration stageDuration = Duration.ofSeconds(Long.getLong("loadtest.stage-seconds", 20));
+        int organizations = Integer.getInteger("loadtest.organizations", 25);
+        int events = Integer.getInteger("loadtest.events", 2000);
+        double skew = Double.parseDouble(System.getProperty("loadtest.skew", "1.1"));
+        long seed = Long.getLong("loadtest.seed", 42);
+        Duration drainTimeout = Duration.ofSeconds(Long.getLong("loadtest.drain-timeout-seconds", 300));
+        Path reportPath = Path.of(System.getProperty("loadtest.report", "target/load-test/ingest-report.json"));
+
+        LoadTestReport report = new LoadTestReport();
+        report.setStartedAt(LocalDateTime.now());
+        LoadTestReport.Setup setup = report.getSetup();
+        setup.setPartitions(PARTITIONS);
+        setup.setWriterThreads(analyticsProperties.getIngest().getWriterThreads());
+        setup.setBufferCapacity(analyticsProperties.getIngest().getBufferCapacity());
+        setup.setBatchSize(analyticsProperties.getIngest().getBatchSize());
+        setup.setOrganizations(organizations);
+        setup.setEvents(events);
+        setup.setPopularitySkew(skew);
+        setup.setSeed(seed);
+
+        TrafficGenerator generator = new TrafficGenerator(kafkaTemplate, seed, organizations, events, skew);
+        long produced = generator.seedEvents();
+        setup.setSeedRecords(produced);
+        awaitApplied(produced, drainTimeout);
+
+        Snapshot runStart = snapshot();
+        for (int rate : rates) {
+            Snapshot stageStart = snapshot();
+            maxLag.set(0);
+            long stageProduced = generator.produce(rate, stageDuration);
+            produced += stageProduced;
+            Snapshot stageEnd = snapshot();
+
+            LoadTestReport.Stage stage = stageReport(rate, stageStart, stageEnd);
+            stage.setRecordsProduced(stageProduced);
+            stage.setEndConsumerLag(consumerLag());
+            stage.setMaxConsumerLag(Math.max(maxLag.get(), stage.getEndConsumerLag()));
+            stage.setEndBufferedRecords((long) meterRegistry.get("analytics.ingest.queue.depth").gauge().value());
+            stage.setSaturated(stage.getEndConsumerLag() + stage.getEndBufferedRecords() > rate);
+            report.getStages().add(stage);
+            log.warn("Stage {} rec/s: {} rec/s sustained, lag {} (max {}), db {}s, e2e p99 {} ms",
+                    rate, Math.round(stage.getSustainedRecordsPerSecond()), stage.getEndConsumerLag(),
+                    stage.getMaxConsumerLag(), Math.round(stage.getDbTimeSeconds()), stage.getEndToEndLatencyMs().getP99());
+        }
+
+        long drainStart = System.nanoTime();
+        boolean drained = awaitApplied(produced, drainTimeout);
+        Snapshot runEnd = snapshot();
+        LoadTestReport.Drain drain = report.getDrain();
+        drain.setSeconds((System.nanoTime() - drainStart) / 1e9);
+        drain.setCompleted(drained);
+        drain.setRecordsFailed(runEnd.failed);
+
+        LoadTestReport.Summary summary = report.getSummary();
+        summary.setRecordsProduced(produced);
+        summary.setRecordsApplied(runEnd.applied);
+        summary.setRecordsPerTopic(generator.recordsPerTopic());
+        summary.setMaxSustainedRecordsPerSecond(report.getStages().stream()
+                .mapToDouble(LoadTestReport.Stage::getSustainedRecordsPerSecond).max().orElse(0));
+        summary.setBreakingPointRecordsPerSecond(report.getStages().stream()
+                .filter(LoadTestReport.Stage::isSaturated)
+                .map(LoadTestReport.Stage::getTargetRecordsPerSecond)
+                .findFirst().orElse(null));
+        summary.setMaxConsumerLag(report.getStages().stream().mapToLong(LoadTestReport.Stage::getMaxConsumerLag).max().orElse(0));
+        summary.setDbTimeSeconds(runEnd.dbSeconds - runStart.dbSeconds);
+        summary.setEndToEndLatencyMs(latency(runStart.latency, runEnd.latency));
+
+        Files.createDirectories(reportPath.toAbsolutePath().getParent());
+        new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .enable(SerializationFeature.INDENT_OUTPUT)
+                .writeValue(reportPath.toFile(), report);
+        log.warn("Load test report written to {}", reportPath.toAbsolutePath());
+
+        assertThat(drained).as("all produced records applied within %s", drainTimeout).isTrue();
+        assertThat(runEnd.failed).isZero();
+    }
+
+    private LoadTestReport.Stage stageReport(int rate, Snapshot start, Snapshot end) {
+        double seconds = (end.nanos - start.nanos) / 1e9;
+        long applied = end.applied - start.applied;
+        long batches = end.batches - start.batches;
+
+        LoadTestReport.Stage stage = new LoadTestReport.Stage();
+        stage.setTargetRecordsPerSecond(rate);
+        stage.setDurationSeconds(seconds);
+        stage.setRecordsApplied(applied);
+        stage.setSustainedRecordsPerSecond(applied / seconds);
+        stage.setDbTimeSeconds(end.dbSeconds - start.dbSeconds);
+        stage.setDbUtilisation(stage.getDbTimeSeconds() / (seconds * analyticsProperties.getIngest().getWriterThreads()));
+        stage.setAverageBatchSize(batches == 0 ? 0 : (end.batchRecords - start.batchRecords) / batches);
+        stage.setEndToEndLatencyMs(latency(start.latency, end.latency));
+        return stage;
+    }
+
+    private boolean awaitApplied(long produced, Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (System.nanoTime() < deadline) {
+            Snapshot snapshot = snapshot();
+            if (snapshot.applied + snapshot.failed >= produced) {
+                return true;
+            }
+            Thread.sleep(200);
+        }
+        return false;
+    }
+
+    private Snapshot snapshot() {
+        Timer endToEnd = meterRegistry.get("analytics.ingest.end.to.end.latency").timer();
+        Timer drain = meterRegistry.get("analytics.ingest.drain.latency").timer();
+        DistributionSummary batchSize = meterRegistry.get("analytics.ingest.batch.size").summary();
+        HistogramSnapshot latency = endToEnd.takeSnapshot();
+        return new Snapshot(
+                System.nanoTime(),
+                latency.count(),
+                (long) meterRegistry.get("analytics.ingest.failed").counter().count(),
+                drain.totalTime(TimeUnit.NANOSECONDS) / 1e9,
+                batchSize.count(),
+                batchSize.totalAmount(),
+                latency);
+    }
+
+    /**
+     * Percentiles of the samples recorded between two snapshots, from the difference of the
+     * cumulative histogram buckets (Prometheus histograms never decay, hence
+     * {@code @AutoConfigureObservability}). Values are bucket upper bounds.
+     */
+    private static LoadTestReport.Latency latency(HistogramSnapshot before, HistogramSnapshot after) {
+        CountAtBucket[] start = before.histogramCounts();
+        CountAtBucket[] end = after.histogramCounts();
+        Map<Double, Double> startCounts = new HashMap<>();
+        for (CountAtBucket bucket : start) {
+            startCounts.put(bucket.bucket(), bucket.count());
+        }
+        double[] bounds = new double[end.length];
+        double[] counts = new double[end.length];
+        for (int i = 0; i < end.length; i++) {
+            bounds[i] = end[i].bucket(TimeUnit.MILLISECONDS);
+            counts[i] = end[i].count() - startCounts.getOrDefault(end[i].bucket(), 0.0);
+        }
+
+        LoadTestReport.Latency latency = new LoadTestReport.Latency();
+        double total = after.count() - before.count();
+        if (total <= 0) {
+            return latency;
+        }
+        latency.setP50(bucketAt(bounds, counts, total * 0.5));
+        latency.setP99(bucketAt(bounds, counts, total * 0.99));
+        latency.setMax(bucketAt(bounds, counts, total));
+        return latency;
+    }
+
+    private static double bucketAt(double[] bounds, double[] cumulativeCounts, double rank) {
+        for (int i = 0; i < bounds.length; i++) {
+            if (cumulativeCounts[i] >= rank) {
+                return bounds[i];
+            }
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+
+    private long consumerLag() {
+        try {
+            Map<TopicPartition, OffsetAndMetadata> committed =
+                    adminClient.listConsumerGroupOffsets(groupId).partitionsToOffsetAndMetadata().get();
+            Set<TopicPartition> partitions = KafkaTopics.ALL.stream()
+                    .flatMap(topic -> IntStream.range(0, PARTITIONS).mapToObj(p -> new TopicPartition(topic, p)))
+                    .collect(Collectors.toSet());
+            Map<TopicPartition, OffsetSpec> latest = partitions.stream()
+                    .collect(Collectors.toMap(partition -> partition, partition -> OffsetSpec.latest()));
+            long lag = 0;
+            for (var entry : adminClient.listOffsets(latest).all().get().entrySet()) {
+                OffsetAndMetadata position = committed.get(entry.getKey());
+                lag += entry.getValue().offset() - (position != null ? position.offset() : 0);
+            }
+            return lag;
+        } catch (Exception e) {
+            return 0;
+        }
+    }
+
+    private record Snapshot(long nanos, long applied, long failed, double dbSeconds,
+                            long batches, double batchRecords, HistogramSnapshot latency) {
+    }
+}
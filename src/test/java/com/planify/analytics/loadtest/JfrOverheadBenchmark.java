@@ -0,0 +1,178 @@
+package com.planify.analytics.loadtest;
+
+import ch.qos.logback.classic.Level;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.planify.analytics.config.AnalyticsProperties;
+import com.planify.analytics.event.AnalyticsEventDecoder;
+import com.planify.analytics.event.IngestOffsetTracker;
+import com.planify.analytics.event.IngestPipeline;
+import com.planify.analytics.event.KafkaConsumer;
+import com.planify.analytics.event.KafkaTopics;
+import com.planify.analytics.event.RetryTopicRouter;
+import com.planify.analytics.jfr.FlightRecorderService;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.record.TimestampType;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Overhead of the continuous flight recording on the listener hot path: records are decoded by
+ * the real {@link KafkaConsumer} (one RecordDecoded event each) with and without the recording
+ * running, in alternating rounds. Reports the median time per record of both modes, the
+ * overhead and how many recording bytes one record costs. The result is written as JSON.
+ * <p>
+ * Excluded from the default build, run with
+ * {@code mvn -Pload-test test -Dtest=JfrOverheadBenchmark}. Tunables are
+ * {@code loadtest.jfr-records} (per round), {@code loadtest.jfr-rounds},
+ * {@code loadtest.jfr-settings}, {@code loadtest.jfr-max-overhead}, {@code loadtest.seed} and
+ * {@code loadtest.jfr-report}.
+ */
+@Slf4j
+@Tag("load")
+class JfrOverheadBenchmark {
+
+    // The pipeline is mocked, so records are never completed and acknowledged
+    private static final Acknowledgment NO_ACK = () -> {
+    };
+
+    @Test
+    void measureRecordingOverhead() throws Exception {
+        int records = Integer.getInteger("loadtest.jfr-records", 200_000);
+        int rounds = Integer.getInteger("loadtest.jfr-rounds", 7);
+        String settings = System.getProperty("loadtest.jfr-settings", "default");
+        double maxOverhead = Double.parseDouble(System.getProperty("loadtest.jfr-max-overhead", "0.05"));
+        long seed = Long.getLong("loadtest.seed", 42L);
+        Path reportPath = Path.of(System.getProperty("loadtest.jfr-report", "target/load-test/jfr-overhead.json"));
+
+        // The listeners log every record at INFO, which would dwarf what is measured here
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(KafkaConsumer.class)).setLevel(Level.WARN);
+        KafkaConsumer consumer = new KafkaConsumer(new AnalyticsEventDecoder(),
+                mock(IngestPipeline.class, withSettings().stubOnly()),
+                mock(RetryTopicRouter.class, withSettings().stubOnly()),
+                new IngestOffsetTracker());
+        List<ConsumerRecord<String, String>> traffic = traffic(new Random(seed), records);
+
+        AnalyticsProperties properties = new AnalyticsProperties();
+        properties.getJfr().setSettings(settings);
+        Path dump = Files.createTempFile("jfr-overhead-", ".jfr");
+
+        // Warm up both paths before measuring
+        run(consumer, traffic);
+        FlightRecorderService warmUp = new FlightRecorderService(properties);
+        warmUp.start();
+        run(consumer, traffic);
+        warmUp.stop();
+
+        double[] off = new double[rounds];
+        double[] on = new double[rounds];
+        long recordingBytes = 0;
+        for (int round = 0; round < rounds; round++) {
+            off[round] = run(consumer, traffic);
+
+            FlightRecorderService recorder = new FlightRecorderService(properties);
+            recorder.start();
+            assertThat(recorder.isRecording()).isTrue();
+            on[round] = run(consumer, traffic);
+            recorder.dump(60, dump);
+            recordingBytes += Files.size(dump);
+            recorder.stop();
+            log.warn("Round {}: {} ns/record without recording, {} ns/record with", round + 1,
+                    String.format("%.0f", off[round]), String.format("%.0f", on[round]));
+        }
+        Files.deleteIfExists(dump);
+
+        Report report = new Report();
+        report.setStartedAt(LocalDateTime.now());
+        report.setSettings(settings);
+        report.setRecordsPerRound(records);
+        report.setRounds(rounds);
+        report.setNanosPerRecordWithout(median(off));
+        report.setNanosPerRecordWith(median(on));
+        report.setOverhead(report.getNanosPerRecordWith() / report.getNanosPerRecordWithout() - 1);
+        report.setRecordingBytesPerRecord((double) recordingBytes / ((long) records * rounds));
+
+        Files.createDirectories(reportPath.toAbsolutePath().getParent());
+        new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .enable(SerializationFeature.INDENT_OUTPUT)
+                .writeValue(reportPath.toFile(), report);
+        log.warn("JFR overhead ({} settings): {}%, report written to {}", settings,
+                String.format("%.2f", report.getOverhead() * 100), reportPath.toAbsolutePath());
+
+        assertThat(report.getOverhead()).isLessThan(maxOverhead);
+    }
+
+    /**
+     * @return nanoseconds per record
+     */
+    private static double run(KafkaConsumer consumer, List<ConsumerRecord<String, String>> traffic) {
+        long start = System.nanoTime();
+        for (ConsumerRecord<String, String> record : traffic) {
+            switch (record.topic()) {
+                case KafkaTopics.GUEST_INVITED -> consumer.consumeGuestInvited(record, NO_ACK);
+                case KafkaTopics.RSVP_ACCEPTED -> consumer.consumeRsvpAccepted(record, NO_ACK);
+                case KafkaTopics.RSVP_DECLINED -> consumer.consumeRsvpDeclined(record, NO_ACK);
+                default -> consumer.consumeGuestCheckedIn(record, NO_ACK);
+            }
+        }
+        return (double) (System.nanoTime() - start) / traffic.size();
+    }
+
+    private static List<ConsumerRecord<String, String>> traffic(Random random, int count) {
+        List<String> topics = List.of(KafkaTopics.GUEST_INVITED, KafkaTopics.RSVP_ACCEPTED,
+                KafkaTopics.RSVP_DECLINED, KafkaTopics.GUEST_CHECKED_IN);
+        List<UUID> events = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            events.add(new UUID(random.nextLong(), random.nextLong()));
+        }
+        long timestamp = System.currentTimeMillis();
+        List<ConsumerRecord<String, String>> traffic = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String topic = topics.get(random.nextInt(topics.size()));
+            UUID eventId = events.get(random.nextInt(events.size()));
+            String value = "{\"eventId\":\"%s\",\"userId\":\"%s\"}".formatted(eventId, new UUID(random.nextLong(), random.nextLong()));
+            traffic.add(new ConsumerRecord<>(topic, i % 6, i, timestamp + i, TimestampType.CREATE_TIME,
+                    36, value.length(), eventId.toString(), value, new RecordHeaders(), Optional.empty()));
+        }
+        return traffic;
+    }
+
+    private static double median(double[] values) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    @Data
+    static class Report {
+        private LocalDateTime startedAt;
+        private String settings;
+        private int recordsPerRound;
+        private int rounds;
+        private double nanosPerRecordWithout;
+        private double nanosPerRecordWith;
+        private double overhead;
+        private double recordingBytesPerRecord;
+    }
+}
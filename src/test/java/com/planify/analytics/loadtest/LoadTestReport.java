@@ -0,0 +1,77 @@
+package com.planify.analytics.loadtest;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Machine-readable result of an ingest load test run, written as JSON.
+ */
+@Data
+class LoadTestReport {
+
+    private LocalDateTime startedAt;
+    private Setup setup = new Setup();
+    private List<Stage> stages = new ArrayList<>();
+    private Drain drain = new Drain();
+    private Summary summary = new Summary();
+
+    @Data
+    static class Setup {
+        private int partitions;
+        private int writerThreads;
+        private int bufferCapacity;
+        private int batchSize;
+        private int organizations;
+        private int events;
+        private double popularitySkew;
+        private long seed;
+        private long seedRecords;
+    }
+
+    @Data
+    static class Stage {
+        private int targetRecordsPerSecond;
+        private double durationSeconds;
+        private long recordsProduced;
+        private long recordsApplied;
+        private double sustainedRecordsPerSecond;
+        private long maxConsumerLag;
+        private long endConsumerLag;
+        private long endBufferedRecords;
+        private double dbTimeSeconds;
+        private double dbUtilisation;
+        private double averageBatchSize;
+        private Latency endToEndLatencyMs;
+        private boolean saturated;
+    }
+
+    @Data
+    static class Drain {
+        private double seconds;
+        private boolean completed;
+        private long recordsFailed;
+    }
+
+    @Data
+    static class Summary {
+        private long recordsProduced;
+        private long recordsApplied;
+        private Map<String, Long> recordsPerTopic;
+        private double maxSustainedRecordsPerSecond;
+        private Integer breakingPointRecordsPerSecond;
+        private long maxConsumerLag;
+        private double dbTimeSeconds;
+        private Latency endToEndLatencyMs;
+    }
+
+    @Data
+    static class Latency {
+        private double p50;
+        private double p99;
+        private double max;
+    }
+}
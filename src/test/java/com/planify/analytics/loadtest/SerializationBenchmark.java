@@ -0,0 +1,182 @@
+package com.planify.analytics.loadtest;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.planify.analytics.config.BinaryFormatConfig;
+import com.planify.analytics.model.EventMetrics;
+import com.planify.analytics.model.UserActivity;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Compares the JSON, Smile and CBOR encodings of the large REST responses
+ * ({@code List<UserActivity>} and {@code List<EventMetrics>}): encoded and gzipped size and
+ * encode/decode time per response. The result is written as JSON.
+ * <p>
+ * Excluded from the default build, run with
+ * {@code mvn -Pload-test test -Dtest=SerializationBenchmark}. Tunables are
+ * {@code loadtest.serialization-activities}, {@code loadtest.serialization-events},
+ * {@code loadtest.serialization-iterations}, {@code loadtest.seed} and
+ * {@code loadtest.serialization-report}.
+ */
+@Slf4j
+@Tag("load")
+class SerializationBenchmark {
+
+    @Test
+    void compareResponseEncodings() throws Exception {
+        int activities = Integer.getInteger("loadtest.serialization-activities", 10_000);
+        int events = Integer.getInteger("loadtest.serialization-events", 2_000);
+        int iterations = Integer.getInteger("loadtest.serialization-iterations", 50);
+        long seed = Long.getLong("loadtest.seed", 42L);
+        Path reportPath = Path.of(System.getProperty("loadtest.serialization-report", "target/load-test/serialization-benchmark.json"));
+
+        BinaryFormatConfig config = new BinaryFormatConfig();
+        Map<String, ObjectMapper> mappers = new LinkedHashMap<>();
+        mappers.put("json", Jackson2ObjectMapperBuilder.json().build());
+        mappers.put("smile", config.smileHttpMessageConverter(new Jackson2ObjectMapperBuilder()).getObjectMapper());
+        mappers.put("cbor", config.cborHttpMessageConverter(new Jackson2ObjectMapperBuilder()).getObjectMapper());
+
+        Random random = new Random(seed);
+        Report report = new Report();
+        report.setStartedAt(LocalDateTime.now());
+        report.setIterations(iterations);
+        report.setUserActivities(measure(mappers, userActivities(random, activities), new TypeReference<List<UserActivity>>() { }, iterations));
+        report.setEventMetrics(measure(mappers, eventMetrics(random, events), new TypeReference<List<EventMetrics>>() { }, iterations));
+
+        Files.createDirectories(reportPath.toAbsolutePath().getParent());
+        new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .enable(SerializationFeature.INDENT_OUTPUT)
+                .writeValue(reportPath.toFile(), report);
+        log.warn("Serialization benchmark written to {}", reportPath.toAbsolutePath());
+
+        for (Map<String, Encoding> payload : List.of(report.getUserActivities(), report.getEventMetrics())) {
+            assertThat(payload.get("smile").getBytes()).isLessThan(payload.get("json").getBytes());
+            assertThat(payload.get("cbor").getBytes()).isLessThan(payload.get("json").getBytes());
+        }
+    }
+
+    private <T> Map<String, Encoding> measure(Map<String, ObjectMapper> mappers, List<T> payload,
+                                              TypeReference<List<T>> type, int iterations) throws IOException {
+        Map<String, Encoding> encodings = new LinkedHashMap<>();
+        for (Map.Entry<String, ObjectMapper> entry : mappers.entrySet()) {
+            ObjectMapper mapper = entry.getValue();
+            JavaType javaType = mapper.getTypeFactory().constructType(type);
+            byte[] encoded = mapper.writeValueAsBytes(payload);
+            assertThat(mapper.<List<T>>readValue(encoded, javaType)).hasSameSizeAs(payload);
+
+            // Warm up, then time encode and decode separately
+            for (int i = 0; i < iterations; i++) {
+                mapper.readValue(mapper.writeValueAsBytes(payload), javaType);
+            }
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                encoded = mapper.writeValueAsBytes(payload);
+            }
+            long encodeNanos = (System.nanoTime() - start) / iterations;
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                mapper.readValue(encoded, javaType);
+            }
+            long decodeNanos = (System.nanoTime() - start) / iterations;
+
+            Encoding encoding = new Encoding();
+            encoding.setRecords(payload.size());
+            encoding.setBytes(encoded.length);
+            encoding.setGzipBytes(gzip(encoded).length);
+            encoding.setBytesPerRecord((double) encoded.length / payload.size());
+            encoding.setEncodeMillis(encodeNanos / 1e6);
+            encoding.setDecodeMillis(decodeNanos / 1e6);
+            encodings.put(entry.getKey(), encoding);
+            log.warn("{} x{} {}: {} bytes ({} gzipped), encode {} ms, decode {} ms", payload.get(0).getClass().getSimpleName(),
+                    payload.size(), entry.getKey(), encoding.getBytes(), encoding.getGzipBytes(),
+                    String.format("%.2f", encoding.getEncodeMillis()), String.format("%.2f", encoding.getDecodeMillis()));
+        }
+        return encodings;
+    }
+
+    private static List<UserActivity> userActivities(Random random, int count) {
+        UserActivity.ActivityType[] types = UserActivity.ActivityType.values();
+        UUID userId = new UUID(random.nextLong(), random.nextLong());
+        LocalDateTime timestamp = LocalDateTime.now().minusDays(30);
+        List<UserActivity> activities = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            activities.add(new UserActivity((long) i, userId, new UUID(random.nextLong(), random.nextLong()),
+                    types[random.nextInt(types.length)], timestamp.plusSeconds(i * 17L), i % 6, (long) i / 6));
+        }
+        return activities;
+    }
+
+    private static List<EventMetrics> eventMetrics(Random random, int count) {
+        UUID organizationId = new UUID(random.nextLong(), random.nextLong());
+        LocalDateTime createdAt = LocalDateTime.now().minusDays(90);
+        List<EventMetrics> metrics = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            EventMetrics event = new EventMetrics();
+            event.setId((long) i);
+            event.setEventId(new UUID(random.nextLong(), random.nextLong()));
+            event.setOrganizationId(organizationId);
+            event.setEventTitle("Event " + i);
+            event.setEventDate(createdAt.plusDays(30 + i % 60));
+            event.setEventStatus(i % 4 == 0 ? "DRAFT" : "PUBLISHED");
+            event.setTotalInvites(random.nextInt(500));
+            event.setRsvpAccepted(random.nextInt(200));
+            event.setRsvpDeclined(random.nextInt(100));
+            event.setRsvpMaybe(random.nextInt(50));
+            event.setCheckedIn(random.nextInt(150));
+            event.setCreatedAt(createdAt.plusMinutes(i));
+            event.setUpdatedAt(createdAt.plusMinutes(i).plusDays(1));
+            metrics.add(event);
+        }
+        return metrics;
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(data);
+        }
+        return out.toByteArray();
+    }
+
+    @Data
+    static class Report {
+        private LocalDateTime startedAt;
+        private int iterations;
+        private Map<String, Encoding> userActivities;
+        private Map<String, Encoding> eventMetrics;
+    }
+
+    @Data
+    static class Encoding {
+        private int records;
+        private int bytes;
+        private int gzipBytes;
+        private double bytesPerRecord;
+        private double encodeMillis;
+        private double decodeMillis;
+    }
+}
@@ -0,0 +1,200 @@
+package com.planify.analytics.loadtest;
+
+import com.planify.analytics.event.KafkaTopics;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Produces skewed, production-like traffic to all consumed topics.
+ * <p>
+ * Event popularity follows a Zipf distribution, so a handful of hot events receive most of
+ * the invites and RSVPs. On top of the steady mix the generator injects invite bursts (a
+ * whole guest list invited to one event at once) and check-in storms (accepted guests of a
+ * hot event checking in together at the door). Records are keyed by eventId like the
+ * producing services do, so one event's records stay on one partition.
+ */
+class TrafficGenerator {
+
+    private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final Random random;
+    private final UUID[] organizationIds;
+    private final UUID[] eventIds;
+    private final boolean[] deleted;
+    private final double[] cumulativePopularity;
+    private final List<List<UUID>> acceptedGuests;
+    private final Map<String, AtomicLong> recordsPerTopic = new TreeMap<>();
+
+    TrafficGenerator(KafkaTemplate<String, String> kafkaTemplate, long seed, int organizations, int events, double skew) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.random = new Random(seed);
+        this.organizationIds = new UUID[organizations];
+        this.eventIds = new UUID[events];
+        this.deleted = new boolean[events];
+        this.cumulativePopularity = new double[events];
+        this.acceptedGuests = new ArrayList<>(events);
+
+        for (int i = 0; i < organizations; i++) {
+            organizationIds[i] = new UUID(random.nextLong(), random.nextLong());
+        }
+        double total = 0;
+        for (int rank = 0; rank < events; rank++) {
+            eventIds[rank] = new UUID(random.nextLong(), random.nextLong());
+            total += 1.0 / Math.pow(rank + 1, skew);
+            cumulativePopularity[rank] = total;
+            acceptedGuests.add(new ArrayList<>());
+        }
+        for (int rank = 0; rank < events; rank++) {
+            cumulativePopularity[rank] /= total;
+        }
+        KafkaTopics.ALL.forEach(topic -> recordsPerTopic.put(topic, new AtomicLong()));
+    }
+
+    /**
+     * Creates every event up front and publishes most of them, as the event service would
+     * before guests start interacting.
+     *
+     * @return records sent
+     */
+    long seedEvents() {
+        long sent = 0;
+        for (int rank = 0; rank < eventIds.length; rank++) {
+            UUID eventId = eventIds[rank];
+            send(KafkaTopics.EVENT_CREATED, eventId, String.format(
+                    "{\"eventId\":\"%s\",\"organizationId\":\"%s\",\"title\":\"Load test event %d\",\"eventDate\":\"%s\",\"status\":\"DRAFT\"}",
+                    eventId, organizationIds[rank % organizationIds.length], rank,
+                    LocalDateTime.now().plusDays(1 + rank % 60).withNano(0)));
+            sent++;
+            if (random.nextDouble() < 0.8) {
+                send(KafkaTopics.EVENT_PUBLISHED, eventId, eventOnly(eventId));
+                sent++;
+            }
+        }
+        kafkaTemplate.flush();
+        return sent;
+    }
+
+    /**
+     * Sends the traffic mix at {@code recordsPerSecond} on average for {@code duration}.
+     * Bursts count towards the rate, so the instantaneous rate is spiky.
+     *
+     * @return records sent
+     */
+    long produce(int recordsPerSecond, Duration duration) {
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        long sent = 0;
+        long now;
+        while ((now = System.nanoTime()) < end) {
+            long due = (long) ((now - start) / 1e9 * recordsPerSecond);
+            while (sent < due) {
+                sent += nextAction();
+            }
+            LockSupport.parkNanos(TICK_NANOS);
+        }
+        kafkaTemplate.flush();
+        return sent;
+    }
+
+    Map<String, Long> recordsPerTopic() {
+        Map<String, Long> counts = new TreeMap<>();
+        recordsPerTopic.forEach((topic, count) -> counts.put(topic, count.get()));
+        return counts;
+    }
+
+    private int nextAction() {
+        double roll = random.nextDouble();
+        int rank = hotEvent();
+        UUID eventId = eventIds[rank];
+
+        if (roll < 0.01) {
+            return inviteBurst(eventId, 100 + random.nextInt(400));
+        }
+        if (roll < 0.015) {
+            return checkInStorm(rank);
+        }
+        if (roll < 0.45) {
+            send(KafkaTopics.GUEST_INVITED, eventId, guest(eventId, UUID.randomUUID()));
+        } else if (roll < 0.70) {
+            UUID guestId = UUID.randomUUID();
+            acceptedGuests.get(rank).add(guestId);
+            send(KafkaTopics.RSVP_ACCEPTED, eventId, guest(eventId, guestId));
+        } else if (roll < 0.82) {
+            send(KafkaTopics.RSVP_DECLINED, eventId, guest(eventId, UUID.randomUUID()));
+        } else if (roll < 0.94) {
+            List<UUID> guests = acceptedGuests.get(rank);
+            UUID guestId = guests.isEmpty() ? UUID.randomUUID() : guests.get(random.nextInt(guests.size()));
+            send(KafkaTopics.GUEST_CHECKED_IN, eventId, guest(eventId, guestId));
+        } else if (roll < 0.998) {
+            send(KafkaTopics.EVENT_UPDATED, eventId, eventOnly(eventId));
+        } else {
+            return deleteColdEvent();
+        }
+        return 1;
+    }
+
+    private int inviteBurst(UUID eventId, int guests) {
+        for (int i = 0; i < guests; i++) {
+            send(KafkaTopics.GUEST_INVITED, eventId, guest(eventId, UUID.randomUUID()));
+        }
+        return guests;
+    }
+
+    private int checkInStorm(int rank) {
+        UUID eventId = eventIds[rank];
+        List<UUID> guests = acceptedGuests.get(rank);
+        int storm = Math.max(1, Math.min(guests.size(), 300));
+        for (int i = 0; i < storm; i++) {
+            UUID guestId = guests.isEmpty() ? UUID.randomUUID() : guests.get(i);
+            send(KafkaTopics.GUEST_CHECKED_IN, eventId, guest(eventId, guestId));
+        }
+        return storm;
+    }
+
+    private int deleteColdEvent() {
+        // Only the long tail gets deleted; hot events stay alive for the whole run
+        int rank = eventIds.length / 2 + random.nextInt(eventIds.length - eventIds.length / 2);
+        if (deleted[rank]) {
+            return 0;
+        }
+        deleted[rank] = true;
+        send(KafkaTopics.EVENT_DELETED, eventIds[rank], eventOnly(eventIds[rank]));
+        return 1;
+    }
+
+    private int hotEvent() {
+        while (true) {
+            int index = Arrays.binarySearch(cumulativePopularity, random.nextDouble());
+            int rank = Math.min(index >= 0 ? index : -index - 1, eventIds.length - 1);
+            if (!deleted[rank]) {
+                return rank;
+            }
+        }
+    }
+
+    private void send(String topic, UUID eventId, String payload) {
+        kafkaTemplate.send(topic, eventId.toString(), payload);
+        recordsPerTopic.get(topic).incrementAndGet();
+    }
+
+    private static String eventOnly(UUID eventId) {
+        return "{\"eventId\":\"" + eventId + "\"}";
+    }
+
+    private static String guest(UUID eventId, UUID userId) {
+        return "{\"eventId\":\"" + eventId + "\",\"userId\":\"" + userId + "\"}";
+    }
+}
@@ -0,0 +1,205 @@
+package com.planify.analytics.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.planify.analytics.model.UserActivity;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Before/after report for the compact user_activity layout (V4__user_activity_compact.sql).
+ * <p>
+ * Migrates one schema up to V3 and one to the latest version, inserts the same synthetic
+ * activity stream into both in replay-sized batches and compares heap and index size per
+ * row and insert throughput. The result is written as JSON.
+ * <p>
+ * Excluded from the default build, run with
+ * {@code mvn -Pload-test test -Dtest=UserActivityStorageReport}. Uses the load test
+ * database ({@code LOADTEST_DB_URL}, {@code LOADTEST_DB_USERNAME}, {@code LOADTEST_DB_PASSWORD});
+ * tunables are {@code loadtest.activity-rows}, {@code loadtest.events}, {@code loadtest.seed}
+ * and {@code loadtest.storage-report}.
+ */
+@Slf4j
+@Tag("load")
+class UserActivityStorageReport {
+
+    private static final int BATCH_SIZE = 500;
+
+    @Test
+    void compareUserActivityLayouts() throws Exception {
+        int rows = Integer.getInteger("loadtest.activity-rows", 200_000);
+        int events = Integer.getInteger("loadtest.events", 2_000);
+        long seed = Long.getLong("loadtest.seed", 42L);
+        Path reportPath = Path.of(System.getProperty("loadtest.storage-report", "target/load-test/user-activity-storage-report.json"));
+
+        Report report = new Report();
+        report.setStartedAt(LocalDateTime.now());
+        report.setRows(rows);
+        report.setEvents(events);
+        report.setBefore(measure("analytics_storage_before", "3", false, rows, events, seed));
+        report.setAfter(measure("analytics_storage_after", null, true, rows, events, seed));
+        report.setBytesPerRowSaved(report.getBefore().getTotalBytesPerRow() - report.getAfter().getTotalBytesPerRow());
+        report.setInsertSpeedup(report.getAfter().getInsertRowsPerSecond() / report.getBefore().getInsertRowsPerSecond());
+
+        Files.createDirectories(reportPath.toAbsolutePath().getParent());
+        new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .enable(SerializationFeature.INDENT_OUTPUT)
+                .writeValue(reportPath.toFile(), report);
+        log.warn("user_activity storage report written to {}", reportPath.toAbsolutePath());
+
+        assertThat(report.getAfter().getTotalBytesPerRow()).isLessThan(report.getBefore().getTotalBytesPerRow());
+    }
+
+    private Layout measure(String schema, String target, boolean compact, int rows, int events, long seed) throws SQLException {
+        var configuration = Flyway.configure()
+                .dataSource(url(), username(), password())
+                .locations("classpath:db/migration")
+                .schemas(schema)
+                .defaultSchema(schema)
+                .createSchemas(true)
+                .cleanDisabled(false);
+        if (target != null) {
+            configuration.target(target);
+        }
+        Flyway flyway = configuration.load();
+        flyway.clean();
+        flyway.migrate();
+
+        Layout layout = new Layout();
+        layout.setSchemaVersion(flyway.info().current().getVersion().getVersion());
+
+        try (Connection connection = DriverManager.getConnection(url(), username(), password())) {
+            connection.setSchema(schema);
+            connection.setAutoCommit(false);
+
+            String sql = "INSERT INTO user_activity (user_id, event_id, activity_type, activity_timestamp, source_partition, source_offset) "
+                    + "VALUES (?, ?, ?, ?, ?, ?)";
+            Random random = new Random(seed);
+            UUID[] eventIds = new UUID[events];
+            for (int i = 0; i < events; i++) {
+                eventIds[i] = new UUID(random.nextLong(), random.nextLong());
+            }
+            UserActivity.ActivityType[] types = UserActivity.ActivityType.values();
+            LocalDateTime timestamp = LocalDateTime.now().minusDays(30);
+
+            long start = System.nanoTime();
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                for (int i = 0; i < rows; i++) {
+                    // Skewed towards low event indexes, like hot events in production
+                    int event = (int) (events * Math.pow(random.nextDouble(), 3));
+                    UserActivity.ActivityType type = types[random.nextInt(types.length)];
+                    ps.setObject(1, new UUID(random.nextLong(), random.nextLong()));
+                    ps.setObject(2, eventIds[event]);
+                    if (compact) {
+                        ps.setShort(3, type.getCode());
+                    } else {
+                        ps.setString(3, type.name());
+                    }
+                    ps.setTimestamp(4, Timestamp.valueOf(timestamp.plusNanos(i * 10_000_000L)));
+                    ps.setInt(5, i % 6);
+                    ps.setLong(6, i / 6);
+                    ps.addBatch();
+                    if ((i + 1) % BATCH_SIZE == 0 || i == rows - 1) {
+                        ps.executeBatch();
+                        connection.commit();
+                    }
+                }
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            layout.setInsertSeconds(seconds);
+            layout.setInsertRowsPerSecond(rows / seconds);
+
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("ANALYZE user_activity");
+            }
+            connection.commit();
+
+            layout.setHeapBytes(queryLong(connection, "SELECT pg_relation_size('user_activity')"));
+            layout.setIndexBytes(queryLong(connection, "SELECT pg_indexes_size('user_activity')"));
+            layout.setTotalBytes(queryLong(connection, "SELECT pg_total_relation_size('user_activity')"));
+            layout.setHeapBytesPerRow((double) layout.getHeapBytes() / rows);
+            layout.setTotalBytesPerRow((double) layout.getTotalBytes() / rows);
+
+            Map<String, Long> indexes = new LinkedHashMap<>();
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "SELECT indexrelid::regclass::text, pg_relation_size(indexrelid) FROM pg_index "
+                            + "WHERE indrelid = 'user_activity'::regclass ORDER BY 1")) {
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        indexes.put(rs.getString(1), rs.getLong(2));
+                    }
+                }
+            }
+            layout.setIndexBytesByName(indexes);
+        }
+        log.warn("{}: {} rows, {} bytes/row, {} rows/s", schema, rows,
+                Math.round(layout.getTotalBytesPerRow()), Math.round(layout.getInsertRowsPerSecond()));
+        return layout;
+    }
+
+    private static long queryLong(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement(); ResultSet rs = statement.executeQuery(sql)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private static String url() {
+        return System.getenv().getOrDefault("LOADTEST_DB_URL", "jdbc:postgresql://localhost:5432/planify");
+    }
+
+    private static String username() {
+        return System.getenv().getOrDefault("LOADTEST_DB_USERNAME", "planify");
+    }
+
+    private static String password() {
+        return System.getenv().getOrDefault("LOADTEST_DB_PASSWORD", "planify");
+    }
+
+    @Data
+    static class Report {
+        private LocalDateTime startedAt;
+        private int rows;
+        private int events;
+        private Layout before;
+        private Layout after;
+        private double bytesPerRowSaved;
+        private double insertSpeedup;
+    }
+
+    @Data
+    static class Layout {
+        private String schemaVersion;
+        private double insertSeconds;
+        private double insertRowsPerSecond;
+        private long heapBytes;
+        private long indexBytes;
+        private long totalBytes;
+        private double heapBytesPerRow;
+        private double totalBytesPerRow;
+        private Map<String, Long> indexBytesByName;
+    }
+}
@@ -0,0 +1,40 @@
+package com.planify.analytics.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.*;
+
+class ActivityTypeConverterTest {
+    
+    private final ActivityTypeConverter converter = new ActivityTypeConverter();
+    
+    @Test
+    void convertToDatabaseColumn_shouldUsePersistedCodes() {
+        // Codes are stored in user_activity and mapped in V4__user_activity_compact.sql
+        assertThat(converter.convertToDatabaseColumn(UserActivity.ActivityType.RSVP_ACCEPTED)).isEqualTo((short) 1);
+        assertThat(converter.convertToDatabaseColumn(UserActivity.ActivityType.RSVP_DECLINED)).isEqualTo((short) 2);
+        assertThat(converter.convertToDatabaseColumn(UserActivity.ActivityType.RSVP_MAYBE)).isEqualTo((short) 3);
+        assertThat(converter.convertToDatabaseColumn(UserActivity.ActivityType.CHECKED_IN)).isEqualTo((short) 4);
+        assertThat(converter.convertToDatabaseColumn(UserActivity.ActivityType.EVENT_VIEWED)).isEqualTo((short) 5);
+        assertThat(converter.convertToDatabaseColumn(UserActivity.ActivityType.INVITATION_SENT)).isEqualTo((short) 6);
+    }
+    
+    @Test
+    void convertToEntityAttribute_shouldRoundTripEveryType() {
+        for (UserActivity.ActivityType type : UserActivity.ActivityType.values()) {
+            assertThat(converter.convertToEntityAttribute(converter.convertToDatabaseColumn(type))).isEqualTo(type);
+        }
+    }
+    
+    @Test
+    void convertToEntityAttribute_shouldRejectUnknownCode() {
+        assertThatThrownBy(() -> converter.convertToEntityAttribute((short) 99))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+    
+    @Test
+    void converter_shouldPassNullThrough() {
+        assertThat(converter.convertToDatabaseColumn(null)).isNull();
+        assertThat(converter.convertToEntityAttribute(null)).isNull();
+    }
+}
@@ -0,0 +1,87 @@
+package com.planify.analytics.repository;
+
+import com.planify.analytics.model.UserActivity;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+
+class ActivitySegmentCodecTest {
+    
+    private static final LocalDateTime START = LocalDateTime.of(2025, 3, 14, 18, 0, 0, 123_456_000);
+    
+    @Test
+    void decode_shouldRestoreEncodedRows() {
+        // Given
+        UUID eventId = UUID.randomUUID();
+        UUID firstUser = UUID.randomUUID();
+        UUID secondUser = UUID.randomUUID();
+        List<UserActivity> activities = List.of(
+                activity(41L, firstUser, eventId, UserActivity.ActivityType.INVITATION_SENT, START),
+                activity(40L, secondUser, eventId, UserActivity.ActivityType.RSVP_DECLINED, START.plusSeconds(90)),
+                activity(57L, firstUser, eventId, UserActivity.ActivityType.CHECKED_IN, START.plusDays(3)));
+        UUID[] userIds = ActivitySegmentCodec.userIds(activities);
+        
+        // When
+        byte[] data = ActivitySegmentCodec.encode(activities, userIds);
+        List<UserActivity> decoded = ActivitySegmentCodec.decode(eventId, userIds, data);
+        
+        // Then
+        assertThat(userIds).containsExactlyInAnyOrder(firstUser, secondUser);
+        assertThat(decoded).containsExactlyElementsOf(activities);
+    }
+    
+    @Test
+    void encode_shouldCompressRowsOfOneEvent() {
+        // Given
+        UUID eventId = UUID.randomUUID();
+        List<UUID> users = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            users.add(UUID.randomUUID());
+        }
+        List<UserActivity> activities = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            activities.add(activity(1000L + i, users.get(i % users.size()), eventId,
+                    UserActivity.ActivityType.EVENT_VIEWED, START.plusSeconds(i * 7L)));
+        }
+        UUID[] userIds = ActivitySegmentCodec.userIds(activities);
+        
+        // When
+        byte[] data = ActivitySegmentCodec.encode(activities, userIds);
+        
+        // Then
+        // A user_activity row takes about 90 bytes with its index entries
+        assertThat(data.length).isLessThan(activities.size() * 4);
+        assertThat(ActivitySegmentCodec.decode(eventId, userIds, data)).hasSize(activities.size());
+    }
+    
+    @Test
+    void decode_shouldRejectCorruptData() {
+        // Given
+        UUID eventId = UUID.randomUUID();
+        UUID userId = UUID.randomUUID();
+        List<UserActivity> activities = List.of(activity(1L, userId, eventId, UserActivity.ActivityType.RSVP_MAYBE, START));
+        UUID[] userIds = {userId};
+        byte[] data = ActivitySegmentCodec.encode(activities, userIds);
+        byte[] corrupted = data.clone();
+        corrupted[corrupted.length / 2] ^= 0x5A;
+        
+        // When / Then
+        assertThatThrownBy(() -> ActivitySegmentCodec.decode(eventId, userIds, corrupted))
+                .isInstanceOf(RuntimeException.class);
+    }
+    
+    private static UserActivity activity(long id, UUID userId, UUID eventId, UserActivity.ActivityType type, LocalDateTime at) {
+        UserActivity activity = new UserActivity();
+        activity.setId(id);
+        activity.setUserId(userId);
+        activity.setEventId(eventId);
+        activity.setActivityType(type);
+        activity.setActivityTimestamp(at);
+        return activity;
+    }
+}
@@ -0,0 +1,152 @@
+package com.planify.analytics.service;
+
+import com.planify.analytics.config.AnalyticsProperties;
+import com.planify.analytics.model.UserActivity;
+import com.planify.analytics.model.UserActivityView;
+import com.planify.analytics.repository.ActivityArchiveRepository;
+import com.planify.analytics.repository.ActivityArchiveRepository.SegmentStats;
+import com.planify.analytics.repository.ProjectionRepository;
+import com.planify.analytics.repository.UserActivityRepository;
+import com.planify.analytics.sharding.ShardRouter;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ActivityArchiveServiceTest {
+    
+    private static final LocalDateTime BEFORE = LocalDateTime.of(2025, 6, 1, 0, 0);
+    
+    @Mock
+    private ActivityArchiveRepository archiveRepository;
+    
+    @Mock
+    private UserActivityRepository userActivityRepository;
+    
+    @Mock
+    private ProjectionRepository projectionRepository;
+    
+    @Mock
+    private PlatformTransactionManager transactionManager;
+    
+    private SimpleMeterRegistry meterRegistry;
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+    private ActivityArchiveService archiveService;
+    private UUID eventId;
+    private UUID userId;
+    
+    @BeforeEach
+    void setUp() {
+        AnalyticsProperties properties = new AnalyticsProperties();
+        properties.getArchive().setEnabled(false);
+        properties.getArchive().setSegmentSize(10);
+        properties.getArchive().setMaxSegmentsPerRun(3);
+        meterRegistry = new SimpleMeterRegistry();
+        circuitBreakerRegistry = CircuitBreakerRegistry.ofDefaults();
+        archiveService = new ActivityArchiveService(archiveRepository, userActivityRepository, projectionRepository,
+                transactionManager, new ShardRouter(properties, null), circuitBreakerRegistry, properties, meterRegistry);
+        archiveService.start();
+        eventId = UUID.randomUUID();
+        userId = UUID.randomUUID();
+    }
+    
+    @Test
+    void archiveShard_shouldMoveActivityInSegmentsUntilBudgetIsUsed() {
+        // Given
+        UUID nextEventId = UUID.randomUUID();
+        when(archiveRepository.findArchivableEventIds(BEFORE, 100)).thenReturn(List.of(eventId, nextEventId));
+        when(archiveRepository.archive(eventId, BEFORE, 10)).thenReturn(new SegmentStats(10, 120), new SegmentStats(4, 60));
+        when(archiveRepository.archive(nextEventId, BEFORE, 10)).thenReturn(new SegmentStats(10, 100));
+        
+        // When
+        archiveService.archiveShard(BEFORE);
+        
+        // Then
+        verify(archiveRepository, times(2)).archive(eventId, BEFORE, 10);
+        verify(archiveRepository, times(1)).archive(nextEventId, BEFORE, 10);
+        verify(transactionManager, times(3)).commit(any());
+        assertThat(meterRegistry.get("analytics.archive.activities").counter().count()).isEqualTo(24.0);
+        assertThat(meterRegistry.get("analytics.archive.segments").counter().count()).isEqualTo(3.0);
+        assertThat(meterRegistry.get("analytics.archive.bytes").counter().count()).isEqualTo(280.0);
+    }
+    
+    @Test
+    void archive_shouldWaitWhileDatabaseCircuitBreakerIsOpen() {
+        // Given
+        circuitBreakerRegistry.circuitBreaker("analyticsDatabase").transitionToOpenState();
+        
+        // When
+        archiveService.archive();
+        
+        // Then
+        verify(archiveRepository, never()).findArchivableEventIds(any(), anyInt());
+        verify(archiveRepository, never()).archive(any(), any(), anyInt());
+    }
+    
+    @Test
+    void findByUserId_shouldReadBothTiersInOneSnapshot() {
+        // Given
+        UserActivity archived = activity(1L, LocalDateTime.of(2024, 5, 1, 12, 0));
+        UserActivity recent = activity(900L, LocalDateTime.of(2026, 5, 1, 12, 0));
+        when(archiveRepository.findByUserId(userId)).thenReturn(List.of(archived));
+        when(userActivityRepository.findByUserId(userId)).thenReturn(List.of(recent));
+        
+        // When
+        List<UserActivity> result = archiveService.findByUserId(userId);
+        
+        // Then
+        assertThat(result).containsExactly(archived, recent);
+        verify(transactionManager).getTransaction(argThat(definition ->
+                definition.isReadOnly() && definition.getIsolationLevel() == TransactionDefinition.ISOLATION_REPEATABLE_READ));
+    }
+    
+    @Test
+    void findViewsByEventId_shouldConvertArchivedRows() {
+        // Given
+        Set<String> fields = Set.of("userId", "activityType");
+        UserActivity archived = activity(1L, LocalDateTime.of(2024, 5, 1, 12, 0));
+        UserActivityView recent = new UserActivityView();
+        recent.setUserId(userId);
+        recent.setActivityType(UserActivity.ActivityType.CHECKED_IN);
+        when(archiveRepository.findByEventId(eventId)).thenReturn(List.of(archived));
+        when(projectionRepository.findActivitiesByEventId(eq(eventId), eq(fields))).thenReturn(List.of(recent));
+        
+        // When
+        List<UserActivityView> result = archiveService.findViewsByEventId(eventId, fields);
+        
+        // Then
+        assertThat(result).hasSize(2);
+        assertThat(result.get(0).getId()).isEqualTo(1L);
+        assertThat(result.get(0).getActivityType()).isEqualTo(UserActivity.ActivityType.RSVP_ACCEPTED);
+        assertThat(result.get(0).getActivityTimestamp()).isEqualTo(archived.getActivityTimestamp());
+        assertThat(result.get(1)).isSameAs(recent);
+    }
+    
+    private UserActivity activity(long id, LocalDateTime at) {
+        UserActivity activity = new UserActivity();
+        activity.setId(id);
+        activity.setUserId(userId);
+        activity.setEventId(eventId);
+        activity.setActivityType(UserActivity.ActivityType.RSVP_ACCEPTED);
+        activity.setActivityTimestamp(at);
+        return activity;
+    }
+}
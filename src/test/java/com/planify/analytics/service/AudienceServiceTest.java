@@ -0,0 +1,225 @@
+package com.planify.analytics.service;
+
+import com.planify.analytics.config.AnalyticsProperties;
+import com.planify.analytics.model.Audience;
+import com.planify.analytics.model.AudienceExpression;
+import com.planify.analytics.model.UserActivity;
+import com.planify.analytics.repository.ActivityArchiveRepository;
+import com.planify.analytics.repository.AudienceSetRepository;
+import com.planify.analytics.repository.AudienceSetRepository.SetKey;
+import com.planify.analytics.sharding.ShardRouter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AudienceServiceTest {
+    
+    @Mock
+    private AudienceSetRepository audienceRepository;
+    
+    @Mock
+    private ActivityArchiveRepository archiveRepository;
+    
+    @Mock
+    private PlatformTransactionManager transactionManager;
+    
+    private SimpleMeterRegistry meterRegistry;
+    private AudienceService audienceService;
+    private UUID eventId;
+    private SetKey invited;
+    private SetKey accepted;
+    private SetKey declined;
+    private SetKey maybe;
+    
+    @BeforeEach
+    void setUp() {
+        AnalyticsProperties properties = new AnalyticsProperties();
+        properties.getAudience().setMaxSets(4);
+        meterRegistry = new SimpleMeterRegistry();
+        audienceService = new AudienceService(audienceRepository, archiveRepository, transactionManager,
+                new ShardRouter(properties, null), properties, meterRegistry);
+        eventId = UUID.randomUUID();
+        invited = new SetKey(eventId, UserActivity.ActivityType.INVITATION_SENT);
+        accepted = new SetKey(eventId, UserActivity.ActivityType.RSVP_ACCEPTED);
+        declined = new SetKey(eventId, UserActivity.ActivityType.RSVP_DECLINED);
+        maybe = new SetKey(eventId, UserActivity.ActivityType.RSVP_MAYBE);
+    }
+    
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        TransactionSynchronizationManager.unbindResourceIfPossible(audienceService);
+    }
+    
+    @Test
+    @SuppressWarnings("unchecked")
+    void activityRecorded_shouldMergeNewMembersOncePerSetBeforeCommit() {
+        // Given
+        UUID alice = UUID.randomUUID();
+        UUID bob = UUID.randomUUID();
+        TransactionSynchronizationManager.initSynchronization();
+        when(audienceRepository.lock(Set.of(invited, accepted)))
+                .thenReturn(new HashMap<>(Map.of(invited, RoaringBitmap.bitmapOf(1), accepted, new RoaringBitmap())));
+        when(audienceRepository.userIndexes(Set.of(alice, bob))).thenReturn(Map.of(alice, 1, bob, 2));
+        
+        // When
+        audienceService.activityRecorded(alice, eventId, UserActivity.ActivityType.INVITATION_SENT);
+        audienceService.activityRecorded(bob, eventId, UserActivity.ActivityType.INVITATION_SENT);
+        audienceService.activityRecorded(alice, eventId, UserActivity.ActivityType.RSVP_ACCEPTED);
+        
+        // Then
+        verifyNoInteractions(audienceRepository);
+        TransactionSynchronizationManager.getSynchronizations().forEach(sync -> sync.beforeCommit(false));
+        
+        ArgumentCaptor<Map<SetKey, RoaringBitmap>> updated = ArgumentCaptor.forClass(Map.class);
+        verify(audienceRepository).update(updated.capture());
+        assertThat(updated.getValue()).isEqualTo(Map.of(invited, RoaringBitmap.bitmapOf(1, 2), accepted, RoaringBitmap.bitmapOf(1)));
+        assertThat(meterRegistry.get("analytics.audience.updated").counter().count()).isEqualTo(2.0);
+        
+        TransactionSynchronizationManager.getSynchronizations().forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        assertThat(TransactionSynchronizationManager.getResource(audienceService)).isNull();
+    }
+    
+    @Test
+    void activityRecorded_shouldNotRewriteSetThatAlreadyHasTheUser() {
+        // Given
+        UUID alice = UUID.randomUUID();
+        when(audienceRepository.lock(Set.of(invited))).thenReturn(new HashMap<>(Map.of(invited, RoaringBitmap.bitmapOf(7))));
+        when(audienceRepository.userIndexes(Set.of(alice))).thenReturn(Map.of(alice, 7));
+        
+        // When
+        audienceService.activityRecorded(alice, eventId, UserActivity.ActivityType.INVITATION_SENT);
+        
+        // Then
+        verify(audienceRepository).update(Map.of());
+        assertThat(meterRegistry.get("analytics.audience.updated").counter().count()).isZero();
+    }
+    
+    @Test
+    void query_shouldPageInvitedButNeverRsvped() {
+        // Given
+        AudienceExpression expression = AudienceExpression.difference(
+                AudienceExpression.set(eventId, UserActivity.ActivityType.INVITATION_SENT),
+                AudienceExpression.set(eventId, UserActivity.ActivityType.RSVP_ACCEPTED),
+                AudienceExpression.set(eventId, UserActivity.ActivityType.RSVP_DECLINED),
+                AudienceExpression.set(eventId, UserActivity.ActivityType.RSVP_MAYBE));
+        when(audienceRepository.findSets(List.of(invited, accepted, declined, maybe))).thenReturn(Map.of(
+                invited, RoaringBitmap.bitmapOf(1, 2, 3, 4, 5, 6),
+                accepted, RoaringBitmap.bitmapOf(1, 5),
+                declined, RoaringBitmap.bitmapOf(2)));
+        UUID third = UUID.randomUUID();
+        UUID fourth = UUID.randomUUID();
+        UUID sixth = UUID.randomUUID();
+        when(audienceRepository.findUserIds(new int[]{3, 4})).thenReturn(Map.of(3, third, 4, fourth));
+        when(audienceRepository.findUserIds(new int[]{6})).thenReturn(Map.of(6, sixth));
+        
+        // When
+        Audience firstPage = audienceService.query(expression, 2, null);
+        Audience secondPage = audienceService.query(expression, 2, firstPage.getEndCursor());
+        
+        // Then
+        assertThat(firstPage.getCardinality()).isEqualTo(3);
+        assertThat(firstPage.getUserIds()).containsExactly(third, fourth);
+        assertThat(firstPage.getEndCursor()).isEqualTo("4");
+        assertThat(secondPage.getUserIds()).containsExactly(sixth);
+        assertThat(secondPage.getEndCursor()).isNull();
+    }
+    
+    @Test
+    void query_shouldCountAttendeesOfBothEventsWithoutReadingUsers() {
+        // Given
+        UUID otherEventId = UUID.randomUUID();
+        SetKey checkedIn = new SetKey(eventId, UserActivity.ActivityType.CHECKED_IN);
+        SetKey otherCheckedIn = new SetKey(otherEventId, UserActivity.ActivityType.CHECKED_IN);
+        when(audienceRepository.findSets(List.of(checkedIn, otherCheckedIn))).thenReturn(Map.of(
+                checkedIn, RoaringBitmap.bitmapOf(1, 2, 3),
+                otherCheckedIn, RoaringBitmap.bitmapOf(2, 3, 4)));
+        
+        // When
+        Audience audience = audienceService.query(AudienceExpression.intersect(
+                AudienceExpression.set(eventId, UserActivity.ActivityType.CHECKED_IN),
+                AudienceExpression.set(otherEventId, UserActivity.ActivityType.CHECKED_IN)), 0, null);
+        
+        // Then
+        assertThat(audience.getCardinality()).isEqualTo(2);
+        assertThat(audience.getUserIds()).isEmpty();
+        verify(audienceRepository, never()).findUserIds(any());
+    }
+    
+    @Test
+    void query_shouldRejectInvalidExpressions() {
+        // Given
+        AudienceExpression withoutOperands = AudienceExpression.union();
+        AudienceExpression tooLarge = AudienceExpression.union(
+                AudienceExpression.set(eventId, UserActivity.ActivityType.INVITATION_SENT),
+                AudienceExpression.set(eventId, UserActivity.ActivityType.RSVP_ACCEPTED),
+                AudienceExpression.set(eventId, UserActivity.ActivityType.RSVP_DECLINED),
+                AudienceExpression.set(eventId, UserActivity.ActivityType.RSVP_MAYBE),
+                AudienceExpression.set(eventId, UserActivity.ActivityType.CHECKED_IN));
+        AudienceExpression valid = AudienceExpression.set(eventId, UserActivity.ActivityType.CHECKED_IN);
+        
+        // When / Then
+        assertThatThrownBy(() -> audienceService.query(withoutOperands, 0, null)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> audienceService.query(tooLarge, 0, null)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> audienceService.query(valid, 10, "not-a-cursor")).isInstanceOf(IllegalArgumentException.class);
+        verifyNoInteractions(audienceRepository);
+    }
+    
+    @Test
+    @SuppressWarnings("unchecked")
+    void rebuild_shouldRewriteSetsThatDifferFromBothActivityTiers() {
+        // Given
+        UUID alice = UUID.randomUUID();
+        UUID bob = UUID.randomUUID();
+        Map<SetKey, RoaringBitmap> current = new HashMap<>();
+        for (UserActivity.ActivityType activityType : UserActivity.ActivityType.values()) {
+            current.put(new SetKey(eventId, activityType), new RoaringBitmap());
+        }
+        current.put(invited, RoaringBitmap.bitmapOf(1, 2));
+        current.put(accepted, RoaringBitmap.bitmapOf(1, 9));
+        when(audienceRepository.lock(any())).thenReturn(current);
+        when(audienceRepository.findMembers(List.of(eventId))).thenReturn(new HashMap<>(Map.of(
+                invited, new HashSet<>(Set.of(alice, bob)),
+                accepted, new HashSet<>(Set.of(alice)))));
+        UserActivity archived = new UserActivity();
+        archived.setEventId(eventId);
+        archived.setUserId(bob);
+        archived.setActivityType(UserActivity.ActivityType.CHECKED_IN);
+        when(archiveRepository.findByEventId(eventId)).thenReturn(List.of(archived));
+        when(audienceRepository.userIndexes(Set.of(alice, bob))).thenReturn(Map.of(alice, 1, bob, 2));
+        
+        // When
+        audienceService.rebuild(List.of(eventId));
+        
+        // Then
+        ArgumentCaptor<Map<SetKey, RoaringBitmap>> updated = ArgumentCaptor.forClass(Map.class);
+        verify(audienceRepository).update(updated.capture());
+        assertThat(updated.getValue()).isEqualTo(Map.of(
+                accepted, RoaringBitmap.bitmapOf(1),
+                new SetKey(eventId, UserActivity.ActivityType.CHECKED_IN), RoaringBitmap.bitmapOf(2)));
+        assertThat(meterRegistry.get("analytics.audience.rebuilt").counter().count()).isEqualTo(2.0);
+    }
+}
@@ -0,0 +1,149 @@
+package com.planify.analytics.service;
+
+import com.planify.analytics.config.AnalyticsProperties;
+import com.planify.analytics.model.EventTombstone;
+import com.planify.analytics.repository.AudienceSetRepository;
+import com.planify.analytics.repository.EventFunnelRepository;
+import com.planify.analytics.repository.EventTombstoneRepository;
+import com.planify.analytics.sharding.ShardRouter;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class EventCleanupServiceTest {
+    
+    @Mock
+    private EventTombstoneRepository tombstoneRepository;
+    
+    @Mock
+    private UserSummaryService userSummaryService;
+    
+    @Mock
+    private EventFunnelRepository eventFunnelRepository;
+    
+    @Mock
+    private AudienceSetRepository audienceSetRepository;
+    
+    @Mock
+    private PlatformTransactionManager transactionManager;
+    
+    private SimpleMeterRegistry meterRegistry;
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+    private EventCleanupService cleanupService;
+    private UUID eventId;
+    
+    @BeforeEach
+    void setUp() {
+        AnalyticsProperties properties = new AnalyticsProperties();
+        properties.getCleanup().setEnabled(false);
+        properties.getCleanup().setChunkSize(10);
+        properties.getCleanup().setMaxChunksPerRun(3);
+        properties.getCleanup().setChunkPauseMillis(0);
+        meterRegistry = new SimpleMeterRegistry();
+        circuitBreakerRegistry = CircuitBreakerRegistry.ofDefaults();
+        cleanupService = new EventCleanupService(tombstoneRepository, userSummaryService, eventFunnelRepository, audienceSetRepository,
+                transactionManager, new ShardRouter(properties, null), circuitBreakerRegistry, properties, meterRegistry);
+        cleanupService.start();
+        eventId = UUID.randomUUID();
+    }
+    
+    @Test
+    void cleanupShard_shouldDeleteActivityThenFunnelInChunksAndComplete() {
+        // Given
+        when(tombstoneRepository.findDue(any(), any())).thenReturn(List.of(tombstone(eventId, null)));
+        when(userSummaryService.deleteEventActivityChunk(eventId, 10)).thenReturn(10, 4);
+        when(eventFunnelRepository.deleteChunkByEventId(eventId, 6)).thenReturn(3);
+        
+        // When
+        cleanupService.cleanupShard(LocalDateTime.now());
+        
+        // Then
+        verify(userSummaryService, times(2)).deleteEventActivityChunk(eventId, 10);
+        verify(tombstoneRepository).addProgress(eventId, 10, 0);
+        verify(tombstoneRepository).addProgress(eventId, 4, 3);
+        verify(tombstoneRepository).markCompleted(eq(eventId), any());
+        verify(audienceSetRepository).deleteByEventId(eventId);
+        verify(tombstoneRepository, never()).deleteById(any());
+        assertThat(meterRegistry.get("analytics.cleanup.deleted").tag("table", "user_activity").counter().count()).isEqualTo(14.0);
+        assertThat(meterRegistry.get("analytics.cleanup.deleted").tag("table", "event_funnel").counter().count()).isEqualTo(3.0);
+        assertThat(meterRegistry.get("analytics.cleanup.completed").counter().count()).isEqualTo(1.0);
+    }
+    
+    @Test
+    void cleanupShard_shouldStopAtChunkBudget() {
+        // Given
+        UUID nextEventId = UUID.randomUUID();
+        when(tombstoneRepository.findDue(any(), any())).thenReturn(List.of(tombstone(eventId, null), tombstone(nextEventId, null)));
+        when(userSummaryService.deleteEventActivityChunk(eventId, 10)).thenReturn(10);
+        
+        // When
+        cleanupService.cleanupShard(LocalDateTime.now());
+        
+        // Then
+        verify(userSummaryService, times(3)).deleteEventActivityChunk(eventId, 10);
+        verify(userSummaryService, never()).deleteEventActivityChunk(eq(nextEventId), anyInt());
+        verify(tombstoneRepository, never()).markCompleted(any(), any());
+    }
+    
+    @Test
+    void cleanupShard_shouldDropTombstoneSweptAfterRetention() {
+        // Given
+        when(tombstoneRepository.findDue(any(), any())).thenReturn(List.of(tombstone(eventId, LocalDateTime.now().minusDays(8))));
+        
+        // When
+        cleanupService.cleanupShard(LocalDateTime.now().minusDays(7));
+        
+        // Then
+        verify(eventFunnelRepository).deleteChunkByEventId(eventId, 10);
+        verify(tombstoneRepository, never()).addProgress(any(), anyLong(), anyLong());
+        verify(tombstoneRepository).deleteById(eventId);
+        verify(tombstoneRepository, never()).markCompleted(any(), any());
+    }
+    
+    @Test
+    void cleanup_shouldWaitWhileDatabaseCircuitBreakerIsOpen() {
+        // Given
+        circuitBreakerRegistry.circuitBreaker("analyticsDatabase").transitionToOpenState();
+        
+        // When
+        cleanupService.cleanup();
+        
+        // Then
+        verifyNoInteractions(tombstoneRepository, userSummaryService, eventFunnelRepository);
+    }
+    
+    @Test
+    void cleanup_shouldReportPendingTombstones() {
+        // Given
+        when(tombstoneRepository.countPending()).thenReturn(2L);
+        
+        // When
+        cleanupService.cleanup();
+        
+        // Then
+        assertThat(meterRegistry.get("analytics.cleanup.pending").gauge().value()).isEqualTo(2.0);
+    }
+    
+    private static EventTombstone tombstone(UUID eventId, LocalDateTime completedAt) {
+        EventTombstone tombstone = new EventTombstone();
+        tombstone.setEventId(eventId);
+        tombstone.setCompletedAt(completedAt);
+        return tombstone;
+    }
+}
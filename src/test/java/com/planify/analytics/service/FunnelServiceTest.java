@@ -0,0 +1,92 @@
+package com.planify.analytics.service;
+
+import com.planify.analytics.model.EventFunnel;
+import com.planify.analytics.model.FunnelMetrics;
+import com.planify.analytics.repository.EventFunnelRepository;
+import com.planify.analytics.repository.EventFunnelRepository.FunnelStats;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class FunnelServiceTest {
+    
+    @Mock
+    private EventFunnelRepository eventFunnelRepository;
+    
+    @Mock
+    private FunnelStats funnelStats;
+    
+    @InjectMocks
+    private FunnelService funnelService;
+    
+    private UUID eventId;
+    private UUID organizationId;
+    private UUID userId;
+    
+    @BeforeEach
+    void setUp() {
+        eventId = UUID.randomUUID();
+        organizationId = UUID.randomUUID();
+        userId = UUID.randomUUID();
+    }
+    
+    @Test
+    void recordRsvp_shouldUpsertWithStageName() {
+        // Given
+        LocalDateTime now = LocalDateTime.now();
+        
+        // When
+        funnelService.recordRsvp(eventId, organizationId, userId, EventFunnel.Stage.RSVP_ACCEPTED, now);
+        
+        // Then
+        verify(eventFunnelRepository).upsertRsvp(eventId, organizationId, userId, "RSVP_ACCEPTED", now);
+    }
+    
+    @Test
+    void getEventFunnel_shouldComputeConversionRates() {
+        // Given
+        when(funnelStats.getInvited()).thenReturn(10L);
+        when(funnelStats.getRsvpAccepted()).thenReturn(6L);
+        when(funnelStats.getRsvpDeclined()).thenReturn(2L);
+        when(funnelStats.getCheckedIn()).thenReturn(3L);
+        when(funnelStats.getMedianTimeToRsvpSeconds()).thenReturn(3600.0);
+        when(eventFunnelRepository.aggregateByEventId(eventId)).thenReturn(funnelStats);
+        
+        // When
+        FunnelMetrics result = funnelService.getEventFunnel(eventId);
+        
+        // Then
+        assertThat(result.getEventId()).isEqualTo(eventId);
+        assertThat(result.getInvited()).isEqualTo(10L);
+        assertThat(result.getRsvpRate()).isEqualTo(0.8);
+        assertThat(result.getAcceptanceRate()).isEqualTo(0.6);
+        assertThat(result.getCheckInRate()).isEqualTo(0.3);
+        assertThat(result.getShowUpRate()).isEqualTo(0.5);
+        assertThat(result.getMedianTimeToRsvpSeconds()).isEqualTo(3600.0);
+    }
+    
+    @Test
+    void getOrganizationFunnel_shouldReturnZeroRatesWhenNoInvites() {
+        // Given
+        when(funnelStats.getInvited()).thenReturn(0L);
+        when(eventFunnelRepository.aggregateByOrganizationId(organizationId)).thenReturn(funnelStats);
+        
+        // When
+        FunnelMetrics result = funnelService.getOrganizationFunnel(organizationId);
+        
+        // Then
+        assertThat(result.getOrganizationId()).isEqualTo(organizationId);
+        assertThat(result.getRsvpRate()).isZero();
+        assertThat(result.getShowUpRate()).isZero();
+    }
+}
@@ -0,0 +1,139 @@
+package com.planify.analytics.service;
+
+import com.planify.analytics.config.AnalyticsProperties;
+import com.planify.analytics.model.EventMetrics;
+import com.planify.analytics.model.OrganizationCounters;
+import com.planify.analytics.repository.EventMetricsRepository;
+import com.planify.analytics.sharding.ShardRouter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LiveMetricsServiceTest {
+    
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+    
+    @Mock
+    private EventMetricsRepository eventMetricsRepository;
+    
+    private SimpleMeterRegistry meterRegistry;
+    private LiveMetricsService liveMetricsService;
+    
+    private UUID eventId;
+    private UUID organizationId;
+    
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        AnalyticsProperties properties = new AnalyticsProperties();
+        liveMetricsService = new LiveMetricsService(eventMetricsRepository, new ShardRouter(properties, null), properties, meterRegistry);
+        eventId = UUID.randomUUID();
+        organizationId = UUID.randomUUID();
+    }
+    
+    @Test
+    void eventMetrics_shouldCoalesceChangesIntoOnePushPerInterval() {
+        // Given
+        when(eventMetricsRepository.findByEventId(eventId))
+                .thenReturn(Optional.of(metrics(0)), Optional.of(metrics(3)));
+        
+        // When / Then
+        StepVerifier.create(liveMetricsService.eventMetrics(eventId))
+                .then(liveMetricsService::push)
+                .assertNext(metrics -> assertThat(metrics.getTotalInvites()).isZero())
+                .then(() -> {
+                    liveMetricsService.eventChanged(eventId, organizationId);
+                    liveMetricsService.eventChanged(eventId, organizationId);
+                    liveMetricsService.eventChanged(eventId, organizationId);
+                    liveMetricsService.push();
+                })
+                .assertNext(metrics -> assertThat(metrics.getTotalInvites()).isEqualTo(3))
+                .then(liveMetricsService::push)
+                .expectNoEvent(Duration.ofMillis(50))
+                .thenCancel()
+                .verify(TIMEOUT);
+        
+        verify(eventMetricsRepository, times(2)).findByEventId(eventId);
+    }
+    
+    @Test
+    void eventMetrics_shouldLoadOnceForAllSubscribers() {
+        // Given
+        when(eventMetricsRepository.findByEventId(eventId)).thenReturn(Optional.of(metrics(1)));
+        var first = liveMetricsService.eventMetrics(eventId).subscribe();
+        var second = liveMetricsService.eventMetrics(eventId).subscribe();
+        
+        // When
+        liveMetricsService.push();
+        
+        // Then
+        verify(eventMetricsRepository, times(1)).findByEventId(eventId);
+        assertThat(meterRegistry.get("analytics.live.pushes").counter().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("analytics.live.subscribers").gauge().value()).isEqualTo(2);
+        
+        first.dispose();
+        second.dispose();
+        assertThat(meterRegistry.get("analytics.live.subscribers").gauge().value()).isZero();
+    }
+    
+    @Test
+    void eventMetrics_shouldCompleteWhenEventIsDeleted() {
+        // Given
+        when(eventMetricsRepository.findByEventId(eventId))
+                .thenReturn(Optional.of(metrics(1)), Optional.empty());
+        
+        // When / Then
+        StepVerifier.create(liveMetricsService.eventMetrics(eventId))
+                .then(liveMetricsService::push)
+                .expectNextCount(1)
+                .then(() -> {
+                    liveMetricsService.eventChanged(eventId, organizationId);
+                    liveMetricsService.push();
+                })
+                .expectComplete()
+                .verify(TIMEOUT);
+    }
+    
+    @Test
+    void organizationCounters_shouldPushZerosForOrganizationWithoutEvents() {
+        // Given
+        when(eventMetricsRepository.sumCountersByOrganization(organizationId)).thenReturn(Optional.empty());
+        
+        // When / Then
+        StepVerifier.create(liveMetricsService.organizationCounters(organizationId))
+                .then(liveMetricsService::push)
+                .assertNext(counters -> assertThat(counters).isEqualTo(OrganizationCounters.empty(organizationId)))
+                .thenCancel()
+                .verify(TIMEOUT);
+    }
+    
+    @Test
+    void eventChanged_shouldIgnoreUnwatchedEvents() {
+        // When
+        liveMetricsService.eventChanged(eventId, organizationId);
+        liveMetricsService.push();
+        
+        // Then
+        verifyNoInteractions(eventMetricsRepository);
+    }
+    
+    private EventMetrics metrics(int totalInvites) {
+        EventMetrics metrics = new EventMetrics();
+        metrics.setEventId(eventId);
+        metrics.setOrganizationId(organizationId);
+        metrics.setTotalInvites(totalInvites);
+        return metrics;
+    }
+}
@@ -0,0 +1,120 @@
+package com.planify.analytics.service;
+
+import com.planify.analytics.config.AnalyticsProperties;
+import com.planify.analytics.repository.EventMetricsRebuildRepository;
+import com.planify.analytics.sharding.ShardRouter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MetricsRebuildServiceTest {
+    
+    @Mock
+    private EventMetricsRebuildRepository rebuildRepository;
+    
+    @Mock
+    private QueryResultCache queryResultCache;
+    
+    @Mock
+    private MetricsTopicPublisher metricsTopicPublisher;
+    
+    @Mock
+    private OrganizationSummaryService organizationSummaryService;
+    
+    @Mock
+    private AudienceService audienceService;
+    
+    private AnalyticsProperties properties;
+    private MetricsRebuildService metricsRebuildService;
+    
+    @BeforeEach
+    void setUp() {
+        properties = new AnalyticsProperties();
+        properties.getRebuild().setPartitions(4);
+        metricsRebuildService = new MetricsRebuildService(rebuildRepository, properties, queryResultCache, new ShardRouter(properties, null),
+                metricsTopicPublisher, organizationSummaryService, audienceService);
+    }
+    
+    @Test
+    void eventIdRanges_shouldCoverWholeUuidSpaceWithoutGaps() {
+        // When
+        List<UUID[]> ranges = MetricsRebuildService.eventIdRanges(4);
+        
+        // Then
+        assertThat(ranges).hasSize(4);
+        assertThat(ranges.get(0)[0]).isNull();
+        assertThat(ranges.get(3)[1]).isNull();
+        assertThat(ranges.get(1)[0]).isEqualTo(UUID.fromString("40000000-0000-0000-0000-000000000000"));
+        assertThat(ranges.get(2)[0]).isEqualTo(UUID.fromString("80000000-0000-0000-0000-000000000000"));
+        assertThat(ranges.get(3)[0]).isEqualTo(UUID.fromString("c0000000-0000-0000-0000-000000000000"));
+        for (int i = 1; i < ranges.size(); i++) {
+            assertThat(ranges.get(i)[0]).isEqualTo(ranges.get(i - 1)[1]);
+        }
+    }
+    
+    @Test
+    void startRebuild_shouldRecomputeEveryRangeAndSwap() {
+        // Given
+        when(rebuildRepository.createShadow()).thenReturn(10);
+        when(rebuildRepository.activityHighWaterMark()).thenReturn(42L);
+        when(rebuildRepository.rebuildRange(any(), any())).thenReturn(3);
+        
+        // When
+        boolean started = metricsRebuildService.startRebuild();
+        
+        // Then
+        assertThat(started).isTrue();
+        verify(rebuildRepository, timeout(3000)).swapShadow(any(LocalDateTime.class), eq(42L));
+        verify(queryResultCache, timeout(3000)).invalidateAll();
+        verify(metricsTopicPublisher, timeout(3000)).allEventsChanged();
+        verify(organizationSummaryService, timeout(3000)).reconcileAll();
+        verify(audienceService, timeout(3000)).rebuildAll();
+        verify(rebuildRepository, times(4)).rebuildRange(any(), any());
+        await(() -> assertThat(metricsRebuildService.getStatus())
+                .containsEntry("state", "COMPLETED")
+                .containsEntry("partitionsCompleted", 4)
+                .containsEntry("rowsRebuilt", 12L));
+    }
+    
+    @Test
+    void startRebuild_shouldDropShadowWhenRangeFails() {
+        // Given
+        when(rebuildRepository.rebuildRange(any(), any())).thenThrow(new RuntimeException("Database unavailable"));
+        
+        // When
+        metricsRebuildService.startRebuild();
+        
+        // Then
+        verify(rebuildRepository, timeout(3000)).dropShadow();
+        verify(rebuildRepository, never()).swapShadow(any(), anyLong());
+        await(() -> assertThat(metricsRebuildService.getStatus()).containsEntry("state", "FAILED"));
+    }
+    
+    private static void await(Runnable assertion) {
+        long deadline = System.currentTimeMillis() + 3000;
+        while (true) {
+            try {
+                assertion.run();
+                return;
+            } catch (AssertionError e) {
+                if (System.currentTimeMillis() > deadline) {
+                    throw e;
+                }
+                Thread.onSpinWait();
+            }
+        }
+    }
+}
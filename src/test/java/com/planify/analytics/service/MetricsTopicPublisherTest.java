@@ -0,0 +1,155 @@
+package com.planify.analytics.service;
+
+import com.planify.analytics.config.AnalyticsProperties;
+import com.planify.analytics.event.KafkaTopics;
+import com.planify.analytics.model.EventMetrics;
+import com.planify.analytics.repository.EventMetricsRepository;
+import com.planify.analytics.repository.MetricsOutboxRepository;
+import com.planify.analytics.sharding.ShardRouter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MetricsTopicPublisherTest {
+    
+    @Mock
+    private MetricsOutboxRepository outboxRepository;
+    
+    @Mock
+    private EventMetricsRepository eventMetricsRepository;
+    
+    @Mock
+    private KafkaTemplate<String, String> kafkaTemplate;
+    
+    @Mock
+    private PlatformTransactionManager transactionManager;
+    
+    private SimpleMeterRegistry meterRegistry;
+    private AnalyticsProperties properties;
+    private MetricsTopicPublisher publisher;
+    
+    private UUID eventId;
+    private UUID deletedEventId;
+    
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        properties = new AnalyticsProperties();
+        publisher = new MetricsTopicPublisher(outboxRepository, eventMetricsRepository, kafkaTemplate, transactionManager,
+                new ShardRouter(properties, null), properties, meterRegistry);
+        eventId = UUID.randomUUID();
+        deletedEventId = UUID.randomUUID();
+    }
+    
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        TransactionSynchronizationManager.unbindResourceIfPossible(publisher);
+    }
+    
+    @Test
+    void eventsChanged_shouldWriteEachEventOnceBeforeCommit() {
+        // Given
+        TransactionSynchronizationManager.initSynchronization();
+        
+        // When
+        publisher.eventChanged(eventId);
+        publisher.eventChanged(eventId);
+        publisher.eventsChanged(List.of(eventId, deletedEventId));
+        
+        // Then
+        verify(outboxRepository, never()).enqueue(anyCollection());
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        assertThat(synchronizations).hasSize(1);
+        synchronizations.forEach(synchronization -> synchronization.beforeCommit(false));
+        verify(outboxRepository).enqueue(Set.of(eventId, deletedEventId));
+    }
+    
+    @Test
+    void eventsChanged_shouldDoNothingWhenDisabled() {
+        // Given
+        properties.getMetricsTopic().setEnabled(false);
+        publisher = new MetricsTopicPublisher(outboxRepository, eventMetricsRepository, kafkaTemplate, transactionManager,
+                new ShardRouter(properties, null), properties, meterRegistry);
+        
+        // When
+        publisher.eventChanged(eventId);
+        
+        // Then
+        verifyNoInteractions(outboxRepository);
+    }
+    
+    @Test
+    void publish_shouldSendSnapshotsAndTombstonesThenDeleteRows() {
+        // Given
+        when(outboxRepository.lockPending(500)).thenReturn(List.of(
+                new MetricsOutboxRepository.Pending(eventId, 3),
+                new MetricsOutboxRepository.Pending(deletedEventId, 1)));
+        when(eventMetricsRepository.findByEventIdIn(List.of(eventId, deletedEventId))).thenReturn(List.of(metrics(eventId, 7)));
+        when(kafkaTemplate.send(anyString(), anyString(), any())).thenReturn(CompletableFuture.completedFuture(null));
+        
+        // When
+        publisher.publish();
+        
+        // Then
+        verify(kafkaTemplate).send(eq(KafkaTopics.EVENT_METRICS), eq(eventId.toString()), contains("\"rsvpAccepted\":7"));
+        verify(kafkaTemplate).send(eq(KafkaTopics.EVENT_METRICS), eq(deletedEventId.toString()), isNull());
+        verify(outboxRepository).delete(List.of(eventId, deletedEventId));
+        verify(transactionManager).commit(any());
+        assertThat(meterRegistry.counter("analytics.metrics-topic.published").count()).isEqualTo(2);
+        assertThat(meterRegistry.counter("analytics.metrics-topic.changes").count()).isEqualTo(4);
+    }
+    
+    @Test
+    void publish_shouldKeepRowsWhenSendFails() {
+        // Given
+        when(outboxRepository.lockPending(500)).thenReturn(List.of(new MetricsOutboxRepository.Pending(eventId, 1)));
+        when(eventMetricsRepository.findByEventIdIn(List.of(eventId))).thenReturn(List.of(metrics(eventId, 1)));
+        when(kafkaTemplate.send(anyString(), anyString(), any()))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("Broker unavailable")));
+        
+        // When
+        publisher.publish();
+        
+        // Then
+        verify(outboxRepository, never()).delete(anyCollection());
+        verify(transactionManager).rollback(any());
+        assertThat(meterRegistry.counter("analytics.metrics-topic.published").count()).isZero();
+    }
+    
+    private static EventMetrics metrics(UUID eventId, int rsvpAccepted) {
+        EventMetrics metrics = new EventMetrics();
+        metrics.setEventId(eventId);
+        metrics.setOrganizationId(UUID.randomUUID());
+        metrics.setEventTitle("Launch");
+        metrics.setEventDate(LocalDateTime.now().plusDays(7));
+        metrics.setRsvpAccepted(rsvpAccepted);
+        return metrics;
+    }
+}
@@ -0,0 +1,155 @@
+package com.planify.analytics.service;
+
+import com.planify.analytics.config.AnalyticsProperties;
+import com.planify.analytics.model.EventMetrics;
+import com.planify.analytics.model.UserActivity;
+import com.planify.analytics.repository.OrganizationSummaryRepository;
+import com.planify.analytics.repository.OrganizationSummaryRepository.Delta;
+import com.planify.analytics.sharding.ShardRouter;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OrganizationSummaryServiceTest {
+    
+    @Mock
+    private OrganizationSummaryRepository summaryRepository;
+    
+    @Mock
+    private PlatformTransactionManager transactionManager;
+    
+    private SimpleMeterRegistry meterRegistry;
+    private OrganizationSummaryService summaryService;
+    private UUID organizationId;
+    
+    @BeforeEach
+    void setUp() {
+        AnalyticsProperties properties = new AnalyticsProperties();
+        properties.getOrganizationSummary().setReconcileEnabled(false);
+        properties.getOrganizationSummary().setReconcileChunkSize(2);
+        meterRegistry = new SimpleMeterRegistry();
+        summaryService = new OrganizationSummaryService(summaryRepository, transactionManager,
+                new ShardRouter(properties, null), CircuitBreakerRegistry.ofDefaults(), properties, meterRegistry);
+        summaryService.start();
+        organizationId = UUID.randomUUID();
+    }
+    
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        TransactionSynchronizationManager.unbindResourceIfPossible(summaryService);
+    }
+    
+    @Test
+    @SuppressWarnings("unchecked")
+    void changes_shouldWriteOneDeltaPerOrganizationBeforeCommit() {
+        // Given
+        TransactionSynchronizationManager.initSynchronization();
+        
+        // When
+        summaryService.eventCreated(organizationId, "DRAFT");
+        summaryService.statusChanged(organizationId, "DRAFT", "PUBLISHED");
+        summaryService.statusChanged(organizationId, "PUBLISHED", "PUBLISHED");
+        summaryService.activityCounted(organizationId, UserActivity.ActivityType.INVITATION_SENT);
+        summaryService.activityCounted(organizationId, UserActivity.ActivityType.INVITATION_SENT);
+        
+        // Then
+        verifyNoInteractions(summaryRepository);
+        TransactionSynchronizationManager.getSynchronizations().forEach(sync -> sync.beforeCommit(false));
+        
+        ArgumentCaptor<Collection<Delta>> deltas = ArgumentCaptor.forClass(Collection.class);
+        verify(summaryRepository).add(deltas.capture());
+        assertThat(deltas.getValue()).singleElement().satisfies(delta -> {
+            assertThat(delta.getOrganizationId()).isEqualTo(organizationId);
+            assertThat(delta.getEvents()).isEqualTo(1);
+            assertThat(delta.getEventsByStatus()).isEqualTo(Map.of("DRAFT", 0L, "PUBLISHED", 1L));
+            assertThat(delta.getCount(UserActivity.ActivityType.INVITATION_SENT)).isEqualTo(2);
+        });
+        
+        TransactionSynchronizationManager.getSynchronizations().forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        assertThat(TransactionSynchronizationManager.getResource(summaryService)).isNull();
+    }
+    
+    @Test
+    @SuppressWarnings("unchecked")
+    void eventDeleted_shouldSubtractEventAndCounters() {
+        // Given
+        EventMetrics metrics = new EventMetrics();
+        metrics.setOrganizationId(organizationId);
+        metrics.setEventStatus("PUBLISHED");
+        metrics.setTotalInvites(5);
+        metrics.setRsvpAccepted(3);
+        metrics.setCheckedIn(2);
+        
+        // When
+        summaryService.eventDeleted(metrics);
+        
+        // Then
+        ArgumentCaptor<Collection<Delta>> deltas = ArgumentCaptor.forClass(Collection.class);
+        verify(summaryRepository).add(deltas.capture());
+        assertThat(deltas.getValue()).singleElement().satisfies(delta -> {
+            assertThat(delta.getEvents()).isEqualTo(-1);
+            assertThat(delta.getEventsByStatus()).isEqualTo(Map.of("PUBLISHED", -1L));
+            assertThat(delta.getCount(UserActivity.ActivityType.INVITATION_SENT)).isEqualTo(-5);
+            assertThat(delta.getCount(UserActivity.ActivityType.RSVP_ACCEPTED)).isEqualTo(-3);
+            assertThat(delta.getCount(UserActivity.ActivityType.RSVP_MAYBE)).isZero();
+            assertThat(delta.getCount(UserActivity.ActivityType.CHECKED_IN)).isEqualTo(-2);
+        });
+    }
+    
+    @Test
+    void reconcileAll_shouldReconcileOrganizationsInChunks() {
+        // Given
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        UUID third = UUID.randomUUID();
+        when(summaryRepository.findOrganizationIds(null, 2)).thenReturn(List.of(first, second));
+        when(summaryRepository.findOrganizationIds(second, 2)).thenReturn(List.of(third));
+        when(summaryRepository.reconcile(List.of(first, second))).thenReturn(1);
+        when(summaryRepository.reconcile(List.of(third))).thenReturn(0);
+        
+        // When
+        summaryService.reconcileAll();
+        
+        // Then
+        verify(transactionManager, times(2)).commit(any());
+        assertThat(meterRegistry.get("analytics.organization-summary.corrected").counter().count()).isEqualTo(1.0);
+    }
+    
+    @Test
+    void reconcileShards_shouldWaitWhileDatabaseCircuitBreakerIsOpen() {
+        // Given
+        CircuitBreakerRegistry circuitBreakerRegistry = CircuitBreakerRegistry.ofDefaults();
+        AnalyticsProperties properties = new AnalyticsProperties();
+        OrganizationSummaryService service = new OrganizationSummaryService(summaryRepository, transactionManager,
+                new ShardRouter(properties, null), circuitBreakerRegistry, properties, meterRegistry);
+        circuitBreakerRegistry.circuitBreaker("analyticsDatabase").transitionToOpenState();
+        
+        // When
+        service.reconcileShards();
+        
+        // Then
+        verifyNoInteractions(summaryRepository);
+    }
+}
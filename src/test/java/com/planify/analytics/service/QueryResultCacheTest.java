@@ -0,0 +1,134 @@
+package com.planify.analytics.service;
+
+import com.planify.analytics.config.AnalyticsProperties;
+import graphql.ExecutionResult;
+import graphql.ExecutionResultImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+
+class QueryResultCacheTest {
+    
+    private SimpleMeterRegistry meterRegistry;
+    private QueryResultCache queryResultCache;
+    
+    private UUID eventId;
+    private UUID organizationId;
+    
+    @BeforeEach
+    void setUp() {
+        AnalyticsProperties properties = new AnalyticsProperties();
+        properties.getGraphql().getResultCache().setEnabled(true);
+        meterRegistry = new SimpleMeterRegistry();
+        queryResultCache = new QueryResultCache(properties, meterRegistry);
+        eventId = UUID.randomUUID();
+        organizationId = UUID.randomUUID();
+    }
+    
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+    
+    @Test
+    void get_shouldReturnCompletedResultForSameKey() {
+        // Given
+        QueryResultCache.Key key = key("q1", Map.of("eventId", eventId.toString()));
+        ExecutionResult result = result(3);
+        queryResultCache.complete(queryResultCache.begin(key, Set.of(QueryResultCache.tag("eventId", eventId))), result);
+        
+        // When / Then
+        assertThat(queryResultCache.get(key("q1", Map.of("eventId", eventId.toString())))).isSameAs(result);
+        assertThat(queryResultCache.get(key("q1", Map.of("eventId", UUID.randomUUID().toString())))).isNull();
+        assertThat(meterRegistry.counter("analytics.graphql.results", "result", "hit").count()).isEqualTo(1);
+        assertThat(meterRegistry.counter("analytics.graphql.results", "result", "miss").count()).isEqualTo(1);
+    }
+    
+    @Test
+    void invalidate_shouldDropMatchingAndGlobalEntriesOnly() {
+        // Given
+        QueryResultCache.Key event = cached("event", QueryResultCache.tag("eventId", eventId));
+        QueryResultCache.Key otherEvent = cached("otherEvent", QueryResultCache.tag("eventId", UUID.randomUUID()));
+        QueryResultCache.Key global = cached("global", QueryResultCache.GLOBAL);
+        
+        // When
+        queryResultCache.invalidate(eventId, organizationId, null);
+        
+        // Then
+        assertThat(queryResultCache.get(event)).isNull();
+        assertThat(queryResultCache.get(global)).isNull();
+        assertThat(queryResultCache.get(otherEvent)).isNotNull();
+        assertThat(meterRegistry.counter("analytics.graphql.results.invalidated").count()).isEqualTo(2);
+    }
+    
+    @Test
+    void complete_shouldNotStoreResultReadBeforeInvalidatingWrite() {
+        // Given
+        QueryResultCache.Key key = key("q1", Map.of());
+        QueryResultCache.Entry entry = queryResultCache.begin(key, Set.of(QueryResultCache.tag("organizationId", organizationId)));
+        
+        // When
+        queryResultCache.invalidate(null, organizationId, null);
+        queryResultCache.complete(entry, result(1));
+        
+        // Then
+        assertThat(queryResultCache.get(key)).isNull();
+    }
+    
+    @Test
+    void invalidate_shouldWaitForTransactionCommit() {
+        // Given
+        QueryResultCache.Key key = cached("q1", QueryResultCache.tag("eventId", eventId));
+        TransactionSynchronizationManager.initSynchronization();
+        
+        // When
+        queryResultCache.invalidate(eventId, organizationId, null);
+        
+        // Then
+        assertThat(queryResultCache.get(key)).isNotNull();
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        assertThat(queryResultCache.get(key)).isNull();
+    }
+    
+    @Test
+    void invalidateAll_shouldDropEveryEntry() {
+        // Given
+        QueryResultCache.Key event = cached("event", QueryResultCache.tag("eventId", eventId));
+        QueryResultCache.Key organization = cached("organization", QueryResultCache.tag("organizationId", organizationId));
+        
+        // When
+        queryResultCache.invalidateAll();
+        
+        // Then
+        assertThat(queryResultCache.get(event)).isNull();
+        assertThat(queryResultCache.get(organization)).isNull();
+    }
+    
+    private QueryResultCache.Key cached(String documentId, String tag) {
+        QueryResultCache.Key key = key(documentId, Map.of());
+        queryResultCache.complete(queryResultCache.begin(key, Set.of(tag)), result(1));
+        return key;
+    }
+    
+    private static QueryResultCache.Key key(String documentId, Map<String, Object> variables) {
+        return new QueryResultCache.Key(documentId, null, variables);
+    }
+    
+    private static ExecutionResult result(int totalInvites) {
+        return ExecutionResultImpl.newExecutionResult()
+                .data(Map.of("eventMetrics", Map.of("totalInvites", totalInvites)))
+                .build();
+    }
+}
@@ -0,0 +1,144 @@
+package com.planify.analytics.service;
+
+import com.planify.analytics.event.AnalyticsEvent;
+import com.planify.analytics.model.EventFunnel;
+import com.planify.analytics.model.UserActivity;
+import com.planify.analytics.repository.EventMetricsRebuildRepository;
+import com.planify.analytics.repository.ReplayRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReplayBatchWriterTest {
+    
+    @Mock
+    private ReplayRepository replayRepository;
+    
+    @Mock
+    private EventMetricsRebuildRepository rebuildRepository;
+    
+    @Mock
+    private FunnelService funnelService;
+    
+    @Mock
+    private QueryResultCache queryResultCache;
+    
+    @Mock
+    private VelocityService velocityService;
+    
+    @Mock
+    private MetricsTopicPublisher metricsTopicPublisher;
+    
+    @Mock
+    private EventCleanupService eventCleanupService;
+    
+    @Mock
+    private UserSummaryService userSummaryService;
+    
+    @Mock
+    private OrganizationSummaryService organizationSummaryService;
+    
+    @Mock
+    private AudienceService audienceService;
+    
+    @InjectMocks
+    private ReplayBatchWriter replayBatchWriter;
+    
+    private UUID eventId;
+    private UUID organizationId;
+    private UUID userId;
+    
+    @BeforeEach
+    void setUp() {
+        eventId = UUID.randomUUID();
+        organizationId = UUID.randomUUID();
+        userId = UUID.randomUUID();
+    }
+    
+    @Test
+    void applyBatch_shouldRecountOnlyEventsWithMissingActivity() {
+        // Given
+        AnalyticsEvent accepted = activity(AnalyticsEvent.Type.RSVP_ACCEPTED, 42L);
+        when(replayRepository.insertActivities(List.of(accepted))).thenReturn(List.of(accepted));
+        when(replayRepository.findOrganizationIds(Set.of(eventId))).thenReturn(Map.of(eventId, organizationId));
+        
+        // When
+        int applied = replayBatchWriter.applyBatch(List.of(accepted), new HashSet<>());
+        
+        // Then
+        assertThat(applied).isEqualTo(1);
+        verify(rebuildRepository).rebuildEvents(Set.of(eventId));
+        verify(metricsTopicPublisher).eventsChanged(Set.of(eventId));
+        verify(funnelService).recordRsvp(eventId, organizationId, userId, EventFunnel.Stage.RSVP_ACCEPTED, accepted.getTimestamp());
+        verify(userSummaryService).activityRecorded(userId, eventId, UserActivity.ActivityType.RSVP_ACCEPTED, accepted.getTimestamp());
+        verify(audienceService).activityRecorded(userId, eventId, UserActivity.ActivityType.RSVP_ACCEPTED);
+        verify(organizationSummaryService).reconcile(Set.of(organizationId));
+    }
+    
+    @Test
+    void applyBatch_shouldDoNothingWhenAllRecordsWereAlreadyIngested() {
+        // Given
+        AnalyticsEvent invited = activity(AnalyticsEvent.Type.GUEST_INVITED, 7L);
+        when(replayRepository.insertActivities(List.of(invited))).thenReturn(List.of());
+        
+        // When
+        int applied = replayBatchWriter.applyBatch(List.of(invited), new HashSet<>());
+        
+        // Then
+        assertThat(applied).isZero();
+        verify(rebuildRepository, never()).rebuildEvents(anyCollection());
+        verifyNoInteractions(funnelService);
+    }
+    
+    @Test
+    void applyBatch_shouldSkipCreatesAndActivityOfDeletedEvents() {
+        // Given
+        AnalyticsEvent created = new AnalyticsEvent();
+        created.setType(AnalyticsEvent.Type.EVENT_CREATED);
+        created.setEventId(eventId);
+        AnalyticsEvent deleted = new AnalyticsEvent();
+        deleted.setType(AnalyticsEvent.Type.EVENT_DELETED);
+        deleted.setEventId(eventId);
+        Set<UUID> deletedEventIds = new HashSet<>();
+        
+        when(replayRepository.findOrganizationIds(Set.of(eventId))).thenReturn(Map.of(eventId, organizationId));
+        
+        // When
+        replayBatchWriter.applyBatch(List.of(created, activity(AnalyticsEvent.Type.GUEST_CHECKED_IN, 3L), deleted), deletedEventIds);
+        
+        // Then
+        assertThat(deletedEventIds).containsExactly(eventId);
+        verify(replayRepository, never()).insertEvents(any());
+        verify(replayRepository, never()).insertActivities(any());
+        verify(replayRepository).deleteEvents(Set.of(eventId));
+        verify(eventCleanupService).eventDeleted(eventId, organizationId);
+        verify(organizationSummaryService).reconcile(Set.of(organizationId));
+    }
+    
+    private AnalyticsEvent activity(AnalyticsEvent.Type type, long offset) {
+        AnalyticsEvent event = new AnalyticsEvent();
+        event.setType(type);
+        event.setEventId(eventId);
+        event.setUserId(userId);
+        event.setPartition(0);
+        event.setOffset(offset);
+        event.setTimestamp(LocalDateTime.now());
+        return event;
+    }
+}
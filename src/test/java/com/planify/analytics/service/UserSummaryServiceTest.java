@@ -0,0 +1,171 @@
+package com.planify.analytics.service;
+
+import com.planify.analytics.config.AnalyticsProperties;
+import com.planify.analytics.model.UserActivity;
+import com.planify.analytics.model.UserActivitySummary;
+import com.planify.analytics.repository.ActivityArchiveRepository;
+import com.planify.analytics.repository.UserActivitySummaryRepository;
+import com.planify.analytics.repository.UserActivitySummaryRepository.Delta;
+import com.planify.analytics.repository.UserActivitySummaryRepository.UserEvent;
+import com.planify.analytics.sharding.ShardRouter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserSummaryServiceTest {
+    
+    private static final LocalDateTime START = LocalDateTime.of(2026, 6, 1, 18, 0);
+    
+    @Mock
+    private UserActivitySummaryRepository summaryRepository;
+    
+    @Mock
+    private ActivityArchiveRepository archiveRepository;
+    
+    private UserSummaryService userSummaryService;
+    private UUID userId;
+    private UUID eventId;
+    private UUID otherEventId;
+    
+    @BeforeEach
+    void setUp() {
+        userSummaryService = new UserSummaryService(summaryRepository, archiveRepository, new ShardRouter(new AnalyticsProperties(), null));
+        userId = UUID.randomUUID();
+        eventId = UUID.randomUUID();
+        otherEventId = UUID.randomUUID();
+    }
+    
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        TransactionSynchronizationManager.unbindResourceIfPossible(userSummaryService);
+    }
+    
+    @Test
+    @SuppressWarnings("unchecked")
+    void activityRecorded_shouldWriteOneDeltaPerUserBeforeCommit() {
+        // Given
+        TransactionSynchronizationManager.initSynchronization();
+        when(summaryRepository.insertUserEvents(any())).thenReturn(Map.of(userId, 1));
+        
+        // When
+        userSummaryService.activityRecorded(userId, eventId, UserActivity.ActivityType.INVITATION_SENT, START);
+        userSummaryService.activityRecorded(userId, eventId, UserActivity.ActivityType.RSVP_ACCEPTED, START.plusHours(2));
+        userSummaryService.activityRecorded(userId, otherEventId, UserActivity.ActivityType.CHECKED_IN, START.minusDays(1));
+        
+        // Then
+        verifyNoInteractions(summaryRepository);
+        TransactionSynchronizationManager.getSynchronizations().forEach(sync -> sync.beforeCommit(false));
+        
+        verify(summaryRepository).insertUserEvents(Set.of(new UserEvent(userId, eventId), new UserEvent(userId, otherEventId)));
+        ArgumentCaptor<Collection<Delta>> deltas = ArgumentCaptor.forClass(Collection.class);
+        verify(summaryRepository).add(deltas.capture());
+        assertThat(deltas.getValue()).singleElement().satisfies(delta -> {
+            assertThat(delta.getUserId()).isEqualTo(userId);
+            assertThat(delta.getTotal()).isEqualTo(3);
+            assertThat(delta.getCount(UserActivity.ActivityType.INVITATION_SENT)).isEqualTo(1);
+            assertThat(delta.getCount(UserActivity.ActivityType.RSVP_ACCEPTED)).isEqualTo(1);
+            assertThat(delta.getCount(UserActivity.ActivityType.CHECKED_IN)).isEqualTo(1);
+            assertThat(delta.getDistinctEvents()).isEqualTo(1);
+            assertThat(delta.getFirstActivityAt()).isEqualTo(START.minusDays(1));
+            assertThat(delta.getLastActivityAt()).isEqualTo(START.plusHours(2));
+        });
+        
+        TransactionSynchronizationManager.getSynchronizations().forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        assertThat(TransactionSynchronizationManager.getResource(userSummaryService)).isNull();
+    }
+    
+    @Test
+    void activityRecorded_shouldWriteImmediatelyOutsideTransaction() {
+        // When
+        userSummaryService.activityRecorded(userId, eventId, UserActivity.ActivityType.EVENT_VIEWED, START);
+        
+        // Then
+        verify(summaryRepository).insertUserEvents(Set.of(new UserEvent(userId, eventId)));
+        verify(summaryRepository).add(any());
+    }
+    
+    @Test
+    void deleteEventActivityChunk_shouldSubtractDeletedRows() {
+        // Given
+        Delta deleted = new Delta(userId);
+        deleted.add(UserActivity.ActivityType.RSVP_ACCEPTED, 2, null);
+        deleted.add(UserActivity.ActivityType.CHECKED_IN, 1, null);
+        when(summaryRepository.deleteActivityChunk(eventId, 100)).thenReturn(List.of(deleted));
+        
+        // When
+        int removed = userSummaryService.deleteEventActivityChunk(eventId, 100);
+        
+        // Then
+        assertThat(removed).isEqualTo(3);
+        verify(summaryRepository).subtract(eventId, List.of(deleted));
+        verify(archiveRepository).deleteSegment(eventId);
+    }
+    
+    @Test
+    @SuppressWarnings("unchecked")
+    void deleteEventActivityChunk_shouldDeleteArchivedSegmentsWhenNoRowsAreLeft() {
+        // Given
+        when(summaryRepository.deleteActivityChunk(eventId, 100)).thenReturn(List.of());
+        when(archiveRepository.deleteSegment(eventId)).thenReturn(
+                List.of(archived(UserActivity.ActivityType.INVITATION_SENT), archived(UserActivity.ActivityType.RSVP_ACCEPTED)),
+                List.of());
+        
+        // When
+        int removed = userSummaryService.deleteEventActivityChunk(eventId, 100);
+        
+        // Then
+        assertThat(removed).isEqualTo(2);
+        ArgumentCaptor<Collection<Delta>> deltas = ArgumentCaptor.forClass(Collection.class);
+        verify(summaryRepository, times(2)).subtract(eq(eventId), deltas.capture());
+        assertThat(deltas.getAllValues().get(1)).singleElement().satisfies(delta -> {
+            assertThat(delta.getUserId()).isEqualTo(userId);
+            assertThat(delta.getTotal()).isEqualTo(2);
+            assertThat(delta.getCount(UserActivity.ActivityType.RSVP_ACCEPTED)).isEqualTo(1);
+        });
+    }
+    
+    @Test
+    void getSummary_shouldReturnEmptySummaryForUnknownUser() {
+        // Given
+        when(summaryRepository.findByUserId(userId)).thenReturn(Optional.empty());
+        
+        // When
+        UserActivitySummary summary = userSummaryService.getSummary(userId);
+        
+        // Then
+        assertThat(summary.getUserId()).isEqualTo(userId);
+        assertThat(summary.getTotalActivities()).isZero();
+        assertThat(summary.getLastActivityAt()).isNull();
+    }
+    
+    private UserActivity archived(UserActivity.ActivityType type) {
+        UserActivity activity = new UserActivity();
+        activity.setUserId(userId);
+        activity.setEventId(eventId);
+        activity.setActivityType(type);
+        return activity;
+    }
+}
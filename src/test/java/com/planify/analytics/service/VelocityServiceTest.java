@@ -0,0 +1,160 @@
+package com.planify.analytics.service;
+
+import com.planify.analytics.config.AnalyticsProperties;
+import com.planify.analytics.model.EventVelocity;
+import com.planify.analytics.model.UserActivity;
+import com.planify.analytics.repository.UserActivityRepository;
+import com.planify.analytics.sharding.ShardRouter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class VelocityServiceTest {
+    
+    private static final Instant START = Instant.parse("2026-06-01T18:00:00Z");
+    
+    @Mock
+    private UserActivityRepository userActivityRepository;
+    
+    private MutableClock clock;
+    private VelocityService velocityService;
+    private UUID eventId;
+    
+    @BeforeEach
+    void setUp() {
+        AnalyticsProperties properties = new AnalyticsProperties();
+        properties.getVelocity().setBucketSeconds(60);
+        properties.getVelocity().setWindowMinutes(60);
+        properties.getVelocity().setInstanceId("analytics-0");
+        clock = new MutableClock();
+        velocityService = new VelocityService(userActivityRepository, new ShardRouter(properties, null), properties, new SimpleMeterRegistry(), clock);
+        eventId = UUID.randomUUID();
+    }
+    
+    @Test
+    void getVelocity_shouldCountOnlyActivityInsideWindow() {
+        // Given
+        velocityService.record(eventId, UserActivity.ActivityType.CHECKED_IN, minutesAgo(0));
+        velocityService.record(eventId, UserActivity.ActivityType.CHECKED_IN, minutesAgo(4));
+        velocityService.record(eventId, UserActivity.ActivityType.CHECKED_IN, minutesAgo(10));
+        velocityService.record(eventId, UserActivity.ActivityType.RSVP_ACCEPTED, minutesAgo(30));
+        velocityService.record(eventId, UserActivity.ActivityType.RSVP_DECLINED, minutesAgo(45));
+        velocityService.record(eventId, UserActivity.ActivityType.RSVP_ACCEPTED, minutesAgo(90));
+        
+        // When
+        EventVelocity lastFive = velocityService.getVelocity(eventId, 5);
+        EventVelocity lastHour = velocityService.getVelocity(eventId, 60);
+        
+        // Then
+        assertThat(lastFive.getWindowSeconds()).isEqualTo(300);
+        assertThat(lastFive.getCheckedIn()).isEqualTo(2);
+        assertThat(lastFive.getCheckInsPerHour()).isEqualTo(24.0);
+        assertThat(lastHour.getCheckedIn()).isEqualTo(3);
+        assertThat(lastHour.getRsvpAccepted()).isEqualTo(1);
+        assertThat(lastHour.getRsvpDeclined()).isEqualTo(1);
+        assertThat(lastHour.getRsvpsPerHour()).isEqualTo(2.0);
+        assertThat(lastHour.getServedBy()).isEqualTo("analytics-0");
+    }
+    
+    @Test
+    void getVelocity_shouldCapWindowAndDropBucketsThatSlidOut() {
+        // Given
+        velocityService.record(eventId, UserActivity.ActivityType.INVITATION_SENT, minutesAgo(59));
+        velocityService.record(eventId, UserActivity.ActivityType.INVITATION_SENT, minutesAgo(1));
+        
+        // When
+        clock.advance(Duration.ofMinutes(30));
+        EventVelocity velocity = velocityService.getVelocity(eventId, 24 * 60);
+        
+        // Then
+        assertThat(velocity.getWindowSeconds()).isEqualTo(3600);
+        assertThat(velocity.getInvitations()).isEqualTo(1);
+    }
+    
+    @Test
+    void evict_shouldRemoveEventsWithoutRecentActivity() {
+        // Given
+        velocityService.record(eventId, UserActivity.ActivityType.CHECKED_IN, minutesAgo(1));
+        
+        // When
+        clock.advance(Duration.ofMinutes(61));
+        velocityService.evict();
+        
+        // Then
+        assertThat(velocityService.getVelocity(eventId, 60).getCheckedIn()).isZero();
+    }
+    
+    @Test
+    void load_shouldRebuildWindowsFromRecentActivity() {
+        // Given
+        UserActivityRepository.RecentActivity recent = mock(UserActivityRepository.RecentActivity.class);
+        when(recent.getEventId()).thenReturn(eventId);
+        when(recent.getActivityType()).thenReturn(UserActivity.ActivityType.CHECKED_IN);
+        when(recent.getActivityTimestamp()).thenReturn(minutesAgo(2));
+        when(userActivityRepository.findActivitySince(any())).thenReturn(List.of(recent));
+        
+        // When
+        velocityService.load();
+        
+        // Then
+        verify(userActivityRepository).findActivitySince(minutesAgo(60));
+        assertThat(velocityService.getVelocity(eventId, 5).getCheckedIn()).isEqualTo(1);
+    }
+    
+    @Test
+    void load_shouldStartEmptyWhenDatabaseUnavailable() {
+        // Given
+        when(userActivityRepository.findActivitySince(any())).thenThrow(new RuntimeException("Database unavailable"));
+        
+        // When
+        velocityService.load();
+        
+        // Then
+        assertThat(velocityService.getVelocity(eventId, 5).getCheckedIn()).isZero();
+    }
+    
+    private LocalDateTime minutesAgo(int minutes) {
+        return LocalDateTime.ofInstant(START, ZoneOffset.UTC).minusMinutes(minutes);
+    }
+    
+    private static class MutableClock extends Clock {
+        
+        private Instant now = START;
+        
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+        
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+        
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+        
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.planify.analytics.sharding;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+
+class ConsistentHashRingTest {
+    
+    private static final int KEYS = 20_000;
+    
+    @Test
+    void shardFor_shouldSpreadKeysEvenly() {
+        // Given
+        ConsistentHashRing ring = new ConsistentHashRing(List.of("a", "b", "c", "d"), 128);
+        Map<String, Integer> counts = new HashMap<>();
+        
+        // When
+        for (int i = 0; i < KEYS; i++) {
+            counts.merge(ring.shardFor(UUID.randomUUID().toString()), 1, Integer::sum);
+        }
+        
+        // Then
+        assertThat(counts).hasSize(4);
+        assertThat(counts.values()).allSatisfy(count -> assertThat(count).isBetween(KEYS / 4 * 7 / 10, KEYS / 4 * 13 / 10));
+    }
+    
+    @Test
+    void shardFor_shouldOnlyMoveKeysToAddedShard() {
+        // Given
+        ConsistentHashRing before = new ConsistentHashRing(List.of("a", "b", "c"), 128);
+        ConsistentHashRing after = new ConsistentHashRing(List.of("a", "b", "c", "d"), 128);
+        int moved = 0;
+        
+        // When / Then
+        for (int i = 0; i < KEYS; i++) {
+            String key = UUID.randomUUID().toString();
+            String from = before.shardFor(key);
+            String to = after.shardFor(key);
+            if (!from.equals(to)) {
+                assertThat(to).isEqualTo("d");
+                moved++;
+            }
+        }
+        assertThat(moved).isBetween(KEYS / 4 * 7 / 10, KEYS / 4 * 13 / 10);
+    }
+    
+    @Test
+    void shardFor_shouldBeStableAcrossInstances() {
+        // Given
+        String key = "880e8400-e29b-41d4-a716-446655440003";
+        
+        // When / Then
+        assertThat(new ConsistentHashRing(List.of("a", "b"), 64).shardFor(key))
+                .isEqualTo(new ConsistentHashRing(List.of("a", "b"), 64).shardFor(key));
+    }
+}
@@ -0,0 +1,117 @@
+package com.planify.analytics.sharding;
+
+import com.planify.analytics.config.AnalyticsProperties;
+import com.planify.analytics.event.AnalyticsEvent;
+import com.planify.analytics.repository.EventMetricsRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ShardRouterTest {
+    
+    @Mock
+    private EventMetricsRepository eventMetricsRepository;
+    
+    private ShardRouter shardRouter;
+    private UUID organizationId;
+    
+    @BeforeEach
+    void setUp() {
+        AnalyticsProperties properties = new AnalyticsProperties();
+        properties.getSharding().setEnabled(true);
+        properties.getSharding().setShards(List.of(shard("shard-a"), shard("shard-b"), shard("shard-c")));
+        shardRouter = new ShardRouter(properties, eventMetricsRepository);
+        organizationId = UUID.randomUUID();
+    }
+    
+    @Test
+    void partition_shouldRouteEventsOfCreatedEventToOrganizationShard() {
+        // Given
+        UUID eventId = UUID.randomUUID();
+        List<AnalyticsEvent> batch = List.of(
+                event(AnalyticsEvent.Type.EVENT_CREATED, eventId, organizationId),
+                event(AnalyticsEvent.Type.GUEST_INVITED, eventId, null),
+                event(AnalyticsEvent.Type.GUEST_CHECKED_IN, eventId, null));
+        
+        // When
+        Map<String, List<AnalyticsEvent>> partitions = shardRouter.partition(batch);
+        
+        // Then
+        assertThat(partitions).containsOnlyKeys(shardRouter.shardForOrganization(organizationId));
+        assertThat(partitions.values().iterator().next()).containsExactlyElementsOf(batch);
+        verifyNoInteractions(eventMetricsRepository);
+    }
+    
+    @Test
+    void shardForEvent_shouldLookUpUnknownEventOnceOnEachShard() {
+        // Given
+        UUID eventId = UUID.randomUUID();
+        when(eventMetricsRepository.findOrganizationIdByEventId(eventId)).thenAnswer(invocation ->
+                "shard-b".equals(ShardContext.current()) ? Optional.of(organizationId) : Optional.empty());
+        
+        // When
+        String first = shardRouter.shardForEvent(eventId);
+        String second = shardRouter.shardForEvent(eventId);
+        
+        // Then
+        assertThat(first).isEqualTo("shard-b");
+        assertThat(second).isEqualTo("shard-b");
+        verify(eventMetricsRepository, times(2)).findOrganizationIdByEventId(eventId);
+    }
+    
+    @Test
+    void shardForEvent_shouldFallBackToFirstShardForUnknownEvent() {
+        // Given
+        when(eventMetricsRepository.findOrganizationIdByEventId(any())).thenReturn(Optional.empty());
+        
+        // When / Then
+        assertThat(shardRouter.shardForEvent(UUID.randomUUID())).isEqualTo("shard-a");
+    }
+    
+    @Test
+    void onAllShards_shouldRunOnEveryShard() {
+        // When
+        List<String> shards = shardRouter.onAllShards(ShardContext::current);
+        
+        // Then
+        assertThat(shards).containsExactly("shard-a", "shard-b", "shard-c");
+        assertThat(ShardContext.current()).isNull();
+    }
+    
+    @Test
+    void partition_shouldKeepSingleShardWhenDisabled() {
+        // Given
+        ShardRouter disabled = new ShardRouter(new AnalyticsProperties(), eventMetricsRepository);
+        List<AnalyticsEvent> batch = List.of(event(AnalyticsEvent.Type.GUEST_INVITED, UUID.randomUUID(), null));
+        
+        // When / Then
+        assertThat(disabled.partition(batch)).containsExactly(Map.entry(ShardRouter.DEFAULT_SHARD, batch));
+        assertThat(disabled.onAllShards(ShardContext::current)).containsExactly((String) null);
+    }
+    
+    private static AnalyticsProperties.Shard shard(String name) {
+        AnalyticsProperties.Shard shard = new AnalyticsProperties.Shard();
+        shard.setName(name);
+        return shard;
+    }
+    
+    private static AnalyticsEvent event(AnalyticsEvent.Type type, UUID eventId, UUID organizationId) {
+        AnalyticsEvent event = new AnalyticsEvent();
+        event.setType(type);
+        event.setEventId(eventId);
+        event.setOrganizationId(organizationId);
+        return event;
+    }
+}